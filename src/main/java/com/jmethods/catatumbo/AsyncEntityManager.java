@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous view of an {@link EntityManager}. Each method runs the corresponding method of the
+ * EntityManager on an executor, and returns a future that completes with its result, or completes
+ * exceptionally with the {@link EntityManagerException} it threw. Independent operations may be
+ * started one after another and run at the same time. AsyncEntityManager objects are created with
+ * a call to {@link EntityManager#newAsyncEntityManager()} or
+ * {@link EntityManager#newAsyncEntityManager(java.util.concurrent.Executor, int)}.
+ * 
+ * <p>
+ * Operations run with the {@link Tenant} namespace that was set on the calling thread when the
+ * operation was started.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface AsyncEntityManager {
+
+  /**
+   * Inserts the given entity into the Cloud Datastore.
+   * 
+   * @param entity
+   *          the entity to insert
+   * @return a future for the inserted entity
+   */
+  <E> CompletableFuture<E> insert(E entity);
+
+  /**
+   * Inserts the given list of entities into the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to insert
+   * @return a future for the inserted entities
+   */
+  <E> CompletableFuture<List<E>> insert(List<E> entities);
+
+  /**
+   * Updates the given entity in the Cloud Datastore.
+   * 
+   * @param entity
+   *          the entity to update
+   * @return a future for the updated entity
+   */
+  <E> CompletableFuture<E> update(E entity);
+
+  /**
+   * Updates the given list of entities in the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to update
+   * @return a future for the updated entities
+   */
+  <E> CompletableFuture<List<E>> update(List<E> entities);
+
+  /**
+   * Updates or inserts the given entity in the Cloud Datastore.
+   * 
+   * @param entity
+   *          the entity to update or insert
+   * @return a future for the updated or inserted entity
+   */
+  <E> CompletableFuture<E> upsert(E entity);
+
+  /**
+   * Updates or inserts the given list of entities in the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to update or insert
+   * @return a future for the updated or inserted entities
+   */
+  <E> CompletableFuture<List<E>> upsert(List<E> entities);
+
+  /**
+   * Deletes the given entity from the Cloud Datastore.
+   * 
+   * @param entity
+   *          the entity to delete
+   * @return a future that completes when the delete is done
+   */
+  CompletableFuture<Void> delete(Object entity);
+
+  /**
+   * Deletes the given entities from the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to delete
+   * @return a future that completes when the delete is done
+   */
+  CompletableFuture<Void> delete(List<?> entities);
+
+  /**
+   * Deletes the entity with the given key from the Cloud Datastore.
+   * 
+   * @param key
+   *          the key of the entity to delete
+   * @return a future that completes when the delete is done
+   */
+  CompletableFuture<Void> deleteByKey(DatastoreKey key);
+
+  /**
+   * Deletes the entities with the given keys from the Cloud Datastore.
+   * 
+   * @param keys
+   *          the keys of the entities to delete
+   * @return a future that completes when the delete is done
+   */
+  CompletableFuture<Void> deleteByKey(List<DatastoreKey> keys);
+
+  /**
+   * Loads the entity with the given ID. The entity is assumed to be a root entity (no parent). The
+   * entity kind is determined from the supplied class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity, or <code>null</code>, if no entity exists with the given ID
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, long id);
+
+  /**
+   * Loads the entity with the given ID. The entity is assumed to be a root entity (no parent). The
+   * entity kind is determined from the supplied class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity, or <code>null</code>, if no entity exists with the given ID
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, String id);
+
+  /**
+   * Loads the entity with the given parent key and ID.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param parentKey
+   *          the parent key of the entity
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity, or <code>null</code>, if no entity exists with the given ID
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey parentKey, long id);
+
+  /**
+   * Loads the entity with the given parent key and ID.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param parentKey
+   *          the parent key of the entity
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity, or <code>null</code>, if no entity exists with the given ID
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey parentKey, String id);
+
+  /**
+   * Loads the entity with the given key.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param key
+   *          the entity key
+   * @return a future for the entity, or <code>null</code>, if no entity exists with the given key
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey key);
+
+  /**
+   * Loads the entities with the given <b>numeric IDs</b>. The entities are assumed to be root
+   * entities (no parent).
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param identifiers
+   *          the IDs of the entities
+   * @return a future for the entities, in the same order as the given identifiers
+   */
+  <E> CompletableFuture<List<E>> loadById(Class<E> entityClass, List<Long> identifiers);
+
+  /**
+   * Loads the entities with the given <b>names</b>. The entities are assumed to be root entities
+   * (no parent).
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param identifiers
+   *          the names of the entities
+   * @return a future for the entities, in the same order as the given identifiers
+   */
+  <E> CompletableFuture<List<E>> loadByName(Class<E> entityClass, List<String> identifiers);
+
+  /**
+   * Loads the entities with the given keys.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param keys
+   *          the entity keys
+   * @return a future for the entities, in the same order as the given keys
+   */
+  <E> CompletableFuture<List<E>> loadByKey(Class<E> entityClass, List<DatastoreKey> keys);
+
+  /**
+   * Executes the given {@link EntityQueryRequest}.
+   * 
+   * @param expectedResultType
+   *          the expected type of results
+   * @param request
+   *          the entity query request
+   * @return a future for the query response
+   */
+  <E> CompletableFuture<QueryResponse<E>> executeEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request);
+
+  /**
+   * Executes the given {@link ProjectionQueryRequest}.
+   * 
+   * @param expectedResultType
+   *          the expected type of results
+   * @param request
+   *          the projection query request
+   * @return a future for the query response
+   */
+  <E> CompletableFuture<QueryResponse<E>> executeProjectionQueryRequest(
+      Class<E> expectedResultType, ProjectionQueryRequest request);
+
+  /**
+   * Executes the given {@link KeyQueryRequest}.
+   * 
+   * @param request
+   *          the key query request
+   * @return a future for the query response
+   */
+  CompletableFuture<QueryResponse<DatastoreKey>> executeKeyQueryRequest(KeyQueryRequest request);
+
+}
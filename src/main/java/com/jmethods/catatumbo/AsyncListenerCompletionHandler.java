@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.lang.reflect.Method;
+
+/**
+ * Interface for receiving the outcome of asynchronous entity listener methods. The handler is
+ * called on the thread that ran the callback, or, for discarded callbacks, on the thread that
+ * performed the operation, so implementations should return quickly and must be thread-safe.
+ * 
+ * @see AsyncListenerOptions#setCompletionHandler(AsyncListenerCompletionHandler)
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+@FunctionalInterface
+public interface AsyncListenerCompletionHandler {
+
+  /**
+   * Called after an asynchronous callback method has run, failed or been discarded.
+   * 
+   * @param callbackMethod
+   *          the callback method
+   * @param event
+   *          the entity passed to the callback method, or the list of entities, for batch
+   *          callbacks
+   * @param failure
+   *          the exception thrown by the callback method, the reason the callback was discarded,
+   *          or <code>null</code>, if the callback method completed normally
+   */
+  void onCompletion(Method callbackMethod, Object event, Throwable failure);
+
+}
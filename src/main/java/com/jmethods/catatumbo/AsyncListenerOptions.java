@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Objects of this class contain the parameters of the executor that runs the asynchronous entity
+ * listener methods, which are the post-operation callback methods annotated with
+ * <code>async = true</code>. The methods are run by a fixed number of threads. The callbacks of an
+ * entity that are waiting to run are held in a bounded queue, and the rejection policy decides
+ * what happens to new callbacks when the queue is full.
+ * 
+ * @see EntityManager#setAsyncListenerOptions(AsyncListenerOptions)
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class AsyncListenerOptions {
+
+  /**
+   * Default number of threads
+   */
+  public static final int DEFAULT_THREADS = 2;
+
+  /**
+   * Default maximum number of callbacks waiting to run
+   */
+  public static final int DEFAULT_QUEUE_SIZE = 10_000;
+
+  /**
+   * Default rejection policy
+   */
+  public static final RejectionPolicy DEFAULT_REJECTION_POLICY = RejectionPolicy.CALLER_RUNS;
+
+  /**
+   * Number of threads
+   */
+  private int threads;
+
+  /**
+   * Maximum number of callbacks waiting to run
+   */
+  private int queueSize;
+
+  /**
+   * What to do with callbacks that do not fit in the queue
+   */
+  private RejectionPolicy rejectionPolicy;
+
+  /**
+   * Completion handler
+   */
+  private AsyncListenerCompletionHandler completionHandler;
+
+  /**
+   * Creates a new instance of <code>AsyncListenerOptions</code>.
+   */
+  public AsyncListenerOptions() {
+    this.threads = DEFAULT_THREADS;
+    this.queueSize = DEFAULT_QUEUE_SIZE;
+    this.rejectionPolicy = DEFAULT_REJECTION_POLICY;
+  }
+
+  /**
+   * Returns the number of threads.
+   * 
+   * @return the number of threads.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of threads that run the asynchronous callbacks.
+   * 
+   * @param threads
+   *          the number of threads. Must be at least 1.
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * Returns the maximum number of callbacks waiting to run.
+   * 
+   * @return the queue size.
+   */
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  /**
+   * Sets the maximum number of callbacks waiting to run. The callbacks of an entity, or of a list
+   * of entities for batch callbacks, count as one.
+   * 
+   * @param queueSize
+   *          the queue size. Must be at least 1.
+   */
+  public void setQueueSize(int queueSize) {
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("queueSize must be at least 1");
+    }
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * Returns the rejection policy.
+   * 
+   * @return the rejection policy.
+   */
+  public RejectionPolicy getRejectionPolicy() {
+    return rejectionPolicy;
+  }
+
+  /**
+   * Sets what happens to callbacks that do not fit in the queue.
+   * 
+   * @param rejectionPolicy
+   *          the rejection policy
+   */
+  public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+    if (rejectionPolicy == null) {
+      throw new IllegalArgumentException("rejectionPolicy cannot be null");
+    }
+    this.rejectionPolicy = rejectionPolicy;
+  }
+
+  /**
+   * Returns the completion handler.
+   * 
+   * @return the completion handler, or <code>null</code>, if not set.
+   */
+  public AsyncListenerCompletionHandler getCompletionHandler() {
+    return completionHandler;
+  }
+
+  /**
+   * Sets the completion handler, which is notified after each asynchronous callback method has
+   * run, failed or been discarded.
+   * 
+   * @param completionHandler
+   *          the completion handler. May be <code>null</code>.
+   */
+  public void setCompletionHandler(AsyncListenerCompletionHandler completionHandler) {
+    this.completionHandler = completionHandler;
+  }
+
+  /**
+   * What happens to asynchronous callbacks that do not fit in the queue.
+   */
+  public enum RejectionPolicy {
+
+    /**
+     * The callbacks run on the thread that performed the operation, which slows down the callers
+     * until the queue has room again
+     */
+    CALLER_RUNS,
+
+    /**
+     * The callbacks are dropped, and the completion handler, if any, is notified with a
+     * {@link java.util.concurrent.RejectedExecutionException}
+     */
+    DISCARD,
+
+    /**
+     * The operation fails with an {@link EntityManagerException}, after the entities have been
+     * written or loaded
+     */
+    ABORT;
+
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads entities by key, combining the loads requested by concurrent callers into as few Datastore
+ * lookups as possible. BatchingLoader objects are created with a call to
+ * {@link EntityManager#newBatchingLoader(long, java.util.concurrent.TimeUnit, int)}, and are meant
+ * to be shared by all threads of an application.
+ * 
+ * <p>
+ * Keys requested by the callers are collected for a short time window, or until the maximum batch
+ * size is reached, and are then looked up with a single request. A key that is requested again
+ * while it is waiting to be looked up, or while its lookup is in progress, is looked up only once,
+ * and all callers receive its result. Each caller receives its own instance of the entity.
+ * {@link Cacheable} entities are served from the second-level cache, if present. Loads are never
+ * part of a transaction.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface BatchingLoader {
+
+  /**
+   * Loads the entity with the given ID. The entity is assumed to be a root entity (no parent). The
+   * entity kind is determined from the supplied class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity. The future completes with <code>null</code>, if the entity
+   *         does not exist, and completes exceptionally with an {@link EntityManagerException}, if
+   *         the lookup fails.
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, long id);
+
+  /**
+   * Loads the entity with the given ID. The entity is assumed to be a root entity (no parent). The
+   * entity kind is determined from the supplied class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param id
+   *          the ID of the entity
+   * @return a future for the entity. The future completes with <code>null</code>, if the entity
+   *         does not exist, and completes exceptionally with an {@link EntityManagerException}, if
+   *         the lookup fails.
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, String id);
+
+  /**
+   * Loads the entity with the given key.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param key
+   *          the entity key
+   * @return a future for the entity. The future completes with <code>null</code>, if the entity
+   *         does not exist, and completes exceptionally with an {@link EntityManagerException}, if
+   *         the lookup fails.
+   */
+  <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey key);
+
+  /**
+   * Looks up the keys that are waiting to be looked up right away, without waiting for the time
+   * window to elapse.
+   */
+  void flush();
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception thrown by {@link BulkWriter} when one or more chunks of a bulk write fail. The chunks
+ * are committed independently, so the entities of the other chunks are written even though this
+ * exception is thrown. The keys of those entities are available from {@link #getWrittenKeys()},
+ * and the failure of each chunk is available from {@link #getFailures()}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class BulkWriteException extends EntityManagerException {
+
+  /**
+   * Serial version UID
+   */
+  private static final long serialVersionUID = 6208385914718390523L;
+
+  /**
+   * Keys of the entities in the chunks that were written
+   */
+  private final List<DatastoreKey> writtenKeys;
+
+  /**
+   * Failures of the chunks that were not written
+   */
+  private final List<EntityManagerException> failures;
+
+  /**
+   * Creates a new instance of {@code BulkWriteException}. The first failure becomes the cause of
+   * this exception, and the others are added as suppressed exceptions.
+   * 
+   * @param message
+   *          the detail message
+   * @param writtenKeys
+   *          the keys of the entities in the chunks that were written
+   * @param failures
+   *          the failures of the chunks that were not written
+   */
+  public BulkWriteException(String message, List<DatastoreKey> writtenKeys,
+      List<EntityManagerException> failures) {
+    super(message, failures.isEmpty() ? null : failures.get(0));
+    this.writtenKeys = Collections.unmodifiableList(writtenKeys);
+    this.failures = Collections.unmodifiableList(failures);
+    for (int i = 1; i < failures.size(); i++) {
+      addSuppressed(failures.get(i));
+    }
+  }
+
+  /**
+   * Returns the keys of the entities in the chunks that were written. For deletes, these are the
+   * keys of the deleted entities.
+   * 
+   * @return the keys of the written entities
+   */
+  public List<DatastoreKey> getWrittenKeys() {
+    return writtenKeys;
+  }
+
+  /**
+   * Returns the failures of the chunks that were not written, in the order of the chunks.
+   * 
+   * @return the failures of the chunks that were not written
+   */
+  public List<EntityManagerException> getFailures() {
+    return failures;
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.List;
+
+/**
+ * Writes large lists of entities to the Cloud Datastore. The lists are split into chunks that fit
+ * in a single commit, and the chunks are committed at the same time. Unlike the list operations of
+ * {@link EntityManager}, a bulk write is not atomic; each chunk is committed on its own. If any
+ * chunk fails, a {@link BulkWriteException} is thrown after all chunks complete, listing the keys
+ * that were written. The written entities are returned as the passed in instances, updated in place
+ * with any generated ID, key, version and timestamps (see {@link WriteResultMode#IN_PLACE}).
+ * BulkWriter objects are created with a call to {@link EntityManager#newBulkWriter()} or
+ * {@link EntityManager#newBulkWriter(int)}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface BulkWriter {
+
+  /**
+   * Inserts the given list of entities into the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to insert.
+   * @return the inserted entities, in the same order as the given entities.
+   * @throws BulkWriteException
+   *           if one or more chunks fail.
+   */
+  <E> List<E> insert(List<E> entities);
+
+  /**
+   * Updates the given list of entities in the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to update. The passed in entities must have their ID set for the update
+   *          to work.
+   * @return the updated entities, in the same order as the given entities.
+   * @throws BulkWriteException
+   *           if one or more chunks fail.
+   */
+  <E> List<E> update(List<E> entities);
+
+  /**
+   * Updates or inserts the given list of entities in the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to update or insert.
+   * @return the updated or inserted entities, in the same order as the given entities.
+   * @throws BulkWriteException
+   *           if one or more chunks fail.
+   */
+  <E> List<E> upsert(List<E> entities);
+
+  /**
+   * Deletes the given entities from the Cloud Datastore.
+   * 
+   * @param entities
+   *          the entities to delete. The entities must have it ID set for the deletion to succeed.
+   * @throws BulkWriteException
+   *           if one or more chunks fail.
+   */
+  void delete(List<?> entities);
+
+  /**
+   * Deletes the entities having the given keys.
+   * 
+   * @param keys
+   *          the entities' keys
+   * @throws BulkWriteException
+   *           if one or more chunks fail.
+   */
+  void deleteByKey(List<DatastoreKey> keys);
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables the second-level cache for an {@link Entity} class. Entities of a cacheable class that
+ * are loaded by key, outside of a transaction, are served from the {@link EntityCache} of the
+ * entity class, if present, and are added to it otherwise. Inserts, updates, upserts and deletes
+ * through the {@link EntityManager} evict the affected entities from the cache once the changes are
+ * committed.
+ * 
+ * <p>
+ * Changes made to the Cloud Datastore by other means (e.g. other applications) are only picked up
+ * when the cached entities expire. This annotation should therefore be used for entities that
+ * rarely change, such as reference data.
+ * </p>
+ *
+ * @author Sai Pullabhotla
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+  /**
+   * The time, in seconds, for which an entity remains in the cache after it was cached. A value of
+   * zero or less means the cached entities never expire.
+   * 
+   * @return the time to live, in seconds
+   */
+  long ttl() default 300;
+
+  /**
+   * The maximum number of entities to keep in the cache. The least recently used entities are
+   * evicted when this limit is reached.
+   * 
+   * @return the maximum number of entities to keep in the cache
+   */
+  int maxSize() default 1000;
+
+}
@@ -30,8 +30,9 @@ public interface DatastoreAccess {
    * 
    * @param entity
    *          the entity to insert
-   * @return the inserted entity. The inserted entity will not be same as the passed in entity. For
-   *         example, the inserted entity may contain any generated ID, key, parent key, etc.
+   * @return the inserted entity. The inserted entity will not be same as the passed in entity,
+   *         unless the write result mode is {@link WriteResultMode#IN_PLACE}. For example, the
+   *         inserted entity may contain any generated ID, key, parent key, etc.
    * @throws EntityManagerException
    *           if any error occurs while inserting.
    */
@@ -43,8 +44,8 @@ public interface DatastoreAccess {
    * @param entities
    *          the entities to insert.
    * @return the inserted entities. The inserted entities will not be same as the passed in
-   *         entities. For example, the inserted entities may contain generated ID, key, parent key,
-   *         etc.
+   *         entities, unless the write result mode is {@link WriteResultMode#IN_PLACE}. For
+   *         example, the inserted entities may contain generated ID, key, parent key, etc.
    * @throws EntityManagerException
    *           if any error occurs while inserting.
    */
@@ -386,4 +387,112 @@ public interface DatastoreAccess {
    */
   QueryResponse<DatastoreKey> executeKeyQueryRequest(KeyQueryRequest request);
 
+  /**
+   * Executes the given {@link EntityQueryRequest} and returns an iterator over the results. The
+   * results are fetched in batches and unmarshalled as the iteration progresses, and the
+   * {@link PostLoad} callbacks are invoked for each entity as it is returned. The
+   * {@link PostLoadBatch} callbacks are invoked for each entity too, with a list containing just
+   * that entity. Use this instead of
+   * {@link #executeEntityQueryRequest(Class, EntityQueryRequest)} for large result sets.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the entity query request
+   * @return an iterator over the results
+   */
+  <E> QueryResultIterator<E> streamEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request);
+
+  /**
+   * Executes the given {@link ProjectionQueryRequest} and returns an iterator over the results. The
+   * results are fetched in batches and unmarshalled as the iteration progresses.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the projection query request
+   * @return an iterator over the results
+   */
+  <E> QueryResultIterator<E> streamProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request);
+
+  /**
+   * Executes the given {@link KeyQueryRequest} and returns an iterator over the results. The
+   * results are fetched in batches as the iteration progresses.
+   * 
+   * @param request
+   *          the key query request
+   * @return an iterator over the results
+   */
+  QueryResultIterator<DatastoreKey> streamKeyQueryRequest(KeyQueryRequest request);
+
+  /**
+   * Executes the given {@link EntityQueryRequest} page by page, and returns an iterator over the
+   * results of all pages. The query must have a LIMIT, which determines the page size, and a named
+   * binding for its start cursor (e.g. <code>OFFSET @Offset</code>). Each page after
+   * the first is fetched by re-executing the query with this binding set to the end cursor of the
+   * previous page. The iteration stops when there are no more results, or when a page comes back
+   * empty. The {@link PostLoad} callbacks are invoked for each entity as its page is fetched, and
+   * the {@link PostLoadBatch} callbacks are invoked once per page, with the entities of the page.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the entity query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor of the query (e.g. "Offset")
+   * @param prefetch
+   *          whether or not to fetch the next page in the background, while the current page is
+   *          being consumed. The background fetch runs with the {@link Tenant} namespace of the
+   *          calling thread. Ignored within a {@link DatastoreTransaction}, where pages are always
+   *          fetched on the calling thread. A prefetch that is no longer needed is cancelled by
+   *          {@link QueryResultIterator#close()}.
+   * @return an iterator over the results of all pages
+   * @throws IllegalArgumentException
+   *           if the query does not have a LIMIT
+   */
+  <E> QueryResultIterator<E> paginateEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request, String cursorBinding, boolean prefetch);
+
+  /**
+   * Executes the given {@link ProjectionQueryRequest} page by page, and returns an iterator over
+   * the results of all pages. See
+   * {@link #paginateEntityQueryRequest(Class, EntityQueryRequest, String, boolean)} for details.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the projection query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor of the query (e.g. "Offset")
+   * @param prefetch
+   *          whether or not to fetch the next page in the background, while the current page is
+   *          being consumed.
+   * @return an iterator over the results of all pages
+   * @throws IllegalArgumentException
+   *           if the query does not have a LIMIT
+   */
+  <E> QueryResultIterator<E> paginateProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request, String cursorBinding, boolean prefetch);
+
+  /**
+   * Executes the given {@link KeyQueryRequest} page by page, and returns an iterator over the
+   * results of all pages. See
+   * {@link #paginateEntityQueryRequest(Class, EntityQueryRequest, String, boolean)} for details.
+   * 
+   * @param request
+   *          the key query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor of the query (e.g. "Offset")
+   * @param prefetch
+   *          whether or not to fetch the next page in the background, while the current page is
+   *          being consumed.
+   * @return an iterator over the results of all pages
+   * @throws IllegalArgumentException
+   *           if the query does not have a LIMIT
+   */
+  QueryResultIterator<DatastoreKey> paginateKeyQueryRequest(KeyQueryRequest request,
+      String cursorBinding, boolean prefetch);
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * A unit of work that keeps track of the entities it loads. This interface extends the
+ * {@link DatastoreAccess}. DatastoreSession objects are created with a call to
+ * {@link EntityManager#newSession()}, typically once per request.
+ * 
+ * <p>
+ * Loading an entity by its key (or ID) within a session returns the same object every time it is
+ * loaded again, without accessing the Cloud Datastore. When multiple entities are loaded at once,
+ * only the ones that were not loaded before are fetched. Entities that are inserted, updated or
+ * deleted through the session are forgotten, so that the next load fetches them again. Entities
+ * returned by queries are not tracked. Operations are not transactional, and are applied to the
+ * Cloud Datastore immediately.
+ * </p>
+ * 
+ * <p>
+ * Sessions created with {@link EntityManager#newSession(boolean)} can also track changes, in which
+ * case writing back a loaded entity that has not changed does nothing.
+ * </p>
+ * 
+ * <p>
+ * Sessions are not meant to be long lived, as they hold on to all loaded entities until they are
+ * discarded or cleared.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface DatastoreSession extends DatastoreAccess {
+
+  /**
+   * Forgets all entities loaded by this session.
+   */
+  void clear();
+
+}
@@ -26,6 +26,12 @@ import java.util.List;
  * {@link DatastoreTransaction#commit()} method. Transactions can be rolled back with a call to
  * {@link DatastoreTransaction#rollback()}.
  * 
+ * <p>
+ * The <code>prefetch</code> option of the <code>paginate*QueryRequest</code> methods is ignored
+ * within a transaction. Each page is fetched on the calling thread when it is needed, so that the
+ * transaction is never used concurrently, or after it is committed.
+ * </p>
+ * 
  * @author Sai Pullabhotla
  *
  */
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Receives progress of a {@link EntityManager#deleteAll(String, DeleteAllOptions)} operation, and
+ * may cancel it. The methods of this interface may be called from multiple threads at the same
+ * time.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface DeleteAllMonitor {
+
+  /**
+   * Called after each batch of entities is deleted.
+   * 
+   * @param kind
+   *          the entity kind
+   * @param deleteCount
+   *          the total number of entities deleted so far
+   */
+  void onProgress(String kind, long deleteCount);
+
+  /**
+   * Tells whether or not the operation should stop. Called before each batch of keys is scanned or
+   * deleted. Once this method returns <code>true</code>, no more batches are started, and the
+   * operation returns the number of entities deleted so far. The default implementation always
+   * returns <code>false</code>.
+   * 
+   * @return <code>true</code>, if the operation should stop; <code>false</code>, otherwise.
+   */
+  default boolean isCancelled() {
+    return false;
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Objects of this class contain the parameters of a
+ * {@link EntityManager#deleteAll(String, DeleteAllOptions)} operation. The keys of the entities are
+ * scanned by one or more scanners, each covering a range of keys, and are deleted in batches by
+ * multiple delete workers at the same time. The scanners stop when the delete workers fall behind,
+ * so that the number of keys held in memory is bounded.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DeleteAllOptions {
+
+  /**
+   * Default batch size, which is the maximum number of mutations allowed in a single commit
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  /**
+   * Default number of delete workers
+   */
+  public static final int DEFAULT_DELETE_WORKERS = 4;
+
+  /**
+   * Default number of scanners
+   */
+  public static final int DEFAULT_SCANNERS = 1;
+
+  /**
+   * Number of keys deleted in a single request
+   */
+  private int batchSize;
+
+  /**
+   * Number of delete workers
+   */
+  private int deleteWorkers;
+
+  /**
+   * Number of scanners
+   */
+  private int scanners;
+
+  /**
+   * Progress monitor
+   */
+  private DeleteAllMonitor monitor;
+
+  /**
+   * Creates a new instance of <code>DeleteAllOptions</code>.
+   */
+  public DeleteAllOptions() {
+    this.batchSize = DEFAULT_BATCH_SIZE;
+    this.deleteWorkers = DEFAULT_DELETE_WORKERS;
+    this.scanners = DEFAULT_SCANNERS;
+  }
+
+  /**
+   * Returns the number of keys deleted in a single request.
+   * 
+   * @return the batch size.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Sets the number of keys deleted in a single request.
+   * 
+   * @param batchSize
+   *          the batch size. Must be between 1 and 500.
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1 || batchSize > DEFAULT_BATCH_SIZE) {
+      throw new IllegalArgumentException(
+          String.format("batchSize must be between 1 and %d", DEFAULT_BATCH_SIZE));
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Returns the number of delete workers.
+   * 
+   * @return the number of delete workers.
+   */
+  public int getDeleteWorkers() {
+    return deleteWorkers;
+  }
+
+  /**
+   * Sets the number of delete workers, which send delete requests at the same time.
+   * 
+   * @param deleteWorkers
+   *          the number of delete workers. Must be at least 1.
+   */
+  public void setDeleteWorkers(int deleteWorkers) {
+    if (deleteWorkers < 1) {
+      throw new IllegalArgumentException("deleteWorkers must be at least 1");
+    }
+    this.deleteWorkers = deleteWorkers;
+  }
+
+  /**
+   * Returns the number of scanners.
+   * 
+   * @return the number of scanners.
+   */
+  public int getScanners() {
+    return scanners;
+  }
+
+  /**
+   * Sets the number of scanners. If more than one, the key space of the kind is split into ranges
+   * using a sample of the keys, and each range is scanned by its own query. Fewer scanners may be
+   * used, if the kind has few entities or the sample cannot be taken.
+   * 
+   * @param scanners
+   *          the number of scanners. Must be at least 1.
+   */
+  public void setScanners(int scanners) {
+    if (scanners < 1) {
+      throw new IllegalArgumentException("scanners must be at least 1");
+    }
+    this.scanners = scanners;
+  }
+
+  /**
+   * Returns the progress monitor.
+   * 
+   * @return the progress monitor, or <code>null</code>, if not set.
+   */
+  public DeleteAllMonitor getMonitor() {
+    return monitor;
+  }
+
+  /**
+   * Sets the progress monitor, which receives the progress of the operation and may cancel it.
+   * 
+   * @param monitor
+   *          the progress monitor. May be <code>null</code>.
+   */
+  public void setMonitor(DeleteAllMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Contract for a cache of entities, used as the second-level cache of the {@link EntityManager}.
+ * Each {@link Cacheable} entity class has its own EntityCache, which is created by the
+ * {@link EntityCacheProvider}. The cache holds the native entities, which are immutable and
+ * serializable, so implementations may store them out of process.
+ * 
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface EntityCache {
+
+  /**
+   * Returns the cached entity with the given key.
+   * 
+   * @param key
+   *          the key of the entity
+   * @return the cached entity, or <code>null</code>, if the entity is not in the cache, or has
+   *         expired.
+   */
+  com.google.cloud.datastore.Entity get(DatastoreKey key);
+
+  /**
+   * Adds the given entity to this cache, replacing any entity with the same key.
+   * 
+   * @param key
+   *          the key of the entity
+   * @param entity
+   *          the entity
+   */
+  void put(DatastoreKey key, com.google.cloud.datastore.Entity entity);
+
+  /**
+   * Removes the entity with the given key from this cache, if present.
+   * 
+   * @param key
+   *          the key of the entity
+   */
+  void remove(DatastoreKey key);
+
+  /**
+   * Removes all entities from this cache.
+   */
+  void clear();
+
+}
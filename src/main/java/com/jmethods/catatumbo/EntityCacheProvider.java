@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Creates the {@link EntityCache}s for the {@link Cacheable} entity classes. The default provider
+ * keeps the entities in memory. A different provider (e.g. one that is backed by an external
+ * cache) may be registered using {@link EntityManager#setEntityCacheProvider(EntityCacheProvider)}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface EntityCacheProvider {
+
+  /**
+   * Creates the cache for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param settings
+   *          the cache settings of the entity class
+   * @return the cache for the given entity class
+   */
+  EntityCache createCache(Class<?> entityClass, Cacheable settings);
+
+}
@@ -17,6 +17,8 @@
 package com.jmethods.catatumbo;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages mapping and persistence of entities. EntityManager objects are created using the
@@ -49,6 +51,37 @@ public interface EntityManager extends DatastoreAccess {
    */
   long deleteAll(String kind);
 
+  /**
+   * Deletes all entities of given Kind, using the given options.
+   * 
+   * @param entityClass
+   *          the entity class - The entity Kind will be determined from this class.
+   * @param options
+   *          the options
+   * @return the number of entities that were deleted. If the operation was cancelled, this is the
+   *         number of entities deleted before it stopped.
+   * @throws EntityManagerException
+   *           if any error occurs while deleting.
+   */
+  <E> long deleteAll(Class<E> entityClass, DeleteAllOptions options);
+
+  /**
+   * Deletes all entities of given Kind, using the given options. The keys are scanned and deleted
+   * in a pipeline, with several batches being deleted at the same time. If the calling thread is
+   * interrupted, the operation stops as if it was cancelled, and the interrupt status of the thread
+   * is restored.
+   * 
+   * @param kind
+   *          the entity Kind.
+   * @param options
+   *          the options
+   * @return the number of entities that were deleted. If the operation was cancelled, this is the
+   *         number of entities deleted before it stopped.
+   * @throws EntityManagerException
+   *           if any error occurs while deleting.
+   */
+  long deleteAll(String kind, DeleteAllOptions options);
+
   /**
    * Returns a new Transaction that can be used to perform a set of operations. The returned
    * transaction will have its mode set to {@link TransactionMode#READ_WRITE}, which allows both
@@ -78,6 +111,102 @@ public interface EntityManager extends DatastoreAccess {
    */
   DatastoreBatch newBatch();
 
+  /**
+   * Creates and returns a new {@link DatastoreSession}. Entities loaded by key within the session
+   * are loaded only once, and the same object is returned on subsequent loads.
+   * 
+   * @return a new {@link DatastoreSession}
+   */
+  DatastoreSession newSession();
+
+  /**
+   * Creates and returns a new {@link DatastoreSession}. If <code>trackChanges</code> is
+   * <code>true</code>, the session remembers each entity as it was loaded by key, and updates or
+   * upserts of a loaded entity that has not changed since are skipped, without accessing the Cloud
+   * Datastore. Changes to the version and updated timestamp fields are ignored, as these fields are
+   * maintained by the write itself.
+   * 
+   * @param trackChanges
+   *          whether or not to skip writes of unchanged entities
+   * @return a new {@link DatastoreSession}
+   */
+  DatastoreSession newSession(boolean trackChanges);
+
+  /**
+   * Creates and returns a new {@link BatchingLoader}, which combines the loads requested by
+   * concurrent callers into batch lookups.
+   * 
+   * @param window
+   *          how long to collect keys before looking them up, measured from the first key of a
+   *          batch
+   * @param unit
+   *          the unit of <code>window</code>
+   * @param maxBatchSize
+   *          the maximum number of keys to look up at once. The keys are looked up as soon as this
+   *          many keys are collected. Must be between 1 and 1000.
+   * @return a new {@link BatchingLoader}
+   */
+  BatchingLoader newBatchingLoader(long window, TimeUnit unit, int maxBatchSize);
+
+  /**
+   * Creates and returns a new {@link AsyncEntityManager}, which runs the operations of this
+   * EntityManager on a shared pool of daemon threads.
+   * 
+   * @return a new {@link AsyncEntityManager}
+   */
+  AsyncEntityManager newAsyncEntityManager();
+
+  /**
+   * Creates and returns a new {@link AsyncEntityManager}, which runs the operations of this
+   * EntityManager on the given executor. Operations started beyond the given concurrency limit wait
+   * until one of the running operations completes.
+   * 
+   * @param executor
+   *          the executor to run the operations on
+   * @param maxConcurrency
+   *          the maximum number of operations to run at the same time
+   * @return a new {@link AsyncEntityManager}
+   */
+  AsyncEntityManager newAsyncEntityManager(Executor executor, int maxConcurrency);
+
+  /**
+   * Creates and returns a new {@link BulkWriter}, which commits chunks of up to 500 entities, the
+   * maximum allowed by the Datastore in a single commit.
+   * 
+   * @return a new {@link BulkWriter}
+   */
+  BulkWriter newBulkWriter();
+
+  /**
+   * Creates and returns a new {@link BulkWriter}, which commits chunks of up to the given number of
+   * entities.
+   * 
+   * @param chunkSize
+   *          the maximum number of entities in a chunk. Must be between 1 and 500.
+   * @return a new {@link BulkWriter}
+   */
+  BulkWriter newBulkWriter(int chunkSize);
+
+  /**
+   * Creates and returns a new {@link WriteBehindEntityManager}, which buffers upserts and deletes
+   * and writes them in the background.
+   * 
+   * @param maxBatchSize
+   *          the maximum number of writes sent in one commit. Must be between 1 and 500. A batch is
+   *          sent as soon as this many writes are queued.
+   * @param flushInterval
+   *          how often queued writes are sent
+   * @param unit
+   *          the unit of <code>flushInterval</code>
+   * @param maxQueueSize
+   *          the maximum number of queued writes, after which writes of new keys block. Must not be
+   *          less than <code>maxBatchSize</code>.
+   * @return a new {@link WriteBehindEntityManager}. The returned object should be closed when no
+   *         longer needed.
+   */
+  WriteBehindEntityManager newWriteBehindEntityManager(int maxBatchSize, long flushInterval,
+      TimeUnit unit, int maxQueueSize);
+
   /**
    * Runs the given {@link TransactionalTask} in a new transaction. The
    * {@link TransactionalTask#execute(DatastoreTransaction)} will receive reference to a newly
@@ -120,6 +249,120 @@ public interface EntityManager extends DatastoreAccess {
    */
   void setDefaultListeners(Class<?>... classes);
 
+  /**
+   * Sets the provider of the second-level cache for {@link Cacheable} entities. Any entities in the
+   * caches of the previous provider are discarded. By default, entities are cached in memory.
+   * 
+   * @param provider
+   *          the cache provider
+   */
+  void setEntityCacheProvider(EntityCacheProvider provider);
+
+  /**
+   * Sets the policy for retrying operations that fail with a transient Datastore error. By
+   * default, operations are not retried. Changes made to the policy after this call have no effect,
+   * until the policy is set again.
+   * 
+   * @param retryPolicy
+   *          the retry policy, or <code>null</code>, to disable retries
+   */
+  void setRetryPolicy(RetryPolicy retryPolicy);
+
+  /**
+   * Enables or disables the ID pool. When enabled, entities with auto-generated numeric IDs and no
+   * parent key are assigned a complete key from IDs that were allocated in advance, so that
+   * inserts do not wait for the Cloud Datastore to generate the ID. Changes made to the options
+   * after this call have no effect, until the options are set again.
+   * 
+   * @param options
+   *          the options of the ID pool, or <code>null</code>, to disable the pool
+   * @throws IllegalArgumentException
+   *           if the low watermark is not less than the block size
+   */
+  void setIdPoolOptions(IdPoolOptions options);
+
+  /**
+   * Sets the options of the executor that runs the post-operation listener methods annotated with
+   * <code>async = true</code>. The executor is created with the default options the first time it
+   * is needed. Callbacks already queued on the previous executor still run, but new callbacks go
+   * to a new executor. Changes made to the options after this call have no effect, until the
+   * options are set again.
+   * 
+   * @param options
+   *          the options of the executor
+   */
+  void setAsyncListenerOptions(AsyncListenerOptions options);
+
+  /**
+   * Sets the receiver of the measurements of the operations performed by this EntityManager, and
+   * by the transactions, batches and sessions it creates. By default, operations are not measured.
+   * 
+   * @param metrics
+   *          the receiver of the measurements, or <code>null</code>, to stop measuring operations
+   */
+  void setOperationMetrics(OperationMetrics metrics);
+
+  /**
+   * Sets the receiver of the time spent in each phase of processing entities, such as running
+   * listeners, marshalling and unmarshalling. Unlike operation metrics, these are reported per
+   * entity, so they help finding out where the time of a slow operation goes, other than the RPC.
+   * By default, phases are not measured.
+   * 
+   * @param metrics
+   *          the receiver of the measurements, or <code>null</code>, to stop measuring phases
+   */
+  void setPhaseMetrics(PhaseMetrics metrics);
+
+  /**
+   * Sets the options of the slow operation log. Loads, queries, writes and commits that take at
+   * least the threshold of the options are logged with their kind, namespace, entity count and the
+   * part of their time spent in RPCs and unmarshalling. Queries are also logged with their GQL,
+   * bindings and cursor state. By default, slow operations are not logged. Changes made to the
+   * options after this call have no effect, until the options are set again.
+   * 
+   * @param options
+   *          the options of the slow operation log, or <code>null</code>, to stop logging slow
+   *          operations
+   */
+  void setSlowOperationLogOptions(SlowOperationLogOptions options);
+
+  /**
+   * Sets the options of the entity size guard. Before an entity is inserted, updated or upserted,
+   * its size is estimated, and, if the size exceeds the threshold of the options, a warning is
+   * logged or an {@link EntityTooLargeException} is thrown, so oversized entities are caught before
+   * the Datastore rejects them. By default, entity sizes are not checked. Changes made to the
+   * options after this call have no effect, until the options are set again.
+   * 
+   * @param options
+   *          the options of the entity size guard, or <code>null</code>, to stop checking entity
+   *          sizes
+   */
+  void setEntitySizeGuardOptions(EntitySizeGuardOptions options);
+
+  /**
+   * Returns the counts of the retries made by this EntityManager.
+   * 
+   * @return the retry metrics
+   */
+  RetryMetrics getRetryMetrics();
+
+  /**
+   * Sets what the insert, update and upsert methods of this EntityManager, and of the batches,
+   * transactions and sessions it creates, return. Callers that ignore the returned entities can use
+   * {@link WriteResultMode#IN_PLACE} to avoid unmarshalling a new copy of every written entity.
+   * 
+   * @param writeResultMode
+   *          the write result mode
+   */
+  void setWriteResultMode(WriteResultMode writeResultMode);
+
+  /**
+   * Returns what the insert, update and upsert methods of this EntityManager return.
+   * 
+   * @return the write result mode
+   */
+  WriteResultMode getWriteResultMode();
+
   /**
    * Returns the {@link DatastoreMetadata} object that can be used to retrieve metadata information.
    * 
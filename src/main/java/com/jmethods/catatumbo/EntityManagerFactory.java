@@ -29,6 +29,7 @@ import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreOptions;
 import com.google.cloud.http.HttpTransportOptions;
 import com.jmethods.catatumbo.impl.DefaultEntityManager;
+import com.jmethods.catatumbo.impl.MetadataIndex;
 
 /**
  * A factory for producing {@link EntityManager}s.
@@ -203,6 +204,7 @@ public class EntityManagerFactory {
       }
       datastoreOptionsBuilder.setCredentials(getCredentials(parameters));
       Datastore datastore = datastoreOptionsBuilder.build().getService();
+      MetadataIndex.preload(getClassLoader());
       return new DefaultEntityManager(datastore);
     } catch (Exception exp) {
       throw new EntityManagerFactoryException(exp);
@@ -261,6 +263,20 @@ public class EntityManagerFactory {
     return createEntityManager(parameters);
   }
 
+  /**
+   * Returns the class loader to use for loading the metadata index of persistence classes. The
+   * context class loader of the current thread is preferred, if one is set.
+   * 
+   * @return the class loader to use for loading the metadata index.
+   */
+  private static ClassLoader getClassLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      classLoader = EntityManagerFactory.class.getClassLoader();
+    }
+    return classLoader;
+  }
+
   /**
    * Creates and returns the credentials from the given connection parameters.
    * 
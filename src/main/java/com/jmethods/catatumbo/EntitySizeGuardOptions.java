@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Objects of this class contain the parameters of the entity size guard. The guard estimates the
+ * size of each entity that is about to be inserted, updated or upserted, and, if the size exceeds
+ * the threshold, either logs a warning to the <code>java.util.logging</code> logger named
+ * {@value #DEFAULT_LOGGER_NAME} or fails the write with an {@link EntityTooLargeException}, before
+ * the entity is sent to the Datastore.
+ * 
+ * <p>
+ * The estimate follows the storage size rules of the Datastore, so a threshold below
+ * {@value #DEFAULT_THRESHOLD_BYTES} bytes, the largest entity the Datastore accepts, is useful for
+ * catching entities whose list or map fields keep growing, long before their writes start failing.
+ * </p>
+ * 
+ * @see EntityManager#setEntitySizeGuardOptions(EntitySizeGuardOptions)
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class EntitySizeGuardOptions {
+
+  /**
+   * Default threshold, in bytes
+   */
+  public static final long DEFAULT_THRESHOLD_BYTES = 1048572L;
+
+  /**
+   * Name of the logger used for warnings
+   */
+  public static final String DEFAULT_LOGGER_NAME = "com.jmethods.catatumbo.EntitySizeGuard";
+
+  /**
+   * Threshold, in bytes
+   */
+  private long thresholdBytes;
+
+  /**
+   * Whether or not writes of entities above the threshold fail
+   */
+  private boolean failOnExceed;
+
+  /**
+   * Creates a new instance of <code>EntitySizeGuardOptions</code>.
+   */
+  public EntitySizeGuardOptions() {
+    this.thresholdBytes = DEFAULT_THRESHOLD_BYTES;
+  }
+
+  /**
+   * Returns the threshold.
+   * 
+   * @return the threshold, in bytes.
+   */
+  public long getThresholdBytes() {
+    return thresholdBytes;
+  }
+
+  /**
+   * Sets the largest estimated entity size that is written without a warning or failure.
+   * 
+   * @param thresholdBytes
+   *          the threshold, in bytes. Must be positive.
+   */
+  public void setThresholdBytes(long thresholdBytes) {
+    if (thresholdBytes <= 0) {
+      throw new IllegalArgumentException("thresholdBytes must be positive");
+    }
+    this.thresholdBytes = thresholdBytes;
+  }
+
+  /**
+   * Tells whether or not writes of entities above the threshold fail.
+   * 
+   * @return <code>true</code>, if writes of entities above the threshold fail; <code>false</code>,
+   *         if they are only logged.
+   */
+  public boolean isFailOnExceed() {
+    return failOnExceed;
+  }
+
+  /**
+   * Sets whether or not writes of entities above the threshold fail. By default, they are only
+   * logged.
+   * 
+   * @param failOnExceed
+   *          whether or not writes of entities above the threshold fail
+   */
+  public void setFailOnExceed(boolean failOnExceed) {
+    this.failOnExceed = failOnExceed;
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * An exception thrown by the {@link EntityManager} when the estimated size of an entity being
+ * written exceeds the threshold of the entity size guard. The exception is thrown before the entity
+ * is sent to the Datastore, so nothing is written by the failed operation.
+ * 
+ * @see EntitySizeGuardOptions
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class EntityTooLargeException extends EntityManagerException {
+
+  /**
+   * Serial version UID
+   */
+  private static final long serialVersionUID = -3164795519861804337L;
+
+  /**
+   * Estimated size of the entity, in bytes
+   */
+  private final long entityBytes;
+
+  /**
+   * Threshold that was exceeded, in bytes
+   */
+  private final long thresholdBytes;
+
+  /**
+   * Creates a new instance of <code>EntityTooLargeException</code>.
+   * 
+   * @param message
+   *          the message
+   * @param entityBytes
+   *          the estimated size of the entity, in bytes
+   * @param thresholdBytes
+   *          the threshold that was exceeded, in bytes
+   */
+  public EntityTooLargeException(String message, long entityBytes, long thresholdBytes) {
+    super(message);
+    this.entityBytes = entityBytes;
+    this.thresholdBytes = thresholdBytes;
+  }
+
+  /**
+   * Returns the estimated size of the entity.
+   * 
+   * @return the estimated size of the entity, in bytes.
+   */
+  public long getEntityBytes() {
+    return entityBytes;
+  }
+
+  /**
+   * Returns the threshold that was exceeded.
+   * 
+   * @return the threshold, in bytes.
+   */
+  public long getThresholdBytes() {
+    return thresholdBytes;
+  }
+
+}
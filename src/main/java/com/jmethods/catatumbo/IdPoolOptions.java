@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo;
+
+/**
+ * Objects of this class contain the parameters of the ID pool of an {@link EntityManager}, which is
+ * enabled with a call to {@link EntityManager#setIdPoolOptions(IdPoolOptions)}. The pool allocates
+ * numeric IDs from the Cloud Datastore in blocks, separately for each kind and namespace, so that
+ * entities with auto-generated numeric IDs get a complete key as soon as they are marshalled. A new
+ * block is allocated in the background when the number of IDs left for a kind drops to the low
+ * watermark.
+ * 
+ * <p>
+ * The pool only applies to entities without a parent key. IDs that are allocated but never used
+ * are not reclaimed.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class IdPoolOptions {
+
+  /**
+   * Default number of IDs allocated at a time
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 100;
+
+  /**
+   * Default number of IDs left that triggers the allocation of a new block
+   */
+  public static final int DEFAULT_LOW_WATERMARK = 25;
+
+  /**
+   * Maximum number of IDs allocated at a time
+   */
+  public static final int MAX_BLOCK_SIZE = 500;
+
+  /**
+   * Number of IDs allocated at a time
+   */
+  private int blockSize;
+
+  /**
+   * Number of IDs left that triggers the allocation of a new block
+   */
+  private int lowWatermark;
+
+  /**
+   * Creates a new instance of <code>IdPoolOptions</code>.
+   */
+  public IdPoolOptions() {
+    this.blockSize = DEFAULT_BLOCK_SIZE;
+    this.lowWatermark = DEFAULT_LOW_WATERMARK;
+  }
+
+  /**
+   * Returns the number of IDs allocated at a time.
+   * 
+   * @return the block size.
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Sets the number of IDs allocated at a time.
+   * 
+   * @param blockSize
+   *          the block size. Must be between 1 and 500.
+   */
+  public void setBlockSize(int blockSize) {
+    if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+      throw new IllegalArgumentException(
+          String.format("blockSize must be between 1 and %d", MAX_BLOCK_SIZE));
+    }
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Returns the number of IDs left that triggers the allocation of a new block.
+   * 
+   * @return the low watermark.
+   */
+  public int getLowWatermark() {
+    return lowWatermark;
+  }
+
+  /**
+   * Sets the number of IDs left that triggers the allocation of a new block. Must be less than the
+   * block size when the options are applied.
+   * 
+   * @param lowWatermark
+   *          the low watermark. Must not be negative.
+   */
+  public void setLowWatermark(int lowWatermark) {
+    if (lowWatermark < 0) {
+      throw new IllegalArgumentException("lowWatermark cannot be negative");
+    }
+    this.lowWatermark = lowWatermark;
+  }
+
+}
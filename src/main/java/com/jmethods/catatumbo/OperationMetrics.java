@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Interface for receiving measurements of the operations performed by an {@link EntityManager},
+ * and by the transactions and batches it creates. An implementation is registered with
+ * {@link EntityManager#setOperationMetrics(OperationMetrics)}. The methods of this interface are
+ * called on the thread that performed the operation, so implementations must be thread-safe and
+ * should not block.
+ * 
+ * @see com.jmethods.catatumbo.impl.InMemoryOperationMetrics
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface OperationMetrics {
+
+  /**
+   * Records a completed or failed operation.
+   * 
+   * @param operationType
+   *          the operation type
+   * @param kind
+   *          the entity kind, or <code>null</code>, if not known, for example, for key queries
+   *          and commits
+   * @param entityCount
+   *          the number of entities or keys read or written
+   * @param payloadBytes
+   *          the estimated storage size of the entities read or written, in bytes. Zero for
+   *          deletes and commits.
+   * @param elapsedNanos
+   *          the time taken by the operation, in nanoseconds, including the time spent in the
+   *          entity listeners and mapping the entities
+   * @param failed
+   *          whether or not the operation failed
+   */
+  void record(OperationType operationType, String kind, int entityCount, long payloadBytes,
+      long elapsedNanos, boolean failed);
+
+  /**
+   * Records the estimated size of an entity read or written by an operation, before the operation
+   * itself is recorded. The default implementation does nothing.
+   * 
+   * @param operationType
+   *          the operation type
+   * @param kind
+   *          the entity kind
+   * @param entityBytes
+   *          the estimated storage size of the entity, which is the size limited by the Datastore
+   * @param indexBytes
+   *          the estimated size of the built-in index entries of the entity
+   */
+  default void recordEntitySize(OperationType operationType, String kind, long entityBytes,
+      long indexBytes) {
+    // Do nothing.
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Statistics of the operations of a given type on a given kind, as of the time a snapshot was
+ * taken.
+ * 
+ * @see com.jmethods.catatumbo.impl.InMemoryOperationMetrics#snapshot()
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface OperationStats {
+
+  /**
+   * Returns the operation type.
+   * 
+   * @return the operation type.
+   */
+  OperationType getOperationType();
+
+  /**
+   * Returns the entity kind.
+   * 
+   * @return the entity kind, or an empty string, for operations whose kind is not known.
+   */
+  String getKind();
+
+  /**
+   * Returns the number of operations.
+   * 
+   * @return the number of operations.
+   */
+  long getCount();
+
+  /**
+   * Returns the number of operations that failed.
+   * 
+   * @return the number of operations that failed.
+   */
+  long getErrorCount();
+
+  /**
+   * Returns the total number of entities or keys read or written.
+   * 
+   * @return the total number of entities or keys.
+   */
+  long getEntityCount();
+
+  /**
+   * Returns the approximate total size of the entities read or written, in bytes.
+   * 
+   * @return the approximate payload size, in bytes.
+   */
+  long getPayloadBytes();
+
+  /**
+   * Returns the estimated size of the largest entity read or written, in bytes.
+   * 
+   * @return the size of the largest entity, in bytes.
+   */
+  long getMaxEntityBytes();
+
+  /**
+   * Returns the estimated total size of the built-in index entries of the entities read or
+   * written, in bytes.
+   * 
+   * @return the size of the index entries, in bytes.
+   */
+  long getIndexBytes();
+
+  /**
+   * Returns the total time taken by the operations, in nanoseconds.
+   * 
+   * @return the total latency, in nanoseconds.
+   */
+  long getTotalLatencyNanos();
+
+  /**
+   * Returns the longest time taken by an operation, in nanoseconds.
+   * 
+   * @return the maximum latency, in nanoseconds.
+   */
+  long getMaxLatencyNanos();
+
+  /**
+   * Returns the average time taken by an operation, in nanoseconds.
+   * 
+   * @return the mean latency, in nanoseconds, or zero, if there were no operations.
+   */
+  long getMeanLatencyNanos();
+
+  /**
+   * Returns the time within which the given percentage of the operations completed. The returned
+   * value is an approximation, within about 12.5% of the exact value.
+   * 
+   * @param percentile
+   *          the percentile, between 0 and 100. For example, 99 for the 99th percentile.
+   * @return the latency at the given percentile, in nanoseconds, or zero, if there were no
+   *         operations.
+   */
+  long getLatencyPercentileNanos(double percentile);
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Types of operations reported to {@link OperationMetrics}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public enum OperationType {
+
+  /**
+   * Load of one or more entities by identifier or key
+   */
+  LOAD,
+
+  /**
+   * Execution of an entity, projection or key query. Each page of a paginated query is a separate
+   * operation. For a streamed query, only the initial run, which fetches the first batch of
+   * results, is measured.
+   */
+  QUERY,
+
+  /**
+   * Insert of one or more entities
+   */
+  INSERT,
+
+  /**
+   * Update of one or more entities, with or without optimistic locking
+   */
+  UPDATE,
+
+  /**
+   * Upsert of one or more entities
+   */
+  UPSERT,
+
+  /**
+   * Delete of one or more entities, by entity, identifier or key
+   */
+  DELETE,
+
+  /**
+   * Commit of a transaction or submission of a batch
+   */
+  COMMIT
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Interface for receiving the time spent in each phase of the processing of entities, such as
+ * running listeners and mapping entities to and from their native form. An implementation is
+ * registered with {@link EntityManager#setPhaseMetrics(PhaseMetrics)}. The method of this
+ * interface is called very frequently, on the thread that processes the entity, so
+ * implementations must be thread-safe and should do little more than add to a counter.
+ * 
+ * @see com.jmethods.catatumbo.impl.InMemoryPhaseMetrics
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface PhaseMetrics {
+
+  /**
+   * Records the time spent in a phase for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param phase
+   *          the phase
+   * @param elapsedNanos
+   *          the time spent in the phase, in nanoseconds
+   */
+  void record(Class<?> entityClass, ProcessingPhase phase, long elapsedNanos);
+
+}
@@ -36,5 +36,15 @@ import java.lang.annotation.Target;
 @Retention(RUNTIME)
 @Target(METHOD)
 public @interface PostInsert {
-  // Marker
+
+  /**
+   * Whether or not the annotated method runs in the background, on the executor configured with
+   * {@link EntityManager#setAsyncListenerOptions(AsyncListenerOptions)}, instead of on the thread
+   * that performed the operation. The operation returns without waiting for the method, so the
+   * method must not rely on being called before the caller uses the entity.
+   * 
+   * @return whether or not the annotated method runs in the background.
+   */
+  boolean async() default false;
+
 }
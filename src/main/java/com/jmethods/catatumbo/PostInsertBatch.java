@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Used for annotating a method as a batch entity listener method. The annotated method will be
+ * invoked once after inserting one or more entities, with the list of entities of the operation.
+ * The method must take a single parameter of type <code>java.util.List</code>. This annotation can
+ * only be applied to a method within an {@link EntityListener}.
+ * 
+ * @see PostInsert
+ * @see EntityListeners
+ * @see EntityListener
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface PostInsertBatch {
+
+  /**
+   * Whether or not the annotated method runs in the background, on the executor configured with
+   * {@link EntityManager#setAsyncListenerOptions(AsyncListenerOptions)}, instead of on the thread
+   * that performed the operation. The operation returns without waiting for the method, so the
+   * method must not rely on being called before the caller uses the entities.
+   * 
+   * @return whether or not the annotated method runs in the background.
+   */
+  boolean async() default false;
+
+}
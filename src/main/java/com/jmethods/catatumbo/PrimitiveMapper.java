@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import com.google.cloud.datastore.Value;
+import com.google.cloud.datastore.ValueBuilder;
+
+/**
+ * Contract for mappers that can map primitive model values to/from Cloud Datastore without boxing.
+ * When a field is of a primitive type and its mapper implements the matching specialization (e.g.
+ * a <code>long</code>, <code>int</code> or <code>short</code> field with a mapper that implements
+ * {@link OfLong}), the field is read and written through primitive accessors, and the methods of
+ * the specialization are used instead of {@link #toDatastore(Object)} and {@link #toModel(Value)}.
+ * 
+ * <p>
+ * The <code>toModelXxx</code> methods are never called with a
+ * {@link com.google.cloud.datastore.NullValue}; null values are always handled by
+ * {@link #toModel(Value)}.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface PrimitiveMapper extends Mapper {
+
+  /**
+   * A mapper for model values that are stored as a Datastore <code>long</code>.
+   */
+  public interface OfLong extends PrimitiveMapper {
+
+    /**
+     * Maps the given primitive model value to native Cloud Datastore value.
+     * 
+     * @param input
+     *          the input to map
+     * @return the equivalent native value
+     */
+    public ValueBuilder<?, ?, ?> toDatastoreLong(long input);
+
+    /**
+     * Maps the given native Cloud Datastore value to equivalent primitive model value.
+     * 
+     * @param input
+     *          the native Cloud Datastore value
+     * @return the equivalent model value
+     * @throws MappingException
+     *           if the input is not compatible or is out of range for the model type.
+     */
+    public long toModelLong(Value<?> input);
+  }
+
+  /**
+   * A mapper for model values that are stored as a Datastore <code>double</code>.
+   */
+  public interface OfDouble extends PrimitiveMapper {
+
+    /**
+     * Maps the given primitive model value to native Cloud Datastore value.
+     * 
+     * @param input
+     *          the input to map
+     * @return the equivalent native value
+     */
+    public ValueBuilder<?, ?, ?> toDatastoreDouble(double input);
+
+    /**
+     * Maps the given native Cloud Datastore value to equivalent primitive model value.
+     * 
+     * @param input
+     *          the native Cloud Datastore value
+     * @return the equivalent model value
+     * @throws MappingException
+     *           if the input is not compatible or is out of range for the model type.
+     */
+    public double toModelDouble(Value<?> input);
+  }
+
+  /**
+   * A mapper for model values that are stored as a Datastore <code>boolean</code>.
+   */
+  public interface OfBoolean extends PrimitiveMapper {
+
+    /**
+     * Maps the given primitive model value to native Cloud Datastore value.
+     * 
+     * @param input
+     *          the input to map
+     * @return the equivalent native value
+     */
+    public ValueBuilder<?, ?, ?> toDatastoreBoolean(boolean input);
+
+    /**
+     * Maps the given native Cloud Datastore value to equivalent primitive model value.
+     * 
+     * @param input
+     *          the native Cloud Datastore value
+     * @return the equivalent model value
+     * @throws MappingException
+     *           if the input is not compatible.
+     */
+    public boolean toModelBoolean(Value<?> input);
+  }
+
+}
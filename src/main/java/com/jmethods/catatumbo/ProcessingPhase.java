@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Phases of the processing of an entity that are reported to {@link PhaseMetrics}. The time spent
+ * in the Cloud Datastore RPC is not a phase; it is the remainder of the operation time reported to
+ * {@link OperationMetrics}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public enum ProcessingPhase {
+
+  /**
+   * Running the PreInsert, PreUpdate, PreUpsert and PreDelete listeners
+   */
+  PRE_LISTENERS,
+
+  /**
+   * Creating the key, including the generation of identifiers
+   */
+  MARSHAL_KEY,
+
+  /**
+   * Converting the fields to properties
+   */
+  MARSHAL_FIELDS,
+
+  /**
+   * Setting the automatic timestamps
+   */
+  MARSHAL_AUTO_TIMESTAMPS,
+
+  /**
+   * Incrementing the version for optimistic locking
+   */
+  MARSHAL_VERSION,
+
+  /**
+   * Converting the embedded fields
+   */
+  MARSHAL_EMBEDDED,
+
+  /**
+   * Building the native entity from the converted properties
+   */
+  MARSHAL_BUILD,
+
+  /**
+   * Instantiating the entity, or its Builder
+   */
+  UNMARSHAL_INSTANTIATE,
+
+  /**
+   * Setting the identifier, key and parent key of the entity from the native key
+   */
+  UNMARSHAL_KEY,
+
+  /**
+   * Setting the fields of the entity from the native properties, including building the entity, if
+   * it uses a Builder
+   */
+  UNMARSHAL_FIELDS,
+
+  /**
+   * Running the PostLoad, PostInsert, PostUpdate, PostUpsert and PostDelete listeners, including
+   * their batch variants. Asynchronous listeners only account for the time taken to queue them.
+   */
+  POST_LISTENERS
+
+}
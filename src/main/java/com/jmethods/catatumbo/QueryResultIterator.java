@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An iterator over the results of a query execution. Unlike {@link QueryResponse}, the results are
+ * not materialized up front. Results are fetched from the Cloud Datastore in batches as the
+ * iteration progresses, and each result is converted to its model type (and the applicable
+ * listeners are invoked) when it is returned by {@link #next()}. This allows processing of large
+ * result sets in constant memory. An iterator that is abandoned before it is exhausted should be
+ * closed, e.g. with a try-with-resources statement.
+ * 
+ * @param <T>
+ *          the expected type of results
+ * @author Sai Pullabhotla
+ *
+ */
+public interface QueryResultIterator<T> extends Iterator<T>, AutoCloseable {
+
+  /**
+   * Returns the start cursor of the results.
+   * 
+   * @return the start cursor of the results.
+   */
+  DatastoreCursor getStartCursor();
+
+  /**
+   * Returns the cursor that points to the position after the result that was last returned by
+   * {@link #next()}. This can be used to resume the iteration later (e.g. after a failure), by
+   * setting this as the OFFSET for a new query request.
+   * 
+   * @return the cursor after the last returned result.
+   */
+  DatastoreCursor getCursorAfter();
+
+  /**
+   * Returns the metadata on the query execution. The metadata is only meaningful once
+   * {@link #hasNext()} has returned <code>false</code>.
+   *
+   * @return the metadata on the query execution.
+   */
+  QueryResponseMetadata getQueryResponseMetadata();
+
+  /**
+   * Returns a sequential {@link Stream} over the remaining results of this iterator.
+   * 
+   * @return a sequential {@link Stream} over the remaining results.
+   */
+  default Stream<T> stream() {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(this::close);
+  }
+
+  /**
+   * Releases the resources held by this iterator, such as a page that is being fetched in the
+   * background. No more results are returned after this iterator is closed. The default
+   * implementation does nothing.
+   */
+  @Override
+  default void close() {
+    // Nothing to release
+  }
+
+}
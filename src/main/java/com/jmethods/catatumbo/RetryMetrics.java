@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Counts of the retries made by an {@link EntityManager} under its {@link RetryPolicy}. The counts
+ * cover the lifetime of the EntityManager, across changes of the policy.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface RetryMetrics {
+
+  /**
+   * Returns the number of times a failed operation or transaction was retried.
+   * 
+   * @return the number of retries
+   */
+  long getRetryCount();
+
+  /**
+   * Returns the number of operations or transactions that failed with a retryable error after all
+   * attempts were used.
+   * 
+   * @return the number of give-ups
+   */
+  long getGiveUpCount();
+
+}
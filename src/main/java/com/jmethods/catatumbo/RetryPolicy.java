@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Objects of this class specify how an {@link EntityManager} retries operations that fail with a
+ * transient Datastore error. Only operations that can safely be repeated are retried: loads,
+ * queries, updates, upserts and deletes outside of a transaction or batch. Inserts are never
+ * retried, because an insert that timed out may have been committed. Transactions run with
+ * {@link EntityManager#executeInTransaction(TransactionalTask)} are retried as a whole, by running
+ * the task again in a new transaction, only when they fail with {@link #CODE_ABORTED} and that code
+ * is retryable. Other failures of a transaction are not retried, because the commit may have
+ * succeeded.
+ * 
+ * <p>
+ * The delay before each retry grows exponentially from the initial backoff, up to the maximum
+ * backoff. A random part of the delay, given by the jitter, is removed, so that clients that failed
+ * at the same time do not retry at the same time.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class RetryPolicy {
+
+  /**
+   * Error code of the Datastore when the deadline expired before the operation completed
+   */
+  public static final int CODE_DEADLINE_EXCEEDED = 4;
+
+  /**
+   * Error code of the Datastore when the operation was aborted, typically due to contention
+   */
+  public static final int CODE_ABORTED = 10;
+
+  /**
+   * Error code of the Datastore when the service is unavailable
+   */
+  public static final int CODE_UNAVAILABLE = 14;
+
+  /**
+   * Default maximum number of attempts, including the first one
+   */
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  /**
+   * Default delay before the first retry, in milliseconds
+   */
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100L;
+
+  /**
+   * Default maximum delay before a retry, in milliseconds
+   */
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5000L;
+
+  /**
+   * Default factor by which the delay grows after each retry
+   */
+  public static final double DEFAULT_BACKOFF_MULTIPLIER = 2.0;
+
+  /**
+   * Default jitter
+   */
+  public static final double DEFAULT_JITTER = 0.5;
+
+  /**
+   * Maximum number of attempts
+   */
+  private int maxAttempts;
+
+  /**
+   * Delay before the first retry, in milliseconds
+   */
+  private long initialBackoffMillis;
+
+  /**
+   * Maximum delay before a retry, in milliseconds
+   */
+  private long maxBackoffMillis;
+
+  /**
+   * Factor by which the delay grows after each retry
+   */
+  private double backoffMultiplier;
+
+  /**
+   * Fraction of the delay that is randomized
+   */
+  private double jitter;
+
+  /**
+   * Error codes that are retried
+   */
+  private Set<Integer> retryableCodes;
+
+  /**
+   * Creates a new instance of <code>RetryPolicy</code>. The new policy retries errors with the
+   * codes {@link #CODE_DEADLINE_EXCEEDED}, {@link #CODE_ABORTED} and {@link #CODE_UNAVAILABLE}.
+   */
+  public RetryPolicy() {
+    this.maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    this.initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    this.maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    this.backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+    this.jitter = DEFAULT_JITTER;
+    this.retryableCodes = Collections.unmodifiableSet(new HashSet<>(
+        Arrays.asList(CODE_DEADLINE_EXCEEDED, CODE_ABORTED, CODE_UNAVAILABLE)));
+  }
+
+  /**
+   * Returns the maximum number of attempts.
+   * 
+   * @return the maximum number of attempts, including the first one.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Sets the maximum number of attempts.
+   * 
+   * @param maxAttempts
+   *          the maximum number of attempts, including the first one. Must be at least 1. A value
+   *          of 1 disables retries.
+   */
+  public void setMaxAttempts(int maxAttempts) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be at least 1");
+    }
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Returns the delay before the first retry.
+   * 
+   * @return the delay before the first retry, in milliseconds.
+   */
+  public long getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  /**
+   * Sets the delay before the first retry.
+   * 
+   * @param initialBackoffMillis
+   *          the delay before the first retry, in milliseconds. Must not be negative.
+   */
+  public void setInitialBackoffMillis(long initialBackoffMillis) {
+    if (initialBackoffMillis < 0) {
+      throw new IllegalArgumentException("initialBackoffMillis cannot be negative");
+    }
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  /**
+   * Returns the maximum delay before a retry.
+   * 
+   * @return the maximum delay before a retry, in milliseconds.
+   */
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  /**
+   * Sets the maximum delay before a retry.
+   * 
+   * @param maxBackoffMillis
+   *          the maximum delay before a retry, in milliseconds. Must not be negative.
+   */
+  public void setMaxBackoffMillis(long maxBackoffMillis) {
+    if (maxBackoffMillis < 0) {
+      throw new IllegalArgumentException("maxBackoffMillis cannot be negative");
+    }
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  /**
+   * Returns the factor by which the delay grows after each retry.
+   * 
+   * @return the backoff multiplier.
+   */
+  public double getBackoffMultiplier() {
+    return backoffMultiplier;
+  }
+
+  /**
+   * Sets the factor by which the delay grows after each retry.
+   * 
+   * @param backoffMultiplier
+   *          the backoff multiplier. Must be at least 1.
+   */
+  public void setBackoffMultiplier(double backoffMultiplier) {
+    if (backoffMultiplier < 1.0) {
+      throw new IllegalArgumentException("backoffMultiplier must be at least 1");
+    }
+    this.backoffMultiplier = backoffMultiplier;
+  }
+
+  /**
+   * Returns the jitter.
+   * 
+   * @return the fraction of each delay that is randomized.
+   */
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Sets the jitter. Each delay is reduced by a random amount of up to this fraction of the delay.
+   * 
+   * @param jitter
+   *          the fraction of each delay that is randomized. Must be between 0 and 1.
+   */
+  public void setJitter(double jitter) {
+    if (jitter < 0.0 || jitter > 1.0) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1");
+    }
+    this.jitter = jitter;
+  }
+
+  /**
+   * Returns the error codes that are retried.
+   * 
+   * @return the error codes that are retried.
+   */
+  public Set<Integer> getRetryableCodes() {
+    return retryableCodes;
+  }
+
+  /**
+   * Sets the error codes that are retried. The codes are those returned by
+   * <code>DatastoreException.getCode()</code>.
+   * 
+   * @param retryableCodes
+   *          the error codes that are retried.
+   */
+  public void setRetryableCodes(Set<Integer> retryableCodes) {
+    if (retryableCodes == null) {
+      throw new IllegalArgumentException("retryableCodes cannot be null");
+    }
+    this.retryableCodes = Collections.unmodifiableSet(new HashSet<>(retryableCodes));
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.List;
+import java.util.Map;
+
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+
+/**
+ * An operation selected by the slow operation log. The query details are only available for
+ * queries; the other operations return <code>null</code> for them.
+ * 
+ * @see SlowOperationHandler
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface SlowOperation {
+
+  /**
+   * Returns the operation type.
+   * 
+   * @return the operation type
+   */
+  OperationType getOperationType();
+
+  /**
+   * Returns the entity kind.
+   * 
+   * @return the entity kind, or <code>null</code>, if not known
+   */
+  String getKind();
+
+  /**
+   * Returns the namespace the operation ran in.
+   * 
+   * @return the namespace, or <code>null</code>, if not known
+   */
+  String getNamespace();
+
+  /**
+   * Returns the GQL query string.
+   * 
+   * @return the GQL query string, or <code>null</code>, if the operation is not a query
+   */
+  String getQuery();
+
+  /**
+   * Returns the named bindings of the query. Values are replaced with <code>?</code>, if bindings
+   * are redacted.
+   * 
+   * @return the named bindings, or <code>null</code>, if the operation is not a query
+   */
+  Map<String, Object> getNamedBindings();
+
+  /**
+   * Returns the positional bindings of the query. Values are replaced with <code>?</code>, if
+   * bindings are redacted.
+   * 
+   * @return the positional bindings, or <code>null</code>, if the operation is not a query
+   */
+  List<Object> getPositionalBindings();
+
+  /**
+   * Returns the number of entities or keys read or written.
+   * 
+   * @return the number of entities or keys
+   */
+  int getEntityCount();
+
+  /**
+   * Returns the cursor after the last result of the query.
+   * 
+   * @return the end cursor, or <code>null</code>, if the operation is not a query or it failed
+   */
+  DatastoreCursor getEndCursor();
+
+  /**
+   * Returns whether more results may follow the results of the query.
+   * 
+   * @return the query state, or <code>null</code>, if the operation is not a query or it failed
+   */
+  QueryState getQueryState();
+
+  /**
+   * Tells whether or not the operation failed.
+   * 
+   * @return <code>true</code>, if the operation failed; <code>false</code>, otherwise.
+   */
+  boolean isFailed();
+
+  /**
+   * Returns the time taken by the operation.
+   * 
+   * @return the elapsed time, in nanoseconds
+   */
+  long getElapsedNanos();
+
+  /**
+   * Returns the part of the elapsed time that was spent waiting for the Cloud Datastore, including
+   * the retries of transient errors.
+   * 
+   * @return the RPC time, in nanoseconds, or <code>-1</code>, if the RPC time of the operation is
+   *         not measured
+   */
+  long getRpcNanos();
+
+  /**
+   * Returns the part of the elapsed time that was spent unmarshalling entities.
+   * 
+   * @return the unmarshalling time, in nanoseconds
+   */
+  long getUnmarshalNanos();
+
+}
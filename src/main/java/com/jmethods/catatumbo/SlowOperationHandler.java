@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Interface for receiving the operations that the slow operation log selects. The method of this
+ * interface is called on the thread that performed the operation, after the operation completes
+ * or fails. Exceptions thrown by the handler are ignored.
+ * 
+ * @see SlowOperationLogOptions#setHandler(SlowOperationHandler)
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+@FunctionalInterface
+public interface SlowOperationHandler {
+
+  /**
+   * Handles a slow operation.
+   * 
+   * @param operation
+   *          the slow operation. Its <code>toString</code> method returns a one line summary that
+   *          is suitable for logging.
+   */
+  void handle(SlowOperation operation);
+
+}
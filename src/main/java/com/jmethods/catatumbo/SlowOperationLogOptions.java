@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+/**
+ * Objects of this class contain the parameters of the slow operation log. Queries, loads and
+ * writes that take at least the threshold are passed to the handler, or, if no handler is set,
+ * logged as warnings to the <code>java.util.logging</code> logger named
+ * {@value #DEFAULT_LOGGER_NAME}. When many operations are slow, the sample rate limits the
+ * fraction of them that is logged.
+ * 
+ * @see EntityManager#setSlowOperationLogOptions(SlowOperationLogOptions)
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class SlowOperationLogOptions {
+
+  /**
+   * Default threshold, in milliseconds
+   */
+  public static final long DEFAULT_THRESHOLD_MILLIS = 1000L;
+
+  /**
+   * Default sample rate
+   */
+  public static final double DEFAULT_SAMPLE_RATE = 1.0;
+
+  /**
+   * Name of the logger used when no handler is set
+   */
+  public static final String DEFAULT_LOGGER_NAME = "com.jmethods.catatumbo.SlowOperationLog";
+
+  /**
+   * Threshold, in milliseconds
+   */
+  private long thresholdMillis;
+
+  /**
+   * Fraction of the slow operations that are logged
+   */
+  private double sampleRate;
+
+  /**
+   * Whether or not the values of query bindings are hidden
+   */
+  private boolean redactBindings;
+
+  /**
+   * Handler of slow operations
+   */
+  private SlowOperationHandler handler;
+
+  /**
+   * Creates a new instance of <code>SlowOperationLogOptions</code>.
+   */
+  public SlowOperationLogOptions() {
+    this.thresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+    this.sampleRate = DEFAULT_SAMPLE_RATE;
+  }
+
+  /**
+   * Returns the threshold.
+   * 
+   * @return the threshold, in milliseconds.
+   */
+  public long getThresholdMillis() {
+    return thresholdMillis;
+  }
+
+  /**
+   * Sets the minimum time an operation must take to be logged.
+   * 
+   * @param thresholdMillis
+   *          the threshold, in milliseconds. Must not be negative. Zero logs every operation.
+   */
+  public void setThresholdMillis(long thresholdMillis) {
+    if (thresholdMillis < 0) {
+      throw new IllegalArgumentException("thresholdMillis cannot be negative");
+    }
+    this.thresholdMillis = thresholdMillis;
+  }
+
+  /**
+   * Returns the sample rate.
+   * 
+   * @return the sample rate.
+   */
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Sets the fraction of the slow operations that are logged. Each slow operation is logged
+   * independently with this probability.
+   * 
+   * @param sampleRate
+   *          the sample rate. Must be greater than 0 and at most 1.
+   */
+  public void setSampleRate(double sampleRate) {
+    if (!(sampleRate > 0 && sampleRate <= 1)) {
+      throw new IllegalArgumentException("sampleRate must be greater than 0 and at most 1");
+    }
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Tells whether or not the values of query bindings are hidden.
+   * 
+   * @return <code>true</code>, if the values of query bindings are hidden; <code>false</code>,
+   *         otherwise.
+   */
+  public boolean isRedactBindings() {
+    return redactBindings;
+  }
+
+  /**
+   * Sets whether or not the values of query bindings are hidden. When hidden, the names and
+   * positions of the bindings are still logged, which is useful when the values may contain
+   * personal data.
+   * 
+   * @param redactBindings
+   *          whether or not the values of query bindings are hidden
+   */
+  public void setRedactBindings(boolean redactBindings) {
+    this.redactBindings = redactBindings;
+  }
+
+  /**
+   * Returns the handler of slow operations.
+   * 
+   * @return the handler, or <code>null</code>, if slow operations are logged to the default
+   *         logger.
+   */
+  public SlowOperationHandler getHandler() {
+    return handler;
+  }
+
+  /**
+   * Sets the handler of slow operations, for sending them to a logging framework other than
+   * <code>java.util.logging</code>.
+   * 
+   * @param handler
+   *          the handler. May be <code>null</code>, to use the default logger.
+   */
+  public void setHandler(SlowOperationHandler handler) {
+    this.handler = handler;
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import java.util.List;
+
+/**
+ * Buffers upserts and deletes in memory and writes them to the Cloud Datastore in the background.
+ * Writes to the same key are coalesced, so that only the last upsert or delete of each key is sent
+ * to the Datastore. Buffered writes are sent in batches when a batch is full, when the flush
+ * interval elapses, or when {@link #flush()} or {@link #close()} is called. When the buffer is
+ * full, writes of new keys block until there is room. WriteBehindEntityManager objects are
+ * created with a call to {@link EntityManager#newWriteBehindEntityManager}.
+ * 
+ * <p>
+ * The entities are marshalled when they are queued, so changes made to an entity after queueing it
+ * are not written unless it is queued again. Entities must have their identifier set. The PreUpsert
+ * and PreDelete listeners run when an entity is queued, and the PostUpsert and PostDelete listeners
+ * run after the last queued entity of each key is written. Loads do not see buffered writes until
+ * they are sent.
+ * </p>
+ * 
+ * <p>
+ * Background writes that fail are not retried. The failure is reported by the next call to
+ * {@link #flush()} or {@link #close()}.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public interface WriteBehindEntityManager extends AutoCloseable {
+
+  /**
+   * Queues the given entity to be updated or inserted.
+   * 
+   * @param entity
+   *          the entity to update or insert
+   * @throws EntityManagerException
+   *           if the entity does not have its identifier set, or if this
+   *           WriteBehindEntityManager is closed.
+   */
+  void upsert(Object entity);
+
+  /**
+   * Queues the given entities to be updated or inserted.
+   * 
+   * @param entities
+   *          the entities to update or insert
+   * @throws EntityManagerException
+   *           if any entity does not have its identifier set, or if this WriteBehindEntityManager
+   *           is closed.
+   */
+  void upsert(List<?> entities);
+
+  /**
+   * Queues the given entity to be deleted.
+   * 
+   * @param entity
+   *          the entity to delete
+   * @throws EntityManagerException
+   *           if the entity does not have its identifier set, or if this
+   *           WriteBehindEntityManager is closed.
+   */
+  void delete(Object entity);
+
+  /**
+   * Queues the entity with the given key to be deleted.
+   * 
+   * @param key
+   *          the key of the entity to delete
+   * @throws EntityManagerException
+   *           if this WriteBehindEntityManager is closed.
+   */
+  void deleteByKey(DatastoreKey key);
+
+  /**
+   * Writes all queued upserts and deletes, and waits for them to complete.
+   * 
+   * @throws EntityManagerException
+   *           if any write failed since the last call to this method.
+   */
+  void flush();
+
+  /**
+   * Writes all queued upserts and deletes, and stops accepting new ones.
+   * 
+   * @throws EntityManagerException
+   *           if any write failed since the last call to {@link #flush()}.
+   */
+  @Override
+  void close();
+
+}
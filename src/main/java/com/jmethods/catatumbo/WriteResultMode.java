@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo;
+
+/**
+ * Specifies what the insert, update and upsert methods return.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public enum WriteResultMode {
+
+  /**
+   * Return new instances unmarshalled from the written entities. This is the default.
+   */
+  NEW_INSTANCE,
+
+  /**
+   * Return the passed in instances, updated in place with the generated identifier, key, parent
+   * key, version and automatic timestamps. Entities that use a Builder are still returned as new
+   * instances, as they cannot be updated.
+   */
+  IN_PLACE
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import com.jmethods.catatumbo.AsyncListenerCompletionHandler;
+import com.jmethods.catatumbo.AsyncListenerOptions;
+import com.jmethods.catatumbo.AsyncListenerOptions.RejectionPolicy;
+import com.jmethods.catatumbo.EntityManagerException;
+
+/**
+ * Runs the asynchronous callbacks of listener chains in the background, on a fixed number of
+ * threads with a bounded queue. The asynchronous callbacks of a single event run in order, as one
+ * task, with the {@link com.jmethods.catatumbo.Tenant} namespace of the thread that produced the
+ * event.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class AsyncListenerExecutor {
+
+  /**
+   * The executor that runs the callbacks
+   */
+  private final ExecutorService executor;
+
+  /**
+   * What to do with callbacks that do not fit in the queue
+   */
+  private final RejectionPolicy rejectionPolicy;
+
+  /**
+   * Completion handler, may be <code>null</code>
+   */
+  private final AsyncListenerCompletionHandler completionHandler;
+
+  /**
+   * Creates a new instance of <code>AsyncListenerExecutor</code>.
+   * 
+   * @param options
+   *          the options
+   */
+  AsyncListenerExecutor(AsyncListenerOptions options) {
+    this.executor = ConcurrencyUtils.newBoundedDaemonExecutor("catatumbo-listener-",
+        options.getThreads(), options.getQueueSize());
+    this.rejectionPolicy = options.getRejectionPolicy();
+    this.completionHandler = options.getCompletionHandler();
+  }
+
+  /**
+   * Runs the given callbacks for the given event in the background. If the queue is full, the
+   * rejection policy applies.
+   * 
+   * @param callbacks
+   *          the callbacks, in the order in which they run
+   * @param event
+   *          the entity, or the list of entities, for batch callbacks
+   * @throws EntityManagerException
+   *           if the queue is full and the rejection policy is {@link RejectionPolicy#ABORT}
+   */
+  void execute(ListenerChain.Callback[] callbacks, Object event) {
+    Supplier<Void> task = ConcurrencyUtils.withTenant(() -> {
+      run(callbacks, event);
+      return null;
+    });
+    try {
+      executor.execute(task::get);
+    } catch (RejectedExecutionException exp) {
+      switch (rejectionPolicy) {
+        case CALLER_RUNS:
+          run(callbacks, event);
+          break;
+        case DISCARD:
+          for (ListenerChain.Callback callback : callbacks) {
+            notifyCompletion(callback, event, exp);
+          }
+          break;
+        default:
+          throw new EntityManagerException("Asynchronous listener queue is full", exp);
+      }
+    }
+  }
+
+  /**
+   * Runs the given callbacks and notifies the completion handler after each. A failed callback
+   * does not prevent the remaining callbacks from running.
+   * 
+   * @param callbacks
+   *          the callbacks
+   * @param event
+   *          the entity, or the list of entities
+   */
+  private void run(ListenerChain.Callback[] callbacks, Object event) {
+    for (ListenerChain.Callback callback : callbacks) {
+      Throwable failure = null;
+      try {
+        callback.invoke(event);
+      } catch (RuntimeException exp) {
+        failure = exp;
+      }
+      notifyCompletion(callback, event, failure);
+    }
+  }
+
+  /**
+   * Notifies the completion handler, if any, of the outcome of the given callback. Exceptions
+   * thrown by the handler are ignored.
+   * 
+   * @param callback
+   *          the callback
+   * @param event
+   *          the entity, or the list of entities
+   * @param failure
+   *          the failure, or <code>null</code>
+   */
+  private void notifyCompletion(ListenerChain.Callback callback, Object event,
+      Throwable failure) {
+    if (completionHandler == null) {
+      return;
+    }
+    try {
+      completionHandler.onCompletion(callback.getCallbackMethod(), event, failure);
+    } catch (RuntimeException exp) {
+      // Ignore, so that the remaining callbacks still run
+    }
+  }
+
+  /**
+   * Stops accepting new callbacks. Callbacks already queued still run.
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+
+}
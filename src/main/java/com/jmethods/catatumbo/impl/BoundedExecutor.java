@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an {@link Executor}, with at most a given number of tasks running at the same time.
+ * Tasks submitted beyond the limit are queued, without blocking the submitting thread, and are run
+ * in submission order as running tasks complete. If the executor rejects a task, the future of that
+ * task completes with the {@link RejectedExecutionException}, and the other tasks are not affected.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class BoundedExecutor {
+
+  /**
+   * The executor that runs the tasks
+   */
+  private final Executor executor;
+
+  /**
+   * Maximum number of tasks running at the same time
+   */
+  private final int maxConcurrency;
+
+  /**
+   * Tasks waiting to run
+   */
+  private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Number of tasks handed off to the executor and not yet completed
+   */
+  private final AtomicInteger running = new AtomicInteger();
+
+  /**
+   * Creates a new instance of <code>BoundedExecutor</code>.
+   * 
+   * @param executor
+   *          the executor that runs the tasks
+   * @param maxConcurrency
+   *          the maximum number of tasks running at the same time
+   */
+  BoundedExecutor(Executor executor, int maxConcurrency) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor cannot be null");
+    }
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be at least 1");
+    }
+    this.executor = executor;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * Submits the given supplier for running on the executor.
+   * 
+   * @param supplier
+   *          the supplier
+   * @return a future for the result of the supplier. The future completes exceptionally, if the
+   *         supplier fails or if the executor rejects it.
+   */
+  <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+    if (supplier == null) {
+      throw new IllegalArgumentException("supplier cannot be null");
+    }
+    Task<T> task = new Task<>(supplier);
+    queue.add(task);
+    drain();
+    return task.future;
+  }
+
+  /**
+   * Hands off queued tasks to the executor while the number of running tasks is below the limit.
+   */
+  private void drain() {
+    while (!queue.isEmpty()) {
+      int count = running.get();
+      if (count >= maxConcurrency) {
+        return;
+      }
+      if (!running.compareAndSet(count, count + 1)) {
+        continue;
+      }
+      Task<?> task = queue.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        continue;
+      }
+      try {
+        executor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+            drain();
+          }
+        });
+      } catch (RejectedExecutionException exp) {
+        running.decrementAndGet();
+        task.future.completeExceptionally(exp);
+      }
+    }
+  }
+
+  /**
+   * A submitted supplier and the future for its result.
+   *
+   * @param <T>
+   *          the type of result
+   */
+  private static class Task<T> {
+
+    /**
+     * The supplier
+     */
+    private final Supplier<T> supplier;
+
+    /**
+     * The future for the result of the supplier
+     */
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    /**
+     * Creates a new instance of <code>Task</code>.
+     * 
+     * @param supplier
+     *          the supplier
+     */
+    Task(Supplier<T> supplier) {
+      this.supplier = supplier;
+    }
+
+    /**
+     * Runs the supplier and completes the future with its result or failure.
+     */
+    void run() {
+      try {
+        future.complete(supplier.get());
+      } catch (Throwable exp) {
+        future.completeExceptionally(exp);
+      }
+    }
+  }
+
+}
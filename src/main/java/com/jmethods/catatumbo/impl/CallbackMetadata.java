@@ -47,6 +47,11 @@ public class CallbackMetadata {
    */
   private final Class<?> listenerClass;
 
+  /**
+   * Whether or not the callback method runs asynchronously
+   */
+  private final boolean async;
+
   /**
    * Creates a new instance of <code>CallbackMetadata</code>.
    * 
@@ -64,6 +69,7 @@ public class CallbackMetadata {
     this.callbackType = callbackType;
     this.callbackMethod = callbackMethod;
     this.listenerClass = callbackMethod.getDeclaringClass();
+    this.async = callbackType.isAsync(callbackMethod);
   }
 
   /**
@@ -102,6 +108,16 @@ public class CallbackMetadata {
     return listenerClass;
   }
 
+  /**
+   * Tells whether or not the callback method runs asynchronously.
+   * 
+   * @return <code>true</code>, if the callback method runs asynchronously; <code>false</code>,
+   *         otherwise.
+   */
+  public boolean isAsync() {
+    return async;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
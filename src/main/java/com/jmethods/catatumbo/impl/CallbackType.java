@@ -17,12 +17,18 @@
 package com.jmethods.catatumbo.impl;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 
 import com.jmethods.catatumbo.PostDelete;
+import com.jmethods.catatumbo.PostDeleteBatch;
 import com.jmethods.catatumbo.PostInsert;
+import com.jmethods.catatumbo.PostInsertBatch;
 import com.jmethods.catatumbo.PostLoad;
+import com.jmethods.catatumbo.PostLoadBatch;
 import com.jmethods.catatumbo.PostUpdate;
+import com.jmethods.catatumbo.PostUpdateBatch;
 import com.jmethods.catatumbo.PostUpsert;
+import com.jmethods.catatumbo.PostUpsertBatch;
 import com.jmethods.catatumbo.PreDelete;
 import com.jmethods.catatumbo.PreInsert;
 import com.jmethods.catatumbo.PreUpdate;
@@ -79,13 +85,43 @@ public enum CallbackType {
   /**
    * Post delete
    */
-  POST_DELETE(PostDelete.class);
+  POST_DELETE(PostDelete.class),
+
+  /**
+   * Post load, for all entities of an operation
+   */
+  POST_LOAD_BATCH(PostLoadBatch.class, true),
+
+  /**
+   * Post insert, for all entities of an operation
+   */
+  POST_INSERT_BATCH(PostInsertBatch.class, true),
+
+  /**
+   * Post update, for all entities of an operation
+   */
+  POST_UPDATE_BATCH(PostUpdateBatch.class, true),
+
+  /**
+   * Post upsert, for all entities of an operation
+   */
+  POST_UPSERT_BATCH(PostUpsertBatch.class, true),
+
+  /**
+   * Post delete, for all entities of an operation
+   */
+  POST_DELETE_BATCH(PostDeleteBatch.class, true);
 
   /**
    * Annotation class for this callback type
    */
   private final Class<? extends Annotation> annotationClass;
 
+  /**
+   * Whether or not this is a batch callback type
+   */
+  private final boolean batch;
+
   /**
    * Creates a new instance of <code>CallbackEventType</code>.
    * 
@@ -93,7 +129,20 @@ public enum CallbackType {
    *          the annotation for this callback type
    */
   private CallbackType(Class<? extends Annotation> annotationClass) {
+    this(annotationClass, false);
+  }
+
+  /**
+   * Creates a new instance of <code>CallbackEventType</code>.
+   * 
+   * @param annotationClass
+   *          the annotation for this callback type
+   * @param batch
+   *          whether or not the callbacks receive the list of all entities of an operation
+   */
+  private CallbackType(Class<? extends Annotation> annotationClass, boolean batch) {
     this.annotationClass = annotationClass;
+    this.batch = batch;
   }
 
   /**
@@ -105,4 +154,91 @@ public enum CallbackType {
     return annotationClass;
   }
 
+  /**
+   * Tells whether or not this is a batch callback type, whose callbacks receive the list of all
+   * entities of an operation.
+   * 
+   * @return <code>true</code>, if this is a batch callback type; <code>false</code>, otherwise.
+   */
+  public boolean isBatch() {
+    return batch;
+  }
+
+  /**
+   * Tells whether or not this callback type is invoked before the operation is performed.
+   * 
+   * @return <code>true</code>, if this is a pre-operation callback type; <code>false</code>,
+   *         otherwise.
+   */
+  public boolean isPre() {
+    switch (this) {
+      case PRE_INSERT:
+      case PRE_UPDATE:
+      case PRE_UPSERT:
+      case PRE_DELETE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the batch callback type that corresponds to this callback type.
+   * 
+   * @return the batch callback type, or <code>null</code>, if there is no batch callback type for
+   *         this callback type or if this is a batch callback type.
+   */
+  public CallbackType getBatchType() {
+    switch (this) {
+      case POST_LOAD:
+        return POST_LOAD_BATCH;
+      case POST_INSERT:
+        return POST_INSERT_BATCH;
+      case POST_UPDATE:
+        return POST_UPDATE_BATCH;
+      case POST_UPSERT:
+        return POST_UPSERT_BATCH;
+      case POST_DELETE:
+        return POST_DELETE_BATCH;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Tells whether or not the given callback method of this type runs asynchronously. Only the
+   * post-operation callbacks can run asynchronously.
+   * 
+   * @param callbackMethod
+   *          the callback method, which must have the annotation of this callback type
+   * @return <code>true</code>, if the callback method runs asynchronously; <code>false</code>,
+   *         otherwise.
+   */
+  public boolean isAsync(Method callbackMethod) {
+    switch (this) {
+      case POST_LOAD:
+        return callbackMethod.getAnnotation(PostLoad.class).async();
+      case POST_INSERT:
+        return callbackMethod.getAnnotation(PostInsert.class).async();
+      case POST_UPDATE:
+        return callbackMethod.getAnnotation(PostUpdate.class).async();
+      case POST_UPSERT:
+        return callbackMethod.getAnnotation(PostUpsert.class).async();
+      case POST_DELETE:
+        return callbackMethod.getAnnotation(PostDelete.class).async();
+      case POST_LOAD_BATCH:
+        return callbackMethod.getAnnotation(PostLoadBatch.class).async();
+      case POST_INSERT_BATCH:
+        return callbackMethod.getAnnotation(PostInsertBatch.class).async();
+      case POST_UPDATE_BATCH:
+        return callbackMethod.getAnnotation(PostUpdateBatch.class).async();
+      case POST_UPSERT_BATCH:
+        return callbackMethod.getAnnotation(PostUpsertBatch.class).async();
+      case POST_DELETE_BATCH:
+        return callbackMethod.getAnnotation(PostDeleteBatch.class).async();
+      default:
+        return false;
+    }
+  }
+
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.Tenant;
+
+/**
+ * Utility methods for running Datastore operations in the background.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class ConcurrencyUtils {
+
+  /**
+   * Number of threads in the default executor
+   */
+  static final int DEFAULT_POOL_SIZE = Math.max(4,
+      Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+   * How long an idle thread of the default executor is kept around, in seconds
+   */
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  /**
+   * Hide the implicit constructor
+   */
+  private ConcurrencyUtils() {
+    // Do nothing.
+  }
+
+  /**
+   * Returns the executor shared by all entity managers for background operations. The executor has
+   * a fixed number of daemon threads, which are released when idle, so it never needs to be shut
+   * down.
+   * 
+   * @return the default executor
+   */
+  static ExecutorService getDefaultExecutor() {
+    return DefaultExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * Returns the executor shared by all entity managers for running the chunks of large lookups and
+   * writes. Tasks submitted to this executor must not wait for other tasks, so that callers running
+   * on the default executor can safely wait for them.
+   * 
+   * @return the chunk executor
+   */
+  static ExecutorService getChunkExecutor() {
+    return ChunkExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * Returns the scheduler shared by all entity managers for running short tasks after a delay. The
+   * scheduler has a single daemon thread. Scheduled tasks must not block, and should hand off any
+   * Datastore operations to an executor.
+   * 
+   * @return the scheduler
+   */
+  static ScheduledExecutorService getScheduler() {
+    return SchedulerHolder.SCHEDULER;
+  }
+
+  /**
+   * Creates a new executor with the given number of daemon threads, for use by a single operation.
+   * The caller is responsible for shutting it down.
+   * 
+   * @param namePrefix
+   *          prefix of the thread names
+   * @param threads
+   *          the number of threads
+   * @return the new executor
+   */
+  static ExecutorService newFixedDaemonExecutor(String namePrefix, int threads) {
+    return Executors.newFixedThreadPool(threads, newDaemonThreadFactory(namePrefix));
+  }
+
+  /**
+   * Creates a new executor with the given number of daemon threads and a queue of the given size.
+   * Tasks submitted while the queue is full are rejected with a
+   * {@link java.util.concurrent.RejectedExecutionException}. The caller is responsible for shutting
+   * it down.
+   * 
+   * @param namePrefix
+   *          prefix of the thread names
+   * @param threads
+   *          the number of threads
+   * @param queueSize
+   *          the maximum number of tasks waiting to run
+   * @return the new executor
+   */
+  static ExecutorService newBoundedDaemonExecutor(String namePrefix, int threads,
+      int queueSize) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize), newDaemonThreadFactory(namePrefix));
+  }
+
+  /**
+   * Wraps the given supplier so that it runs with the {@link Tenant} namespace of the calling
+   * thread, and restores the namespace of the executing thread when done.
+   * 
+   * @param supplier
+   *          the supplier to wrap
+   * @return the wrapped supplier
+   */
+  static <T> Supplier<T> withTenant(Supplier<T> supplier) {
+    final String namespace = Tenant.getNamespace();
+    return () -> {
+      String previousNamespace = Tenant.getNamespace();
+      Tenant.setNamespace(namespace);
+      try {
+        return supplier.get();
+      } finally {
+        Tenant.setNamespace(previousNamespace);
+      }
+    };
+  }
+
+  /**
+   * Runs the given supplier on the given executor, with the {@link Tenant} namespace of the calling
+   * thread.
+   * 
+   * @param supplier
+   *          the supplier to run
+   * @param executor
+   *          the executor
+   * @return a future for the result of the supplier
+   */
+  static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+    return CompletableFuture.supplyAsync(withTenant(supplier), executor);
+  }
+
+  /**
+   * Waits for the given future to complete and returns its result. A failure of the future is
+   * rethrown as is, if it is unchecked, and wrapped in an {@link EntityManagerException} otherwise.
+   * 
+   * @param future
+   *          the future
+   * @return the result of the future
+   */
+  static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException exp) {
+      Throwable cause = exp.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new EntityManagerException(cause);
+    }
+  }
+
+  /**
+   * Initialization-on-demand holder of the default executor.
+   */
+  private static class DefaultExecutorHolder {
+
+    /**
+     * The default executor
+     */
+    private static final ExecutorService EXECUTOR = newDaemonPool("catatumbo-");
+  }
+
+  /**
+   * Initialization-on-demand holder of the chunk executor.
+   */
+  private static class ChunkExecutorHolder {
+
+    /**
+     * The chunk executor
+     */
+    private static final ExecutorService EXECUTOR = newDaemonPool("catatumbo-chunk-");
+  }
+
+  /**
+   * Initialization-on-demand holder of the scheduler.
+   */
+  private static class SchedulerHolder {
+
+    /**
+     * The scheduler
+     */
+    private static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+    /**
+     * Creates the scheduler.
+     * 
+     * @return the scheduler
+     */
+    private static ScheduledExecutorService createScheduler() {
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+          newDaemonThreadFactory("catatumbo-scheduler-"));
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
+  /**
+   * Creates a pool of {@link #DEFAULT_POOL_SIZE} daemon threads, which are released when idle.
+   * 
+   * @param namePrefix
+   *          prefix of the thread names
+   * @return the thread pool
+   */
+  private static ExecutorService newDaemonPool(String namePrefix) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        newDaemonThreadFactory(namePrefix));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Creates a factory of daemon threads.
+   * 
+   * @param namePrefix
+   *          prefix of the thread names, which is followed by a sequence number
+   * @return the thread factory
+   */
+  private static ThreadFactory newDaemonThreadFactory(String namePrefix) {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
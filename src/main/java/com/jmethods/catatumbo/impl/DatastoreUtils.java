@@ -19,11 +19,14 @@ package com.jmethods.catatumbo.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.DatastoreReader;
 import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.FullEntity;
 import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
 import com.google.cloud.datastore.Transaction;
 import com.jmethods.catatumbo.DatastoreKey;
 import com.jmethods.catatumbo.DefaultDatastoreKey;
@@ -52,6 +55,16 @@ class DatastoreUtils {
    */
   private static final int ERROR_CODE_ENTITY_ALREADY_EXISTS = 6;
 
+  /**
+   * Maximum number of keys the Datastore accepts in a single lookup
+   */
+  static final int MAX_LOOKUP_SIZE = 1000;
+
+  /**
+   * Maximum number of mutations the Datastore accepts in a single commit
+   */
+  static final int MAX_MUTATIONS = 500;
+
   /**
    * Hide the implicit constructor
    */
@@ -63,19 +76,22 @@ class DatastoreUtils {
    * Converts the given list of native entities to a list of model objects of given type,
    * <code>entityClass</code>.
    * 
+   * @param entityManager
+   *          the entity manager
    * @param entityClass
    *          the entity class
    * @param nativeEntities
    *          native entities to convert
    * @return the list of model objects
    */
-  static <E> List<E> toEntities(Class<E> entityClass, List<Entity> nativeEntities) {
+  static <E> List<E> toEntities(DefaultEntityManager entityManager, Class<E> entityClass,
+      List<Entity> nativeEntities) {
     if (nativeEntities == null || nativeEntities.isEmpty()) {
       return new ArrayList<>();
     }
     List<E> entities = new ArrayList<>(nativeEntities.size());
     for (Entity nativeEntity : nativeEntities) {
-      E entity = Unmarshaller.unmarshal(nativeEntity, entityClass);
+      E entity = Unmarshaller.unmarshal(entityManager, nativeEntity, entityClass);
       entities.add(entity);
     }
     return entities;
@@ -85,17 +101,20 @@ class DatastoreUtils {
    * Converts the given array of native entities to a list of model objects of given type,
    * <code>entityClass</code>.
    * 
+   * @param entityManager
+   *          the entity manager
    * @param entityClass
    *          the entity class
    * @param nativeEntities
    *          native entities to convert
    * @return the list of model objects
    */
-  static <E> List<E> toEntities(Class<E> entityClass, Entity[] nativeEntities) {
+  static <E> List<E> toEntities(DefaultEntityManager entityManager, Class<E> entityClass,
+      Entity[] nativeEntities) {
     if (nativeEntities == null || nativeEntities.length == 0) {
       return new ArrayList<>();
     }
-    return toEntities(entityClass, Arrays.asList(nativeEntities));
+    return toEntities(entityManager, entityClass, Arrays.asList(nativeEntities));
   }
 
   /**
@@ -170,6 +189,134 @@ class DatastoreUtils {
     }
   }
 
+  /**
+   * Fetches the entities with the given keys using the given reader. Keys beyond the lookup limit
+   * of the Datastore are split into chunks, which are fetched in parallel on the chunk executor,
+   * unless the reader is a transaction, in which case the chunks are fetched one after another.
+   * 
+   * @param nativeReader
+   *          the native reader
+   * @param nativeKeys
+   *          the native keys
+   * @return the native entities, in the same order as the keys. If one or more keys do not exist,
+   *         the corresponding item in the returned list will be <code>null</code>.
+   */
+  static List<Entity> fetch(DatastoreReader nativeReader, Key[] nativeKeys) {
+    if (nativeKeys.length <= MAX_LOOKUP_SIZE) {
+      return nativeReader.fetch(nativeKeys);
+    }
+    List<Entity> nativeEntities = new ArrayList<>(nativeKeys.length);
+    if (nativeReader instanceof Transaction) {
+      for (int i = 0; i < nativeKeys.length; i += MAX_LOOKUP_SIZE) {
+        nativeEntities.addAll(nativeReader.fetch(chunk(nativeKeys, i)));
+      }
+      return nativeEntities;
+    }
+    List<CompletableFuture<List<Entity>>> futures = new ArrayList<>();
+    for (int i = 0; i < nativeKeys.length; i += MAX_LOOKUP_SIZE) {
+      Key[] chunk = chunk(nativeKeys, i);
+      futures.add(ConcurrencyUtils.supplyAsync(() -> nativeReader.fetch(chunk),
+          ConcurrencyUtils.getChunkExecutor()));
+    }
+    for (CompletableFuture<List<Entity>> future : futures) {
+      nativeEntities.addAll(ConcurrencyUtils.join(future));
+    }
+    return nativeEntities;
+  }
+
+  /**
+   * Returns the chunk of the given keys that starts at the given index.
+   * 
+   * @param nativeKeys
+   *          the native keys
+   * @param from
+   *          the index of the first key of the chunk
+   * @return the chunk, with up to {@link #MAX_LOOKUP_SIZE} keys
+   */
+  private static Key[] chunk(Key[] nativeKeys, int from) {
+    int to = Math.min(from + MAX_LOOKUP_SIZE, nativeKeys.length);
+    return Arrays.copyOfRange(nativeKeys, from, to);
+  }
+
+  /**
+   * Compares the given keys in the order used by the Datastore for <code>__key__</code>. Keys are
+   * compared element by element along their paths, from the root; a key comes before its
+   * descendants. Elements are compared by kind, then by identifier, with numeric IDs before names.
+   * Kinds and names are compared by their UTF-8 bytes, as the Datastore does, which is not the
+   * order of {@link String#compareTo(String)} for supplementary characters.
+   * 
+   * @param key1
+   *          the first key
+   * @param key2
+   *          the second key
+   * @return a negative integer, zero, or a positive integer as the first key is less than, equal
+   *         to, or greater than the second key
+   */
+  static int compareKeys(Key key1, Key key2) {
+    List<PathElement> path1 = pathOf(key1);
+    List<PathElement> path2 = pathOf(key2);
+    int length = Math.min(path1.size(), path2.size());
+    for (int i = 0; i < length; i++) {
+      PathElement element1 = path1.get(i);
+      PathElement element2 = path2.get(i);
+      int result = compareUtf8(element1.getKind(), element2.getKind());
+      if (result != 0) {
+        return result;
+      }
+      if (element1.hasId() && element2.hasId()) {
+        result = Long.compare(element1.getId(), element2.getId());
+      } else if (element1.hasId() || element2.hasId()) {
+        result = element1.hasId() ? -1 : 1;
+      } else {
+        result = compareUtf8(element1.getName(), element2.getName());
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(path1.size(), path2.size());
+  }
+
+  /**
+   * Compares the given strings by their UTF-8 bytes, as unsigned values. This is the same as
+   * comparing their code points, so the strings are not encoded.
+   * 
+   * @param string1
+   *          the first string
+   * @param string2
+   *          the second string
+   * @return a negative integer, zero, or a positive integer as the first string is less than,
+   *         equal to, or greater than the second string
+   */
+  static int compareUtf8(String string1, String string2) {
+    int index1 = 0;
+    int index2 = 0;
+    while (index1 < string1.length() && index2 < string2.length()) {
+      int codePoint1 = string1.codePointAt(index1);
+      int codePoint2 = string2.codePointAt(index2);
+      if (codePoint1 != codePoint2) {
+        return Integer.compare(codePoint1, codePoint2);
+      }
+      index1 += Character.charCount(codePoint1);
+      index2 += Character.charCount(codePoint2);
+    }
+    return Integer.compare(string1.length() - index1, string2.length() - index2);
+  }
+
+  /**
+   * Returns the full path of the given key, including its own element.
+   * 
+   * @param nativeKey
+   *          the native key
+   * @return the path of the key
+   */
+  private static List<PathElement> pathOf(Key nativeKey) {
+    List<PathElement> path = new ArrayList<>(nativeKey.getAncestors());
+    path.add(nativeKey.hasId() ? PathElement.of(nativeKey.getKind(), nativeKey.getId())
+        : PathElement.of(nativeKey.getKind(), nativeKey.getName()));
+    return path;
+  }
+
   /**
    * Converts/wraps the given native keys into a list of {@link DatastoreKey} objects.
    * 
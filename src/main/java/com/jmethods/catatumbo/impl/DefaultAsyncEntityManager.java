@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.jmethods.catatumbo.AsyncEntityManager;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.EntityManager;
+import com.jmethods.catatumbo.EntityQueryRequest;
+import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.ProjectionQueryRequest;
+import com.jmethods.catatumbo.QueryResponse;
+
+/**
+ * Default implementation of the {@link AsyncEntityManager} interface, which delegates each
+ * operation to an {@link EntityManager}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultAsyncEntityManager implements AsyncEntityManager {
+
+  /**
+   * The entity manager that performs the operations
+   */
+  private final EntityManager entityManager;
+
+  /**
+   * The executor that runs the operations
+   */
+  private final BoundedExecutor executor;
+
+  /**
+   * Creates a new instance of <code>DefaultAsyncEntityManager</code>.
+   * 
+   * @param entityManager
+   *          the entity manager that performs the operations
+   * @param executor
+   *          the executor to run the operations on
+   * @param maxConcurrency
+   *          the maximum number of operations to run at the same time
+   */
+  public DefaultAsyncEntityManager(EntityManager entityManager, Executor executor,
+      int maxConcurrency) {
+    this.entityManager = entityManager;
+    this.executor = new BoundedExecutor(executor, maxConcurrency);
+  }
+
+  @Override
+  public <E> CompletableFuture<E> insert(E entity) {
+    return supply(() -> entityManager.insert(entity));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> insert(List<E> entities) {
+    return supply(() -> entityManager.insert(entities));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> update(E entity) {
+    return supply(() -> entityManager.update(entity));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> update(List<E> entities) {
+    return supply(() -> entityManager.update(entities));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> upsert(E entity) {
+    return supply(() -> entityManager.upsert(entity));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> upsert(List<E> entities) {
+    return supply(() -> entityManager.upsert(entities));
+  }
+
+  @Override
+  public CompletableFuture<Void> delete(Object entity) {
+    return run(() -> entityManager.delete(entity));
+  }
+
+  @Override
+  public CompletableFuture<Void> delete(List<?> entities) {
+    return run(() -> entityManager.delete(entities));
+  }
+
+  @Override
+  public CompletableFuture<Void> deleteByKey(DatastoreKey key) {
+    return run(() -> entityManager.deleteByKey(key));
+  }
+
+  @Override
+  public CompletableFuture<Void> deleteByKey(List<DatastoreKey> keys) {
+    return run(() -> entityManager.deleteByKey(keys));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, long id) {
+    return supply(() -> entityManager.load(entityClass, id));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, String id) {
+    return supply(() -> entityManager.load(entityClass, id));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey parentKey, long id) {
+    return supply(() -> entityManager.load(entityClass, parentKey, id));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey parentKey, String id) {
+    return supply(() -> entityManager.load(entityClass, parentKey, id));
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey key) {
+    return supply(() -> entityManager.load(entityClass, key));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> loadById(Class<E> entityClass, List<Long> identifiers) {
+    return supply(() -> entityManager.loadById(entityClass, identifiers));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> loadByName(Class<E> entityClass,
+      List<String> identifiers) {
+    return supply(() -> entityManager.loadByName(entityClass, identifiers));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> loadByKey(Class<E> entityClass, List<DatastoreKey> keys) {
+    return supply(() -> entityManager.loadByKey(entityClass, keys));
+  }
+
+  @Override
+  public <E> CompletableFuture<QueryResponse<E>> executeEntityQueryRequest(
+      Class<E> expectedResultType, EntityQueryRequest request) {
+    return supply(() -> entityManager.executeEntityQueryRequest(expectedResultType, request));
+  }
+
+  @Override
+  public <E> CompletableFuture<QueryResponse<E>> executeProjectionQueryRequest(
+      Class<E> expectedResultType, ProjectionQueryRequest request) {
+    return supply(() -> entityManager.executeProjectionQueryRequest(expectedResultType, request));
+  }
+
+  @Override
+  public CompletableFuture<QueryResponse<DatastoreKey>> executeKeyQueryRequest(
+      KeyQueryRequest request) {
+    return supply(() -> entityManager.executeKeyQueryRequest(request));
+  }
+
+  /**
+   * Runs the given supplier on the executor.
+   * 
+   * @param supplier
+   *          the supplier
+   * @return a future for the result of the supplier
+   */
+  private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+    return executor.submit(ConcurrencyUtils.withTenant(supplier));
+  }
+
+  /**
+   * Runs the given operation on the executor.
+   * 
+   * @param operation
+   *          the operation
+   * @return a future that completes when the operation is done
+   */
+  private CompletableFuture<Void> run(Runnable operation) {
+    return supply(() -> {
+      operation.run();
+      return null;
+    });
+  }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.BatchingLoader;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityCache;
+import com.jmethods.catatumbo.EntityManagerException;
+
+/**
+ * Default implementation of the {@link BatchingLoader} interface. Keys are collected in a pending
+ * batch, which is handed off to the default executor when the time window elapses or the batch is
+ * full. Keys of a batch that was handed off stay in flight until its lookup completes, so that
+ * later requests for the same keys share the result.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultBatchingLoader implements BatchingLoader {
+
+  /**
+   * Reference to the entity manager
+   */
+  private final DefaultEntityManager entityManager;
+
+  /**
+   * Time window, in nanoseconds
+   */
+  private final long windowNanos;
+
+  /**
+   * Maximum number of keys in a batch
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Function that looks up a batch of keys
+   */
+  private final Function<Key[], List<Entity>> fetcher;
+
+  /**
+   * Lock guarding the pending batch, the keys in flight and the scheduled flush
+   */
+  private final Object lock = new Object();
+
+  /**
+   * Keys waiting to be looked up
+   */
+  private Map<Key, Lookup> pending = new LinkedHashMap<>();
+
+  /**
+   * Keys that are being looked up
+   */
+  private final Map<Key, Lookup> inFlight = new LinkedHashMap<>();
+
+  /**
+   * Scheduled flush of the pending batch
+   */
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * Creates a new instance of <code>DefaultBatchingLoader</code>.
+   * 
+   * @param entityManager
+   *          the entity manager
+   * @param window
+   *          the time window
+   * @param unit
+   *          the unit of the time window
+   * @param maxBatchSize
+   *          the maximum number of keys in a batch
+   */
+  public DefaultBatchingLoader(DefaultEntityManager entityManager, long window, TimeUnit unit,
+      int maxBatchSize) {
+    this(entityManager, window, unit, maxBatchSize, entityManager.getDatastore()::fetch);
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultBatchingLoader</code>.
+   * 
+   * @param entityManager
+   *          the entity manager
+   * @param window
+   *          the time window
+   * @param unit
+   *          the unit of the time window
+   * @param maxBatchSize
+   *          the maximum number of keys in a batch
+   * @param fetcher
+   *          the function that looks up a batch of keys
+   */
+  DefaultBatchingLoader(DefaultEntityManager entityManager, long window, TimeUnit unit,
+      int maxBatchSize, Function<Key[], List<Entity>> fetcher) {
+    if (window < 0) {
+      throw new IllegalArgumentException("window cannot be negative");
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("unit cannot be null");
+    }
+    if (maxBatchSize < 1 || maxBatchSize > DatastoreUtils.MAX_LOOKUP_SIZE) {
+      throw new IllegalArgumentException(
+          String.format("maxBatchSize must be between 1 and %d", DatastoreUtils.MAX_LOOKUP_SIZE));
+    }
+    this.entityManager = entityManager;
+    this.windowNanos = unit.toNanos(window);
+    this.maxBatchSize = maxBatchSize;
+    this.fetcher = fetcher;
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, long id) {
+    EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
+    Key nativeKey = entityManager.newNativeKeyFactory().setKind(entityMetadata.getKind())
+        .newKey(id);
+    return load(entityClass, nativeKey);
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, String id) {
+    EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
+    Key nativeKey = entityManager.newNativeKeyFactory().setKind(entityMetadata.getKind())
+        .newKey(id);
+    return load(entityClass, nativeKey);
+  }
+
+  @Override
+  public <E> CompletableFuture<E> load(Class<E> entityClass, DatastoreKey key) {
+    return load(entityClass, key.nativeKey());
+  }
+
+  @Override
+  public void flush() {
+    Map<Key, Lookup> batch;
+    synchronized (lock) {
+      batch = takePending();
+    }
+    dispatch(batch);
+  }
+
+  /**
+   * Loads the entity with the given native key.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param nativeKey
+   *          the native key
+   * @return a future for the entity
+   */
+  private <E> CompletableFuture<E> load(Class<E> entityClass, Key nativeKey) {
+    EntityCache cache = entityManager.getSecondLevelCache().getCache(entityClass);
+    if (cache != null) {
+      Entity nativeEntity = cache.get(new DefaultDatastoreKey(nativeKey));
+      if (nativeEntity != null) {
+        return CompletableFuture.completedFuture(nativeEntity)
+            .thenApply(result -> toEntity(entityClass, result));
+      }
+    }
+    return enqueue(entityClass, nativeKey)
+        .thenApply(nativeEntity -> toEntity(entityClass, nativeEntity));
+  }
+
+  /**
+   * Unmarshals the given native entity and runs the PostLoad listeners.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param nativeEntity
+   *          the native entity, may be <code>null</code>
+   * @return the entity
+   */
+  private <E> E toEntity(Class<E> entityClass, Entity nativeEntity) {
+    E entity = Unmarshaller.unmarshal(entityManager, nativeEntity, entityClass);
+    entityManager.executeEntityListeners(CallbackType.POST_LOAD, entity);
+    return entity;
+  }
+
+  /**
+   * Returns the future for the native entity with the given key, adding the key to the pending
+   * batch if the key is neither pending nor in flight.
+   * 
+   * @param entityClass
+   *          the expected result type, which determines the cache that the fetched entity is
+   *          added to
+   * @param nativeKey
+   *          the native key
+   * @return the future for the native entity
+   */
+  private CompletableFuture<Entity> enqueue(Class<?> entityClass, Key nativeKey) {
+    Lookup lookup;
+    Map<Key, Lookup> batch = null;
+    synchronized (lock) {
+      lookup = inFlight.get(nativeKey);
+      if (lookup == null) {
+        lookup = pending.get(nativeKey);
+      }
+      if (lookup != null) {
+        return lookup.future;
+      }
+      lookup = new Lookup(entityClass);
+      pending.put(nativeKey, lookup);
+      if (pending.size() >= maxBatchSize) {
+        batch = takePending();
+      } else if (pending.size() == 1) {
+        scheduledFlush = ConcurrencyUtils.getScheduler().schedule(this::flush, windowNanos,
+            TimeUnit.NANOSECONDS);
+      }
+    }
+    if (batch != null) {
+      dispatch(batch);
+    }
+    return lookup.future;
+  }
+
+  /**
+   * Takes the pending batch and marks its keys as in flight. Must be called while holding the
+   * lock.
+   * 
+   * @return the pending batch
+   */
+  private Map<Key, Lookup> takePending() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    Map<Key, Lookup> batch = pending;
+    pending = new LinkedHashMap<>();
+    inFlight.putAll(batch);
+    return batch;
+  }
+
+  /**
+   * Looks up the keys of the given batch on the default executor, adds the fetched entities to the
+   * second level cache, and completes their futures. The eviction generation of each cache is
+   * captured before the lookup, so that an entity that is evicted while the lookup is in flight is
+   * not cached. Callers that join a pending or in-flight lookup never add to the cache themselves.
+   * 
+   * @param batch
+   *          the batch
+   */
+  private void dispatch(Map<Key, Lookup> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    ConcurrencyUtils.getDefaultExecutor().execute(() -> {
+      try {
+        SecondLevelCache secondLevelCache = entityManager.getSecondLevelCache();
+        Key[] nativeKeys = batch.keySet().toArray(new Key[batch.size()]);
+        long[] generations = new long[nativeKeys.length];
+        for (int i = 0; i < nativeKeys.length; i++) {
+          Class<?> entityClass = batch.get(nativeKeys[i]).entityClass;
+          if (secondLevelCache.getCache(entityClass) != null) {
+            generations[i] = secondLevelCache.getGeneration(entityClass);
+          }
+        }
+        List<Entity> nativeEntities = fetcher.apply(nativeKeys);
+        for (int i = 0; i < nativeKeys.length; i++) {
+          Lookup lookup = batch.get(nativeKeys[i]);
+          Entity nativeEntity = nativeEntities.get(i);
+          if (nativeEntity != null) {
+            secondLevelCache.put(lookup.entityClass, new DefaultDatastoreKey(nativeKeys[i]),
+                nativeEntity, generations[i]);
+          }
+          lookup.future.complete(nativeEntity);
+        }
+      } catch (DatastoreException exp) {
+        EntityManagerException failure = new EntityManagerException(exp);
+        batch.values().forEach(lookup -> lookup.future.completeExceptionally(failure));
+      } catch (RuntimeException exp) {
+        batch.values().forEach(lookup -> lookup.future.completeExceptionally(exp));
+      } finally {
+        synchronized (lock) {
+          batch.forEach(inFlight::remove);
+        }
+      }
+    });
+  }
+
+  /**
+   * A key that is pending or in flight.
+   */
+  private static class Lookup {
+
+    /**
+     * The expected result type of the caller that requested the key first
+     */
+    private final Class<?> entityClass;
+
+    /**
+     * The future for the native entity
+     */
+    private final CompletableFuture<Entity> future = new CompletableFuture<>();
+
+    /**
+     * Creates a new instance of <code>Lookup</code>.
+     * 
+     * @param entityClass
+     *          the expected result type
+     */
+    Lookup(Class<?> entityClass) {
+      this.entityClass = entityClass;
+    }
+  }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.jmethods.catatumbo.BulkWriteException;
+import com.jmethods.catatumbo.BulkWriter;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.WriteResultMode;
+
+/**
+ * Default implementation of the {@link BulkWriter} interface. Each chunk is written with the
+ * corresponding list operation of a {@link DefaultDatastoreWriter}, on the chunk executor. The
+ * writer updates the written entities in place, so no entity is unmarshalled again.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultBulkWriter implements BulkWriter {
+
+  /**
+   * Writer of the chunks
+   */
+  private final ChunkWriter chunkWriter;
+
+  /**
+   * Function that returns the key of an entity
+   */
+  private final Function<Object, DatastoreKey> keyFunction;
+
+  /**
+   * Maximum number of entities in a chunk
+   */
+  private final int chunkSize;
+
+  /**
+   * Creates a new instance of <code>DefaultBulkWriter</code>.
+   * 
+   * @param entityManager
+   *          the entity manager
+   * @param chunkSize
+   *          the maximum number of entities in a chunk
+   */
+  public DefaultBulkWriter(DefaultEntityManager entityManager, int chunkSize) {
+    this(newChunkWriter(new DefaultDatastoreWriter(entityManager, WriteResultMode.IN_PLACE)),
+        entity -> new DefaultDatastoreKey(Marshaller.marshalKey(entityManager, entity)),
+        chunkSize);
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultBulkWriter</code>.
+   * 
+   * @param chunkWriter
+   *          the writer of the chunks
+   * @param keyFunction
+   *          the function that returns the key of an entity
+   * @param chunkSize
+   *          the maximum number of entities in a chunk
+   */
+  DefaultBulkWriter(ChunkWriter chunkWriter, Function<Object, DatastoreKey> keyFunction,
+      int chunkSize) {
+    if (chunkSize < 1 || chunkSize > DatastoreUtils.MAX_MUTATIONS) {
+      throw new IllegalArgumentException(
+          String.format("chunkSize must be between 1 and %d", DatastoreUtils.MAX_MUTATIONS));
+    }
+    this.chunkWriter = chunkWriter;
+    this.keyFunction = keyFunction;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public <E> List<E> insert(List<E> entities) {
+    return write(entities, chunkWriter::insert, keyFunction);
+  }
+
+  @Override
+  public <E> List<E> update(List<E> entities) {
+    return write(entities, chunkWriter::update, keyFunction);
+  }
+
+  @Override
+  public <E> List<E> upsert(List<E> entities) {
+    return write(entities, chunkWriter::upsert, keyFunction);
+  }
+
+  @Override
+  public void delete(List<?> entities) {
+    write(entities, chunk -> {
+      chunkWriter.delete(chunk);
+      return chunk;
+    }, keyFunction);
+  }
+
+  @Override
+  public void deleteByKey(List<DatastoreKey> keys) {
+    write(keys, chunk -> {
+      chunkWriter.deleteByKey(chunk);
+      return chunk;
+    }, Function.identity());
+  }
+
+  /**
+   * Splits the given items into chunks, writes the chunks at the same time, and waits for all of
+   * them to complete.
+   * 
+   * @param items
+   *          the items to write
+   * @param chunkWriter
+   *          the function that writes a chunk and returns the written items
+   * @param keyFunction
+   *          the function that returns the key of a written item
+   * @return the written items, in the same order as the given items
+   * @throws BulkWriteException
+   *           if one or more chunks fail
+   */
+  private <T, R> List<R> write(List<T> items, Function<List<T>, List<R>> chunkWriter,
+      Function<? super R, DatastoreKey> keyFunction) {
+    if (items == null || items.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<CompletableFuture<List<R>>> futures = new ArrayList<>();
+    for (int i = 0; i < items.size(); i += chunkSize) {
+      List<T> chunk = items.subList(i, Math.min(i + chunkSize, items.size()));
+      futures.add(ConcurrencyUtils.supplyAsync(() -> chunkWriter.apply(chunk),
+          ConcurrencyUtils.getChunkExecutor()));
+    }
+    List<R> writtenItems = new ArrayList<>(items.size());
+    List<DatastoreKey> writtenKeys = new ArrayList<>();
+    List<EntityManagerException> failures = new ArrayList<>();
+    for (CompletableFuture<List<R>> future : futures) {
+      try {
+        List<R> chunkItems = ConcurrencyUtils.join(future);
+        writtenItems.addAll(chunkItems);
+        for (R item : chunkItems) {
+          writtenKeys.add(keyFunction.apply(item));
+        }
+      } catch (EntityManagerException exp) {
+        failures.add(exp);
+      } catch (RuntimeException exp) {
+        failures.add(new EntityManagerException(exp));
+      }
+    }
+    if (!failures.isEmpty()) {
+      String message = String.format("%d of %d chunks failed to write", failures.size(),
+          futures.size());
+      throw new BulkWriteException(message, writtenKeys, failures);
+    }
+    return writtenItems;
+  }
+
+  /**
+   * Creates a chunk writer that writes with the given writer.
+   * 
+   * @param writer
+   *          the writer
+   * @return the chunk writer
+   */
+  private static ChunkWriter newChunkWriter(DefaultDatastoreWriter writer) {
+    return new ChunkWriter() {
+
+      @Override
+      public <E> List<E> insert(List<E> entities) {
+        return writer.insert(entities);
+      }
+
+      @Override
+      public <E> List<E> update(List<E> entities) {
+        return writer.updateWithOptimisticLock(entities);
+      }
+
+      @Override
+      public <E> List<E> upsert(List<E> entities) {
+        return writer.upsert(entities);
+      }
+
+      @Override
+      public void delete(List<?> entities) {
+        writer.delete(entities);
+      }
+
+      @Override
+      public void deleteByKey(List<DatastoreKey> keys) {
+        writer.deleteByKey(keys);
+      }
+    };
+  }
+
+  /**
+   * Writes a single chunk.
+   */
+  interface ChunkWriter {
+
+    /**
+     * Inserts the given chunk of entities.
+     * 
+     * @param entities
+     *          the entities to insert
+     * @return the inserted entities
+     */
+    <E> List<E> insert(List<E> entities);
+
+    /**
+     * Updates the given chunk of entities.
+     * 
+     * @param entities
+     *          the entities to update
+     * @return the updated entities
+     */
+    <E> List<E> update(List<E> entities);
+
+    /**
+     * Updates or inserts the given chunk of entities.
+     * 
+     * @param entities
+     *          the entities to update or insert
+     * @return the updated or inserted entities
+     */
+    <E> List<E> upsert(List<E> entities);
+
+    /**
+     * Deletes the given chunk of entities.
+     * 
+     * @param entities
+     *          the entities to delete
+     */
+    void delete(List<?> entities);
+
+    /**
+     * Deletes the entities with the given chunk of keys.
+     * 
+     * @param keys
+     *          the keys of the entities to delete
+     */
+    void deleteByKey(List<DatastoreKey> keys);
+
+  }
+
+}
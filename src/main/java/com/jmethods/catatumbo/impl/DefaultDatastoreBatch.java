@@ -24,6 +24,7 @@ import com.google.cloud.datastore.DatastoreException;
 import com.google.cloud.datastore.FullEntity;
 import com.jmethods.catatumbo.DatastoreBatch;
 import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.OperationType;
 import com.jmethods.catatumbo.impl.Marshaller.Intent;
 
 /**
@@ -219,11 +220,16 @@ public class DefaultDatastoreBatch implements DatastoreBatch {
 
   @Override
   public Response submit() {
+    OperationTimer timer = OperationTimer.start(entityManager, OperationType.COMMIT);
     try {
-      Batch.Response nativeResponse = nativeBatch.submit();
+      Batch.Response nativeResponse = timer.callRpc(nativeBatch::submit);
+      timer.succeeded();
+      writer.flushEvictions();
       return new DefaultResponse(nativeResponse);
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -17,8 +17,14 @@
 package com.jmethods.catatumbo.impl;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import com.google.cloud.datastore.Cursor;
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreException;
 import com.google.cloud.datastore.DatastoreReader;
@@ -31,17 +37,23 @@ import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.Query.ResultType;
 import com.google.cloud.datastore.QueryResults;
 import com.google.cloud.datastore.Transaction;
+import com.jmethods.catatumbo.Cacheable;
+import com.jmethods.catatumbo.DatastoreCursor;
 import com.jmethods.catatumbo.DatastoreKey;
 import com.jmethods.catatumbo.DefaultDatastoreCursor;
 import com.jmethods.catatumbo.DefaultDatastoreKey;
 import com.jmethods.catatumbo.DefaultQueryResponse;
 import com.jmethods.catatumbo.DefaultQueryResponseMetadata;
+import com.jmethods.catatumbo.EntityCache;
 import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.EntityQueryRequest;
 import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.OperationType;
 import com.jmethods.catatumbo.ProjectionQueryRequest;
+import com.jmethods.catatumbo.QueryRequest;
 import com.jmethods.catatumbo.QueryResponse;
 import com.jmethods.catatumbo.QueryResponseMetadata;
+import com.jmethods.catatumbo.QueryResultIterator;
 
 /**
  * Worker class for performing read operations on the Cloud Datastore.
@@ -66,6 +78,12 @@ public class DefaultDatastoreReader {
    */
   private Datastore datastore;
 
+  /**
+   * Entities loaded by this reader, or <code>null</code>, if this reader does not keep track of
+   * loaded entities
+   */
+  private IdentityMap identityMap;
+
   /**
    * Creates a new instance of <code>DefaultDatastoreReader</code>.
    * 
@@ -88,6 +106,20 @@ public class DefaultDatastoreReader {
     this.entityManager = transaction.getEntityManager();
     this.datastore = entityManager.getDatastore();
     this.nativeReader = transaction.getNativeTransaction();
+    this.identityMap = transaction.getIdentityMap();
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultDatastoreReader</code>.
+   * 
+   * @param session
+   *          the session that created this reader.
+   */
+  public DefaultDatastoreReader(DefaultDatastoreSession session) {
+    this.entityManager = session.getEntityManager();
+    this.datastore = entityManager.getDatastore();
+    this.nativeReader = datastore;
+    this.identityMap = session.getIdentityMap();
   }
 
   /**
@@ -249,7 +281,9 @@ public class DefaultDatastoreReader {
   }
 
   /**
-   * Fetches the entity given the native key.
+   * Fetches the entity given the native key. If this reader keeps track of loaded entities, an
+   * entity that was already loaded is returned as is. Otherwise, {@link Cacheable} entities are
+   * served from the second-level cache, if present.
    * 
    * @param entityClass
    *          the expected result type
@@ -259,18 +293,48 @@ public class DefaultDatastoreReader {
    *         key.
    */
   private <E> E fetch(Class<E> entityClass, Key nativeKey) {
+    if (identityMap != null && identityMap.contains(entityClass, nativeKey)) {
+      return identityMap.get(entityClass, nativeKey);
+    }
+    OperationTimer timer = startTimer(OperationType.LOAD).kind(entityClass).entities(1);
     try {
-      Entity nativeEntity = nativeReader.get(nativeKey);
-      E entity = Unmarshaller.unmarshal(nativeEntity, entityClass);
+      EntityCache cache = getCache(entityClass);
+      Entity nativeEntity = null;
+      if (cache == null) {
+        nativeEntity = callWithRetry(timer, () -> nativeReader.get(nativeKey));
+      } else {
+        DatastoreKey key = new DefaultDatastoreKey(nativeKey);
+        nativeEntity = cache.get(key);
+        if (nativeEntity == null) {
+          SecondLevelCache secondLevelCache = entityManager.getSecondLevelCache();
+          long generation = secondLevelCache.getGeneration(entityClass);
+          nativeEntity = callWithRetry(timer, () -> nativeReader.get(nativeKey));
+          if (nativeEntity != null) {
+            secondLevelCache.put(entityClass, key, nativeEntity, generation);
+          }
+        }
+      }
+      timer.payload(nativeEntity);
+      long mark = timer.mark();
+      E entity = Unmarshaller.unmarshal(entityManager, nativeEntity, entityClass);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_LOAD, entity);
+      if (identityMap != null) {
+        identityMap.put(entityClass, nativeKey, entity);
+        identityMap.putSnapshot(nativeEntity);
+      }
+      timer.succeeded();
       return entity;
     } catch (DatastoreException exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
     }
   }
 
   /**
-   * Fetches a list of entities for the given native keys.
+   * Fetches a list of entities for the given native keys. If this reader keeps track of loaded
+   * entities, only the keys that were not loaded before are fetched.
    * 
    * @param entityClass
    *          the expected result type
@@ -280,16 +344,184 @@ public class DefaultDatastoreReader {
    *         returned list will be <code>null</code>.
    */
   private <E> List<E> fetch(Class<E> entityClass, Key[] nativeKeys) {
+    if (identityMap == null) {
+      return fetchInternal(entityClass, nativeKeys);
+    }
+    List<E> entities = new ArrayList<>(nativeKeys.length);
+    Map<Key, List<Integer>> missingKeys = new LinkedHashMap<>();
+    for (int i = 0; i < nativeKeys.length; i++) {
+      Key nativeKey = nativeKeys[i];
+      if (identityMap.contains(entityClass, nativeKey)) {
+        entities.add(identityMap.get(entityClass, nativeKey));
+      } else {
+        entities.add(null);
+        missingKeys.computeIfAbsent(nativeKey, k -> new ArrayList<>()).add(i);
+      }
+    }
+    if (missingKeys.isEmpty()) {
+      return entities;
+    }
+    List<E> fetchedEntities = fetchInternal(entityClass,
+        missingKeys.keySet().toArray(new Key[0]));
+    int index = 0;
+    for (Map.Entry<Key, List<Integer>> entry : missingKeys.entrySet()) {
+      E entity = fetchedEntities.get(index++);
+      identityMap.put(entityClass, entry.getKey(), entity);
+      for (int position : entry.getValue()) {
+        entities.set(position, entity);
+      }
+    }
+    return entities;
+  }
+
+  /**
+   * Fetches a list of entities for the given native keys. {@link Cacheable} entities are served
+   * from the second-level cache, if present, and only the remaining keys are fetched from the
+   * Datastore.
+   * 
+   * @param entityClass
+   *          the expected result type
+   * @param nativeKeys
+   *          the native keys of the entities
+   * @return the list of entities. If one or more keys do not exist, the corresponding item in the
+   *         returned list will be <code>null</code>.
+   */
+  private <E> List<E> fetchInternal(Class<E> entityClass, Key[] nativeKeys) {
+    OperationTimer timer = startTimer(OperationType.LOAD).kind(entityClass)
+        .entities(nativeKeys.length);
     try {
-      List<Entity> nativeEntities = nativeReader.fetch(nativeKeys);
-      List<E> entities = DatastoreUtils.toEntities(entityClass, nativeEntities);
+      EntityCache cache = getCache(entityClass);
+      List<Entity> nativeEntities;
+      if (cache == null || nativeKeys.length == 0) {
+        nativeEntities = callWithRetry(timer,
+            () -> DatastoreUtils.fetch(nativeReader, nativeKeys));
+      } else {
+        nativeEntities = fetchThroughCache(entityClass, cache, nativeKeys, timer);
+      }
+      timer.payload(nativeEntities);
+      long mark = timer.mark();
+      List<E> entities = DatastoreUtils.toEntities(entityManager, entityClass, nativeEntities);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_LOAD, entities);
+      if (identityMap != null) {
+        for (Entity nativeEntity : nativeEntities) {
+          identityMap.putSnapshot(nativeEntity);
+        }
+      }
+      timer.succeeded();
       return entities;
     } catch (DatastoreException exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
     }
   }
 
+  /**
+   * Looks up the given keys in the given cache, and fetches the ones that are not cached from the
+   * Datastore. Fetched entities are added to the cache, unless entities were evicted from it while
+   * they were being fetched.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param cache
+   *          the cache
+   * @param nativeKeys
+   *          the native keys of the entities
+   * @param timer
+   *          the timer of the load operation
+   * @return the native entities, in the same order as the keys. If one or more keys do not exist,
+   *         the corresponding item in the returned list will be <code>null</code>.
+   */
+  private List<Entity> fetchThroughCache(Class<?> entityClass, EntityCache cache,
+      Key[] nativeKeys, OperationTimer timer) {
+    List<Entity> nativeEntities = new ArrayList<>(nativeKeys.length);
+    List<Integer> missingIndexes = new ArrayList<>();
+    for (int i = 0; i < nativeKeys.length; i++) {
+      Entity nativeEntity = cache.get(new DefaultDatastoreKey(nativeKeys[i]));
+      nativeEntities.add(nativeEntity);
+      if (nativeEntity == null) {
+        missingIndexes.add(i);
+      }
+    }
+    if (missingIndexes.isEmpty()) {
+      return nativeEntities;
+    }
+    Key[] missingKeys = new Key[missingIndexes.size()];
+    for (int i = 0; i < missingKeys.length; i++) {
+      missingKeys[i] = nativeKeys[missingIndexes.get(i)];
+    }
+    SecondLevelCache secondLevelCache = entityManager.getSecondLevelCache();
+    long generation = secondLevelCache.getGeneration(entityClass);
+    List<Entity> fetchedEntities = callWithRetry(timer,
+        () -> DatastoreUtils.fetch(nativeReader, missingKeys));
+    for (int i = 0; i < missingKeys.length; i++) {
+      Entity nativeEntity = fetchedEntities.get(i);
+      if (nativeEntity != null) {
+        nativeEntities.set(missingIndexes.get(i), nativeEntity);
+        secondLevelCache.put(entityClass, new DefaultDatastoreKey(missingKeys[i]), nativeEntity,
+            generation);
+      }
+    }
+    return nativeEntities;
+  }
+
+  /**
+   * Runs the given operation, retrying it on transient errors as specified by the retry policy of
+   * the entity manager. Operations within a transaction are not retried individually.
+   * 
+   * @param operation
+   *          the operation
+   * @return the result of the operation
+   */
+  private <T> T callWithRetry(Supplier<T> operation) {
+    if (nativeReader instanceof Transaction) {
+      return operation.get();
+    }
+    return entityManager.getRetrier().call(operation);
+  }
+
+  /**
+   * Runs the given operation like {@link #callWithRetry(Supplier)}, adding the time taken to the
+   * RPC time of the given timer.
+   * 
+   * @param timer
+   *          the timer of the read operation
+   * @param operation
+   *          the operation
+   * @return the result of the operation
+   */
+  private <T> T callWithRetry(OperationTimer timer, Supplier<T> operation) {
+    return timer.callRpc(() -> callWithRetry(operation));
+  }
+
+  /**
+   * Starts measuring an operation of this reader.
+   * 
+   * @param operationType
+   *          the operation type
+   * @return the timer of the operation
+   */
+  private OperationTimer startTimer(OperationType operationType) {
+    return OperationTimer.start(entityManager, operationType);
+  }
+
+  /**
+   * Returns the second-level cache for the given entity class. Reads within a transaction always
+   * go to the Datastore.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @return the cache for the given entity class, or <code>null</code>, if the entity class is not
+   *         {@link Cacheable} or this reader belongs to a transaction.
+   */
+  private EntityCache getCache(Class<?> entityClass) {
+    if (nativeReader instanceof Transaction) {
+      return null;
+    }
+    return entityManager.getSecondLevelCache().getCache(entityClass);
+  }
+
   /**
    * Creates and returns a new {@link EntityQueryRequest} for the given GQL query string. The
    * returned {@link EntityQueryRequest} can be further customized to set any bindings (positional
@@ -343,32 +575,39 @@ public class DefaultDatastoreReader {
    */
   public <E> QueryResponse<E> executeEntityQueryRequest(Class<E> expectedResultType,
       EntityQueryRequest request) {
+    OperationTimer timer = startTimer(OperationType.QUERY).kind(expectedResultType)
+        .query(request);
     try {
-      GqlQuery.Builder<Entity> queryBuilder = Query.newGqlQueryBuilder(ResultType.ENTITY,
-          request.getQuery());
-      queryBuilder.setNamespace(entityManager.getEffectiveNamespace());
-      queryBuilder.setAllowLiteral(request.isAllowLiterals());
-      QueryUtils.applyNamedBindings(queryBuilder, request.getNamedBindings());
-      QueryUtils.applyPositionalBindings(queryBuilder, request.getPositionalBindings());
-      GqlQuery<Entity> gqlQuery = queryBuilder.build();
-      QueryResults<Entity> results = nativeReader.run(gqlQuery);
+      GqlQuery<Entity> gqlQuery = buildGqlQuery(ResultType.ENTITY, request);
+      long mark = timer.mark();
+      QueryResults<Entity> results = callWithRetry(() -> nativeReader.run(gqlQuery));
       List<E> entities = new ArrayList<>();
       DefaultQueryResponse<E> response = new DefaultQueryResponse<>();
       response.setStartCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
       while (results.hasNext()) {
         Entity result = results.next();
-        E entity = Unmarshaller.unmarshal(result, expectedResultType);
+        mark = timer.rpc(mark);
+        timer.payload(result);
+        E entity = Unmarshaller.unmarshal(entityManager, result, expectedResultType);
+        mark = timer.unmarshal(mark);
         entities.add(entity);
       }
+      timer.rpc(mark);
+      timer.entities(entities.size());
       response.setResults(entities);
       response.setEndCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
       response.setQueryResponseMetadata(
           new DefaultQueryResponseMetadata(
               QueryResponseMetadata.QueryState.forMoreResultsType(results.getMoreResults())));
+      timer.queryEnded(response.getEndCursor(),
+          response.getQueryResponseMetadata().getQueryState());
       entityManager.executeEntityListeners(CallbackType.POST_LOAD, entities);
+      timer.succeeded();
       return response;
     } catch (DatastoreException exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -383,32 +622,39 @@ public class DefaultDatastoreReader {
    */
   public <E> QueryResponse<E> executeProjectionQueryRequest(Class<E> expectedResultType,
       ProjectionQueryRequest request) {
+    OperationTimer timer = startTimer(OperationType.QUERY).kind(expectedResultType)
+        .query(request);
     try {
-      GqlQuery.Builder<ProjectionEntity> queryBuilder = Query
-          .newGqlQueryBuilder(ResultType.PROJECTION_ENTITY, request.getQuery());
-      queryBuilder.setNamespace(entityManager.getEffectiveNamespace());
-      queryBuilder.setAllowLiteral(request.isAllowLiterals());
-      QueryUtils.applyNamedBindings(queryBuilder, request.getNamedBindings());
-      QueryUtils.applyPositionalBindings(queryBuilder, request.getPositionalBindings());
-      GqlQuery<ProjectionEntity> gqlQuery = queryBuilder.build();
-      QueryResults<ProjectionEntity> results = nativeReader.run(gqlQuery);
+      GqlQuery<ProjectionEntity> gqlQuery = buildGqlQuery(ResultType.PROJECTION_ENTITY, request);
+      long mark = timer.mark();
+      QueryResults<ProjectionEntity> results = callWithRetry(() -> nativeReader.run(gqlQuery));
       List<E> entities = new ArrayList<>();
       DefaultQueryResponse<E> response = new DefaultQueryResponse<>();
       response.setStartCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
       while (results.hasNext()) {
         ProjectionEntity result = results.next();
-        E entity = Unmarshaller.unmarshal(result, expectedResultType);
+        mark = timer.rpc(mark);
+        timer.payload(result);
+        E entity = Unmarshaller.unmarshal(entityManager, result, expectedResultType);
+        mark = timer.unmarshal(mark);
         entities.add(entity);
       }
+      timer.rpc(mark);
+      timer.entities(entities.size());
       response.setResults(entities);
       response.setEndCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
       response.setQueryResponseMetadata(
           new DefaultQueryResponseMetadata(
               QueryResponseMetadata.QueryState.forMoreResultsType(results.getMoreResults())));
+      timer.queryEnded(response.getEndCursor(),
+          response.getQueryResponseMetadata().getQueryState());
       // TODO should we invoke PostLoad callback for projected entities?
+      timer.succeeded();
       return response;
     } catch (DatastoreException exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -420,15 +666,11 @@ public class DefaultDatastoreReader {
    * @return the query response
    */
   public QueryResponse<DatastoreKey> executeKeyQueryRequest(KeyQueryRequest request) {
+    OperationTimer timer = startTimer(OperationType.QUERY).query(request);
     try {
-      GqlQuery.Builder<Key> queryBuilder = Query.newGqlQueryBuilder(ResultType.KEY,
-          request.getQuery());
-      queryBuilder.setNamespace(entityManager.getEffectiveNamespace());
-      queryBuilder.setAllowLiteral(request.isAllowLiterals());
-      QueryUtils.applyNamedBindings(queryBuilder, request.getNamedBindings());
-      QueryUtils.applyPositionalBindings(queryBuilder, request.getPositionalBindings());
-      GqlQuery<Key> gqlQuery = queryBuilder.build();
-      QueryResults<Key> results = nativeReader.run(gqlQuery);
+      GqlQuery<Key> gqlQuery = buildGqlQuery(ResultType.KEY, request);
+      long mark = timer.mark();
+      QueryResults<Key> results = callWithRetry(() -> nativeReader.run(gqlQuery));
       List<DatastoreKey> entities = new ArrayList<>();
       DefaultQueryResponse<DatastoreKey> response = new DefaultQueryResponse<>();
       response.setStartCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
@@ -437,15 +679,331 @@ public class DefaultDatastoreReader {
         DatastoreKey datastoreKey = new DefaultDatastoreKey(result);
         entities.add(datastoreKey);
       }
+      timer.rpc(mark);
+      if (!entities.isEmpty()) {
+        timer.kind(entities.get(0).kind());
+      }
+      timer.entities(entities.size());
       response.setResults(entities);
       response.setEndCursor(new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe()));
       response.setQueryResponseMetadata(
           new DefaultQueryResponseMetadata(
               QueryResponseMetadata.QueryState.forMoreResultsType(results.getMoreResults())));
+      timer.queryEnded(response.getEndCursor(),
+          response.getQueryResponseMetadata().getQueryState());
+      timer.succeeded();
       return response;
     } catch (DatastoreException exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
+    }
+  }
+
+  /**
+   * Executes the given {@link EntityQueryRequest} and returns an iterator over the results. Unlike
+   * {@link #executeEntityQueryRequest(Class, EntityQueryRequest)}, the results are fetched from the
+   * Datastore in batches as the iterator advances, and each entity is unmarshalled and passed to
+   * the PostLoad listeners only when it is returned by the iterator.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the entity query request
+   * @return an iterator over the query results
+   */
+  public <E> QueryResultIterator<E> streamEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request) {
+    return streamEntities(expectedResultType, request, buildGqlQuery(ResultType.ENTITY, request),
+        false);
+  }
+
+  /**
+   * Executes the given {@link ProjectionQueryRequest} and returns an iterator over the results.
+   * The results are fetched from the Datastore in batches as the iterator advances.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the projection query request
+   * @return an iterator over the query results
+   */
+  public <E> QueryResultIterator<E> streamProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request) {
+    return streamProjectedEntities(expectedResultType, request,
+        buildGqlQuery(ResultType.PROJECTION_ENTITY, request), false);
+  }
+
+  /**
+   * Executes the given {@link KeyQueryRequest} and returns an iterator over the results. The
+   * results are fetched from the Datastore in batches as the iterator advances.
+   * 
+   * @param request
+   *          the key query request
+   * @return an iterator over the query results
+   */
+  public QueryResultIterator<DatastoreKey> streamKeyQueryRequest(KeyQueryRequest request) {
+    return streamKeys(request, buildGqlQuery(ResultType.KEY, request), false);
+  }
+
+  /**
+   * Executes the given {@link EntityQueryRequest} page by page and returns an iterator over the
+   * results of all pages. Each page after the first is fetched by re-executing the query with the
+   * named binding <code>cursorBinding</code> set to the end cursor of the previous page.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the entity query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor (e.g. the OFFSET) of the query
+   * @param prefetch
+   *          whether or not to fetch the next page in the background while the current page is
+   *          being consumed
+   * @return an iterator over the results of all pages
+   */
+  public <E> QueryResultIterator<E> paginateEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request, String cursorBinding, boolean prefetch) {
+    requireLimit(request);
+    return paginate(cursor -> streamEntities(expectedResultType, request,
+        buildGqlQuery(ResultType.ENTITY, request, cursorBinding, cursor), true),
+        page -> entityManager.executeEntityListeners(CallbackType.POST_LOAD, page), prefetch);
+  }
+
+  /**
+   * Executes the given {@link ProjectionQueryRequest} page by page and returns an iterator over the
+   * results of all pages. Each page after the first is fetched by re-executing the query with the
+   * named binding <code>cursorBinding</code> set to the end cursor of the previous page.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the projection query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor (e.g. the OFFSET) of the query
+   * @param prefetch
+   *          whether or not to fetch the next page in the background while the current page is
+   *          being consumed
+   * @return an iterator over the results of all pages
+   */
+  public <E> QueryResultIterator<E> paginateProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request, String cursorBinding, boolean prefetch) {
+    requireLimit(request);
+    return paginate(cursor -> streamProjectedEntities(expectedResultType, request,
+        buildGqlQuery(ResultType.PROJECTION_ENTITY, request, cursorBinding, cursor), true), null,
+        prefetch);
+  }
+
+  /**
+   * Executes the given {@link KeyQueryRequest} page by page and returns an iterator over the
+   * results of all pages. Each page after the first is fetched by re-executing the query with the
+   * named binding <code>cursorBinding</code> set to the end cursor of the previous page.
+   * 
+   * @param request
+   *          the key query request
+   * @param cursorBinding
+   *          the name of the binding that holds the start cursor (e.g. the OFFSET) of the query
+   * @param prefetch
+   *          whether or not to fetch the next page in the background while the current page is
+   *          being consumed
+   * @return an iterator over the results of all pages
+   */
+  public QueryResultIterator<DatastoreKey> paginateKeyQueryRequest(KeyQueryRequest request,
+      String cursorBinding, boolean prefetch) {
+    requireLimit(request);
+    return paginate(cursor -> streamKeys(request,
+        buildGqlQuery(ResultType.KEY, request, cursorBinding, cursor), true), null, prefetch);
+  }
+
+  /**
+   * Executes the given query and returns an iterator over the resulting entities.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the query request, for the metrics
+   * @param gqlQuery
+   *          the query
+   * @param page
+   *          whether the query fetches a page of a paginated query, which is read to the end right
+   *          away. The PostLoad listeners of a page are run once for the whole page, by the
+   *          caller. Otherwise, they are run for each entity as it is returned, and batch
+   *          listeners receive a list containing just that entity.
+   * @return an iterator over the query results
+   */
+  private <E> DefaultQueryResultIterator<Entity, E> streamEntities(Class<E> expectedResultType,
+      QueryRequest request, GqlQuery<Entity> gqlQuery, boolean page) {
+    OperationTimer timer = startTimer(OperationType.QUERY).kind(expectedResultType)
+        .query(request);
+    return runQuery(timer, gqlQuery, result -> {
+      E entity = Unmarshaller.unmarshal(entityManager, result, expectedResultType);
+      if (!page) {
+        entityManager.executeEntityListeners(CallbackType.POST_LOAD, entity);
+      }
+      return entity;
+    }, page);
+  }
+
+  /**
+   * Executes the given query and returns an iterator over the resulting projected entities.
+   * 
+   * @param expectedResultType
+   *          the expected type of results.
+   * @param request
+   *          the query request, for the metrics
+   * @param gqlQuery
+   *          the query
+   * @param page
+   *          whether the query fetches a page of a paginated query
+   * @return an iterator over the query results
+   */
+  private <E> DefaultQueryResultIterator<ProjectionEntity, E> streamProjectedEntities(
+      Class<E> expectedResultType, QueryRequest request, GqlQuery<ProjectionEntity> gqlQuery,
+      boolean page) {
+    OperationTimer timer = startTimer(OperationType.QUERY).kind(expectedResultType)
+        .query(request);
+    return runQuery(timer, gqlQuery,
+        result -> Unmarshaller.unmarshal(entityManager, result, expectedResultType), page);
+  }
+
+  /**
+   * Executes the given query and returns an iterator over the resulting keys.
+   * 
+   * @param request
+   *          the query request, for the metrics
+   * @param gqlQuery
+   *          the query
+   * @param page
+   *          whether the query fetches a page of a paginated query
+   * @return an iterator over the query results
+   */
+  private DefaultQueryResultIterator<Key, DatastoreKey> streamKeys(QueryRequest request,
+      GqlQuery<Key> gqlQuery, boolean page) {
+    OperationTimer timer = startTimer(OperationType.QUERY).query(request);
+    return runQuery(timer, gqlQuery, result -> {
+      timer.kind(result.getKind());
+      return new DefaultDatastoreKey(result);
+    }, page);
+  }
+
+  /**
+   * Runs the given query, measured as a query operation by the given timer. The timer of a page
+   * of a paginated query is handed to the returned iterator, which stops it once the page is read
+   * to the end, with the end cursor and state of the page. For a streamed query, only the initial
+   * run, which fetches the first batch of results, is measured, so that the time the caller spends
+   * between results is not taken for query time. Its state is that of the first batch, and it has
+   * no end cursor.
+   * 
+   * @param timer
+   *          the timer of the query
+   * @param gqlQuery
+   *          the query
+   * @param converter
+   *          converts a native result to its model type
+   * @param page
+   *          whether the query fetches a page of a paginated query
+   * @return an iterator over the query results
+   */
+  private <N, E> DefaultQueryResultIterator<N, E> runQuery(OperationTimer timer,
+      GqlQuery<N> gqlQuery, Function<N, E> converter, boolean page) {
+    boolean handedOff = false;
+    try {
+      QueryResults<N> results = callWithRetry(timer, () -> nativeReader.run(gqlQuery));
+      if (page) {
+        handedOff = true;
+        return new DefaultQueryResultIterator<>(results, converter, timer);
+      }
+      timer.queryEnded(null,
+          QueryResponseMetadata.QueryState.forMoreResultsType(results.getMoreResults()));
+      timer.succeeded();
+      return new DefaultQueryResultIterator<>(results, converter);
+    } catch (DatastoreException exp) {
+      throw new EntityManagerException(exp);
+    } finally {
+      if (!handedOff) {
+        timer.stop();
+      }
+    }
+  }
+
+  /**
+   * Creates an iterator over all pages returned by the given page loader.
+   * 
+   * @param pageLoader
+   *          executes the query starting at the given cursor
+   * @param pageListener
+   *          receives the results of each page once the page is fetched, or <code>null</code>
+   * @param prefetch
+   *          whether or not to fetch the next page in the background. Ignored within a
+   *          transaction, which must not be used from another thread, nor after it is committed.
+   * @return an iterator over the results of all pages
+   */
+  private <E> QueryResultIterator<E> paginate(
+      Function<Cursor, DefaultQueryResultIterator<?, E>> pageLoader,
+      Consumer<List<E>> pageListener, boolean prefetch) {
+    boolean background = prefetch && !(nativeReader instanceof Transaction);
+    return new PaginatingQueryResultIterator<>(pageLoader, pageListener,
+        background ? ConcurrencyUtils.getDefaultExecutor() : null);
+  }
+
+  /**
+   * Ensures that the query of the given request has a LIMIT. Without one, the Datastore keeps
+   * returning batches until the results are exhausted, so the first page would hold the entire
+   * result set.
+   * 
+   * @param request
+   *          the query request
+   * @throws IllegalArgumentException
+   *           if the query does not have a LIMIT
+   */
+  private static void requireLimit(QueryRequest request) {
+    if (!QueryUtils.hasLimit(request.getQuery())) {
+      throw new IllegalArgumentException(
+          "Paginated queries must have a LIMIT, which determines the page size: "
+              + request.getQuery());
+    }
+  }
+
+  /**
+   * Builds the native GQL query for the given request, in the effective namespace of the entity
+   * manager.
+   * 
+   * @param resultType
+   *          the type of results
+   * @param request
+   *          the query request
+   * @return the native GQL query
+   */
+  private <N> GqlQuery<N> buildGqlQuery(ResultType<N> resultType, QueryRequest request) {
+    return buildGqlQuery(resultType, request, null, null);
+  }
+
+  /**
+   * Builds the native GQL query for the given request, in the effective namespace of the entity
+   * manager, with the given cursor binding overridden.
+   * 
+   * @param resultType
+   *          the type of results
+   * @param request
+   *          the query request
+   * @param cursorBinding
+   *          the name of the binding to override
+   * @param cursor
+   *          the value of the cursor binding, or <code>null</code> to use the request's bindings
+   *          as is
+   * @return the native GQL query
+   */
+  private <N> GqlQuery<N> buildGqlQuery(ResultType<N> resultType, QueryRequest request,
+      String cursorBinding, Cursor cursor) {
+    GqlQuery.Builder<N> queryBuilder = Query.newGqlQueryBuilder(resultType, request.getQuery());
+    queryBuilder.setNamespace(entityManager.getEffectiveNamespace());
+    queryBuilder.setAllowLiteral(request.isAllowLiterals());
+    QueryUtils.applyNamedBindings(queryBuilder, request.getNamedBindings());
+    QueryUtils.applyPositionalBindings(queryBuilder, request.getPositionalBindings());
+    if (cursor != null) {
+      queryBuilder.setBinding(cursorBinding, cursor);
     }
+    return queryBuilder.build();
   }
 
   /**
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.List;
+
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DatastoreSession;
+import com.jmethods.catatumbo.EntityQueryRequest;
+import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.ProjectionQueryRequest;
+import com.jmethods.catatumbo.QueryResponse;
+import com.jmethods.catatumbo.QueryResultIterator;
+
+/**
+ * Default implementation of the {@link DatastoreSession} interface.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultDatastoreSession implements DatastoreSession {
+
+  /**
+   * Entity manager that created this session
+   */
+  private DefaultEntityManager entityManager;
+
+  /**
+   * Entities loaded within this session
+   */
+  private IdentityMap identityMap;
+
+  /**
+   * Reader
+   */
+  private DefaultDatastoreReader reader;
+
+  /**
+   * Writer
+   */
+  private DefaultDatastoreWriter writer;
+
+  /**
+   * Creates a new instance of <code>DefaultDatastoreSession</code>.
+   * 
+   * @param entityManager
+   *          the entity manager that created this session.
+   */
+  public DefaultDatastoreSession(DefaultEntityManager entityManager) {
+    this(entityManager, false);
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultDatastoreSession</code>.
+   * 
+   * @param entityManager
+   *          the entity manager that created this session.
+   * @param trackChanges
+   *          whether or not to skip updates and upserts of loaded entities that have not changed
+   */
+  public DefaultDatastoreSession(DefaultEntityManager entityManager, boolean trackChanges) {
+    this.entityManager = entityManager;
+    this.identityMap = new IdentityMap(trackChanges);
+    this.reader = new DefaultDatastoreReader(this);
+    this.writer = new DefaultDatastoreWriter(this);
+  }
+
+  /**
+   * Returns the entity manager that created this session.
+   * 
+   * @return the entity manager that created this session.
+   */
+  public DefaultEntityManager getEntityManager() {
+    return entityManager;
+  }
+
+  /**
+   * Returns the identity map of this session.
+   * 
+   * @return the identity map of this session.
+   */
+  IdentityMap getIdentityMap() {
+    return identityMap;
+  }
+
+  @Override
+  public void clear() {
+    identityMap.clear();
+  }
+
+  @Override
+  public <E> E insert(E entity) {
+    return writer.insert(entity);
+  }
+
+  @Override
+  public <E> List<E> insert(List<E> entities) {
+    return writer.insert(entities);
+  }
+
+  @Override
+  public <E> E update(E entity) {
+    return writer.updateWithOptimisticLock(entity);
+  }
+
+  @Override
+  public <E> List<E> update(List<E> entities) {
+    return writer.updateWithOptimisticLock(entities);
+  }
+
+  @Override
+  public <E> E upsert(E entity) {
+    return writer.upsert(entity);
+  }
+
+  @Override
+  public <E> List<E> upsert(List<E> entities) {
+    return writer.upsert(entities);
+  }
+
+  @Override
+  public void delete(Object entity) {
+    writer.delete(entity);
+  }
+
+  @Override
+  public void delete(List<?> entities) {
+    writer.delete(entities);
+  }
+
+  @Override
+  public <E> void delete(Class<E> entityClass, long id) {
+    writer.delete(entityClass, id);
+  }
+
+  @Override
+  public <E> void delete(Class<E> entityClass, String id) {
+    writer.delete(entityClass, id);
+  }
+
+  @Override
+  public <E> void delete(Class<E> entityClass, DatastoreKey parentKey, long id) {
+    writer.delete(entityClass, parentKey, id);
+  }
+
+  @Override
+  public <E> void delete(Class<E> entityClass, DatastoreKey parentKey, String id) {
+    writer.delete(entityClass, parentKey, id);
+  }
+
+  @Override
+  public void deleteByKey(DatastoreKey key) {
+    writer.deleteByKey(key);
+  }
+
+  @Override
+  public void deleteByKey(List<DatastoreKey> keys) {
+    writer.deleteByKey(keys);
+  }
+
+  @Override
+  public <E> E load(Class<E> entityClass, long id) {
+    return reader.load(entityClass, id);
+  }
+
+  @Override
+  public <E> E load(Class<E> entityClass, String id) {
+    return reader.load(entityClass, id);
+  }
+
+  @Override
+  public <E> E load(Class<E> entityClass, DatastoreKey parentKey, long id) {
+    return reader.load(entityClass, parentKey, id);
+  }
+
+  @Override
+  public <E> E load(Class<E> entityClass, DatastoreKey parentKey, String id) {
+    return reader.load(entityClass, parentKey, id);
+  }
+
+  @Override
+  public <E> E load(Class<E> entityClass, DatastoreKey key) {
+    return reader.load(entityClass, key);
+  }
+
+  @Override
+  public <E> List<E> loadById(Class<E> entityClass, List<Long> identifiers) {
+    return reader.loadById(entityClass, identifiers);
+  }
+
+  @Override
+  public <E> List<E> loadByName(Class<E> entityClass, List<String> identifiers) {
+    return reader.loadByName(entityClass, identifiers);
+  }
+
+  @Override
+  public <E> List<E> loadByKey(Class<E> entityClass, List<DatastoreKey> keys) {
+    return reader.loadByKey(entityClass, keys);
+  }
+
+  @Override
+  public EntityQueryRequest createEntityQueryRequest(String query) {
+    return reader.createEntityQueryRequest(query);
+  }
+
+  @Override
+  public ProjectionQueryRequest createProjectionQueryRequest(String query) {
+    return reader.createProjectionQueryRequest(query);
+  }
+
+  @Override
+  public KeyQueryRequest createKeyQueryRequest(String query) {
+    return reader.createKeyQueryRequest(query);
+  }
+
+  @Override
+  public <E> QueryResponse<E> executeEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request) {
+    return reader.executeEntityQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public <E> QueryResponse<E> executeProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request) {
+    return reader.executeProjectionQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public QueryResponse<DatastoreKey> executeKeyQueryRequest(KeyQueryRequest request) {
+    return reader.executeKeyQueryRequest(request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> streamEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request) {
+    return reader.streamEntityQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> streamProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request) {
+    return reader.streamProjectionQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> streamKeyQueryRequest(KeyQueryRequest request) {
+    return reader.streamKeyQueryRequest(request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateEntityQueryRequest(expectedResultType, request, cursorBinding, prefetch);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateProjectionQueryRequest(expectedResultType, request, cursorBinding,
+        prefetch);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> paginateKeyQueryRequest(KeyQueryRequest request,
+      String cursorBinding, boolean prefetch) {
+    return reader.paginateKeyQueryRequest(request, cursorBinding, prefetch);
+  }
+
+}
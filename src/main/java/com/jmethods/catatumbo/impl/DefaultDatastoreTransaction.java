@@ -29,8 +29,10 @@ import com.jmethods.catatumbo.DatastoreTransaction;
 import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.EntityQueryRequest;
 import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.OperationType;
 import com.jmethods.catatumbo.ProjectionQueryRequest;
 import com.jmethods.catatumbo.QueryResponse;
+import com.jmethods.catatumbo.QueryResultIterator;
 import com.jmethods.catatumbo.TransactionMode;
 import com.jmethods.catatumbo.impl.Marshaller.Intent;
 
@@ -67,6 +69,11 @@ public class DefaultDatastoreTransaction implements DatastoreTransaction {
    */
   private DefaultDatastoreWriter writer;
 
+  /**
+   * Entities loaded within this transaction
+   */
+  private IdentityMap identityMap;
+
   /**
    * Creates a new instance of <code>DatastoreTransaction</code>.
    * 
@@ -81,6 +88,7 @@ public class DefaultDatastoreTransaction implements DatastoreTransaction {
     this.datastore = entityManager.getDatastore();
     this.nativeTransaction = datastore
         .newTransaction(transactionMode.getNativeTransactionOptions());
+    this.identityMap = new IdentityMap();
     this.reader = new DefaultDatastoreReader(this);
     this.writer = new TransactionalWriter(this);
   }
@@ -103,6 +111,15 @@ public class DefaultDatastoreTransaction implements DatastoreTransaction {
     return nativeTransaction;
   }
 
+  /**
+   * Returns the identity map of this transaction.
+   * 
+   * @return the identity map of this transaction.
+   */
+  IdentityMap getIdentityMap() {
+    return identityMap;
+  }
+
   @Override
   public <E> void insertWithDeferredIdAllocation(E entity) {
     try {
@@ -170,13 +187,18 @@ public class DefaultDatastoreTransaction implements DatastoreTransaction {
 
   @Override
   public Response commit() {
+    OperationTimer timer = OperationTimer.start(entityManager, OperationType.COMMIT);
     try {
-      Transaction.Response nativeResponse = nativeTransaction.commit();
+      Transaction.Response nativeResponse = timer.callRpc(nativeTransaction::commit);
+      timer.succeeded();
+      writer.flushEvictions();
       return new DefaultResponse(nativeResponse);
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
     } catch (Exception exp) {
       throw new EntityManagerException(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -362,4 +384,40 @@ public class DefaultDatastoreTransaction implements DatastoreTransaction {
     return reader.executeKeyQueryRequest(request);
   }
 
+  @Override
+  public <E> QueryResultIterator<E> streamEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request) {
+    return reader.streamEntityQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> streamProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request) {
+    return reader.streamProjectionQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> streamKeyQueryRequest(KeyQueryRequest request) {
+    return reader.streamKeyQueryRequest(request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateEntityQueryRequest(expectedResultType, request, cursorBinding, prefetch);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateProjectionQueryRequest(expectedResultType, request, cursorBinding,
+        prefetch);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> paginateKeyQueryRequest(KeyQueryRequest request,
+      String cursorBinding, boolean prefetch) {
+    return reader.paginateKeyQueryRequest(request, cursorBinding, prefetch);
+  }
+
 }
@@ -17,12 +17,14 @@
 package com.jmethods.catatumbo.impl;
 
 import static com.jmethods.catatumbo.impl.DatastoreUtils.rollbackIfActive;
-import static com.jmethods.catatumbo.impl.DatastoreUtils.toEntities;
 import static com.jmethods.catatumbo.impl.DatastoreUtils.toNativeEntities;
 import static com.jmethods.catatumbo.impl.DatastoreUtils.toNativeFullEntities;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.cloud.datastore.Batch;
 import com.google.cloud.datastore.Datastore;
@@ -34,7 +36,9 @@ import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.Transaction;
 import com.jmethods.catatumbo.DatastoreKey;
 import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.OperationType;
 import com.jmethods.catatumbo.OptimisticLockException;
+import com.jmethods.catatumbo.WriteResultMode;
 import com.jmethods.catatumbo.impl.Marshaller.Intent;
 
 /**
@@ -61,6 +65,25 @@ public class DefaultDatastoreWriter {
    */
   protected Datastore datastore;
 
+  /**
+   * Keys of the entities written by this writer that are to be evicted from the second-level cache
+   * when the batch or transaction is committed. This is <code>null</code>, if this writer writes
+   * directly to the Datastore.
+   */
+  private List<Key> pendingEvictions;
+
+  /**
+   * Entities loaded by the transaction or session of this writer, or <code>null</code>, if this
+   * writer does not belong to a transaction or session
+   */
+  private IdentityMap identityMap;
+
+  /**
+   * What the write methods of this writer return, or <code>null</code>, to use the mode of the
+   * entity manager
+   */
+  private WriteResultMode writeResultMode;
+
   /**
    * Creates a new instance of <code>DefaultDatastoreWriter</code>.
    * 
@@ -73,6 +96,21 @@ public class DefaultDatastoreWriter {
     this.nativeWriter = datastore;
   }
 
+  /**
+   * Creates a new instance of <code>DefaultDatastoreWriter</code> whose write methods return
+   * entities as specified by the given mode, regardless of the mode of the entity manager.
+   * 
+   * @param entityManager
+   *          a reference to the entity manager.
+   * @param writeResultMode
+   *          what the write methods return
+   */
+  public DefaultDatastoreWriter(DefaultEntityManager entityManager,
+      WriteResultMode writeResultMode) {
+    this(entityManager);
+    this.writeResultMode = writeResultMode;
+  }
+
   /**
    * Creates a new instance of <code>DefaultDatastoreWriter</code> for executing batch updates.
    * 
@@ -83,6 +121,7 @@ public class DefaultDatastoreWriter {
     this.entityManager = batch.getEntityManager();
     this.datastore = entityManager.getDatastore();
     this.nativeWriter = batch.getNativeBatch();
+    this.pendingEvictions = new ArrayList<>();
   }
 
   /**
@@ -95,6 +134,21 @@ public class DefaultDatastoreWriter {
     this.entityManager = transaction.getEntityManager();
     this.datastore = entityManager.getDatastore();
     this.nativeWriter = transaction.getNativeTransaction();
+    this.pendingEvictions = new ArrayList<>();
+    this.identityMap = transaction.getIdentityMap();
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultDatastoreWriter</code> for updates within a session.
+   * 
+   * @param session
+   *          the {@link DefaultDatastoreSession}.
+   */
+  public DefaultDatastoreWriter(DefaultDatastoreSession session) {
+    this.entityManager = session.getEntityManager();
+    this.datastore = entityManager.getDatastore();
+    this.nativeWriter = datastore;
+    this.identityMap = session.getIdentityMap();
   }
 
   /**
@@ -102,23 +156,31 @@ public class DefaultDatastoreWriter {
    * 
    * @param entity
    *          the entity to insert
-   * @return the inserted entity. The inserted entity will not be same as the passed in entity. For
-   *         example, the inserted entity may contain any generated ID, key, parent key, etc.
+   * @return the inserted entity. The inserted entity will not be same as the passed in entity,
+   *         unless the write result mode is {@link WriteResultMode#IN_PLACE}. For example, the
+   *         inserted entity may contain any generated ID, key, parent key, etc.
    * @throws EntityManagerException
    *           if any error occurs while inserting.
    */
   public <E> E insert(E entity) {
+    OperationTimer timer = startTimer(OperationType.INSERT).kindOf(entity).entities(1);
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_INSERT, entity);
       FullEntity<?> nativeEntity = (FullEntity<?>) Marshaller.marshal(entityManager, entity,
           Intent.INSERT);
-      Entity insertedNativeEntity = nativeWriter.add(nativeEntity);
-      @SuppressWarnings("unchecked")
-      E insertedEntity = (E) Unmarshaller.unmarshal(insertedNativeEntity, entity.getClass());
+      Entity insertedNativeEntity = timer.callRpc(() -> nativeWriter.add(nativeEntity));
+      timer.payload(insertedNativeEntity);
+      evict(insertedNativeEntity.getKey());
+      long mark = timer.mark();
+      E insertedEntity = toWrittenEntity(entity, insertedNativeEntity);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_INSERT, insertedEntity);
+      timer.succeeded();
       return insertedEntity;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -128,26 +190,33 @@ public class DefaultDatastoreWriter {
    * @param entities
    *          the entities to insert.
    * @return the inserted entities. The inserted entities will not be same as the passed in
-   *         entities. For example, the inserted entities may contain generated ID, key, parent key,
-   *         etc.
+   *         entities, unless the write result mode is {@link WriteResultMode#IN_PLACE}. For
+   *         example, the inserted entities may contain generated ID, key, parent key, etc.
    * @throws EntityManagerException
    *           if any error occurs while inserting.
    */
-  @SuppressWarnings("unchecked")
   public <E> List<E> insert(List<E> entities) {
     if (entities == null || entities.isEmpty()) {
       return new ArrayList<>();
     }
+    OperationTimer timer = startTimer(OperationType.INSERT).kindOf(entities)
+        .entities(entities.size());
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_INSERT, entities);
       FullEntity<?>[] nativeEntities = toNativeFullEntities(entities, entityManager, Intent.INSERT);
-      Class<?> entityClass = entities.get(0).getClass();
-      List<Entity> insertedNativeEntities = nativeWriter.add(nativeEntities);
-      List<E> insertedEntities = (List<E>) toEntities(entityClass, insertedNativeEntities);
+      List<Entity> insertedNativeEntities = timer.callRpc(() -> nativeWriter.add(nativeEntities));
+      timer.payload(insertedNativeEntities);
+      evict(keysOf(insertedNativeEntities));
+      long mark = timer.mark();
+      List<E> insertedEntities = toWrittenEntities(entities, insertedNativeEntities);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_INSERT, insertedEntities);
+      timer.succeeded();
       return insertedEntities;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -161,18 +230,28 @@ public class DefaultDatastoreWriter {
    * @throws EntityManagerException
    *           if any error occurs while updating.
    */
-  @SuppressWarnings("unchecked")
   public <E> E update(E entity) {
+    OperationTimer timer = startTimer(OperationType.UPDATE).kindOf(entity).entities(1);
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPDATE, entity);
       Intent intent = (nativeWriter instanceof Batch) ? Intent.BATCH_UPDATE : Intent.UPDATE;
       Entity nativeEntity = (Entity) Marshaller.marshal(entityManager, entity, intent);
-      nativeWriter.update(nativeEntity);
-      E updatedEntity = (E) Unmarshaller.unmarshal(nativeEntity, entity.getClass());
+      Entity snapshot = getUnchangedSnapshot(entity, nativeEntity);
+      if (snapshot == null) {
+        runWithRetry(timer, () -> nativeWriter.update(nativeEntity));
+        timer.payload(nativeEntity);
+        evict(nativeEntity.getKey());
+      }
+      long mark = timer.mark();
+      E updatedEntity = toWrittenEntity(entity, snapshot == null ? nativeEntity : snapshot);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntity);
+      timer.succeeded();
       return updatedEntity;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
 
   }
@@ -187,22 +266,34 @@ public class DefaultDatastoreWriter {
    * @throws EntityManagerException
    *           if any error occurs while inserting.
    */
-  @SuppressWarnings("unchecked")
   public <E> List<E> update(List<E> entities) {
     if (entities == null || entities.isEmpty()) {
       return new ArrayList<>();
     }
+    OperationTimer timer = startTimer(OperationType.UPDATE).kindOf(entities)
+        .entities(entities.size());
     try {
-      Class<E> entityClass = (Class<E>) entities.get(0).getClass();
       entityManager.executeEntityListeners(CallbackType.PRE_UPDATE, entities);
       Intent intent = (nativeWriter instanceof Batch) ? Intent.BATCH_UPDATE : Intent.UPDATE;
       Entity[] nativeEntities = toNativeEntities(entities, entityManager, intent);
-      nativeWriter.update(nativeEntities);
-      List<E> updatedEntities = toEntities(entityClass, nativeEntities);
+      Entity[] snapshots = getUnchangedSnapshots(entities, nativeEntities);
+      Entity[] changedNativeEntities = getChanged(nativeEntities, snapshots);
+      if (changedNativeEntities.length > 0) {
+        runWithRetry(timer, () -> nativeWriter.update(changedNativeEntities));
+        timer.payload(Arrays.asList(changedNativeEntities));
+        evict(keysOf(Arrays.asList(changedNativeEntities)));
+      }
+      long mark = timer.mark();
+      List<E> updatedEntities = toWrittenEntities(entities,
+          mergeSnapshots(snapshots, Arrays.asList(changedNativeEntities)));
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntities);
+      timer.succeeded();
       return updatedEntities;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -218,8 +309,14 @@ public class DefaultDatastoreWriter {
     PropertyMetadata versionMetadata = EntityIntrospector.getVersionMetadata(entity);
     if (versionMetadata == null) {
       return update(entity);
-    } else {
-      return updateWithOptimisticLockingInternal(entity, versionMetadata);
+    }
+    OperationTimer timer = startTimer(OperationType.UPDATE).kindOf(entity).entities(1);
+    try {
+      E updatedEntity = updateWithOptimisticLockingInternal(entity, versionMetadata);
+      timer.succeeded();
+      return updatedEntity;
+    } finally {
+      timer.stop();
     }
 
   }
@@ -240,8 +337,15 @@ public class DefaultDatastoreWriter {
     PropertyMetadata versionMetadata = EntityIntrospector.getVersionMetadata(entityClass);
     if (versionMetadata == null) {
       return update(entities);
-    } else {
-      return updateWithOptimisticLockInternal(entities, versionMetadata);
+    }
+    OperationTimer timer = startTimer(OperationType.UPDATE).kindOf(entities)
+        .entities(entities.size());
+    try {
+      List<E> updatedEntities = updateWithOptimisticLockInternal(entities, versionMetadata);
+      timer.succeeded();
+      return updatedEntities;
+    } finally {
+      timer.stop();
     }
   }
 
@@ -254,12 +358,17 @@ public class DefaultDatastoreWriter {
    *          the metadata for optimistic locking
    * @return the updated entity
    */
-  @SuppressWarnings("unchecked")
   protected <E> E updateWithOptimisticLockingInternal(E entity, PropertyMetadata versionMetadata) {
     Transaction transaction = null;
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPDATE, entity);
       Entity nativeEntity = (Entity) Marshaller.marshal(entityManager, entity, Intent.UPDATE);
+      Entity snapshot = getUnchangedSnapshot(entity, nativeEntity);
+      if (snapshot != null) {
+        E updatedEntity = toWrittenEntity(entity, snapshot);
+        entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntity);
+        return updatedEntity;
+      }
       transaction = datastore.newTransaction();
       Entity storedNativeEntity = transaction.get(nativeEntity.getKey());
       if (storedNativeEntity == null) {
@@ -275,7 +384,8 @@ public class DefaultDatastoreWriter {
       }
       transaction.update(nativeEntity);
       transaction.commit();
-      E updatedEntity = (E) Unmarshaller.unmarshal(nativeEntity, entity.getClass());
+      evict(nativeEntity.getKey());
+      E updatedEntity = toWrittenEntity(entity, nativeEntity);
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntity);
       return updatedEntity;
     } catch (DatastoreException exp) {
@@ -294,13 +404,20 @@ public class DefaultDatastoreWriter {
    *          the metadata of the version property
    * @return the updated entities
    */
-  @SuppressWarnings("unchecked")
   protected <E> List<E> updateWithOptimisticLockInternal(List<E> entities,
       PropertyMetadata versionMetadata) {
     Transaction transaction = null;
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPDATE, entities);
-      Entity[] nativeEntities = toNativeEntities(entities, entityManager, Intent.UPDATE);
+      Entity[] allNativeEntities = toNativeEntities(entities, entityManager, Intent.UPDATE);
+      Entity[] snapshots = getUnchangedSnapshots(entities, allNativeEntities);
+      // Only the entities that changed since they were loaded are written
+      Entity[] nativeEntities = getChanged(allNativeEntities, snapshots);
+      if (nativeEntities.length == 0) {
+        List<E> updatedEntities = toWrittenEntities(entities, Arrays.asList(snapshots));
+        entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntities);
+        return updatedEntities;
+      }
       // The above native entities already have the version incremented by
       // the marshalling process
       Key[] nativeKeys = new Key[nativeEntities.length];
@@ -326,7 +443,9 @@ public class DefaultDatastoreWriter {
       }
       transaction.update(nativeEntities);
       transaction.commit();
-      List<E> updatedEntities = (List<E>) toEntities(entities.get(0).getClass(), nativeEntities);
+      evict(nativeKeys);
+      List<E> updatedEntities = toWrittenEntities(entities,
+          mergeSnapshots(snapshots, Arrays.asList(nativeEntities)));
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntities);
       return updatedEntities;
 
@@ -349,17 +468,31 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while saving.
    */
   public <E> E upsert(E entity) {
+    OperationTimer timer = startTimer(OperationType.UPSERT).kindOf(entity).entities(1);
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPSERT, entity);
       FullEntity<?> nativeEntity = (FullEntity<?>) Marshaller.marshal(entityManager, entity,
           Intent.UPSERT);
-      Entity upsertedNativeEntity = nativeWriter.put(nativeEntity);
-      @SuppressWarnings("unchecked")
-      E upsertedEntity = (E) Unmarshaller.unmarshal(upsertedNativeEntity, entity.getClass());
+      Entity upsertedNativeEntity = getUnchangedSnapshot(entity, nativeEntity);
+      if (upsertedNativeEntity == null) {
+        if (nativeEntity instanceof Entity) {
+          upsertedNativeEntity = callWithRetry(timer, () -> nativeWriter.put(nativeEntity));
+        } else {
+          upsertedNativeEntity = timer.callRpc(() -> nativeWriter.put(nativeEntity));
+        }
+        evict(upsertedNativeEntity.getKey());
+        timer.payload(upsertedNativeEntity);
+      }
+      long mark = timer.mark();
+      E upsertedEntity = toWrittenEntity(entity, upsertedNativeEntity);
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_UPSERT, upsertedEntity);
+      timer.succeeded();
       return upsertedEntity;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -373,21 +506,39 @@ public class DefaultDatastoreWriter {
    * @throws EntityManagerException
    *           if any error occurs while saving.
    */
-  @SuppressWarnings("unchecked")
   public <E> List<E> upsert(List<E> entities) {
     if (entities == null || entities.isEmpty()) {
       return new ArrayList<>();
     }
+    OperationTimer timer = startTimer(OperationType.UPSERT).kindOf(entities)
+        .entities(entities.size());
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPSERT, entities);
-      FullEntity<?>[] nativeEntities = toNativeFullEntities(entities, entityManager, Intent.UPSERT);
-      Class<?> entityClass = entities.get(0).getClass();
-      List<Entity> upsertedNativeEntities = nativeWriter.put(nativeEntities);
-      List<E> upsertedEntities = (List<E>) toEntities(entityClass, upsertedNativeEntities);
+      FullEntity<?>[] allNativeEntities = toNativeFullEntities(entities, entityManager,
+          Intent.UPSERT);
+      Entity[] snapshots = getUnchangedSnapshots(entities, allNativeEntities);
+      FullEntity<?>[] nativeEntities = getChanged(allNativeEntities, snapshots);
+      List<Entity> upsertedNativeEntities = new ArrayList<>();
+      if (nativeEntities.length > 0) {
+        if (hasCompleteKeys(nativeEntities)) {
+          upsertedNativeEntities = callWithRetry(timer, () -> nativeWriter.put(nativeEntities));
+        } else {
+          upsertedNativeEntities = timer.callRpc(() -> nativeWriter.put(nativeEntities));
+        }
+        evict(keysOf(upsertedNativeEntities));
+        timer.payload(upsertedNativeEntities);
+      }
+      long mark = timer.mark();
+      List<E> upsertedEntities = toWrittenEntities(entities,
+          mergeSnapshots(snapshots, upsertedNativeEntities));
+      timer.unmarshal(mark);
       entityManager.executeEntityListeners(CallbackType.POST_UPSERT, upsertedEntities);
+      timer.succeeded();
       return upsertedEntities;
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -400,13 +551,18 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while deleting.
    */
   public void delete(Object entity) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kindOf(entity).entities(1);
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_DELETE, entity);
       Key nativeKey = Marshaller.marshalKey(entityManager, entity);
-      nativeWriter.delete(nativeKey);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKey));
+      evict(nativeKey);
       entityManager.executeEntityListeners(CallbackType.POST_DELETE, entity);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -419,16 +575,22 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while deleting.
    */
   public void delete(List<?> entities) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kindOf(entities)
+        .entities(entities.size());
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_DELETE, entities);
       Key[] nativeKeys = new Key[entities.size()];
       for (int i = 0; i < entities.size(); i++) {
         nativeKeys[i] = Marshaller.marshalKey(entityManager, entities.get(i));
       }
-      nativeWriter.delete(nativeKeys);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKeys));
+      evict(nativeKeys);
       entityManager.executeEntityListeners(CallbackType.POST_DELETE, entities);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -444,13 +606,18 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while inserting.
    */
   public <E> void delete(Class<E> entityClass, long id) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kind(entityClass).entities(1);
     try {
       EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
       Key nativeKey = entityManager.newNativeKeyFactory().setKind(entityMetadata.getKind())
           .newKey(id);
-      nativeWriter.delete(nativeKey);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKey));
+      evict(nativeKey);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -466,13 +633,18 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while inserting.
    */
   public <E> void delete(Class<E> entityClass, String id) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kind(entityClass).entities(1);
     try {
       EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
       Key nativeKey = entityManager.newNativeKeyFactory().setKind(entityMetadata.getKind())
           .newKey(id);
-      nativeWriter.delete(nativeKey);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKey));
+      evict(nativeKey);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -489,12 +661,17 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while inserting.
    */
   public <E> void delete(Class<E> entityClass, DatastoreKey parentKey, long id) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kind(entityClass).entities(1);
     try {
       EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
       Key nativeKey = Key.newBuilder(parentKey.nativeKey(), entityMetadata.getKind(), id).build();
-      nativeWriter.delete(nativeKey);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKey));
+      evict(nativeKey);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -511,12 +688,17 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while inserting.
    */
   public <E> void delete(Class<E> entityClass, DatastoreKey parentKey, String id) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kind(entityClass).entities(1);
     try {
       EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
       Key nativeKey = Key.newBuilder(parentKey.nativeKey(), entityMetadata.getKind(), id).build();
-      nativeWriter.delete(nativeKey);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKey));
+      evict(nativeKey);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -529,10 +711,15 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while deleting.
    */
   public void deleteByKey(DatastoreKey key) {
+    OperationTimer timer = startTimer(OperationType.DELETE).kind(key.kind()).entities(1);
     try {
-      nativeWriter.delete(key.nativeKey());
+      runWithRetry(timer, () -> nativeWriter.delete(key.nativeKey()));
+      evict(key.nativeKey());
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
     }
   }
 
@@ -545,15 +732,270 @@ public class DefaultDatastoreWriter {
    *           if any error occurs while deleting.
    */
   public void deleteByKey(List<DatastoreKey> keys) {
+    OperationTimer timer = startTimer(OperationType.DELETE)
+        .kind(keys.isEmpty() ? null : keys.get(0).kind()).entities(keys.size());
     try {
       Key[] nativeKeys = new Key[keys.size()];
       for (int i = 0; i < keys.size(); i++) {
         nativeKeys[i] = keys.get(i).nativeKey();
       }
-      nativeWriter.delete(nativeKeys);
+      runWithRetry(timer, () -> nativeWriter.delete(nativeKeys));
+      evict(nativeKeys);
+      timer.succeeded();
     } catch (DatastoreException exp) {
       throw DatastoreUtils.wrap(exp);
+    } finally {
+      timer.stop();
+    }
+  }
+
+  /**
+   * Returns the entity to return from a write of the given entity, as specified by the write
+   * result mode.
+   * 
+   * @param entity
+   *          the entity that was written
+   * @param nativeEntity
+   *          the native entity that was written
+   * @return the written entity
+   */
+  protected <E> E toWrittenEntity(E entity, Entity nativeEntity) {
+    if (getWriteResultMode() == WriteResultMode.IN_PLACE) {
+      return Unmarshaller.unmarshalInPlace(entityManager, nativeEntity, entity);
+    }
+    @SuppressWarnings("unchecked")
+    E writtenEntity = (E) Unmarshaller.unmarshal(entityManager, nativeEntity, entity.getClass());
+    return writtenEntity;
+  }
+
+  /**
+   * Returns the entities to return from a write of the given entities, as specified by the write
+   * result mode.
+   * 
+   * @param entities
+   *          the entities that were written
+   * @param nativeEntities
+   *          the native entities that were written, in the same order
+   * @return the written entities
+   */
+  protected <E> List<E> toWrittenEntities(List<E> entities, List<Entity> nativeEntities) {
+    List<E> writtenEntities = new ArrayList<>(entities.size());
+    for (int i = 0; i < entities.size(); i++) {
+      writtenEntities.add(toWrittenEntity(entities.get(i), nativeEntities.get(i)));
+    }
+    return writtenEntities;
+  }
+
+  /**
+   * Returns the native entity that was loaded for the given entity by the session of this writer,
+   * if the entity has not changed since.
+   * 
+   * @param entity
+   *          the entity to write
+   * @param nativeEntity
+   *          the native entity marshalled from the entity
+   * @return the loaded native entity, or <code>null</code>, if the entity is to be written.
+   */
+  private Entity getUnchangedSnapshot(Object entity, FullEntity<?> nativeEntity) {
+    return identityMap == null ? null : identityMap.getUnchangedSnapshot(entity, nativeEntity);
+  }
+
+  /**
+   * Returns the native entities that were loaded for the given entities by the session of this
+   * writer, for the entities that have not changed since.
+   * 
+   * @param entities
+   *          the entities to write
+   * @param nativeEntities
+   *          the native entities marshalled from the entities
+   * @return the loaded native entities, with <code>null</code> for each entity that is to be
+   *         written, or <code>null</code>, if this writer does not track changes.
+   */
+  private Entity[] getUnchangedSnapshots(List<?> entities, FullEntity<?>[] nativeEntities) {
+    if (identityMap == null || !identityMap.isTrackingChanges()) {
+      return null;
+    }
+    Entity[] snapshots = new Entity[nativeEntities.length];
+    for (int i = 0; i < nativeEntities.length; i++) {
+      snapshots[i] = identityMap.getUnchangedSnapshot(entities.get(i), nativeEntities[i]);
+    }
+    return snapshots;
+  }
+
+  /**
+   * Returns the native entities that have no unchanged snapshot.
+   * 
+   * @param nativeEntities
+   *          the native entities
+   * @param snapshots
+   *          the unchanged snapshots, as returned by
+   *          {@link #getUnchangedSnapshots(List, FullEntity[])}
+   * @return the native entities that are to be written
+   */
+  private static <T extends FullEntity<?>> T[] getChanged(T[] nativeEntities, Entity[] snapshots) {
+    if (snapshots == null) {
+      return nativeEntities;
+    }
+    T[] changed = Arrays.copyOf(nativeEntities, nativeEntities.length);
+    int count = 0;
+    for (int i = 0; i < nativeEntities.length; i++) {
+      if (snapshots[i] == null) {
+        changed[count++] = nativeEntities[i];
+      }
+    }
+    return Arrays.copyOf(changed, count);
+  }
+
+  /**
+   * Combines the unchanged snapshots with the written native entities, in the original order.
+   * 
+   * @param snapshots
+   *          the unchanged snapshots, as returned by
+   *          {@link #getUnchangedSnapshots(List, FullEntity[])}
+   * @param writtenNativeEntities
+   *          the written native entities, in the same order as the entities that had no snapshot
+   * @return the native entities of all entities
+   */
+  private static List<Entity> mergeSnapshots(Entity[] snapshots,
+      List<Entity> writtenNativeEntities) {
+    if (snapshots == null) {
+      return writtenNativeEntities;
+    }
+    List<Entity> merged = new ArrayList<>(snapshots.length);
+    Iterator<Entity> written = writtenNativeEntities.iterator();
+    for (Entity snapshot : snapshots) {
+      merged.add(snapshot == null ? written.next() : snapshot);
+    }
+    return merged;
+  }
+
+  /**
+   * Returns what the write methods of this writer return.
+   * 
+   * @return the write result mode
+   */
+  private WriteResultMode getWriteResultMode() {
+    return writeResultMode == null ? entityManager.getWriteResultMode() : writeResultMode;
+  }
+
+  /**
+   * Starts measuring an operation of this writer.
+   * 
+   * @param operationType
+   *          the operation type
+   * @return the timer of the operation
+   */
+  private OperationTimer startTimer(OperationType operationType) {
+    return OperationTimer.start(entityManager, operationType);
+  }
+
+  /**
+   * Runs the given operation, retrying it on transient errors as specified by the retry policy of
+   * the entity manager. Operations of a batch or transaction are not retried individually. The
+   * time taken, including retries, is added to the RPC time of the given timer.
+   * 
+   * @param timer
+   *          the timer of the write operation
+   * @param operation
+   *          the operation, which must be safe to repeat
+   * @return the result of the operation
+   */
+  protected <T> T callWithRetry(OperationTimer timer, Supplier<T> operation) {
+    if (nativeWriter instanceof Datastore) {
+      return timer.callRpc(() -> entityManager.getRetrier().call(operation));
+    }
+    return timer.callRpc(operation);
+  }
+
+  /**
+   * Runs the given operation, retrying it on transient errors as specified by the retry policy of
+   * the entity manager. Operations of a batch or transaction are not retried individually. The
+   * time taken, including retries, is added to the RPC time of the given timer.
+   * 
+   * @param timer
+   *          the timer of the write operation
+   * @param operation
+   *          the operation, which must be safe to repeat
+   */
+  protected void runWithRetry(OperationTimer timer, Runnable operation) {
+    callWithRetry(timer, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  /**
+   * Evicts the entities with the given keys from the second-level cache. If this writer belongs to
+   * a batch or transaction, the eviction is deferred until it is committed.
+   * 
+   * @param nativeKeys
+   *          the keys of the entities to evict
+   */
+  protected void evict(Key... nativeKeys) {
+    evict(Arrays.asList(nativeKeys));
+  }
+
+  /**
+   * Evicts the entities with the given keys from the second-level cache. If this writer belongs to
+   * a batch or transaction, the eviction is deferred until it is committed. The entities are also
+   * removed from the identity map of the transaction or session, if any, so that subsequent loads
+   * go to the Datastore.
+   * 
+   * @param nativeKeys
+   *          the keys of the entities to evict
+   */
+  protected void evict(List<Key> nativeKeys) {
+    if (identityMap != null) {
+      identityMap.remove(nativeKeys);
+    }
+    if (pendingEvictions == null) {
+      entityManager.getSecondLevelCache().evict(nativeKeys);
+    } else {
+      pendingEvictions.addAll(nativeKeys);
+    }
+  }
+
+  /**
+   * Evicts the entities written by this writer from the second-level cache. Called after the batch
+   * or transaction of this writer is committed.
+   */
+  void flushEvictions() {
+    if (pendingEvictions != null && !pendingEvictions.isEmpty()) {
+      entityManager.getSecondLevelCache().evict(pendingEvictions);
+      pendingEvictions.clear();
+    }
+  }
+
+  /**
+   * Tells whether or not all of the given entities have a complete key. Writing an entity without
+   * a complete key allocates a new ID, so such writes must not be repeated.
+   * 
+   * @param nativeEntities
+   *          the entities
+   * @return <code>true</code>, if all entities have a complete key; <code>false</code>, otherwise.
+   */
+  private static boolean hasCompleteKeys(FullEntity<?>[] nativeEntities) {
+    for (FullEntity<?> nativeEntity : nativeEntities) {
+      if (!(nativeEntity instanceof Entity)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the keys of the given entities.
+   * 
+   * @param nativeEntities
+   *          the entities
+   * @return the keys of the given entities
+   */
+  private static List<Key> keysOf(List<Entity> nativeEntities) {
+    List<Key> nativeKeys = new ArrayList<>(nativeEntities.size());
+    for (Entity nativeEntity : nativeEntities) {
+      nativeKeys.add(nativeEntity.getKey());
     }
+    return nativeKeys;
   }
 
 }
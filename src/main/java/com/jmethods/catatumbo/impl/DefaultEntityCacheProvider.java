@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.datastore.Entity;
+import com.jmethods.catatumbo.Cacheable;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.EntityCache;
+import com.jmethods.catatumbo.EntityCacheProvider;
+
+/**
+ * Default implementation of {@link EntityCacheProvider}. Creates caches that keep the entities in
+ * memory, in an {@link LRUCache}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultEntityCacheProvider implements EntityCacheProvider {
+
+  /**
+   * Initial capacity of the caches
+   */
+  private static final int INITIAL_CAPACITY = 16;
+
+  @Override
+  public EntityCache createCache(Class<?> entityClass, Cacheable settings) {
+    return new InMemoryEntityCache(new LRUCache<>(INITIAL_CAPACITY, settings.maxSize(),
+        settings.ttl(), TimeUnit.SECONDS));
+  }
+
+  /**
+   * An {@link EntityCache} backed by an {@link LRUCache}.
+   */
+  private static class InMemoryEntityCache implements EntityCache {
+
+    /**
+     * The cached entities
+     */
+    private final LRUCache<DatastoreKey, Entity> cache;
+
+    /**
+     * Creates a new instance of <code>InMemoryEntityCache</code>.
+     * 
+     * @param cache
+     *          the cache to hold the entities
+     */
+    InMemoryEntityCache(LRUCache<DatastoreKey, Entity> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Entity get(DatastoreKey key) {
+      return cache.get(key);
+    }
+
+    @Override
+    public void put(DatastoreKey key, Entity entity) {
+      cache.put(key, entity);
+    }
+
+    @Override
+    public void remove(DatastoreKey key) {
+      cache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      cache.clear();
+    }
+  }
+
+}
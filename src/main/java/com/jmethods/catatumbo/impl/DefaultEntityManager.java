@@ -19,9 +19,16 @@ package com.jmethods.catatumbo.impl;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreException;
@@ -29,23 +36,42 @@ import com.google.cloud.datastore.GqlQuery;
 import com.google.cloud.datastore.IncompleteKey;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.KeyQuery;
 import com.google.cloud.datastore.Query;
-import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.StructuredQuery.OrderBy;
+import com.jmethods.catatumbo.AsyncEntityManager;
+import com.jmethods.catatumbo.AsyncListenerOptions;
+import com.jmethods.catatumbo.BatchingLoader;
+import com.jmethods.catatumbo.BulkWriter;
 import com.jmethods.catatumbo.DatastoreBatch;
 import com.jmethods.catatumbo.DatastoreKey;
 import com.jmethods.catatumbo.DatastoreMetadata;
+import com.jmethods.catatumbo.DatastoreSession;
 import com.jmethods.catatumbo.DatastoreStats;
 import com.jmethods.catatumbo.DatastoreTransaction;
+import com.jmethods.catatumbo.DeleteAllOptions;
+import com.jmethods.catatumbo.EntityCacheProvider;
 import com.jmethods.catatumbo.EntityManager;
 import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.EntityQueryRequest;
+import com.jmethods.catatumbo.EntitySizeGuardOptions;
+import com.jmethods.catatumbo.IdPoolOptions;
 import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.OperationMetrics;
+import com.jmethods.catatumbo.PhaseMetrics;
+import com.jmethods.catatumbo.ProcessingPhase;
 import com.jmethods.catatumbo.ProjectionQueryRequest;
 import com.jmethods.catatumbo.QueryResponse;
+import com.jmethods.catatumbo.QueryResultIterator;
+import com.jmethods.catatumbo.RetryMetrics;
+import com.jmethods.catatumbo.RetryPolicy;
+import com.jmethods.catatumbo.SlowOperationLogOptions;
 import com.jmethods.catatumbo.Tenant;
 import com.jmethods.catatumbo.TransactionMode;
 import com.jmethods.catatumbo.TransactionalTask;
 import com.jmethods.catatumbo.Utility;
+import com.jmethods.catatumbo.WriteBehindEntityManager;
+import com.jmethods.catatumbo.WriteResultMode;
 import com.jmethods.catatumbo.impl.IdentifierMetadata.DataType;
 
 /**
@@ -59,9 +85,14 @@ import com.jmethods.catatumbo.impl.IdentifierMetadata.DataType;
 public class DefaultEntityManager implements EntityManager {
 
   /**
-   * Batch size for sending delete requests when using the deleteAll method
+   * Number of keys sampled for each split of the key space when using the deleteAll method
    */
-  private static final int DEFAULT_DELETE_ALL_BATCH_SIZE = 100;
+  private static final int KEYS_PER_SPLIT = 32;
+
+  /**
+   * Name of the property used for sampling keys
+   */
+  private static final String SCATTER_PROPERTY = "__scatter__";
 
   /**
    * Reference to the native Datastore object
@@ -81,7 +112,57 @@ public class DefaultEntityManager implements EntityManager {
   /**
    * Metadata of global callbacks
    */
-  private Map<CallbackType, List<CallbackMetadata>> globalCallbacks;
+  private volatile Map<CallbackType, List<CallbackMetadata>> globalCallbacks;
+
+  /**
+   * Listener chains, by entity class, indexed by the ordinal of the callback type
+   */
+  private volatile Map<Class<?>, ListenerChain[]> listenerChains = new ConcurrentHashMap<>();
+
+  /**
+   * Second-level cache of Cacheable entities
+   */
+  private volatile SecondLevelCache secondLevelCache;
+
+  /**
+   * Retries operations that fail with transient errors
+   */
+  private final Retrier retrier = new Retrier();
+
+  /**
+   * What the write methods return
+   */
+  private volatile WriteResultMode writeResultMode = WriteResultMode.NEW_INSTANCE;
+
+  /**
+   * Pool of allocated IDs, or <code>null</code>, if the pool is disabled
+   */
+  private volatile IdPool idPool;
+
+  /**
+   * Executor of asynchronous listener callbacks, created when first needed
+   */
+  private volatile AsyncListenerExecutor asyncListenerExecutor;
+
+  /**
+   * Receiver of operation measurements, or <code>null</code>, if operations are not measured
+   */
+  private volatile OperationMetrics operationMetrics;
+
+  /**
+   * Receiver of processing phase measurements, or <code>null</code>, if phases are not measured
+   */
+  private volatile PhaseMetrics phaseMetrics;
+
+  /**
+   * Slow operation log, or <code>null</code>, if slow operations are not logged
+   */
+  private volatile SlowOperationLog slowOperationLog;
+
+  /**
+   * Entity size guard, or <code>null</code>, if entity sizes are not checked
+   */
+  private volatile EntitySizeGuard entitySizeGuard;
 
   /**
    * Creates a new instance of <code>DefaultEntityManager</code>.
@@ -93,6 +174,7 @@ public class DefaultEntityManager implements EntityManager {
     this.datastore = datastore;
     writer = new DefaultDatastoreWriter(this);
     reader = new DefaultDatastoreReader(this);
+    secondLevelCache = new SecondLevelCache(new DefaultEntityCacheProvider());
   }
 
   /**
@@ -104,6 +186,134 @@ public class DefaultEntityManager implements EntityManager {
     return datastore;
   }
 
+  /**
+   * Returns the retrier of this entity manager.
+   * 
+   * @return the retrier of this entity manager.
+   */
+  Retrier getRetrier() {
+    return retrier;
+  }
+
+  @Override
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    retrier.setPolicy(retryPolicy);
+  }
+
+  @Override
+  public RetryMetrics getRetryMetrics() {
+    return retrier;
+  }
+
+  @Override
+  public void setOperationMetrics(OperationMetrics metrics) {
+    this.operationMetrics = metrics;
+  }
+
+  /**
+   * Returns the receiver of operation measurements.
+   * 
+   * @return the receiver of operation measurements, or <code>null</code>, if operations are not
+   *         measured.
+   */
+  OperationMetrics getOperationMetrics() {
+    return operationMetrics;
+  }
+
+  @Override
+  public void setPhaseMetrics(PhaseMetrics metrics) {
+    this.phaseMetrics = metrics;
+  }
+
+  /**
+   * Returns the receiver of processing phase measurements.
+   * 
+   * @return the receiver of processing phase measurements, or <code>null</code>, if phases are not
+   *         measured.
+   */
+  PhaseMetrics getPhaseMetrics() {
+    return phaseMetrics;
+  }
+
+  @Override
+  public void setSlowOperationLogOptions(SlowOperationLogOptions options) {
+    this.slowOperationLog = options == null ? null : new SlowOperationLog(options);
+  }
+
+  /**
+   * Returns the slow operation log.
+   * 
+   * @return the slow operation log, or <code>null</code>, if slow operations are not logged.
+   */
+  SlowOperationLog getSlowOperationLog() {
+    return slowOperationLog;
+  }
+
+  @Override
+  public void setEntitySizeGuardOptions(EntitySizeGuardOptions options) {
+    this.entitySizeGuard = options == null ? null : new EntitySizeGuard(options);
+  }
+
+  /**
+   * Returns the entity size guard.
+   * 
+   * @return the entity size guard, or <code>null</code>, if entity sizes are not checked.
+   */
+  EntitySizeGuard getEntitySizeGuard() {
+    return entitySizeGuard;
+  }
+
+  @Override
+  public void setAsyncListenerOptions(AsyncListenerOptions options) {
+    if (options == null) {
+      throw new IllegalArgumentException("options cannot be null");
+    }
+    AsyncListenerExecutor oldExecutor;
+    synchronized (this) {
+      oldExecutor = asyncListenerExecutor;
+      asyncListenerExecutor = new AsyncListenerExecutor(options);
+    }
+    if (oldExecutor != null) {
+      oldExecutor.shutdown();
+    }
+  }
+
+  @Override
+  public void setIdPoolOptions(IdPoolOptions options) {
+    idPool = options == null ? null : new IdPool(datastore, options);
+  }
+
+  /**
+   * Returns the pool of allocated IDs.
+   * 
+   * @return the pool of allocated IDs, or <code>null</code>, if the pool is disabled.
+   */
+  IdPool getIdPool() {
+    return idPool;
+  }
+
+  @Override
+  public void setWriteResultMode(WriteResultMode writeResultMode) {
+    if (writeResultMode == null) {
+      throw new IllegalArgumentException("writeResultMode cannot be null");
+    }
+    this.writeResultMode = writeResultMode;
+  }
+
+  @Override
+  public WriteResultMode getWriteResultMode() {
+    return writeResultMode;
+  }
+
+  /**
+   * Returns the second-level cache of this entity manager.
+   * 
+   * @return the second-level cache of this entity manager.
+   */
+  SecondLevelCache getSecondLevelCache() {
+    return secondLevelCache;
+  }
+
   @Override
   public <E> long deleteAll(Class<E> entityClass) {
     EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
@@ -112,33 +322,131 @@ public class DefaultEntityManager implements EntityManager {
 
   @Override
   public long deleteAll(String kind) {
+    return deleteAll(kind, new DeleteAllOptions());
+  }
+
+  @Override
+  public <E> long deleteAll(Class<E> entityClass, DeleteAllOptions options) {
+    EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
+    return deleteAll(entityMetadata.getKind(), options);
+  }
+
+  @Override
+  public long deleteAll(String kind, DeleteAllOptions options) {
     if (Utility.isNullOrEmpty(kind)) {
       throw new IllegalArgumentException("kind cannot be null or blank");
     }
-    String query = "SELECT __key__ FROM " + kind;
+    if (options == null) {
+      throw new IllegalArgumentException("options cannot be null");
+    }
     try {
-      GqlQuery<Key> gqlQuery = Query.newGqlQueryBuilder(Query.ResultType.KEY, query)
-          .setNamespace(getEffectiveNamespace()).build();
-      QueryResults<Key> keys = datastore.run(gqlQuery);
-      Key[] nativeKeys = new Key[DEFAULT_DELETE_ALL_BATCH_SIZE];
-      long deleteCount = 0;
-      int i = 0;
-      while (keys.hasNext()) {
-        nativeKeys[i++] = keys.next();
-        if (i % DEFAULT_DELETE_ALL_BATCH_SIZE == 0) {
-          datastore.delete(nativeKeys);
-          deleteCount += DEFAULT_DELETE_ALL_BATCH_SIZE;
-          i = 0;
+      List<Supplier<Iterator<Key>>> scanners = newKeyScanners(kind, getEffectiveNamespace(),
+          options.getScanners());
+      return new DeleteAllPipeline(kind, scanners, datastore::delete, options).run();
+    } catch (DatastoreException exp) {
+      throw new EntityManagerException(exp);
+    } finally {
+      secondLevelCache.evictAll(kind);
+    }
+  }
+
+  /**
+   * Creates the key scanners for the given kind. If more than one scanner is requested, the key
+   * space is split into ranges at keys sampled using the <code>__scatter__</code> property, so that
+   * each range holds about the same number of keys. If the sample cannot be taken, a single scanner
+   * covering all keys is returned.
+   * 
+   * @param kind
+   *          the entity kind
+   * @param namespace
+   *          the namespace
+   * @param scannerCount
+   *          the requested number of scanners
+   * @return the key scanners
+   */
+  private List<Supplier<Iterator<Key>>> newKeyScanners(String kind, String namespace,
+      int scannerCount) {
+    List<Key> splitKeys = new ArrayList<>();
+    if (scannerCount > 1) {
+      List<Key> sample = sampleKeys(kind, namespace, (scannerCount - 1) * KEYS_PER_SPLIT);
+      sample.sort(DatastoreUtils::compareKeys);
+      for (int i = 1; i < scannerCount && !sample.isEmpty(); i++) {
+        Key splitKey = sample.get(i * sample.size() / scannerCount);
+        if (splitKeys.isEmpty() || !splitKeys.get(splitKeys.size() - 1).equals(splitKey)) {
+          splitKeys.add(splitKey);
         }
       }
-      if (i > 0) {
-        datastore.delete(Arrays.copyOfRange(nativeKeys, 0, i));
-        deleteCount += i;
-      }
-      return deleteCount;
+    }
+    List<Supplier<Iterator<Key>>> scanners = new ArrayList<>(splitKeys.size() + 1);
+    Key startKey = null;
+    for (Key splitKey : splitKeys) {
+      scanners.add(newKeyScanner(kind, namespace, startKey, splitKey));
+      startKey = splitKey;
+    }
+    scanners.add(newKeyScanner(kind, namespace, startKey, null));
+    return scanners;
+  }
+
+  /**
+   * Returns a random sample of the keys of the given kind.
+   * 
+   * @param kind
+   *          the entity kind
+   * @param namespace
+   *          the namespace
+   * @param sampleSize
+   *          the maximum number of keys to return
+   * @return the sampled keys, or an empty list, if the Datastore does not support sampling
+   */
+  private List<Key> sampleKeys(String kind, String namespace, int sampleSize) {
+    KeyQuery.Builder queryBuilder = Query.newKeyQueryBuilder().setKind(kind)
+        .setOrderBy(OrderBy.asc(SCATTER_PROPERTY)).setLimit(sampleSize);
+    if (namespace != null) {
+      queryBuilder.setNamespace(namespace);
+    }
+    List<Key> sample = new ArrayList<>(sampleSize);
+    try {
+      datastore.run(queryBuilder.build()).forEachRemaining(sample::add);
     } catch (DatastoreException exp) {
-      throw new EntityManagerException(exp);
+      sample.clear();
     }
+    return sample;
+  }
+
+  /**
+   * Creates a scanner of the keys of the given kind, in the given key range.
+   * 
+   * @param kind
+   *          the entity kind
+   * @param namespace
+   *          the namespace
+   * @param startKey
+   *          the first key of the range, inclusive, or <code>null</code>, to start from the first
+   *          key of the kind
+   * @param endKey
+   *          the last key of the range, exclusive, or <code>null</code>, to end at the last key of
+   *          the kind
+   * @return the key scanner
+   */
+  private Supplier<Iterator<Key>> newKeyScanner(String kind, String namespace, Key startKey,
+      Key endKey) {
+    StringBuilder query = new StringBuilder("SELECT __key__ FROM ").append(kind);
+    if (startKey != null) {
+      query.append(" WHERE __key__ >= @startKey");
+    }
+    if (endKey != null) {
+      query.append(startKey == null ? " WHERE" : " AND").append(" __key__ < @endKey");
+    }
+    GqlQuery.Builder<Key> queryBuilder = Query
+        .newGqlQueryBuilder(Query.ResultType.KEY, query.toString()).setNamespace(namespace);
+    if (startKey != null) {
+      queryBuilder.setBinding("startKey", startKey);
+    }
+    if (endKey != null) {
+      queryBuilder.setBinding("endKey", endKey);
+    }
+    GqlQuery<Key> gqlQuery = queryBuilder.build();
+    return () -> datastore.run(gqlQuery);
   }
 
   @Override
@@ -159,6 +467,49 @@ public class DefaultEntityManager implements EntityManager {
     return new DefaultDatastoreBatch(this);
   }
 
+  @Override
+  public DatastoreSession newSession() {
+    return new DefaultDatastoreSession(this);
+  }
+
+  @Override
+  public DatastoreSession newSession(boolean trackChanges) {
+    return new DefaultDatastoreSession(this, trackChanges);
+  }
+
+  @Override
+  public BatchingLoader newBatchingLoader(long window, TimeUnit unit, int maxBatchSize) {
+    return new DefaultBatchingLoader(this, window, unit, maxBatchSize);
+  }
+
+  @Override
+  public AsyncEntityManager newAsyncEntityManager() {
+    return newAsyncEntityManager(ConcurrencyUtils.getDefaultExecutor(),
+        ConcurrencyUtils.DEFAULT_POOL_SIZE);
+  }
+
+  @Override
+  public AsyncEntityManager newAsyncEntityManager(Executor executor, int maxConcurrency) {
+    return new DefaultAsyncEntityManager(this, executor, maxConcurrency);
+  }
+
+  @Override
+  public BulkWriter newBulkWriter() {
+    return newBulkWriter(DatastoreUtils.MAX_MUTATIONS);
+  }
+
+  @Override
+  public BulkWriter newBulkWriter(int chunkSize) {
+    return new DefaultBulkWriter(this, chunkSize);
+  }
+
+  @Override
+  public WriteBehindEntityManager newWriteBehindEntityManager(int maxBatchSize,
+      long flushInterval, TimeUnit unit, int maxQueueSize) {
+    return new DefaultWriteBehindEntityManager(this, maxBatchSize, flushInterval, unit,
+        maxQueueSize);
+  }
+
   @Override
   public <T> T executeInTransaction(TransactionalTask<T> task) {
     return executeInTransaction(task, TransactionMode.READ_WRITE);
@@ -169,20 +520,24 @@ public class DefaultEntityManager implements EntityManager {
     if (transactionMode == null) {
       throw new IllegalArgumentException("transactionMode cannot be null");
     }
-    DatastoreTransaction transaction = null;
-    try {
-      transaction = new DefaultDatastoreTransaction(this, transactionMode);
-      T returnValue = task.execute(transaction);
-      transaction.commit();
-      return returnValue;
-    } catch (Exception exp) {
-      if (transaction != null) {
-        transaction.rollback();
-      }
-      throw new EntityManagerException(exp);
-    } finally {
-      if (transaction != null && transaction.isActive()) {
-        transaction.rollback();
+    for (int attempt = 1;; attempt++) {
+      DatastoreTransaction transaction = null;
+      try {
+        transaction = new DefaultDatastoreTransaction(this, transactionMode);
+        T returnValue = task.execute(transaction);
+        transaction.commit();
+        return returnValue;
+      } catch (Exception exp) {
+        if (transaction != null && transaction.isActive()) {
+          transaction.rollback();
+        }
+        if (!retrier.shouldRetryTransaction(exp, attempt)) {
+          throw new EntityManagerException(exp);
+        }
+      } finally {
+        if (transaction != null && transaction.isActive()) {
+          transaction.rollback();
+        }
       }
     }
   }
@@ -329,6 +684,42 @@ public class DefaultEntityManager implements EntityManager {
     return reader.executeKeyQueryRequest(request);
   }
 
+  @Override
+  public <E> QueryResultIterator<E> streamEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request) {
+    return reader.streamEntityQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> streamProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request) {
+    return reader.streamProjectionQueryRequest(expectedResultType, request);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> streamKeyQueryRequest(KeyQueryRequest request) {
+    return reader.streamKeyQueryRequest(request);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateEntityQueryRequest(Class<E> expectedResultType,
+      EntityQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateEntityQueryRequest(expectedResultType, request, cursorBinding, prefetch);
+  }
+
+  @Override
+  public <E> QueryResultIterator<E> paginateProjectionQueryRequest(Class<E> expectedResultType,
+      ProjectionQueryRequest request, String cursorBinding, boolean prefetch) {
+    return reader.paginateProjectionQueryRequest(expectedResultType, request, cursorBinding,
+        prefetch);
+  }
+
+  @Override
+  public QueryResultIterator<DatastoreKey> paginateKeyQueryRequest(KeyQueryRequest request,
+      String cursorBinding, boolean prefetch) {
+    return reader.paginateKeyQueryRequest(request, cursorBinding, prefetch);
+  }
+
   @Override
   public DatastoreMetadata getDatastoreMetadata() {
     return new DefaultDatastoreMetadata(this);
@@ -364,7 +755,19 @@ public class DefaultEntityManager implements EntityManager {
     for (Object entity : entities) {
       incompleteKeys[i++] = getIncompleteKey(entity);
     }
-    List<Key> nativeKeys = datastore.allocateId(incompleteKeys);
+    IdPool currentIdPool = idPool;
+    if (currentIdPool == null) {
+      List<Key> nativeKeys = datastore.allocateId(incompleteKeys);
+      return DatastoreUtils.toDatastoreKeys(nativeKeys);
+    }
+    List<Key> nativeKeys = new ArrayList<>(incompleteKeys.length);
+    for (IncompleteKey incompleteKey : incompleteKeys) {
+      if (incompleteKey.getParent() == null) {
+        nativeKeys.add(currentIdPool.next(incompleteKey));
+      } else {
+        nativeKeys.add(datastore.allocateId(incompleteKey));
+      }
+    }
     return DatastoreUtils.toDatastoreKeys(nativeKeys);
   }
 
@@ -395,7 +798,8 @@ public class DefaultEntityManager implements EntityManager {
 
   @Override
   public void setDefaultListeners(Class<?>... entityListeners) {
-    globalCallbacks = new EnumMap<>(CallbackType.class);
+    Map<CallbackType, List<CallbackMetadata>> callbacksByType = new EnumMap<>(
+        CallbackType.class);
     for (Class<?> listenerClass : entityListeners) {
       ExternalListenerMetadata listenerMetadata = ExternalListenerIntrospector
           .introspect(listenerClass);
@@ -406,34 +810,51 @@ public class DefaultEntityManager implements EntityManager {
           Method callbackMethod = entry.getValue();
           CallbackMetadata callbackMetadata = new CallbackMetadata(EntityListenerType.DEFAULT,
               callbackType, callbackMethod);
-          putDefaultCallback(callbackType, callbackMetadata);
+          putDefaultCallback(callbacksByType, callbackType, callbackMetadata);
         }
       }
     }
+    globalCallbacks = callbacksByType;
+    listenerChains = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void setEntityCacheProvider(EntityCacheProvider provider) {
+    if (provider == null) {
+      throw new IllegalArgumentException("provider cannot be null");
+    }
+    SecondLevelCache oldCache = secondLevelCache;
+    secondLevelCache = new SecondLevelCache(provider);
+    oldCache.clear();
   }
 
   /**
-   * Puts/adds the given callback type and its metadata to the list of default listeners.
+   * Puts/adds the given callback type and its metadata to the given map of default listeners.
    * 
+   * @param callbacksByType
+   *          the default listeners, by event type
    * @param callbackType
    *          the event type
    * @param metadata
    *          the callback metadata
    */
-  private void putDefaultCallback(CallbackType callbackType, CallbackMetadata metadata) {
-    List<CallbackMetadata> metadataList = globalCallbacks.get(callbackType);
+  private static void putDefaultCallback(
+      Map<CallbackType, List<CallbackMetadata>> callbacksByType, CallbackType callbackType,
+      CallbackMetadata metadata) {
+    List<CallbackMetadata> metadataList = callbacksByType.get(callbackType);
     if (metadataList == null) {
       metadataList = new ArrayList<>();
-      globalCallbacks.put(callbackType, metadataList);
+      callbacksByType.put(callbackType, metadataList);
     }
     metadataList.add(metadata);
   }
 
   /**
-   * Executes the entity listeners associated with the given entity.
+   * Executes the entity listeners associated with the given entity. Batch listeners of the
+   * corresponding batch callback type, if any, receive a list containing just the given entity.
    * 
    * @param callbackType
-   *          the event type
+   *          the event type, must not be a batch callback type
    * @param entity
    *          the entity that produced the event
    */
@@ -443,106 +864,146 @@ public class DefaultEntityManager implements EntityManager {
     if (entity == null) {
       return;
     }
-    EntityListenersMetadata entityListenersMetadata = EntityIntrospector
-        .getEntityListenersMetadata(entity);
-    List<CallbackMetadata> callbacks = entityListenersMetadata.getCallbacks(callbackType);
-    if (!entityListenersMetadata.isExcludeDefaultListeners()) {
-      executeGlobalListeners(callbackType, entity);
+    ListenerChain chain = getListenerChain(entity.getClass(), callbackType);
+    if (!chain.isEmpty()) {
+      execute(chain, callbackType, entity.getClass(), entity);
     }
-    if (callbacks == null) {
-      return;
-    }
-    for (CallbackMetadata callback : callbacks) {
-      switch (callback.getListenerType()) {
-        case EXTERNAL:
-          Object listener = ListenerFactory.getInstance().getListener(callback.getListenerClass());
-          invokeCallbackMethod(callback.getCallbackMethod(), listener, entity);
-          break;
-        case INTERNAL:
-          invokeCallbackMethod(callback.getCallbackMethod(), entity);
-          break;
-        default:
-          String message = String.format("Unknown or unimplemented callback listener type: %s",
-              callback.getListenerType());
-          throw new EntityManagerException(message);
+    CallbackType batchType = callbackType.getBatchType();
+    if (batchType != null) {
+      ListenerChain batchChain = getListenerChain(entity.getClass(), batchType);
+      if (!batchChain.isEmpty()) {
+        execute(batchChain, batchType, entity.getClass(), Collections.singletonList(entity));
       }
     }
   }
 
   /**
-   * Executes the entity listeners associated with the given list of entities.
+   * Executes the entity listeners associated with the given list of entities. After the listeners
+   * have been run for each entity, the batch listeners of the corresponding batch callback type, if
+   * any, are run once with all entities of the same class.
    * 
    * @param callbackType
-   *          the callback type
+   *          the callback type, must not be a batch callback type
    * @param entities
    *          the entities
    */
   public void executeEntityListeners(CallbackType callbackType, List<?> entities) {
+    Class<?> chainClass = null;
+    ListenerChain chain = ListenerChain.EMPTY;
     for (Object entity : entities) {
-      executeEntityListeners(callbackType, entity);
+      if (entity == null) {
+        continue;
+      }
+      if (entity.getClass() != chainClass) {
+        chainClass = entity.getClass();
+        chain = getListenerChain(chainClass, callbackType);
+      }
+      if (!chain.isEmpty()) {
+        execute(chain, callbackType, chainClass, entity);
+      }
+    }
+    CallbackType batchType = callbackType.getBatchType();
+    if (batchType != null) {
+      executeBatchListeners(batchType, entities);
     }
   }
 
   /**
-   * Executes the global listeners for the given event type for the given entity.
+   * Executes the batch listeners associated with the given list of entities. Each batch listener
+   * is invoked once with an unmodifiable list of the entities of its entity class, in their
+   * original order.
    * 
-   * @param callbackType
-   *          the event type
-   * @param entity
-   *          the entity
+   * @param batchType
+   *          the batch callback type
+   * @param entities
+   *          the entities, may contain <code>null</code> elements, which are skipped
    */
-  private void executeGlobalListeners(CallbackType callbackType, Object entity) {
-    if (globalCallbacks == null) {
-      return;
+  private void executeBatchListeners(CallbackType batchType, List<?> entities) {
+    Map<Class<?>, List<Object>> batches = null;
+    Class<?> chainClass = null;
+    ListenerChain chain = ListenerChain.EMPTY;
+    for (Object entity : entities) {
+      if (entity == null) {
+        continue;
+      }
+      if (entity.getClass() != chainClass) {
+        chainClass = entity.getClass();
+        chain = getListenerChain(chainClass, batchType);
+      }
+      if (!chain.isEmpty()) {
+        if (batches == null) {
+          batches = new LinkedHashMap<>();
+        }
+        batches.computeIfAbsent(chainClass, k -> new ArrayList<>()).add(entity);
+      }
     }
-    List<CallbackMetadata> callbacks = globalCallbacks.get(callbackType);
-    if (callbacks == null) {
+    if (batches == null) {
       return;
     }
-    for (CallbackMetadata callback : callbacks) {
-      Object listener = ListenerFactory.getInstance().getListener(callback.getListenerClass());
-      invokeCallbackMethod(callback.getCallbackMethod(), listener, entity);
+    for (Map.Entry<Class<?>, List<Object>> batch : batches.entrySet()) {
+      execute(getListenerChain(batch.getKey(), batchType), batchType, batch.getKey(),
+          Collections.unmodifiableList(batch.getValue()));
     }
   }
 
   /**
-   * Invokes the given callback method on the given target object.
+   * Runs the given listener chain for the given event.
    * 
-   * @param callbackMethod
-   *          the callback method
-   * @param listener
-   *          the listener object on which to invoke the method
-   * @param entity
-   *          the entity for which the callback is being invoked.
+   * @param chain
+   *          the listener chain
+   * @param callbackType
+   *          the callback type of the chain
+   * @param entityClass
+   *          the entity class the chain was created for
+   * @param event
+   *          the entity, or the list of entities, for batch callbacks
    */
-  private static void invokeCallbackMethod(Method callbackMethod, Object listener, Object entity) {
-    try {
-      callbackMethod.invoke(listener, entity);
-    } catch (Exception exp) {
-      String message = String.format("Failed to execute callback method %s of class %s",
-          callbackMethod.getName(), callbackMethod.getDeclaringClass().getName());
-      throw new EntityManagerException(message, exp);
-    }
-
+  private void execute(ListenerChain chain, CallbackType callbackType, Class<?> entityClass,
+      Object event) {
+    PhaseTimer phaseTimer = PhaseTimer.start(this, entityClass);
+    chain.execute(event, chain.hasAsyncCallbacks() ? getAsyncListenerExecutor() : null);
+    phaseTimer.end(callbackType.isPre() ? ProcessingPhase.PRE_LISTENERS
+        : ProcessingPhase.POST_LISTENERS);
   }
 
   /**
-   * Invokes the given callback method on the given target object.
+   * Returns the executor of asynchronous listener callbacks, creating it with the default options,
+   * if it was not created yet.
    * 
-   * @param callbackMethod
-   *          the callback method
-   * @param entity
-   *          the entity for which the callback is being invoked
+   * @return the executor of asynchronous listener callbacks
    */
-  private static void invokeCallbackMethod(Method callbackMethod, Object entity) {
-    try {
-      callbackMethod.invoke(entity);
-    } catch (Exception exp) {
-      String message = String.format("Failed to execute callback method %s of class %s",
-          callbackMethod.getName(), callbackMethod.getDeclaringClass().getName());
-      throw new EntityManagerException(message, exp);
+  private AsyncListenerExecutor getAsyncListenerExecutor() {
+    AsyncListenerExecutor executor = asyncListenerExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = asyncListenerExecutor;
+        if (executor == null) {
+          executor = new AsyncListenerExecutor(new AsyncListenerOptions());
+          asyncListenerExecutor = executor;
+        }
+      }
     }
+    return executor;
+  }
 
+  /**
+   * Returns the chain of listeners to run for the given entity class and event type.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param callbackType
+   *          the event type
+   * @return the listener chain
+   */
+  private ListenerChain getListenerChain(Class<?> entityClass, CallbackType callbackType) {
+    Map<Class<?>, ListenerChain[]> chains = listenerChains;
+    ListenerChain[] classChains = chains.get(entityClass);
+    if (classChains == null) {
+      classChains = ListenerChain.create(globalCallbacks,
+          EntityIntrospector.getEntityListenersMetadata(entityClass));
+      chains.put(entityClass, classChains);
+    }
+    return classChains[callbackType.ordinal()];
   }
 
   /**
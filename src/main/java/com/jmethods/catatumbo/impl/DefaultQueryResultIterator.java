@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.QueryResults;
+import com.jmethods.catatumbo.DatastoreCursor;
+import com.jmethods.catatumbo.DefaultDatastoreCursor;
+import com.jmethods.catatumbo.DefaultQueryResponseMetadata;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.QueryResponseMetadata;
+import com.jmethods.catatumbo.QueryResultIterator;
+
+/**
+ * Default implementation of {@link QueryResultIterator}, backed by the native {@link QueryResults}.
+ * The native results hold only the current batch, and fetch the next batch when the current one is
+ * exhausted.
+ * 
+ * @param <N>
+ *          the native type of results
+ * @param <T>
+ *          the model type of results
+ * @author Sai Pullabhotla
+ *
+ */
+class DefaultQueryResultIterator<N, T> implements QueryResultIterator<T> {
+
+  /**
+   * The native results
+   */
+  private final QueryResults<N> results;
+
+  /**
+   * Converts a native result to its model type
+   */
+  private final Function<N, T> converter;
+
+  /**
+   * The start cursor
+   */
+  private final DatastoreCursor startCursor;
+
+  /**
+   * Timer of the query, stopped once the results are read to the end, or <code>null</code>
+   */
+  private OperationTimer timer;
+
+  /**
+   * Number of results returned so far, counted only while the query is timed
+   */
+  private int count;
+
+  /**
+   * Creates a new instance of <code>DefaultQueryResultIterator</code>.
+   * 
+   * @param results
+   *          the native results
+   * @param converter
+   *          converts a native result to its model type
+   */
+  DefaultQueryResultIterator(QueryResults<N> results, Function<N, T> converter) {
+    this(results, converter, null);
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultQueryResultIterator</code>, which adds the time spent
+   * in fetching and converting results to the given timer, and stops the timer once the results
+   * are read to the end, or fail.
+   * 
+   * @param results
+   *          the native results
+   * @param converter
+   *          converts a native result to its model type
+   * @param timer
+   *          the timer of the query, or <code>null</code>
+   */
+  DefaultQueryResultIterator(QueryResults<N> results, Function<N, T> converter,
+      OperationTimer timer) {
+    this.results = results;
+    this.converter = converter;
+    this.timer = timer;
+    this.startCursor = new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe());
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (timer == null) {
+      try {
+        return results.hasNext();
+      } catch (DatastoreException exp) {
+        throw new EntityManagerException(exp);
+      }
+    }
+    long mark = timer.mark();
+    try {
+      boolean hasNext = results.hasNext();
+      timer.rpc(mark);
+      if (!hasNext) {
+        stopTimer(true);
+      }
+      return hasNext;
+    } catch (DatastoreException exp) {
+      stopTimer(false);
+      throw new EntityManagerException(exp);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (timer == null) {
+      try {
+        return converter.apply(results.next());
+      } catch (DatastoreException exp) {
+        throw new EntityManagerException(exp);
+      }
+    }
+    try {
+      N result = results.next();
+      if (result instanceof BaseEntity) {
+        timer.payload((BaseEntity<?>) result);
+      }
+      long mark = timer.mark();
+      T converted = converter.apply(result);
+      timer.unmarshal(mark);
+      count++;
+      return converted;
+    } catch (DatastoreException exp) {
+      stopTimer(false);
+      throw new EntityManagerException(exp);
+    } catch (RuntimeException exp) {
+      stopTimer(false);
+      throw exp;
+    }
+  }
+
+  @Override
+  public DatastoreCursor getStartCursor() {
+    return startCursor;
+  }
+
+  @Override
+  public DatastoreCursor getCursorAfter() {
+    return new DefaultDatastoreCursor(results.getCursorAfter().toUrlSafe());
+  }
+
+  /**
+   * Returns the native cursor after the last result returned by this iterator. Unlike
+   * {@link #getCursorAfter()}, the cursor is not encoded.
+   * 
+   * @return the native cursor after the last result
+   */
+  Cursor getNativeCursorAfter() {
+    return results.getCursorAfter();
+  }
+
+  @Override
+  public QueryResponseMetadata getQueryResponseMetadata() {
+    return new DefaultQueryResponseMetadata(
+        QueryResponseMetadata.QueryState.forMoreResultsType(results.getMoreResults()));
+  }
+
+  /**
+   * Stops the timer of the query, if it is still running.
+   * 
+   * @param succeeded
+   *          whether or not the results were read to the end
+   */
+  private void stopTimer(boolean succeeded) {
+    if (timer == null) {
+      return;
+    }
+    OperationTimer stopping = timer;
+    timer = null;
+    stopping.entities(count);
+    if (succeeded) {
+      stopping.queryEnded(getCursorAfter(), getQueryResponseMetadata().getQueryState());
+      stopping.succeeded();
+    }
+    stopping.stop();
+  }
+
+}
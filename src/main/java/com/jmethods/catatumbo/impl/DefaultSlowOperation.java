@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.jmethods.catatumbo.DatastoreCursor;
+import com.jmethods.catatumbo.OperationType;
+import com.jmethods.catatumbo.QueryRequest;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+import com.jmethods.catatumbo.SlowOperation;
+
+/**
+ * Implementation of {@link SlowOperation}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class DefaultSlowOperation implements SlowOperation {
+
+  /**
+   * Replacement for the values of redacted bindings
+   */
+  private static final String REDACTED = "?";
+
+  /**
+   * Operation type
+   */
+  private final OperationType operationType;
+
+  /**
+   * Kind
+   */
+  private final String kind;
+
+  /**
+   * Namespace
+   */
+  private final String namespace;
+
+  /**
+   * GQL query string
+   */
+  private final String query;
+
+  /**
+   * Named bindings
+   */
+  private final Map<String, Object> namedBindings;
+
+  /**
+   * Positional bindings
+   */
+  private final List<Object> positionalBindings;
+
+  /**
+   * Number of entities
+   */
+  private final int entityCount;
+
+  /**
+   * End cursor
+   */
+  private final DatastoreCursor endCursor;
+
+  /**
+   * Query state
+   */
+  private final QueryState queryState;
+
+  /**
+   * Whether or not the operation failed
+   */
+  private final boolean failed;
+
+  /**
+   * Elapsed time, in nanoseconds
+   */
+  private final long elapsedNanos;
+
+  /**
+   * RPC time, in nanoseconds
+   */
+  private final long rpcNanos;
+
+  /**
+   * Unmarshalling time, in nanoseconds
+   */
+  private final long unmarshalNanos;
+
+  /**
+   * Creates a new instance of <code>DefaultSlowOperation</code>.
+   * 
+   * @param operationType
+   *          the operation type
+   * @param kind
+   *          the kind, may be <code>null</code>
+   * @param namespace
+   *          the namespace, may be <code>null</code>
+   * @param request
+   *          the query request, or <code>null</code>, if the operation is not a query
+   * @param redactBindings
+   *          whether or not to hide the values of the query bindings
+   * @param entityCount
+   *          the number of entities
+   * @param endCursor
+   *          the end cursor, may be <code>null</code>
+   * @param queryState
+   *          the query state, may be <code>null</code>
+   * @param failed
+   *          whether or not the operation failed
+   * @param elapsedNanos
+   *          the elapsed time
+   * @param rpcNanos
+   *          the RPC time, or <code>-1</code>, if not measured
+   * @param unmarshalNanos
+   *          the unmarshalling time
+   */
+  DefaultSlowOperation(OperationType operationType, String kind, String namespace,
+      QueryRequest request, boolean redactBindings, int entityCount, DatastoreCursor endCursor,
+      QueryState queryState, boolean failed, long elapsedNanos, long rpcNanos,
+      long unmarshalNanos) {
+    this.operationType = operationType;
+    this.kind = kind;
+    this.namespace = namespace;
+    if (request == null) {
+      this.query = null;
+      this.namedBindings = null;
+      this.positionalBindings = null;
+    } else {
+      this.query = request.getQuery();
+      this.namedBindings = copyBindings(request.getNamedBindings(), redactBindings);
+      this.positionalBindings = copyBindings(request.getPositionalBindings(), redactBindings);
+    }
+    this.entityCount = entityCount;
+    this.endCursor = endCursor;
+    this.queryState = queryState;
+    this.failed = failed;
+    this.elapsedNanos = elapsedNanos;
+    this.rpcNanos = rpcNanos;
+    this.unmarshalNanos = unmarshalNanos;
+  }
+
+  @Override
+  public OperationType getOperationType() {
+    return operationType;
+  }
+
+  @Override
+  public String getKind() {
+    return kind;
+  }
+
+  @Override
+  public String getNamespace() {
+    return namespace;
+  }
+
+  @Override
+  public String getQuery() {
+    return query;
+  }
+
+  @Override
+  public Map<String, Object> getNamedBindings() {
+    return namedBindings;
+  }
+
+  @Override
+  public List<Object> getPositionalBindings() {
+    return positionalBindings;
+  }
+
+  @Override
+  public int getEntityCount() {
+    return entityCount;
+  }
+
+  @Override
+  public DatastoreCursor getEndCursor() {
+    return endCursor;
+  }
+
+  @Override
+  public QueryState getQueryState() {
+    return queryState;
+  }
+
+  @Override
+  public boolean isFailed() {
+    return failed;
+  }
+
+  @Override
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public long getRpcNanos() {
+    return rpcNanos;
+  }
+
+  @Override
+  public long getUnmarshalNanos() {
+    return unmarshalNanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("Slow ").append(operationType);
+    if (kind != null) {
+      builder.append(" of ").append(kind);
+    }
+    builder.append(failed ? " failed after " : " took ").append(toMillis(elapsedNanos));
+    builder.append(" (RPC ").append(rpcNanos < 0 ? "not measured" : toMillis(rpcNanos));
+    builder.append(", unmarshal ").append(toMillis(unmarshalNanos)).append(")");
+    builder.append(", entities=").append(entityCount);
+    builder.append(", namespace=").append(namespace);
+    if (query != null) {
+      builder.append(", query=\"").append(query).append("\"");
+      builder.append(", namedBindings=").append(namedBindings);
+      builder.append(", positionalBindings=").append(positionalBindings);
+      builder.append(", queryState=").append(queryState);
+      builder.append(", endCursor=").append(endCursor == null ? null : endCursor.getEncoded());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Formats the given time in milliseconds.
+   * 
+   * @param nanos
+   *          the time, in nanoseconds
+   * @return the formatted time
+   */
+  private static String toMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+  }
+
+  /**
+   * Returns an unmodifiable copy of the given named bindings.
+   * 
+   * @param bindings
+   *          the bindings
+   * @param redact
+   *          whether or not to replace the values
+   * @return the copy
+   */
+  private static Map<String, Object> copyBindings(Map<String, Object> bindings, boolean redact) {
+    Map<String, Object> copy = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+      copy.put(binding.getKey(), redact ? REDACTED : binding.getValue());
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * Returns an unmodifiable copy of the given positional bindings.
+   * 
+   * @param bindings
+   *          the bindings
+   * @param redact
+   *          whether or not to replace the values
+   * @return the copy
+   */
+  private static List<Object> copyBindings(List<Object> bindings, boolean redact) {
+    List<Object> copy = new ArrayList<>(bindings.size());
+    for (Object binding : bindings) {
+      copy.add(redact ? REDACTED : binding);
+    }
+    return Collections.unmodifiableList(copy);
+  }
+
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.Batch;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.WriteBehindEntityManager;
+import com.jmethods.catatumbo.impl.Marshaller.Intent;
+
+/**
+ * Default implementation of the {@link WriteBehindEntityManager} interface. Queued writes are kept
+ * in insertion order, keyed by the entity key, so that a later write of a key replaces the earlier
+ * one. Batches are taken from the head of the queue and written by one thread at a time, which
+ * keeps the writes of each key in order.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultWriteBehindEntityManager implements WriteBehindEntityManager {
+
+  /**
+   * Reference to the entity manager
+   */
+  private final DefaultEntityManager entityManager;
+
+  /**
+   * Maximum number of writes in a batch
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Maximum number of queued writes
+   */
+  private final int maxQueueSize;
+
+  /**
+   * Function that writes a batch of upserts and deletes in a single commit
+   */
+  private final BiConsumer<List<Entity>, List<Key>> batchWriter;
+
+  /**
+   * Lock guarding the queue, the failure and the closed flag
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Signaled when writes are taken from the queue
+   */
+  private final Condition notFull = lock.newCondition();
+
+  /**
+   * Queued writes, by key
+   */
+  private final Map<Key, Write> queue = new LinkedHashMap<>();
+
+  /**
+   * Lock held by the thread that is writing batches
+   */
+  private final ReentrantLock drainLock = new ReentrantLock();
+
+  /**
+   * Whether or not a background drain was requested and has not started yet
+   */
+  private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+  /**
+   * Periodic drain of the queue
+   */
+  private final ScheduledFuture<?> scheduledDrain;
+
+  /**
+   * Failure of a background write that was not reported yet
+   */
+  private EntityManagerException failure;
+
+  /**
+   * Whether or not this WriteBehindEntityManager is closed
+   */
+  private volatile boolean closed;
+
+  /**
+   * Creates a new instance of <code>DefaultWriteBehindEntityManager</code>.
+   * 
+   * @param entityManager
+   *          the entity manager
+   * @param maxBatchSize
+   *          the maximum number of writes in a batch
+   * @param flushInterval
+   *          how often queued writes are sent
+   * @param unit
+   *          the unit of the flush interval
+   * @param maxQueueSize
+   *          the maximum number of queued writes
+   */
+  public DefaultWriteBehindEntityManager(DefaultEntityManager entityManager, int maxBatchSize,
+      long flushInterval, TimeUnit unit, int maxQueueSize) {
+    this(entityManager, maxBatchSize, flushInterval, unit, maxQueueSize,
+        newBatchWriter(entityManager.getDatastore()));
+  }
+
+  /**
+   * Creates a new instance of <code>DefaultWriteBehindEntityManager</code>.
+   * 
+   * @param entityManager
+   *          the entity manager
+   * @param maxBatchSize
+   *          the maximum number of writes in a batch
+   * @param flushInterval
+   *          how often queued writes are sent
+   * @param unit
+   *          the unit of the flush interval
+   * @param maxQueueSize
+   *          the maximum number of queued writes
+   * @param batchWriter
+   *          the function that writes a batch of upserts and deletes
+   */
+  DefaultWriteBehindEntityManager(DefaultEntityManager entityManager, int maxBatchSize,
+      long flushInterval, TimeUnit unit, int maxQueueSize,
+      BiConsumer<List<Entity>, List<Key>> batchWriter) {
+    if (maxBatchSize < 1 || maxBatchSize > DatastoreUtils.MAX_MUTATIONS) {
+      throw new IllegalArgumentException(
+          String.format("maxBatchSize must be between 1 and %d", DatastoreUtils.MAX_MUTATIONS));
+    }
+    if (flushInterval <= 0) {
+      throw new IllegalArgumentException("flushInterval must be positive");
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("unit cannot be null");
+    }
+    if (maxQueueSize < maxBatchSize) {
+      throw new IllegalArgumentException("maxQueueSize cannot be less than maxBatchSize");
+    }
+    this.entityManager = entityManager;
+    this.maxBatchSize = maxBatchSize;
+    this.maxQueueSize = maxQueueSize;
+    this.batchWriter = batchWriter;
+    this.scheduledDrain = ConcurrencyUtils.getScheduler().scheduleWithFixedDelay(
+        this::requestDrain, flushInterval, flushInterval, unit);
+  }
+
+  @Override
+  public void upsert(Object entity) {
+    ensureOpen();
+    entityManager.executeEntityListeners(CallbackType.PRE_UPSERT, entity);
+    BaseEntity<?> nativeEntity = Marshaller.marshal(entityManager, entity, Intent.UPSERT);
+    if (!(nativeEntity instanceof Entity)) {
+      throw new EntityManagerException(String.format(
+          "Entity of type %s must have its identifier set to be queued for write-behind",
+          entity.getClass().getName()));
+    }
+    enqueue(new Write(((Entity) nativeEntity).getKey(), (Entity) nativeEntity, entity));
+  }
+
+  @Override
+  public void upsert(List<?> entities) {
+    for (Object entity : entities) {
+      upsert(entity);
+    }
+  }
+
+  @Override
+  public void delete(Object entity) {
+    ensureOpen();
+    entityManager.executeEntityListeners(CallbackType.PRE_DELETE, entity);
+    Key nativeKey = Marshaller.marshalKey(entityManager, entity);
+    enqueue(new Write(nativeKey, null, entity));
+  }
+
+  @Override
+  public void deleteByKey(DatastoreKey key) {
+    ensureOpen();
+    enqueue(new Write(key.nativeKey(), null, null));
+  }
+
+  @Override
+  public void flush() {
+    drainLock.lock();
+    try {
+      drain();
+    } finally {
+      drainLock.unlock();
+    }
+    EntityManagerException exp;
+    lock.lock();
+    try {
+      exp = failure;
+      failure = null;
+    } finally {
+      lock.unlock();
+    }
+    if (exp != null) {
+      throw exp;
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    scheduledDrain.cancel(false);
+    flush();
+  }
+
+  /**
+   * Throws an exception if this WriteBehindEntityManager is closed.
+   * 
+   * @throws EntityManagerException
+   *           if this WriteBehindEntityManager is closed
+   */
+  private void ensureOpen() {
+    if (closed) {
+      throw new EntityManagerException("WriteBehindEntityManager is closed");
+    }
+  }
+
+  /**
+   * Adds the given write to the queue, replacing any queued write of the same key. Blocks while
+   * the queue is full, unless the key is already queued.
+   * 
+   * @param write
+   *          the write
+   */
+  private void enqueue(Write write) {
+    boolean batchReady;
+    lock.lock();
+    try {
+      while (queue.size() >= maxQueueSize && !queue.containsKey(write.nativeKey)) {
+        ensureOpen();
+        requestDrain();
+        notFull.await();
+      }
+      ensureOpen();
+      queue.put(write.nativeKey, write);
+      batchReady = queue.size() >= maxBatchSize;
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      throw new EntityManagerException(exp);
+    } finally {
+      lock.unlock();
+    }
+    if (batchReady) {
+      requestDrain();
+    }
+  }
+
+  /**
+   * Drains the queue on the chunk executor, unless a drain was already requested.
+   */
+  private void requestDrain() {
+    if (drainRequested.compareAndSet(false, true)) {
+      ConcurrencyUtils.getChunkExecutor().execute(() -> {
+        drainRequested.set(false);
+        drainLock.lock();
+        try {
+          drain();
+        } finally {
+          drainLock.unlock();
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes batches from the head of the queue until it is empty. Must be called while holding the
+   * drain lock.
+   */
+  private void drain() {
+    while (true) {
+      List<Write> batch = takeBatch();
+      if (batch.isEmpty()) {
+        return;
+      }
+      write(batch);
+    }
+  }
+
+  /**
+   * Removes and returns up to a batch of writes from the head of the queue.
+   * 
+   * @return the batch, which is empty if the queue is empty
+   */
+  private List<Write> takeBatch() {
+    lock.lock();
+    try {
+      List<Write> batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+      Iterator<Write> iterator = queue.values().iterator();
+      while (iterator.hasNext() && batch.size() < maxBatchSize) {
+        batch.add(iterator.next());
+        iterator.remove();
+      }
+      if (!batch.isEmpty()) {
+        notFull.signalAll();
+      }
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the given batch in a single commit, evicts the written keys from the second-level cache
+   * and runs the PostUpsert and PostDelete listeners. A failure is recorded, to be reported by the
+   * next flush.
+   * 
+   * @param batch
+   *          the batch
+   */
+  private void write(List<Write> batch) {
+    List<Entity> nativeEntities = new ArrayList<>();
+    List<Key> deletedKeys = new ArrayList<>();
+    List<Key> nativeKeys = new ArrayList<>(batch.size());
+    for (Write write : batch) {
+      if (write.nativeEntity == null) {
+        deletedKeys.add(write.nativeKey);
+      } else {
+        nativeEntities.add(write.nativeEntity);
+      }
+      nativeKeys.add(write.nativeKey);
+    }
+    try {
+      batchWriter.accept(nativeEntities, deletedKeys);
+      entityManager.getSecondLevelCache().evict(nativeKeys);
+      List<Object> upsertedEntities = new ArrayList<>(nativeEntities.size());
+      List<Object> deletedEntities = new ArrayList<>(deletedKeys.size());
+      for (Write write : batch) {
+        if (write.nativeEntity == null) {
+          deletedEntities.add(write.entity);
+        } else {
+          upsertedEntities.add(write.entity);
+        }
+      }
+      entityManager.executeEntityListeners(CallbackType.POST_UPSERT, upsertedEntities);
+      entityManager.executeEntityListeners(CallbackType.POST_DELETE, deletedEntities);
+    } catch (DatastoreException exp) {
+      recordFailure(DatastoreUtils.wrap(exp));
+    } catch (EntityManagerException exp) {
+      recordFailure(exp);
+    } catch (RuntimeException exp) {
+      recordFailure(new EntityManagerException(exp));
+    }
+  }
+
+  /**
+   * Records the given failure, to be reported by the next flush. Failures that occur before the
+   * next flush are added to the first one as suppressed exceptions.
+   * 
+   * @param exp
+   *          the failure
+   */
+  private void recordFailure(EntityManagerException exp) {
+    lock.lock();
+    try {
+      if (failure == null) {
+        failure = exp;
+      } else {
+        failure.addSuppressed(exp);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Creates a function that writes a batch of upserts and deletes to the given Datastore in a
+   * single commit.
+   * 
+   * @param datastore
+   *          the Datastore
+   * @return the function
+   */
+  private static BiConsumer<List<Entity>, List<Key>> newBatchWriter(Datastore datastore) {
+    return (nativeEntities, deletedKeys) -> {
+      Batch batch = datastore.newBatch();
+      if (!nativeEntities.isEmpty()) {
+        batch.put(nativeEntities.toArray(new FullEntity<?>[nativeEntities.size()]));
+      }
+      if (!deletedKeys.isEmpty()) {
+        batch.delete(deletedKeys.toArray(new Key[deletedKeys.size()]));
+      }
+      batch.submit();
+    };
+  }
+
+  /**
+   * A queued upsert or delete.
+   */
+  private static class Write {
+
+    /**
+     * Key of the entity
+     */
+    private final Key nativeKey;
+
+    /**
+     * The native entity to upsert, or <code>null</code>, if the entity is to be deleted
+     */
+    private final Entity nativeEntity;
+
+    /**
+     * The entity passed in by the caller, or <code>null</code>, if it was deleted by key
+     */
+    private final Object entity;
+
+    /**
+     * Creates a new instance of <code>Write</code>.
+     * 
+     * @param nativeKey
+     *          key of the entity
+     * @param nativeEntity
+     *          the native entity to upsert, or <code>null</code>, to delete the entity
+     * @param entity
+     *          the entity passed in by the caller
+     */
+    Write(Key nativeKey, Entity nativeEntity, Object entity) {
+      this.nativeKey = nativeKey;
+      this.nativeEntity = nativeEntity;
+      this.entity = entity;
+    }
+  }
+
+}
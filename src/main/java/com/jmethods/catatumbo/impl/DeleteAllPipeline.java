@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.DeleteAllMonitor;
+import com.jmethods.catatumbo.DeleteAllOptions;
+
+/**
+ * Deletes all entities of a kind in a pipeline. Scanners read the keys from one or more key ranges
+ * and put them, in batches, on a bounded queue, from which the delete workers take the batches and
+ * delete them. Each scanner and delete worker runs on its own thread, for the duration of the
+ * operation.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class DeleteAllPipeline {
+
+  /**
+   * How long scanners and delete workers wait on the queue before checking whether to stop, in
+   * milliseconds
+   */
+  private static final long POLL_MILLIS = 100L;
+
+  /**
+   * The entity kind
+   */
+  private final String kind;
+
+  /**
+   * Suppliers of the keys of each key range
+   */
+  private final List<Supplier<Iterator<Key>>> scanners;
+
+  /**
+   * Function that deletes a batch of keys
+   */
+  private final Consumer<Key[]> deleter;
+
+  /**
+   * Number of keys in a batch
+   */
+  private final int batchSize;
+
+  /**
+   * Number of delete workers
+   */
+  private final int deleteWorkers;
+
+  /**
+   * Progress monitor, may be <code>null</code>
+   */
+  private final DeleteAllMonitor monitor;
+
+  /**
+   * Batches of keys waiting to be deleted
+   */
+  private final BlockingQueue<Key[]> queue;
+
+  /**
+   * Number of entities deleted so far
+   */
+  private final AtomicLong deleteCount = new AtomicLong();
+
+  /**
+   * Whether or not the pipeline was cancelled or failed
+   */
+  private final AtomicBoolean stopped = new AtomicBoolean();
+
+  /**
+   * Whether or not all scanners are done
+   */
+  private volatile boolean scanned;
+
+  /**
+   * First failure of a scanner or delete worker
+   */
+  private RuntimeException failure;
+
+  /**
+   * Creates a new instance of <code>DeleteAllPipeline</code>.
+   * 
+   * @param kind
+   *          the entity kind
+   * @param scanners
+   *          suppliers of the keys of each key range
+   * @param deleter
+   *          the function that deletes a batch of keys
+   * @param options
+   *          the options
+   */
+  DeleteAllPipeline(String kind, List<Supplier<Iterator<Key>>> scanners, Consumer<Key[]> deleter,
+      DeleteAllOptions options) {
+    this.kind = kind;
+    this.scanners = scanners;
+    this.deleter = deleter;
+    this.batchSize = options.getBatchSize();
+    this.deleteWorkers = options.getDeleteWorkers();
+    this.monitor = options.getMonitor();
+    this.queue = new ArrayBlockingQueue<>(deleteWorkers * 2);
+  }
+
+  /**
+   * Runs the pipeline and waits for it to complete.
+   * 
+   * @return the number of entities deleted
+   * @throws RuntimeException
+   *           the first failure of a scanner or delete worker
+   */
+  long run() {
+    ExecutorService executor = ConcurrencyUtils.newFixedDaemonExecutor("catatumbo-delete-all-",
+        scanners.size() + deleteWorkers);
+    CountDownLatch scanLatch = new CountDownLatch(scanners.size());
+    CountDownLatch deleteLatch = new CountDownLatch(deleteWorkers);
+    boolean interrupted;
+    try {
+      for (Supplier<Iterator<Key>> scanner : scanners) {
+        executor.execute(() -> scan(scanner, scanLatch));
+      }
+      for (int i = 0; i < deleteWorkers; i++) {
+        executor.execute(() -> delete(deleteLatch));
+      }
+      interrupted = await(scanLatch);
+      scanned = true;
+      interrupted |= await(deleteLatch);
+    } finally {
+      executor.shutdown();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    return deleteCount.get();
+  }
+
+  /**
+   * Reads the keys from the given scanner and puts them on the queue in batches.
+   * 
+   * @param scanner
+   *          the scanner
+   * @param latch
+   *          the latch to count down when done
+   */
+  private void scan(Supplier<Iterator<Key>> scanner, CountDownLatch latch) {
+    try {
+      if (isCancelled()) {
+        return;
+      }
+      Iterator<Key> keys = scanner.get();
+      List<Key> batch = new ArrayList<>(batchSize);
+      while (!stopped.get() && keys.hasNext()) {
+        batch.add(keys.next());
+        if (batch.size() == batchSize) {
+          offer(batch);
+          batch = new ArrayList<>(batchSize);
+          if (isCancelled()) {
+            return;
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        offer(batch);
+      }
+    } catch (RuntimeException exp) {
+      fail(exp);
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Puts the given batch on the queue, waiting for room unless the pipeline is stopped.
+   * 
+   * @param batch
+   *          the batch
+   */
+  private void offer(List<Key> batch) {
+    Key[] keys = batch.toArray(new Key[batch.size()]);
+    try {
+      while (!stopped.get()) {
+        if (queue.offer(keys, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      stopped.set(true);
+    }
+  }
+
+  /**
+   * Takes batches from the queue and deletes them, until the scanners are done and the queue is
+   * empty, or the pipeline is stopped.
+   * 
+   * @param latch
+   *          the latch to count down when done
+   */
+  private void delete(CountDownLatch latch) {
+    try {
+      while (!isCancelled()) {
+        Key[] keys = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (keys == null) {
+          if (scanned && queue.isEmpty()) {
+            return;
+          }
+          continue;
+        }
+        deleter.accept(keys);
+        long count = deleteCount.addAndGet(keys.length);
+        if (monitor != null) {
+          monitor.onProgress(kind, count);
+        }
+      }
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      stopped.set(true);
+    } catch (RuntimeException exp) {
+      fail(exp);
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Tells whether or not the pipeline is stopped, asking the monitor, if any, whether it was
+   * cancelled.
+   * 
+   * @return <code>true</code>, if the pipeline is stopped; <code>false</code>, otherwise.
+   */
+  private boolean isCancelled() {
+    if (!stopped.get() && monitor != null && monitor.isCancelled()) {
+      stopped.set(true);
+    }
+    return stopped.get();
+  }
+
+  /**
+   * Records the given failure and stops the pipeline.
+   * 
+   * @param exp
+   *          the failure
+   */
+  private synchronized void fail(RuntimeException exp) {
+    if (failure == null) {
+      failure = exp;
+    } else {
+      failure.addSuppressed(exp);
+    }
+    stopped.set(true);
+  }
+
+  /**
+   * Waits for the given latch. If the calling thread is interrupted, the pipeline is stopped, and
+   * the wait continues until the scanners and delete workers notice.
+   * 
+   * @param latch
+   *          the latch
+   * @return whether or not the calling thread was interrupted
+   */
+  private boolean await(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        return interrupted;
+      } catch (InterruptedException exp) {
+        interrupted = true;
+        stopped.set(true);
+      }
+    }
+  }
+
+}
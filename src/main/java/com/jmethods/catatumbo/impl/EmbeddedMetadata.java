@@ -17,6 +17,8 @@
 package com.jmethods.catatumbo.impl;
 
 import java.lang.invoke.MethodHandle;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Objects of this class hold the metadata of an embedded field.
@@ -41,6 +43,16 @@ public class EmbeddedMetadata extends MetadataBase {
    */
   private final MethodHandle writeMethod;
 
+  /**
+   * Generated accessor for reading this embedded field
+   */
+  private final Function<Object, Object> reader;
+
+  /**
+   * Generated accessor for updating this embedded field
+   */
+  private final BiConsumer<Object, Object> writer;
+
   /**
    * Storage strategy to use for the embedded field
    */
@@ -74,6 +86,8 @@ public class EmbeddedMetadata extends MetadataBase {
     this.storageStrategy = StorageStrategy.EXPLODED;
     this.readMethod = IntrospectionUtils.findReadMethodHandle(field.getField());
     this.writeMethod = IntrospectionUtils.findWriteMethodHandle(field.getField());
+    this.reader = IntrospectionUtils.createReader(readMethod);
+    this.writer = IntrospectionUtils.createWriter(writeMethod);
   }
 
   /**
@@ -122,6 +136,24 @@ public class EmbeddedMetadata extends MetadataBase {
     return writeMethod;
   }
 
+  /**
+   * Returns the reader of the embedded field to which this metadata belongs.
+   * 
+   * @return the reader of the embedded field to which this metadata belongs.
+   */
+  public Function<Object, Object> getReader() {
+    return reader;
+  }
+
+  /**
+   * Returns the writer of the embedded field to which this metadata belongs.
+   * 
+   * @return the writer of the embedded field to which this metadata belongs.
+   */
+  public BiConsumer<Object, Object> getWriter() {
+    return writer;
+  }
+
   /**
    * Returns the property name to which this embedded field is mapped. Only used when the storage
    * strategy is {@link StorageStrategy#IMPLODED}.
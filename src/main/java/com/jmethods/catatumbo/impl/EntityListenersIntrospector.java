@@ -17,6 +17,9 @@
 package com.jmethods.catatumbo.impl;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -160,8 +163,9 @@ public class EntityListenersIntrospector {
    *          the callback type
    */
   private void validateExternalCallback(Method method, CallbackType callbackType) {
-    Class<?>[] parameters = method.getParameterTypes();
-    if (!parameters[0].isAssignableFrom(entityClass)) {
+    Class<?> parameterType = callbackType.isBatch() ? getListElementType(method)
+        : method.getParameterTypes()[0];
+    if (!parameterType.isAssignableFrom(entityClass)) {
       String message = String.format("Method %s in class %s is not valid for entity %s",
           method.getName(), method.getDeclaringClass().getName(), entityClass.getName());
       throw new EntityManagerException(message);
@@ -171,6 +175,26 @@ public class EntityListenersIntrospector {
     metadata.put(callbackType, callbackMetadata);
   }
 
+  /**
+   * Returns the element type of the list parameter of the given batch callback method. If the
+   * element type cannot be determined, <code>Object</code> is returned.
+   * 
+   * @param method
+   *          the batch callback method
+   * @return the element type of the list parameter
+   */
+  private static Class<?> getListElementType(Method method) {
+    Type parameterType = method.getGenericParameterTypes()[0];
+    if (!(parameterType instanceof ParameterizedType)) {
+      return Object.class;
+    }
+    Type elementType = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+    if (elementType instanceof WildcardType) {
+      elementType = ((WildcardType) elementType).getUpperBounds()[0];
+    }
+    return elementType instanceof Class ? (Class<?>) elementType : Object.class;
+  }
+
   /**
    * Introspects the entity class hierarchy for any internal callback methods and updates the
    * metadata.
@@ -103,6 +103,11 @@ public class EntityMetadata extends MetadataBase {
    */
   private EntityListenersMetadata entityListenersMetadata;
 
+  /**
+   * Precompiled plan for unmarshalling native entities of this kind
+   */
+  private UnmarshalPlan unmarshalPlan;
+
   /**
    * Creates a new instance of <code>EntityMetadata</code>.
    *
@@ -378,6 +383,21 @@ public class EntityMetadata extends MetadataBase {
     this.entityListenersMetadata = entityListenersMetadata;
   }
 
+  /**
+   * Returns the plan for unmarshalling native entities into objects of this entity class. The plan
+   * is built on first use, once all property and embedded metadata is in place.
+   * 
+   * @return the plan for unmarshalling native entities.
+   */
+  UnmarshalPlan getUnmarshalPlan() {
+    UnmarshalPlan plan = unmarshalPlan;
+    if (plan == null) {
+      plan = UnmarshalPlan.create(this);
+      unmarshalPlan = plan;
+    }
+    return plan;
+  }
+
   /**
    * Cleans up this metadata by clearing unnecessary data.
    */
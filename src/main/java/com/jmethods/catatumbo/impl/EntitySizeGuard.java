@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.jmethods.catatumbo.EntitySizeGuardOptions;
+import com.jmethods.catatumbo.EntityTooLargeException;
+
+/**
+ * Checks the estimated size of marshalled entities against the threshold of the entity size guard
+ * options. The options are copied when the guard is created, so later changes to them have no
+ * effect.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class EntitySizeGuard {
+
+  /**
+   * Logger for entities above the threshold
+   */
+  private static final Logger LOGGER = Logger
+      .getLogger(EntitySizeGuardOptions.DEFAULT_LOGGER_NAME);
+
+  /**
+   * Threshold, in bytes
+   */
+  private final long thresholdBytes;
+
+  /**
+   * Whether or not entities above the threshold fail
+   */
+  private final boolean failOnExceed;
+
+  /**
+   * Creates a new instance of <code>EntitySizeGuard</code>.
+   * 
+   * @param options
+   *          the options
+   */
+  EntitySizeGuard(EntitySizeGuardOptions options) {
+    this.thresholdBytes = options.getThresholdBytes();
+    this.failOnExceed = options.isFailOnExceed();
+  }
+
+  /**
+   * Checks the estimated size of the given native entity. If the size exceeds the threshold, a
+   * warning is logged, or an exception is thrown, as configured.
+   * 
+   * @param nativeEntity
+   *          the native entity
+   * @param entityClass
+   *          the class of the entity that was marshalled
+   * @throws EntityTooLargeException
+   *           if the size exceeds the threshold and the guard is configured to fail
+   */
+  void check(BaseEntity<?> nativeEntity, Class<?> entityClass) {
+    long entityBytes = PayloadSizeEstimator.estimate(nativeEntity);
+    if (entityBytes <= thresholdBytes) {
+      return;
+    }
+    String message = String.format(
+        "Estimated size of %s entity with key %s is %d bytes, which exceeds the threshold of %d "
+            + "bytes",
+        entityClass.getName(), nativeEntity.getKey(), entityBytes, thresholdBytes);
+    if (failOnExceed) {
+      throw new EntityTooLargeException(message, entityBytes, thresholdBytes);
+    }
+    LOGGER.log(Level.WARNING, message);
+  }
+
+}
@@ -18,6 +18,7 @@ package com.jmethods.catatumbo.impl;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.List;
 
 import com.jmethods.catatumbo.EntityListener;
 import com.jmethods.catatumbo.EntityManagerException;
@@ -137,6 +138,13 @@ public class ExternalListenerIntrospector {
           method.getDeclaringClass().getName(), callbackType);
       throw new EntityManagerException(message);
     }
+    if (callbackType.isBatch() && !parameters[0].isAssignableFrom(List.class)) {
+      String pattern = "Method %s in class %s is not a valid %s callback method. Method must have "
+          + "one parameter of type %s. ";
+      String message = String.format(pattern, method.getName(),
+          method.getDeclaringClass().getName(), callbackType, List.class.getName());
+      throw new EntityManagerException(message);
+    }
     if (method.getReturnType() != void.class) {
       String message = String.format("Method %s in class %s must have a return type of %s",
           method.getName(), method.getDeclaringClass().getName(), void.class.getName());
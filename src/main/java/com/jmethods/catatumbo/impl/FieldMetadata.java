@@ -18,6 +18,8 @@ package com.jmethods.catatumbo.impl;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Base class for holding the metadata about an entity's or embedded object's field (e.g.
@@ -42,6 +44,16 @@ public abstract class FieldMetadata {
    */
   protected final MethodHandle writeMethod;
 
+  /**
+   * Generated accessor for reading this field, backed by the read method
+   */
+  protected final Function<Object, Object> reader;
+
+  /**
+   * Generated accessor for updating this field, backed by the write method
+   */
+  protected final BiConsumer<Object, Object> writer;
+
   /**
    * Creates a new instance of <code>FieldMetadata</code>.
    * 
@@ -53,6 +65,8 @@ public abstract class FieldMetadata {
     this.field = field;
     this.readMethod = IntrospectionUtils.findReadMethodHandle(this.field);
     this.writeMethod = IntrospectionUtils.findWriteMethodHandle(this.field);
+    this.reader = IntrospectionUtils.createReader(readMethod);
+    this.writer = IntrospectionUtils.createWriter(writeMethod);
   }
 
   /**
@@ -91,6 +105,26 @@ public abstract class FieldMetadata {
     return writeMethod;
   }
 
+  /**
+   * Returns the reader for this field. The reader is functionally equivalent to the read method,
+   * but avoids the overhead of invoking a non-constant method handle.
+   *
+   * @return the reader for this field.
+   */
+  public Function<Object, Object> getReader() {
+    return reader;
+  }
+
+  /**
+   * Returns the writer for this field. The writer is functionally equivalent to the write method,
+   * but avoids the overhead of invoking a non-constant method handle.
+   *
+   * @return the writer for this field.
+   */
+  public BiConsumer<Object, Object> getWriter() {
+    return writer;
+  }
+
   /**
    * Returns the declared type of the field to which this metadata belongs.
    * 
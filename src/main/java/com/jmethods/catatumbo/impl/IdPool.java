@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.IdPoolOptions;
+
+/**
+ * Pool of numeric IDs allocated in advance, separately for each incomplete key (project, namespace
+ * and kind). When the number of IDs left for a key drops to the low watermark, a new block is
+ * allocated in the background. If the pool runs out, a block is allocated by one of the callers,
+ * while the others wait for it.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class IdPool {
+
+  /**
+   * Function that allocates IDs for the given incomplete keys
+   */
+  private final Function<IncompleteKey[], List<Key>> allocator;
+
+  /**
+   * Number of IDs allocated at a time
+   */
+  private final int blockSize;
+
+  /**
+   * Number of IDs left that triggers the allocation of a new block
+   */
+  private final int lowWatermark;
+
+  /**
+   * IDs left, by incomplete key
+   */
+  private final Map<IncompleteKey, Block> blocks = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new instance of <code>IdPool</code>.
+   * 
+   * @param datastore
+   *          the Datastore to allocate IDs from
+   * @param options
+   *          the options of the pool
+   */
+  IdPool(Datastore datastore, IdPoolOptions options) {
+    this(datastore::allocateId, options.getBlockSize(), options.getLowWatermark());
+  }
+
+  /**
+   * Creates a new instance of <code>IdPool</code>.
+   * 
+   * @param allocator
+   *          function that allocates IDs for the given incomplete keys
+   * @param blockSize
+   *          number of IDs allocated at a time
+   * @param lowWatermark
+   *          number of IDs left that triggers the allocation of a new block
+   */
+  IdPool(Function<IncompleteKey[], List<Key>> allocator, int blockSize, int lowWatermark) {
+    if (lowWatermark >= blockSize) {
+      throw new IllegalArgumentException("lowWatermark must be less than blockSize");
+    }
+    this.allocator = allocator;
+    this.blockSize = blockSize;
+    this.lowWatermark = lowWatermark;
+  }
+
+  /**
+   * Returns a complete key with an allocated ID for the given incomplete key.
+   * 
+   * @param incompleteKey
+   *          the incomplete key, which must not have a parent
+   * @return the complete key
+   */
+  Key next(IncompleteKey incompleteKey) {
+    return blocks.computeIfAbsent(incompleteKey, Block::new).next();
+  }
+
+  /**
+   * IDs allocated for a single incomplete key.
+   */
+  private class Block {
+
+    /**
+     * The incomplete key
+     */
+    private final IncompleteKey incompleteKey;
+
+    /**
+     * Allocated keys that are not used yet
+     */
+    private final Deque<Key> keys = new ArrayDeque<>();
+
+    /**
+     * Allocation in progress or queued, in the background or by a caller, or <code>null</code>
+     */
+    private Allocation allocation;
+
+    /**
+     * Creates a new instance of <code>Block</code>.
+     * 
+     * @param incompleteKey
+     *          the incomplete key
+     */
+    Block(IncompleteKey incompleteKey) {
+      this.incompleteKey = incompleteKey;
+    }
+
+    /**
+     * Returns the next key, allocating a new block if there are no keys left. Only one allocation
+     * is in progress at a time. A caller that finds the pool empty runs a background refill
+     * itself, if the refill has not started yet, and otherwise waits for the allocation in
+     * progress. Callers never wait for a refill that is still queued, because it may be queued
+     * behind them on the chunk executor.
+     * 
+     * @return the next key
+     */
+    Key next() {
+      for (;;) {
+        Key key;
+        Allocation pendingAllocation;
+        boolean refill = false;
+        synchronized (this) {
+          key = keys.poll();
+          if ((key == null || keys.size() <= lowWatermark) && allocation == null) {
+            allocation = new Allocation();
+            refill = key != null;
+          }
+          pendingAllocation = allocation;
+        }
+        if (key != null) {
+          if (refill) {
+            ConcurrencyUtils.getChunkExecutor().execute(() -> refill(pendingAllocation));
+          }
+          return key;
+        }
+        if (pendingAllocation.claim()) {
+          return allocateNow(pendingAllocation);
+        }
+        ConcurrencyUtils.join(pendingAllocation.done);
+      }
+    }
+
+    /**
+     * Runs the given allocation in the caller's thread, and returns the first key of the new block.
+     * A failure is shared with the callers waiting for this allocation.
+     * 
+     * @param claimedAllocation
+     *          the allocation, which must be claimed by the caller
+     * @return the first key of the new block
+     */
+    private Key allocateNow(Allocation claimedAllocation) {
+      List<Key> allocatedKeys;
+      try {
+        allocatedKeys = allocate();
+      } catch (Throwable exp) {
+        finish(claimedAllocation, exp);
+        throw exp;
+      }
+      synchronized (this) {
+        keys.addAll(allocatedKeys.subList(1, allocatedKeys.size()));
+      }
+      finish(claimedAllocation, null);
+      return allocatedKeys.get(0);
+    }
+
+    /**
+     * Runs the given allocation in the background, unless a caller that found the pool empty has
+     * claimed it already. Failures are ignored, as the next caller to find the pool empty
+     * allocates a block itself.
+     * 
+     * @param queuedAllocation
+     *          the allocation
+     */
+    private void refill(Allocation queuedAllocation) {
+      if (!queuedAllocation.claim()) {
+        return;
+      }
+      try {
+        List<Key> allocatedKeys = allocate();
+        synchronized (this) {
+          keys.addAll(allocatedKeys);
+        }
+      } catch (RuntimeException exp) {
+        // Retried by the next caller that finds the pool empty
+      } finally {
+        finish(queuedAllocation, null);
+      }
+    }
+
+    /**
+     * Ends the given allocation, and releases the callers waiting for it.
+     * 
+     * @param completedAllocation
+     *          the allocation
+     * @param failure
+     *          the failure of the allocation, or <code>null</code>, if the waiting callers should
+     *          take their keys from the pool
+     */
+    private void finish(Allocation completedAllocation, Throwable failure) {
+      synchronized (this) {
+        if (allocation == completedAllocation) {
+          allocation = null;
+        }
+      }
+      if (failure == null) {
+        completedAllocation.done.complete(null);
+      } else {
+        completedAllocation.done.completeExceptionally(failure);
+      }
+    }
+
+    /**
+     * Allocates a block of IDs.
+     * 
+     * @return the allocated keys
+     */
+    private List<Key> allocate() {
+      IncompleteKey[] incompleteKeys = new IncompleteKey[blockSize];
+      Arrays.fill(incompleteKeys, incompleteKey);
+      return allocator.apply(incompleteKeys);
+    }
+  }
+
+  /**
+   * A single allocation of a block, which is run by whoever claims it first: the background refill
+   * or a caller that finds the pool empty.
+   */
+  private static class Allocation {
+
+    /**
+     * Whether or not the allocation was claimed
+     */
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    /**
+     * Completed when the allocation ends
+     */
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    /**
+     * Claims this allocation.
+     * 
+     * @return <code>true</code>, if the caller claimed this allocation and must run it;
+     *         <code>false</code>, if it was claimed already.
+     */
+    boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+
+/**
+ * First-level cache of a transaction or session, which maps the key of each entity that was loaded
+ * to the entity object. Loading the same key again returns the same object, without accessing the
+ * Datastore. Keys that did not exist are remembered as well. If changes are tracked, the native
+ * entity of each loaded entity is kept as well, so that writing back an unchanged entity can be
+ * skipped.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class IdentityMap {
+
+  /**
+   * Placeholder for entities that do not exist
+   */
+  private static final Object NOT_FOUND = new Object();
+
+  /**
+   * Loaded entities, by entity class and key
+   */
+  private final Map<Class<?>, Map<Key, Object>> entities = new ConcurrentHashMap<>();
+
+  /**
+   * Native entities as they were loaded, by key, or <code>null</code>, if changes are not tracked
+   */
+  private final Map<Key, Entity> snapshots;
+
+  /**
+   * Creates a new instance of <code>IdentityMap</code> that does not track changes.
+   */
+  IdentityMap() {
+    this(false);
+  }
+
+  /**
+   * Creates a new instance of <code>IdentityMap</code>.
+   * 
+   * @param trackChanges
+   *          whether or not to keep the native entities of loaded entities, for detecting changes
+   */
+  IdentityMap(boolean trackChanges) {
+    snapshots = trackChanges ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * Tells whether or not this map contains the entity with the given class and key.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param nativeKey
+   *          the key
+   * @return <code>true</code>, if this map contains the entity, or knows that it does not exist;
+   *         <code>false</code>, otherwise.
+   */
+  boolean contains(Class<?> entityClass, Key nativeKey) {
+    Map<Key, Object> classEntities = entities.get(entityClass);
+    return classEntities != null && classEntities.containsKey(nativeKey);
+  }
+
+  /**
+   * Returns the entity with the given class and key.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param nativeKey
+   *          the key
+   * @return the entity, or <code>null</code>, if the entity does not exist or is not in this map.
+   */
+  <E> E get(Class<E> entityClass, Key nativeKey) {
+    Map<Key, Object> classEntities = entities.get(entityClass);
+    if (classEntities == null) {
+      return null;
+    }
+    Object entity = classEntities.get(nativeKey);
+    return entity == NOT_FOUND ? null : entityClass.cast(entity);
+  }
+
+  /**
+   * Adds the given entity to this map.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param nativeKey
+   *          the key
+   * @param entity
+   *          the entity, or <code>null</code>, if the entity does not exist
+   */
+  void put(Class<?> entityClass, Key nativeKey, Object entity) {
+    entities.computeIfAbsent(entityClass, k -> new ConcurrentHashMap<>()).put(nativeKey,
+        entity == null ? NOT_FOUND : entity);
+  }
+
+  /**
+   * Removes the entities with the given keys, of any class, from this map.
+   * 
+   * @param nativeKeys
+   *          the keys
+   */
+  void remove(Iterable<Key> nativeKeys) {
+    for (Map<Key, Object> classEntities : entities.values()) {
+      for (Key nativeKey : nativeKeys) {
+        classEntities.remove(nativeKey);
+      }
+    }
+    if (snapshots != null) {
+      for (Key nativeKey : nativeKeys) {
+        snapshots.remove(nativeKey);
+      }
+    }
+  }
+
+  /**
+   * Tells whether or not this map tracks changes to the loaded entities.
+   * 
+   * @return <code>true</code>, if this map tracks changes; <code>false</code>, otherwise.
+   */
+  boolean isTrackingChanges() {
+    return snapshots != null;
+  }
+
+  /**
+   * Keeps the given native entity, as it was loaded, if this map tracks changes.
+   * 
+   * @param nativeEntity
+   *          the loaded native entity, may be <code>null</code>
+   */
+  void putSnapshot(Entity nativeEntity) {
+    if (snapshots != null && nativeEntity != null) {
+      snapshots.put(nativeEntity.getKey(), nativeEntity);
+    }
+  }
+
+  /**
+   * Returns the native entity that was loaded for the given entity, if the given native entity,
+   * marshalled from the entity for a write, has the same properties. The version and updated
+   * timestamp properties, which are set by the marshalling process, are not compared.
+   * 
+   * @param entity
+   *          the entity to write
+   * @param nativeEntity
+   *          the native entity marshalled from the entity
+   * @return the loaded native entity, or <code>null</code>, if changes are not tracked, the entity
+   *         was not loaded through this map, or the entity has changed.
+   */
+  Entity getUnchangedSnapshot(Object entity, FullEntity<?> nativeEntity) {
+    if (snapshots == null || !(nativeEntity instanceof Entity)) {
+      return null;
+    }
+    Key nativeKey = ((Entity) nativeEntity).getKey();
+    Entity snapshot = snapshots.get(nativeKey);
+    if (snapshot == null || get(entity.getClass(), nativeKey) != entity) {
+      return null;
+    }
+    EntityMetadata entityMetadata = EntityIntrospector.introspect(entity.getClass());
+    String versionName = getMappedName(entityMetadata.getVersionMetadata());
+    String updatedTimestampName = getMappedName(entityMetadata.getUpdatedTimestampMetadata());
+    for (String name : nativeEntity.getNames()) {
+      if (name.equals(versionName) || name.equals(updatedTimestampName)) {
+        continue;
+      }
+      if (!snapshot.contains(name)
+          || !snapshot.getValue(name).equals(nativeEntity.getValue(name))) {
+        return null;
+      }
+    }
+    for (String name : snapshot.getNames()) {
+      if (!nativeEntity.contains(name) && !name.equals(versionName)
+          && !name.equals(updatedTimestampName)) {
+        return null;
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Removes all entities from this map.
+   */
+  void clear() {
+    entities.clear();
+    if (snapshots != null) {
+      snapshots.clear();
+    }
+  }
+
+  /**
+   * Returns the mapped name of the given property.
+   * 
+   * @param propertyMetadata
+   *          the property metadata, may be <code>null</code>
+   * @return the mapped name, or <code>null</code>, if the property metadata is <code>null</code>
+   */
+  private static String getMappedName(PropertyMetadata propertyMetadata) {
+    return propertyMetadata == null ? null : propertyMetadata.getMappedName();
+  }
+
+}
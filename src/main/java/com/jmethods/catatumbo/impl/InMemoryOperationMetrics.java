@@ -0,0 +1,425 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jmethods.catatumbo.OperationMetrics;
+import com.jmethods.catatumbo.OperationStats;
+import com.jmethods.catatumbo.OperationType;
+
+/**
+ * An {@link OperationMetrics} that keeps the measurements in memory, broken down by kind and
+ * operation type. Recording does not take any locks, so a single instance can be shared by many
+ * threads and entity managers. The measurements are read with {@link #snapshot()} or
+ * {@link #export()}.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class InMemoryOperationMetrics implements OperationMetrics {
+
+  /**
+   * Percentiles included in the exported measurements
+   */
+  private static final double[] EXPORTED_PERCENTILES = { 50, 90, 99 };
+
+  /**
+   * Recorders, by kind, indexed by the ordinal of the operation type
+   */
+  private volatile ConcurrentHashMap<String, AtomicReferenceArray<Recorder>> recorders =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public void record(OperationType operationType, String kind, int entityCount,
+      long payloadBytes, long elapsedNanos, boolean failed) {
+    getRecorder(operationType, kind == null ? "" : kind).record(entityCount, payloadBytes,
+        elapsedNanos, failed);
+  }
+
+  @Override
+  public void recordEntitySize(OperationType operationType, String kind, long entityBytes,
+      long indexBytes) {
+    getRecorder(operationType, kind == null ? "" : kind).recordEntitySize(entityBytes,
+        indexBytes);
+  }
+
+  /**
+   * Returns the statistics of each kind and operation type recorded so far, ordered by kind and
+   * operation type. Operations recorded while the snapshot is taken may be partially included.
+   * 
+   * @return the statistics
+   */
+  public List<OperationStats> snapshot() {
+    List<OperationStats> snapshot = new ArrayList<>();
+    for (Map.Entry<String, AtomicReferenceArray<Recorder>> entry : recorders.entrySet()) {
+      AtomicReferenceArray<Recorder> kindRecorders = entry.getValue();
+      for (OperationType operationType : OperationType.values()) {
+        Recorder recorder = kindRecorders.get(operationType.ordinal());
+        if (recorder != null) {
+          snapshot.add(recorder.snapshot(operationType, entry.getKey()));
+        }
+      }
+    }
+    snapshot.sort(Comparator.comparing(OperationStats::getKind)
+        .thenComparing(OperationStats::getOperationType));
+    return snapshot;
+  }
+
+  /**
+   * Returns the statistics recorded so far as a flat map, suitable for publishing to a monitoring
+   * system. The keys have the form <code>kind.operation.statistic</code>, for example,
+   * <code>Person.insert.p99LatencyNanos</code>. Operations whose kind is not known are exported
+   * with a kind of <code>_</code>.
+   * 
+   * @return the statistics, ordered by kind and operation type
+   */
+  public Map<String, Long> export() {
+    Map<String, Long> export = new LinkedHashMap<>();
+    for (OperationStats stats : snapshot()) {
+      String prefix = (stats.getKind().isEmpty() ? "_" : stats.getKind()) + "."
+          + stats.getOperationType().name().toLowerCase() + ".";
+      export.put(prefix + "count", stats.getCount());
+      export.put(prefix + "errorCount", stats.getErrorCount());
+      export.put(prefix + "entityCount", stats.getEntityCount());
+      export.put(prefix + "payloadBytes", stats.getPayloadBytes());
+      export.put(prefix + "maxEntityBytes", stats.getMaxEntityBytes());
+      export.put(prefix + "indexBytes", stats.getIndexBytes());
+      export.put(prefix + "meanLatencyNanos", stats.getMeanLatencyNanos());
+      export.put(prefix + "maxLatencyNanos", stats.getMaxLatencyNanos());
+      for (double percentile : EXPORTED_PERCENTILES) {
+        export.put(prefix + "p" + (int) percentile + "LatencyNanos",
+            stats.getLatencyPercentileNanos(percentile));
+      }
+    }
+    return export;
+  }
+
+  /**
+   * Discards all statistics recorded so far.
+   */
+  public void reset() {
+    recorders = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the recorder of the given operation type and kind, creating it if needed.
+   * 
+   * @param operationType
+   *          the operation type
+   * @param kind
+   *          the kind
+   * @return the recorder
+   */
+  private Recorder getRecorder(OperationType operationType, String kind) {
+    ConcurrentHashMap<String, AtomicReferenceArray<Recorder>> map = recorders;
+    AtomicReferenceArray<Recorder> kindRecorders = map.get(kind);
+    if (kindRecorders == null) {
+      kindRecorders = map.computeIfAbsent(kind,
+          k -> new AtomicReferenceArray<>(OperationType.values().length));
+    }
+    int index = operationType.ordinal();
+    Recorder recorder = kindRecorders.get(index);
+    if (recorder == null) {
+      kindRecorders.compareAndSet(index, null, new Recorder());
+      recorder = kindRecorders.get(index);
+    }
+    return recorder;
+  }
+
+  /**
+   * Measurements of the operations of one type on one kind.
+   */
+  private static class Recorder {
+
+    /**
+     * Number of operations
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Number of failed operations
+     */
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * Number of entities
+     */
+    private final LongAdder entityCount = new LongAdder();
+
+    /**
+     * Payload size, in bytes
+     */
+    private final LongAdder payloadBytes = new LongAdder();
+
+    /**
+     * Size of the largest entity, in bytes
+     */
+    private final LongAccumulator maxEntityBytes = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Size of the index entries, in bytes
+     */
+    private final LongAdder indexBytes = new LongAdder();
+
+    /**
+     * Total latency, in nanoseconds
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Maximum latency, in nanoseconds
+     */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Latency histogram
+     */
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Records an operation.
+     * 
+     * @param entities
+     *          the number of entities
+     * @param bytes
+     *          the payload size
+     * @param elapsedNanos
+     *          the latency
+     * @param failed
+     *          whether or not the operation failed
+     */
+    void record(int entities, long bytes, long elapsedNanos, boolean failed) {
+      count.increment();
+      if (failed) {
+        errorCount.increment();
+      }
+      entityCount.add(entities);
+      payloadBytes.add(bytes);
+      totalNanos.add(elapsedNanos);
+      maxNanos.accumulate(elapsedNanos);
+      histogram.record(elapsedNanos);
+    }
+
+    /**
+     * Records the size of an entity.
+     * 
+     * @param entityBytes
+     *          the size of the entity
+     * @param entityIndexBytes
+     *          the size of the index entries of the entity
+     */
+    void recordEntitySize(long entityBytes, long entityIndexBytes) {
+      maxEntityBytes.accumulate(entityBytes);
+      indexBytes.add(entityIndexBytes);
+    }
+
+    /**
+     * Returns the statistics recorded so far.
+     * 
+     * @param operationType
+     *          the operation type
+     * @param kind
+     *          the kind
+     * @return the statistics
+     */
+    OperationStats snapshot(OperationType operationType, String kind) {
+      return new DefaultOperationStats(operationType, kind, count.sum(), errorCount.sum(),
+          entityCount.sum(), payloadBytes.sum(), maxEntityBytes.get(), indexBytes.sum(),
+          totalNanos.sum(), maxNanos.get(), histogram.snapshot());
+    }
+  }
+
+  /**
+   * Implementation of {@link OperationStats}.
+   */
+  private static class DefaultOperationStats implements OperationStats {
+
+    /**
+     * Operation type
+     */
+    private final OperationType operationType;
+
+    /**
+     * Kind
+     */
+    private final String kind;
+
+    /**
+     * Number of operations
+     */
+    private final long count;
+
+    /**
+     * Number of failed operations
+     */
+    private final long errorCount;
+
+    /**
+     * Number of entities
+     */
+    private final long entityCount;
+
+    /**
+     * Payload size, in bytes
+     */
+    private final long payloadBytes;
+
+    /**
+     * Size of the largest entity, in bytes
+     */
+    private final long maxEntityBytes;
+
+    /**
+     * Size of the index entries, in bytes
+     */
+    private final long indexBytes;
+
+    /**
+     * Total latency, in nanoseconds
+     */
+    private final long totalNanos;
+
+    /**
+     * Maximum latency, in nanoseconds
+     */
+    private final long maxNanos;
+
+    /**
+     * Latency histogram counts
+     */
+    private final long[] latencyCounts;
+
+    /**
+     * Creates a new instance of <code>DefaultOperationStats</code>.
+     * 
+     * @param operationType
+     *          the operation type
+     * @param kind
+     *          the kind
+     * @param count
+     *          the number of operations
+     * @param errorCount
+     *          the number of failed operations
+     * @param entityCount
+     *          the number of entities
+     * @param payloadBytes
+     *          the payload size
+     * @param maxEntityBytes
+     *          the size of the largest entity
+     * @param indexBytes
+     *          the size of the index entries
+     * @param totalNanos
+     *          the total latency
+     * @param maxNanos
+     *          the maximum latency
+     * @param latencyCounts
+     *          the latency histogram counts
+     */
+    DefaultOperationStats(OperationType operationType, String kind, long count, long errorCount,
+        long entityCount, long payloadBytes, long maxEntityBytes, long indexBytes, long totalNanos,
+        long maxNanos, long[] latencyCounts) {
+      this.operationType = operationType;
+      this.kind = kind;
+      this.count = count;
+      this.errorCount = errorCount;
+      this.entityCount = entityCount;
+      this.payloadBytes = payloadBytes;
+      this.maxEntityBytes = maxEntityBytes;
+      this.indexBytes = indexBytes;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.latencyCounts = latencyCounts;
+    }
+
+    @Override
+    public OperationType getOperationType() {
+      return operationType;
+    }
+
+    @Override
+    public String getKind() {
+      return kind;
+    }
+
+    @Override
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+      return errorCount;
+    }
+
+    @Override
+    public long getEntityCount() {
+      return entityCount;
+    }
+
+    @Override
+    public long getPayloadBytes() {
+      return payloadBytes;
+    }
+
+    @Override
+    public long getMaxEntityBytes() {
+      return maxEntityBytes;
+    }
+
+    @Override
+    public long getIndexBytes() {
+      return indexBytes;
+    }
+
+    @Override
+    public long getTotalLatencyNanos() {
+      return totalNanos;
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+      return maxNanos;
+    }
+
+    @Override
+    public long getMeanLatencyNanos() {
+      return count == 0 ? 0L : totalNanos / count;
+    }
+
+    @Override
+    public long getLatencyPercentileNanos(double percentile) {
+      return Math.min(LatencyHistogram.percentile(latencyCounts, percentile), maxNanos);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %s: count=%d, errors=%d, entities=%d, bytes=%d, mean=%dns, "
+          + "p99=%dns, max=%dns", kind, operationType, count, errorCount, entityCount,
+          payloadBytes, getMeanLatencyNanos(), getLatencyPercentileNanos(99), maxNanos);
+    }
+  }
+
+}
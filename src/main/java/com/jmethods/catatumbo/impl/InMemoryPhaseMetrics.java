@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jmethods.catatumbo.PhaseMetrics;
+import com.jmethods.catatumbo.ProcessingPhase;
+
+/**
+ * A {@link PhaseMetrics} that keeps, for each entity class and phase, the number of times the
+ * phase ran and the total time spent in it. Recording does not take any locks, so a single instance
+ * can be shared by many threads and entity managers.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public class InMemoryPhaseMetrics implements PhaseMetrics {
+
+  /**
+   * Recorders, by entity class
+   */
+  private volatile ConcurrentHashMap<Class<?>, Recorder> recorders = new ConcurrentHashMap<>();
+
+  @Override
+  public void record(Class<?> entityClass, ProcessingPhase phase, long elapsedNanos) {
+    ConcurrentHashMap<Class<?>, Recorder> map = recorders;
+    Recorder recorder = map.get(entityClass);
+    if (recorder == null) {
+      recorder = map.computeIfAbsent(entityClass, k -> new Recorder());
+    }
+    recorder.record(phase, elapsedNanos);
+  }
+
+  /**
+   * Returns the number of times the given phase ran for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param phase
+   *          the phase
+   * @return the number of times the phase ran
+   */
+  public long getCount(Class<?> entityClass, ProcessingPhase phase) {
+    Recorder recorder = recorders.get(entityClass);
+    return recorder == null ? 0L : recorder.counts[phase.ordinal()].sum();
+  }
+
+  /**
+   * Returns the total time spent in the given phase for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param phase
+   *          the phase
+   * @return the total time spent in the phase, in nanoseconds
+   */
+  public long getTotalNanos(Class<?> entityClass, ProcessingPhase phase) {
+    Recorder recorder = recorders.get(entityClass);
+    return recorder == null ? 0L : recorder.totalNanos[phase.ordinal()].sum();
+  }
+
+  /**
+   * Returns the measurements recorded so far as a flat map, suitable for publishing to a
+   * monitoring system. The keys have the form <code>class.phase.statistic</code>, for example,
+   * <code>com.example.Person.marshal_fields.totalNanos</code>. Phases that never ran are left out.
+   * 
+   * @return the measurements, ordered by class name and phase
+   */
+  public Map<String, Long> export() {
+    Map<String, Long> export = new LinkedHashMap<>();
+    recorders.entrySet().stream()
+        .sorted(Comparator.comparing(entry -> entry.getKey().getName()))
+        .forEach(entry -> {
+          for (ProcessingPhase phase : ProcessingPhase.values()) {
+            long count = entry.getValue().counts[phase.ordinal()].sum();
+            if (count > 0) {
+              String prefix = entry.getKey().getName() + "." + phase.name().toLowerCase() + ".";
+              export.put(prefix + "count", count);
+              export.put(prefix + "totalNanos",
+                  entry.getValue().totalNanos[phase.ordinal()].sum());
+            }
+          }
+        });
+    return export;
+  }
+
+  /**
+   * Discards all measurements recorded so far.
+   */
+  public void reset() {
+    recorders = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Measurements of the phases of one entity class.
+   */
+  private static class Recorder {
+
+    /**
+     * Number of times each phase ran, indexed by the ordinal of the phase
+     */
+    private final LongAdder[] counts = newAdders();
+
+    /**
+     * Total time spent in each phase, in nanoseconds, indexed by the ordinal of the phase
+     */
+    private final LongAdder[] totalNanos = newAdders();
+
+    /**
+     * Records the time spent in a phase.
+     * 
+     * @param phase
+     *          the phase
+     * @param elapsedNanos
+     *          the time spent in the phase
+     */
+    void record(ProcessingPhase phase, long elapsedNanos) {
+      counts[phase.ordinal()].increment();
+      totalNanos[phase.ordinal()].add(elapsedNanos);
+    }
+
+    /**
+     * Creates an adder for each phase.
+     * 
+     * @return the adders
+     */
+    private static LongAdder[] newAdders() {
+      LongAdder[] adders = new LongAdder[ProcessingPhase.values().length];
+      for (int i = 0; i < adders.length; i++) {
+        adders[i] = new LongAdder();
+      }
+      return adders;
+    }
+  }
+
+}
@@ -111,6 +111,13 @@ public class InternalListenerIntrospector {
    *          the callback type
    */
   private void validateMethod(Method method, CallbackType callbackType) {
+    if (callbackType.isBatch()) {
+      String pattern = "Method %s in class %s is not a valid %s callback method. Batch callbacks "
+          + "are only supported in entity listener classes. ";
+      String message = String.format(pattern, method.getName(),
+          method.getDeclaringClass().getName(), callbackType);
+      throw new EntityManagerException(message);
+    }
     int modifiers = method.getModifiers();
     if (!Modifier.isPublic(modifiers)) {
       String message = String.format("Method %s in class %s must be public", method.getName(),
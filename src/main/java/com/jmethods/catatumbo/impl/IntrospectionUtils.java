@@ -16,8 +16,12 @@
 
 package com.jmethods.catatumbo.impl;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleInfo;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -26,6 +30,8 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.Ignore;
@@ -47,6 +53,12 @@ public class IntrospectionUtils {
    */
   private static final String[] WRITE_METHOD_PREFIXES = { "set", "with", null };
 
+  /**
+   * Lookup used for spinning the accessor classes. LambdaMetafactory requires a lookup with private
+   * access, so this must not be the public lookup.
+   */
+  private static final MethodHandles.Lookup ACCESSOR_LOOKUP = MethodHandles.lookup();
+
   /**
    * Hide the default constructor.
    */
@@ -374,14 +386,132 @@ public class IntrospectionUtils {
    * @return the value of the field.
    */
   public static Object getFieldValue(FieldMetadata fieldMetadata, Object target) {
-    MethodHandle readMethod = fieldMetadata.getReadMethod();
     try {
-      return readMethod.invoke(target);
+      return fieldMetadata.getReader().apply(target);
     } catch (Throwable t) {
       throw new EntityManagerException(t.getMessage(), t);
     }
   }
 
+  /**
+   * Creates and returns a reader function for the given read method (getter). Where possible, the
+   * returned function is a class generated using {@link LambdaMetafactory}, which invokes the
+   * getter directly and can be inlined by the JIT compiler. If a class cannot be generated (for
+   * example, the declaring class is not visible to the class loader that loaded Catatumbo), the
+   * returned function simply delegates to the given method handle.
+   * 
+   * @param readMethod
+   *          the read method
+   * @return a function that reads the value from a given target object.
+   */
+  @SuppressWarnings("unchecked")
+  public static Function<Object, Object> createReader(MethodHandle readMethod) {
+    Function<Object, Object> reader = generateAccessor(Function.class, "apply",
+        MethodType.methodType(Object.class, Object.class), readMethod, readMethod.type().wrap());
+    if (reader != null) {
+      return reader;
+    }
+    return target -> {
+      try {
+        return readMethod.invoke(target);
+      } catch (RuntimeException exp) {
+        throw exp;
+      } catch (Throwable t) {
+        throw new EntityManagerException(t.getMessage(), t);
+      }
+    };
+  }
+
+  /**
+   * Creates and returns a writer for the given write method (setter). Where possible, the returned
+   * consumer is a class generated using {@link LambdaMetafactory}, which invokes the setter
+   * directly. The return value of the setter, if any (e.g. Builder methods that return the
+   * Builder), is discarded. If a class cannot be generated, the returned consumer simply delegates
+   * to the given method handle.
+   * 
+   * @param writeMethod
+   *          the write method
+   * @return a consumer that accepts the target object and the value to set.
+   */
+  @SuppressWarnings("unchecked")
+  public static BiConsumer<Object, Object> createWriter(MethodHandle writeMethod) {
+    BiConsumer<Object, Object> writer = generateAccessor(BiConsumer.class, "accept",
+        MethodType.methodType(void.class, Object.class, Object.class), writeMethod,
+        writeMethod.type().wrap().changeReturnType(void.class));
+    if (writer != null) {
+      return writer;
+    }
+    return (target, value) -> {
+      try {
+        writeMethod.invoke(target, value);
+      } catch (RuntimeException exp) {
+        throw exp;
+      } catch (Throwable t) {
+        throw new EntityManagerException(t.getMessage(), t);
+      }
+    };
+  }
+
+  /**
+   * Generates a class that implements the given functional interface by directly invoking the
+   * given method handle, and returns an instance of it.
+   * 
+   * @param <T>
+   *          the type of the functional interface
+   * @param functionalInterface
+   *          the functional interface to implement
+   * @param methodName
+   *          name of the single abstract method of the functional interface
+   * @param methodType
+   *          signature of the single abstract method of the functional interface
+   * @param implementation
+   *          the method handle to invoke
+   * @param instantiatedType
+   *          the signature of the abstract method after substituting the actual types of the
+   *          implementation (see {@link LambdaMetafactory})
+   * @return an instance of the given functional interface. Returns <code>null</code>, if a class
+   *         could not be generated.
+   */
+  static <T> T generateAccessor(Class<T> functionalInterface, String methodName,
+      MethodType methodType, MethodHandle implementation, MethodType instantiatedType) {
+    if (!isAccessorGenerationSupported(implementation)) {
+      return null;
+    }
+    try {
+      CallSite callSite = LambdaMetafactory.metafactory(ACCESSOR_LOOKUP, methodName,
+          MethodType.methodType(functionalInterface), methodType, implementation,
+          instantiatedType);
+      return functionalInterface.cast(callSite.getTarget().invoke());
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /**
+   * Tells whether or not an accessor class can be generated for the given method handle. The
+   * generated class is defined in the class loader of Catatumbo, so the class declaring the method
+   * must be public and visible from that class loader.
+   * 
+   * @param methodHandle
+   *          the method handle
+   * @return <code>true</code>, if an accessor class can be generated; <code>false</code>,
+   *         otherwise.
+   */
+  private static boolean isAccessorGenerationSupported(MethodHandle methodHandle) {
+    try {
+      MethodHandleInfo info = ACCESSOR_LOOKUP.revealDirect(methodHandle);
+      Class<?> declaringClass = info.getDeclaringClass();
+      if (!Modifier.isPublic(declaringClass.getModifiers())) {
+        return false;
+      }
+      ClassLoader classLoader = IntrospectionUtils.class.getClassLoader();
+      return Class.forName(declaringClass.getName(), false, classLoader) == declaringClass;
+    } catch (IllegalArgumentException | ClassNotFoundException | SecurityException
+        | LinkageError exp) {
+      return false;
+    }
+  }
+
   /**
    * Finds and returns a MethodHandle for the default constructor of the given class, {@code clazz}.
    * 
@@ -16,12 +16,21 @@
 
 package com.jmethods.catatumbo.impl;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 /**
- * A simple LRU (Least Recently Used) cache that limits the maximum size of cache to the specified
- * capacity. When new entries are placed in the cache, the oldest accessed entry is removed.
+ * A bounded LRU (Least Recently Used) cache that limits the maximum size of cache to the specified
+ * capacity. When new entries are placed in the cache, the least recently accessed entry is removed.
+ * Optionally, entries expire after a fixed amount of time since they were added.
+ * 
+ * <p>
+ * Lookups do not block each other. Entries are held in a concurrent map, and the access order is
+ * kept in a linked list that is guarded by a lock. A lookup only moves the entry to the end of the
+ * list if the lock is available, so under contention the eviction order is approximate.
+ * </p>
  *
  * @author Sai Pullabhotla
  * @param <K>
@@ -34,12 +43,32 @@ public class LRUCache<K, V> {
   /**
    * Cache store
    */
-  private LinkedHashMap<K, V> map;
+  private final ConcurrentHashMap<K, Node<K, V>> map;
+
+  /**
+   * Guards the access order list
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Sentinel of the access order list. The entry after the head is the least recently used.
+   */
+  private final Node<K, V> head = new Node<>(null, null, 0L);
+
+  /**
+   * Time to live of the entries, in nanoseconds, or 0 if the entries never expire
+   */
+  private final long ttlNanos;
+
+  /**
+   * Source of the current time, in nanoseconds
+   */
+  private final LongSupplier ticker;
 
   /**
    * Maximum capacity
    */
-  private int maxCapacity;
+  private volatile int maxCapacity;
 
   /**
    * Creates a new instance of <code>LRUCache</code>.
@@ -50,19 +79,47 @@ public class LRUCache<K, V> {
    *          maximum capacity
    */
   public LRUCache(final int initialCapacity, int maxCapacity) {
-    setMaxCapacity(maxCapacity);
-    map = new LinkedHashMap<K, V>(initialCapacity, 0.75f, true) {
-      /**
-       * Serial version UID
-       */
-      private static final long serialVersionUID = 7959078771128286844L;
-
-      @Override
-      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-        return size() > LRUCache.this.maxCapacity;
-      }
-    };
+    this(initialCapacity, maxCapacity, 0L, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates a new instance of <code>LRUCache</code>.
+   *
+   * @param initialCapacity
+   *          initial capacity
+   * @param maxCapacity
+   *          maximum capacity
+   * @param ttl
+   *          time to live of the entries. A value of zero or less means the entries never expire.
+   * @param unit
+   *          the unit of <code>ttl</code>
+   */
+  public LRUCache(final int initialCapacity, int maxCapacity, long ttl, TimeUnit unit) {
+    this(initialCapacity, maxCapacity, ttl, unit, System::nanoTime);
+  }
 
+  /**
+   * Creates a new instance of <code>LRUCache</code>.
+   *
+   * @param initialCapacity
+   *          initial capacity
+   * @param maxCapacity
+   *          maximum capacity
+   * @param ttl
+   *          time to live of the entries. A value of zero or less means the entries never expire.
+   * @param unit
+   *          the unit of <code>ttl</code>
+   * @param ticker
+   *          source of the current time, in nanoseconds
+   */
+  LRUCache(final int initialCapacity, int maxCapacity, long ttl, TimeUnit unit,
+      LongSupplier ticker) {
+    setMaxCapacity(maxCapacity);
+    this.map = new ConcurrentHashMap<>(initialCapacity);
+    this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0L;
+    this.ticker = ticker;
+    head.previous = head;
+    head.next = head;
   }
 
   /**
@@ -92,10 +149,29 @@ public class LRUCache<K, V> {
    *
    * @param key
    *          the key
-   * @return the cached object associated the given key.
+   * @return the cached object associated the given key, or <code>null</code>, if the key does not
+   *         exist or has expired.
    */
-  public synchronized V get(K key) {
-    return map.get(key);
+  public V get(K key) {
+    Node<K, V> node = map.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (isExpired(node)) {
+      removeNode(node);
+      return null;
+    }
+    if (lock.tryLock()) {
+      try {
+        if (node.isLinked()) {
+          node.unlink();
+          node.linkBefore(head);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return node.value;
   }
 
   /**
@@ -107,8 +183,60 @@ public class LRUCache<K, V> {
    *          the value
    * @return old value associated with the given key, if any.
    */
-  public synchronized V put(K key, V value) {
-    return map.put(key, value);
+  public V put(K key, V value) {
+    Node<K, V> node = new Node<>(key, value, ttlNanos > 0 ? ticker.getAsLong() : 0L);
+    lock.lock();
+    try {
+      Node<K, V> oldNode = map.put(key, node);
+      if (oldNode != null) {
+        oldNode.unlink();
+      }
+      node.linkBefore(head);
+      while (map.size() > maxCapacity) {
+        Node<K, V> eldest = head.next;
+        eldest.unlink();
+        map.remove(eldest.key, eldest);
+      }
+      return oldNode == null || isExpired(oldNode) ? null : oldNode.value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the given key from this cache.
+   * 
+   * @param key
+   *          the key
+   * @return the value that was associated with the given key, if any.
+   */
+  public V remove(K key) {
+    lock.lock();
+    try {
+      Node<K, V> node = map.remove(key);
+      if (node == null) {
+        return null;
+      }
+      node.unlink();
+      return isExpired(node) ? null : node.value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all entries from this cache.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      map.clear();
+      while (head.next != head) {
+        head.next.unlink();
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -116,14 +244,16 @@ public class LRUCache<K, V> {
    *
    * @param key
    *          the key
-   * @return true, if the given key exists in this cache; false, otherwise.
+   * @return true, if the given key exists in this cache and has not expired; false, otherwise.
    */
-  public synchronized boolean containsKey(K key) {
-    return map.containsKey(key);
+  public boolean containsKey(K key) {
+    Node<K, V> node = map.get(key);
+    return node != null && !isExpired(node);
   }
 
   /**
-   * Returns the current size of this cache.
+   * Returns the current size of this cache. The size includes any expired entries that were not
+   * yet removed.
    * 
    * @return the current size of this cache.
    */
@@ -133,6 +263,131 @@ public class LRUCache<K, V> {
 
   @Override
   public String toString() {
-    return map.toString();
+    StringBuilder builder = new StringBuilder("{");
+    lock.lock();
+    try {
+      for (Node<K, V> node = head.next; node != head; node = node.next) {
+        if (builder.length() > 1) {
+          builder.append(", ");
+        }
+        builder.append(node.key).append('=').append(node.value);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return builder.append('}').toString();
+  }
+
+  /**
+   * Tells whether or not the given entry has expired.
+   * 
+   * @param node
+   *          the entry
+   * @return <code>true</code>, if the entry has expired; <code>false</code>, otherwise.
+   */
+  private boolean isExpired(Node<K, V> node) {
+    return ttlNanos > 0 && ticker.getAsLong() - node.createdNanos >= ttlNanos;
+  }
+
+  /**
+   * Removes the given entry, unless it was already replaced.
+   * 
+   * @param node
+   *          the entry
+   */
+  private void removeNode(Node<K, V> node) {
+    lock.lock();
+    try {
+      if (map.remove(node.key, node)) {
+        node.unlink();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * An entry of the cache, and a node of the access order list.
+   *
+   * @param <K>
+   *          Key
+   * @param <V>
+   *          Value
+   */
+  private static class Node<K, V> {
+
+    /**
+     * The key
+     */
+    private final K key;
+
+    /**
+     * The value
+     */
+    private final V value;
+
+    /**
+     * The time at which this entry was created, in nanoseconds
+     */
+    private final long createdNanos;
+
+    /**
+     * The previous node in the access order list
+     */
+    private Node<K, V> previous;
+
+    /**
+     * The next node in the access order list
+     */
+    private Node<K, V> next;
+
+    /**
+     * Creates a new instance of <code>Node</code>.
+     * 
+     * @param key
+     *          the key
+     * @param value
+     *          the value
+     * @param createdNanos
+     *          the time at which this entry was created, in nanoseconds
+     */
+    Node(K key, V value, long createdNanos) {
+      this.key = key;
+      this.value = value;
+      this.createdNanos = createdNanos;
+    }
+
+    /**
+     * Tells whether or not this node is in the access order list.
+     * 
+     * @return <code>true</code>, if this node is in the access order list; <code>false</code>,
+     *         otherwise.
+     */
+    boolean isLinked() {
+      return next != null;
+    }
+
+    /**
+     * Inserts this node before the given node.
+     * 
+     * @param node
+     *          the node
+     */
+    void linkBefore(Node<K, V> node) {
+      previous = node.previous;
+      next = node;
+      previous.next = this;
+      node.previous = this;
+    }
+
+    /**
+     * Removes this node from the access order list.
+     */
+    void unlink() {
+      previous.next = next;
+      next.previous = previous;
+      previous = null;
+      next = null;
+    }
   }
 }
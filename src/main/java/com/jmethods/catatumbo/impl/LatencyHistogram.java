@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, such as latencies in nanoseconds. Values below 8
+ * are counted exactly. Larger values are counted in buckets that split each power of two into 8
+ * equal parts, so that the upper bound of a bucket is within 12.5% of any value in the bucket.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class LatencyHistogram {
+
+  /**
+   * Number of bits used to split each power of two
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /**
+   * Number of buckets in each power of two
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Total number of buckets, enough for any non-negative long
+   */
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /**
+   * Counts, by bucket
+   */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Adds the given value to this histogram.
+   * 
+   * @param value
+   *          the value. Negative values are counted as zero.
+   */
+  void record(long value) {
+    counts.incrementAndGet(bucketOf(Math.max(0L, value)));
+  }
+
+  /**
+   * Returns a copy of the counts of this histogram, by bucket. Values recorded while the copy is
+   * made may or may not be included.
+   * 
+   * @return the counts, by bucket
+   */
+  long[] snapshot() {
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the value at the given percentile of the given counts.
+   * 
+   * @param counts
+   *          the counts, by bucket, as returned by {@link #snapshot()}
+   * @param percentile
+   *          the percentile, between 0 and 100
+   * @return the upper bound of the bucket that contains the value at the given percentile, or
+   *         zero, if the counts are all zero.
+   */
+  static long percentile(long[] counts, double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      if (cumulative >= rank) {
+        return upperBoundOf(i);
+      }
+    }
+    return upperBoundOf(counts.length - 1);
+  }
+
+  /**
+   * Returns the bucket that counts the given value.
+   * 
+   * @param value
+   *          the value, not negative
+   * @return the bucket
+   */
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the largest value counted by the given bucket.
+   * 
+   * @param bucket
+   *          the bucket
+   * @return the largest value counted by the bucket
+   */
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.jmethods.catatumbo.EntityManagerException;
+
+/**
+ * Immutable list of the callbacks to run for a given entity class and callback type. The default
+ * listeners, the external listeners and the internal listeners of the entity class are merged, in
+ * the order in which they run, and each callback method is bound to its listener object up front.
+ * Callbacks that run asynchronously are kept apart, and run in order after the synchronous ones.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class ListenerChain {
+
+  /**
+   * Chain with no callbacks
+   */
+  static final ListenerChain EMPTY = new ListenerChain(new Callback[0], new Callback[0]);
+
+  /**
+   * Type of the bound method handles
+   */
+  private static final MethodType CALLBACK_TYPE = MethodType.methodType(void.class, Object.class);
+
+  /**
+   * Synchronous callbacks, in the order in which they run
+   */
+  private final Callback[] callbacks;
+
+  /**
+   * Asynchronous callbacks, in the order in which they run
+   */
+  private final Callback[] asyncCallbacks;
+
+  /**
+   * Creates a new instance of <code>ListenerChain</code>.
+   * 
+   * @param callbacks
+   *          the synchronous callbacks
+   * @param asyncCallbacks
+   *          the asynchronous callbacks
+   */
+  private ListenerChain(Callback[] callbacks, Callback[] asyncCallbacks) {
+    this.callbacks = callbacks;
+    this.asyncCallbacks = asyncCallbacks;
+  }
+
+  /**
+   * Creates the chains of the given entity class, one for each callback type.
+   * 
+   * @param defaultCallbacks
+   *          the callbacks of the default listeners, by callback type, may be <code>null</code>
+   * @param entityListenersMetadata
+   *          the metadata of the entity listeners of the entity class
+   * @return the chains, indexed by the ordinal of the callback type
+   */
+  static ListenerChain[] create(Map<CallbackType, List<CallbackMetadata>> defaultCallbacks,
+      EntityListenersMetadata entityListenersMetadata) {
+    CallbackType[] callbackTypes = CallbackType.values();
+    ListenerChain[] chains = new ListenerChain[callbackTypes.length];
+    for (CallbackType callbackType : callbackTypes) {
+      List<Callback> callbacks = new ArrayList<>();
+      List<Callback> asyncCallbacks = new ArrayList<>();
+      if (defaultCallbacks != null && !entityListenersMetadata.isExcludeDefaultListeners()) {
+        addCallbacks(callbacks, asyncCallbacks, defaultCallbacks.get(callbackType));
+      }
+      addCallbacks(callbacks, asyncCallbacks, entityListenersMetadata.getCallbacks(callbackType));
+      chains[callbackType.ordinal()] = callbacks.isEmpty() && asyncCallbacks.isEmpty() ? EMPTY
+          : new ListenerChain(callbacks.toArray(new Callback[callbacks.size()]),
+              asyncCallbacks.toArray(new Callback[asyncCallbacks.size()]));
+    }
+    return chains;
+  }
+
+  /**
+   * Adds a callback for each of the given callback metadata to the list of synchronous or
+   * asynchronous callbacks.
+   * 
+   * @param callbacks
+   *          the list of synchronous callbacks
+   * @param asyncCallbacks
+   *          the list of asynchronous callbacks
+   * @param metadataList
+   *          the callback metadata, may be <code>null</code>
+   */
+  private static void addCallbacks(List<Callback> callbacks, List<Callback> asyncCallbacks,
+      List<CallbackMetadata> metadataList) {
+    if (metadataList == null) {
+      return;
+    }
+    for (CallbackMetadata metadata : metadataList) {
+      List<Callback> target = metadata.isAsync() ? asyncCallbacks : callbacks;
+      switch (metadata.getListenerType()) {
+        case DEFAULT:
+        case EXTERNAL:
+          Object listener = ListenerFactory.getInstance().getListener(metadata.getListenerClass());
+          target.add(new Callback(metadata.getCallbackMethod(), listener));
+          break;
+        case INTERNAL:
+          target.add(new Callback(metadata.getCallbackMethod(), null));
+          break;
+        default:
+          String message = String.format("Unknown or unimplemented callback listener type: %s",
+              metadata.getListenerType());
+          throw new EntityManagerException(message);
+      }
+    }
+  }
+
+  /**
+   * Tells whether or not this chain has no callbacks.
+   * 
+   * @return <code>true</code>, if this chain has no callbacks; <code>false</code>, otherwise.
+   */
+  boolean isEmpty() {
+    return callbacks.length == 0 && asyncCallbacks.length == 0;
+  }
+
+  /**
+   * Tells whether or not this chain has any asynchronous callbacks.
+   * 
+   * @return <code>true</code>, if this chain has asynchronous callbacks; <code>false</code>,
+   *         otherwise.
+   */
+  boolean hasAsyncCallbacks() {
+    return asyncCallbacks.length > 0;
+  }
+
+  /**
+   * Runs the synchronous callbacks of this chain for the given entity, and then hands off the
+   * asynchronous callbacks, if any, to the given executor.
+   * 
+   * @param entity
+   *          the entity that produced the event, or the list of entities, for batch callbacks
+   * @param asyncExecutor
+   *          the executor of the asynchronous callbacks, may be <code>null</code>, if this chain
+   *          has no asynchronous callbacks
+   */
+  void execute(Object entity, AsyncListenerExecutor asyncExecutor) {
+    for (Callback callback : callbacks) {
+      callback.invoke(entity);
+    }
+    if (asyncCallbacks.length > 0) {
+      asyncExecutor.execute(asyncCallbacks, entity);
+    }
+  }
+
+  /**
+   * A callback method, bound to its listener object, if any.
+   */
+  static final class Callback {
+
+    /**
+     * The callback method
+     */
+    private final Method callbackMethod;
+
+    /**
+     * Method handle that takes the entity, or <code>null</code>, if the method is not accessible
+     */
+    private final MethodHandle methodHandle;
+
+    /**
+     * The reason the method is not accessible
+     */
+    private final IllegalAccessException accessException;
+
+    /**
+     * Creates a new instance of <code>Callback</code>.
+     * 
+     * @param callbackMethod
+     *          the callback method
+     * @param listener
+     *          the listener object on which to invoke the method, or <code>null</code>, to invoke
+     *          the method on the entity
+     */
+    Callback(Method callbackMethod, Object listener) {
+      this.callbackMethod = callbackMethod;
+      MethodHandle handle = null;
+      IllegalAccessException exception = null;
+      try {
+        handle = MethodHandles.publicLookup().unreflect(callbackMethod);
+        if (listener != null) {
+          handle = handle.bindTo(listener);
+        }
+        handle = handle.asType(CALLBACK_TYPE);
+      } catch (IllegalAccessException exp) {
+        handle = null;
+        exception = exp;
+      }
+      this.methodHandle = handle;
+      this.accessException = exception;
+    }
+
+    /**
+     * Returns the callback method.
+     * 
+     * @return the callback method.
+     */
+    Method getCallbackMethod() {
+      return callbackMethod;
+    }
+
+    /**
+     * Invokes the callback method for the given entity.
+     * 
+     * @param entity
+     *          the entity for which the callback is being invoked
+     */
+    void invoke(Object entity) {
+      try {
+        if (methodHandle == null) {
+          throw accessException;
+        }
+        methodHandle.invokeExact(entity);
+      } catch (Throwable exp) {
+        String message = String.format("Failed to execute callback method %s of class %s",
+            callbackMethod.getName(), callbackMethod.getDeclaringClass().getName());
+        throw new EntityManagerException(message, exp);
+      }
+    }
+  }
+
+}
@@ -38,6 +38,7 @@ import com.google.cloud.datastore.ValueType;
 import com.jmethods.catatumbo.DatastoreKey;
 import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.Indexer;
+import com.jmethods.catatumbo.ProcessingPhase;
 import com.jmethods.catatumbo.impl.IdentifierMetadata.DataType;
 
 /**
@@ -217,19 +218,31 @@ public class Marshaller {
    *         could either be a FullEntity or Entity.
    */
   private BaseEntity<?> marshal() {
+    PhaseTimer phaseTimer = PhaseTimer.start(entityManager, entity.getClass());
     marshalKey();
+    phaseTimer.end(ProcessingPhase.MARSHAL_KEY);
     if (key instanceof Key) {
       entityBuilder = Entity.newBuilder((Key) key);
     } else {
       entityBuilder = FullEntity.newBuilder(key);
     }
     marshalFields();
+    phaseTimer.end(ProcessingPhase.MARSHAL_FIELDS);
     marshalAutoTimestampFields();
+    phaseTimer.end(ProcessingPhase.MARSHAL_AUTO_TIMESTAMPS);
     if (intent == Intent.UPDATE) {
       marshalVersionField();
+      phaseTimer.end(ProcessingPhase.MARSHAL_VERSION);
     }
     marshalEmbeddedFields();
-    return entityBuilder.build();
+    phaseTimer.end(ProcessingPhase.MARSHAL_EMBEDDED);
+    BaseEntity<?> nativeEntity = entityBuilder.build();
+    phaseTimer.end(ProcessingPhase.MARSHAL_BUILD);
+    EntitySizeGuard guard = entityManager == null ? null : entityManager.getEntitySizeGuard();
+    if (guard != null) {
+      guard.check(nativeEntity, entity.getClass());
+    }
+    return nativeEntity;
   }
 
   /**
@@ -390,7 +403,8 @@ public class Marshaller {
   }
 
   /**
-   * Creates an IncompleteKey.
+   * Creates an IncompleteKey. If the entity manager has an ID pool and there is no parent, a
+   * complete key with an ID from the pool is created instead.
    * 
    * @param parent
    *          the parent key, may be <code>null</code>.
@@ -398,7 +412,9 @@ public class Marshaller {
   private void createIncompleteKey(Key parent) {
     String kind = entityMetadata.getKind();
     if (parent == null) {
-      key = entityManager.newNativeKeyFactory().setKind(kind).newKey();
+      IncompleteKey incompleteKey = entityManager.newNativeKeyFactory().setKind(kind).newKey();
+      IdPool idPool = entityManager.getIdPool();
+      key = idPool == null ? incompleteKey : idPool.next(incompleteKey);
     } else {
       key = IncompleteKey.newBuilder(parent, kind).build();
     }
@@ -439,11 +455,18 @@ public class Marshaller {
    */
   private static void marshalField(PropertyMetadata propertyMetadata, Object target,
       BaseEntity.Builder<?, ?> entityBuilder) {
-    Object fieldValue = IntrospectionUtils.getFieldValue(propertyMetadata, target);
-    if (fieldValue == null && propertyMetadata.isOptional()) {
-      return;
+    ValueBuilder<?, ?, ?> valueBuilder = null;
+    PrimitiveAccessor primitiveAccessor = propertyMetadata.getPrimitiveAccessor();
+    if (primitiveAccessor != null) {
+      valueBuilder = primitiveAccessor.toDatastore(target);
+    }
+    if (valueBuilder == null) {
+      Object fieldValue = IntrospectionUtils.getFieldValue(propertyMetadata, target);
+      if (fieldValue == null && propertyMetadata.isOptional()) {
+        return;
+      }
+      valueBuilder = propertyMetadata.getMapper().toDatastore(fieldValue);
     }
-    ValueBuilder<?, ?, ?> valueBuilder = propertyMetadata.getMapper().toDatastore(fieldValue);
     // ListValues cannot have indexing turned off. Indexing is turned on by
     // default, so we don't touch excludeFromIndexes for ListValues.
     if (valueBuilder.getValueType() != ValueType.LIST) {
@@ -520,7 +543,7 @@ public class Marshaller {
   private ValueBuilder<?, ?, ?> marshalWithImplodedStrategy(EmbeddedMetadata embeddedMetadata,
       Object target) {
     try {
-      Object embeddedObject = embeddedMetadata.getReadMethod().invoke(target);
+      Object embeddedObject = embeddedMetadata.getReader().apply(target);
       if (embeddedObject == null) {
         if (embeddedMetadata.isOptional()) {
           return null;
@@ -651,7 +674,7 @@ public class Marshaller {
     try {
       // If instantiation of Entity instantiated the embeddable, we will
       // use the pre-initialized embedded object.
-      Object embeddedObject = embeddedMetadata.getReadMethod().invoke(target);
+      Object embeddedObject = embeddedMetadata.getReader().apply(target);
       if (embeddedObject == null) {
         // Otherwise, we will instantiate the embedded object, which
         // could be a Builder
@@ -663,7 +686,7 @@ public class Marshaller {
         } else {
           // TODO we should not be doing this?? There is no equivalent
           // of this for builder pattern
-          embeddedMetadata.getWriteMethod().invoke(target, embeddedObject);
+          embeddedMetadata.getWriter().accept(target, embeddedObject);
         }
       }
       return embeddedObject;
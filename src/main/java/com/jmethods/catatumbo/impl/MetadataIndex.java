@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.jmethods.catatumbo.Embeddable;
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.EntityListener;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.MapperFactory;
+import com.jmethods.catatumbo.ProjectedEntity;
+
+/**
+ * Loads the index of persistence classes generated at compile time by
+ * {@link com.jmethods.catatumbo.processor.MetadataIndexProcessor} and builds the metadata of the
+ * listed classes ahead of their first use.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+public final class MetadataIndex {
+
+  /**
+   * Name of the resource containing the binary names of the persistence classes, one per line
+   */
+  public static final String RESOURCE_NAME = "META-INF/catatumbo/metadata.idx";
+
+  /**
+   * Logger for the classes that are skipped
+   */
+  private static final Logger LOGGER = Logger.getLogger(MetadataIndex.class.getName());
+
+  /**
+   * Class loaders whose index has already been loaded
+   */
+  private static final Map<ClassLoader, Boolean> loaded = Collections
+      .synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Hide the default constructor.
+   */
+  private MetadataIndex() {
+    // Do nothing
+  }
+
+  /**
+   * Builds the metadata of all persistence classes listed in the index resources visible to the
+   * given class loader. The index of a given class loader is processed only once; subsequent calls
+   * return immediately. Listed classes that cannot be loaded, for example, stale entries left by an
+   * incremental build, are logged and skipped, so their metadata is built on first use, if ever.
+   * 
+   * @param classLoader
+   *          the class loader to use for finding the index resources and loading the classes
+   * @return the number of classes whose metadata was built by this call
+   * @throws EntityManagerException
+   *           if the index cannot be read, or if any of the listed classes cannot be introspected
+   */
+  public static int preload(ClassLoader classLoader) {
+    if (loaded.containsKey(classLoader)) {
+      return 0;
+    }
+    synchronized (MetadataIndex.class) {
+      if (loaded.containsKey(classLoader)) {
+        return 0;
+      }
+      int count = 0;
+      for (String className : readIndex(classLoader)) {
+        if (preload(classLoader, className)) {
+          count++;
+        }
+      }
+      loaded.put(classLoader, Boolean.TRUE);
+      return count;
+    }
+  }
+
+  /**
+   * Builds the metadata of the class with the given name.
+   * 
+   * @param classLoader
+   *          the class loader
+   * @param className
+   *          the binary name of the class
+   * @return <code>true</code>, if the metadata was built; <code>false</code>, if the class could
+   *         not be loaded.
+   */
+  private static boolean preload(ClassLoader classLoader, String className) {
+    Class<?> clazz;
+    try {
+      clazz = Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException | LinkageError exp) {
+      LOGGER.log(Level.WARNING, String.format("Class %s listed in %s could not be loaded",
+          className, RESOURCE_NAME), exp);
+      return false;
+    }
+    if (clazz.isAnnotationPresent(Entity.class)
+        || clazz.isAnnotationPresent(ProjectedEntity.class)) {
+      EntityIntrospector.introspect(clazz);
+    } else if (clazz.isAnnotationPresent(Embeddable.class)) {
+      MapperFactory.getInstance().getMapper(clazz);
+    } else if (clazz.isAnnotationPresent(EntityListener.class)) {
+      ExternalListenerIntrospector.introspect(clazz);
+    }
+    return true;
+  }
+
+  /**
+   * Reads all index resources visible to the given class loader.
+   * 
+   * @param classLoader
+   *          the class loader
+   * @return the class names listed in the index resources
+   */
+  private static List<String> readIndex(ClassLoader classLoader) {
+    List<String> classNames = new ArrayList<>();
+    try {
+      Enumeration<URL> resources = classLoader.getResources(RESOURCE_NAME);
+      while (resources.hasMoreElements()) {
+        URL resource = resources.nextElement();
+        try (InputStream input = resource.openStream();
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+              classNames.add(line);
+            }
+          }
+        }
+      }
+    } catch (IOException exp) {
+      throw new EntityManagerException(exp);
+    }
+    return classNames;
+  }
+
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.jmethods.catatumbo.DatastoreCursor;
+import com.jmethods.catatumbo.OperationMetrics;
+import com.jmethods.catatumbo.OperationType;
+import com.jmethods.catatumbo.QueryRequest;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+
+/**
+ * Measures a single operation and reports it to the {@link OperationMetrics} and to the slow
+ * operation log of the entity manager. When neither is set, a shared timer is used whose methods
+ * do nothing, so that unmeasured operations pay neither for the clock nor for estimating payload
+ * sizes. The time spent in RPCs and in unmarshalling is only measured for the slow operation log.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class OperationTimer {
+
+  /**
+   * Timer used when operations are not measured
+   */
+  private static final OperationTimer DISABLED = new OperationTimer(null, null, null);
+
+  /**
+   * The receiver of the measurements, may be <code>null</code>
+   */
+  private final OperationMetrics metrics;
+
+  /**
+   * The slow operation log, may be <code>null</code>
+   */
+  private final SlowOperationLog slowOperationLog;
+
+  /**
+   * Whether or not the operation is measured
+   */
+  private final boolean enabled;
+
+  /**
+   * The operation type
+   */
+  private final OperationType operationType;
+
+  /**
+   * Start time, in nanoseconds
+   */
+  private final long startTime;
+
+  /**
+   * The entity kind
+   */
+  private String kind;
+
+  /**
+   * Number of entities
+   */
+  private int entityCount;
+
+  /**
+   * Payload size, in bytes
+   */
+  private long payloadBytes;
+
+  /**
+   * Whether or not the operation completed
+   */
+  private boolean succeeded;
+
+  /**
+   * The namespace the operation runs in
+   */
+  private String namespace;
+
+  /**
+   * The query request
+   */
+  private QueryRequest queryRequest;
+
+  /**
+   * The cursor after the last result of the query
+   */
+  private DatastoreCursor endCursor;
+
+  /**
+   * The state of the query
+   */
+  private QueryState queryState;
+
+  /**
+   * Time spent in RPCs, in nanoseconds, or <code>-1</code>, if not measured
+   */
+  private long rpcNanos = -1L;
+
+  /**
+   * Time spent unmarshalling, in nanoseconds
+   */
+  private long unmarshalNanos;
+
+  /**
+   * Creates a new instance of <code>OperationTimer</code>.
+   * 
+   * @param metrics
+   *          the receiver of the measurements
+   * @param slowOperationLog
+   *          the slow operation log
+   * @param operationType
+   *          the operation type
+   */
+  private OperationTimer(OperationMetrics metrics, SlowOperationLog slowOperationLog,
+      OperationType operationType) {
+    this.metrics = metrics;
+    this.slowOperationLog = slowOperationLog;
+    this.enabled = metrics != null || slowOperationLog != null;
+    this.operationType = operationType;
+    this.startTime = enabled ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Starts measuring an operation.
+   * 
+   * @param entityManager
+   *          the entity manager that performs the operation
+   * @param operationType
+   *          the operation type
+   * @return the timer of the operation
+   */
+  static OperationTimer start(DefaultEntityManager entityManager, OperationType operationType) {
+    OperationMetrics metrics = entityManager.getOperationMetrics();
+    SlowOperationLog slowOperationLog = entityManager.getSlowOperationLog();
+    if (metrics == null && slowOperationLog == null) {
+      return DISABLED;
+    }
+    OperationTimer timer = new OperationTimer(metrics, slowOperationLog, operationType);
+    if (slowOperationLog != null) {
+      timer.namespace = entityManager.getEffectiveNamespace();
+    }
+    return timer;
+  }
+
+  /**
+   * Sets the kind of the operation from the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @return this timer
+   */
+  OperationTimer kind(Class<?> entityClass) {
+    if (enabled) {
+      kind = EntityIntrospector.introspect(entityClass).getKind();
+    }
+    return this;
+  }
+
+  /**
+   * Sets the kind of the operation from the class of the given entity.
+   * 
+   * @param entity
+   *          the entity, may be <code>null</code>
+   * @return this timer
+   */
+  OperationTimer kindOf(Object entity) {
+    if (enabled && entity != null) {
+      kind(entity.getClass());
+    }
+    return this;
+  }
+
+  /**
+   * Sets the kind of the operation from the class of the first of the given entities.
+   * 
+   * @param entities
+   *          the entities
+   * @return this timer
+   */
+  OperationTimer kindOf(List<?> entities) {
+    if (enabled && !entities.isEmpty()) {
+      kindOf(entities.get(0));
+    }
+    return this;
+  }
+
+  /**
+   * Sets the kind of the operation.
+   * 
+   * @param kind
+   *          the kind
+   * @return this timer
+   */
+  OperationTimer kind(String kind) {
+    if (enabled) {
+      this.kind = kind;
+    }
+    return this;
+  }
+
+  /**
+   * Adds to the number of entities of the operation.
+   * 
+   * @param count
+   *          the number of entities
+   * @return this timer
+   */
+  OperationTimer entities(int count) {
+    if (enabled) {
+      entityCount += count;
+    }
+    return this;
+  }
+
+  /**
+   * Adds the estimated size of the given native entity to the payload of the operation, and
+   * reports the size of the entity and of its index entries to the metrics.
+   * 
+   * @param nativeEntity
+   *          the native entity, may be <code>null</code>
+   * @return this timer
+   */
+  OperationTimer payload(BaseEntity<?> nativeEntity) {
+    if (metrics != null && nativeEntity != null) {
+      long entityBytes = PayloadSizeEstimator.estimate(nativeEntity);
+      payloadBytes += entityBytes;
+      try {
+        metrics.recordEntitySize(operationType, nativeEntity.getKey().getKind(), entityBytes,
+            PayloadSizeEstimator.estimateIndexes(nativeEntity));
+      } catch (RuntimeException exp) {
+        // Ignore
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Adds the estimated size of the given native entities to the payload of the operation.
+   * 
+   * @param nativeEntities
+   *          the native entities, may contain <code>null</code> elements
+   * @return this timer
+   */
+  OperationTimer payload(List<? extends BaseEntity<?>> nativeEntities) {
+    if (metrics != null) {
+      for (BaseEntity<?> nativeEntity : nativeEntities) {
+        payload(nativeEntity);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Marks the operation as completed. An operation that is stopped without being marked as
+   * completed is reported as failed.
+   */
+  void succeeded() {
+    if (enabled) {
+      succeeded = true;
+    }
+  }
+
+  /**
+   * Sets the query of the operation, for the slow operation log.
+   * 
+   * @param request
+   *          the query request
+   * @return this timer
+   */
+  OperationTimer query(QueryRequest request) {
+    if (slowOperationLog != null) {
+      this.queryRequest = request;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the state of the query after its results were read, for the slow operation log.
+   * 
+   * @param endCursor
+   *          the cursor after the last result
+   * @param queryState
+   *          whether more results may follow
+   */
+  void queryEnded(DatastoreCursor endCursor, QueryState queryState) {
+    if (slowOperationLog != null) {
+      this.endCursor = endCursor;
+      this.queryState = queryState;
+    }
+  }
+
+  /**
+   * Returns the current time, if the time spent in RPCs and unmarshalling is measured, to be
+   * passed to {@link #rpc(long)} or {@link #unmarshal(long)}.
+   * 
+   * @return the current time, in nanoseconds, or zero, if not measured
+   */
+  long mark() {
+    return slowOperationLog == null ? 0L : System.nanoTime();
+  }
+
+  /**
+   * Adds the time elapsed since the given mark to the RPC time of the operation.
+   * 
+   * @param mark
+   *          the mark, as returned by {@link #mark()} or by the previous call
+   * @return the new mark
+   */
+  long rpc(long mark) {
+    if (slowOperationLog == null) {
+      return 0L;
+    }
+    long now = System.nanoTime();
+    rpcNanos = Math.max(rpcNanos, 0L) + now - mark;
+    return now;
+  }
+
+  /**
+   * Adds the time elapsed since the given mark to the unmarshalling time of the operation.
+   * 
+   * @param mark
+   *          the mark, as returned by {@link #mark()} or by the previous call
+   * @return the new mark
+   */
+  long unmarshal(long mark) {
+    if (slowOperationLog == null) {
+      return 0L;
+    }
+    long now = System.nanoTime();
+    unmarshalNanos += now - mark;
+    return now;
+  }
+
+  /**
+   * Runs the given RPC, adding the time it takes to the RPC time of the operation.
+   * 
+   * @param rpc
+   *          the RPC
+   * @return the result of the RPC
+   */
+  <T> T callRpc(Supplier<T> rpc) {
+    long mark = mark();
+    T result = rpc.get();
+    rpc(mark);
+    return result;
+  }
+
+  /**
+   * Stops measuring the operation and reports it. Exceptions thrown by the metrics are ignored,
+   * so that they do not fail the operation.
+   */
+  void stop() {
+    if (!enabled) {
+      return;
+    }
+    long elapsedNanos = System.nanoTime() - startTime;
+    if (metrics != null) {
+      try {
+        metrics.record(operationType, kind, entityCount, payloadBytes, elapsedNanos, !succeeded);
+      } catch (RuntimeException exp) {
+        // Ignore
+      }
+    }
+    if (slowOperationLog != null && slowOperationLog.shouldLog(elapsedNanos)) {
+      slowOperationLog.log(new DefaultSlowOperation(operationType, kind, namespace, queryRequest,
+          slowOperationLog.isRedactBindings(), entityCount, endCursor, queryState, !succeeded,
+          elapsedNanos, rpcNanos, unmarshalNanos));
+    }
+  }
+
+}
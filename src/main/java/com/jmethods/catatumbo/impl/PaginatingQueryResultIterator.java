@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.Cursor;
+import com.jmethods.catatumbo.DatastoreCursor;
+import com.jmethods.catatumbo.DefaultDatastoreCursor;
+import com.jmethods.catatumbo.QueryResponseMetadata;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+import com.jmethods.catatumbo.QueryResultIterator;
+
+/**
+ * A {@link QueryResultIterator} that iterates over all pages of a query. Each page is fetched by
+ * re-executing the query with its cursor binding set to the end cursor of the previous page. The
+ * iteration stops when the Datastore reports that there are no more results, or when a page comes
+ * back empty. Optionally, the next page is fetched in the background while the current page is
+ * being consumed; {@link #close()} cancels a fetch that is no longer needed.
+ * 
+ * @param <T>
+ *          the expected type of results
+ * @author Sai Pullabhotla
+ *
+ */
+class PaginatingQueryResultIterator<T> implements QueryResultIterator<T> {
+
+  /**
+   * Executes the query starting at the given cursor, or with the original bindings if the cursor
+   * is <code>null</code>
+   */
+  private final Function<Cursor, DefaultQueryResultIterator<?, T>> pageLoader;
+
+  /**
+   * Receives the results of each page once the page is fetched, or <code>null</code>
+   */
+  private final Consumer<List<T>> pageListener;
+
+  /**
+   * Executor for fetching the next page in the background, <code>null</code> to fetch pages on the
+   * calling thread
+   */
+  private final ExecutorService prefetchExecutor;
+
+  /**
+   * The start cursor of the first page
+   */
+  private DatastoreCursor startCursor;
+
+  /**
+   * The page being consumed
+   */
+  private Page<T> currentPage;
+
+  /**
+   * Position of the next result in the current page
+   */
+  private int position;
+
+  /**
+   * The next page, if it is being prefetched
+   */
+  private CompletableFuture<Page<T>> nextPage;
+
+  /**
+   * Whether or not this iterator was closed
+   */
+  private boolean closed;
+
+  /**
+   * Creates a new instance of <code>PaginatingQueryResultIterator</code>.
+   * 
+   * @param pageLoader
+   *          executes the query starting at the given cursor, or with the original bindings if the
+   *          cursor is <code>null</code>
+   * @param prefetchExecutor
+   *          executor for fetching the next page in the background, <code>null</code> to fetch
+   *          pages on the calling thread
+   */
+  PaginatingQueryResultIterator(Function<Cursor, DefaultQueryResultIterator<?, T>> pageLoader,
+      ExecutorService prefetchExecutor) {
+    this(pageLoader, null, prefetchExecutor);
+  }
+
+  /**
+   * Creates a new instance of <code>PaginatingQueryResultIterator</code>.
+   * 
+   * @param pageLoader
+   *          executes the query starting at the given cursor, or with the original bindings if the
+   *          cursor is <code>null</code>
+   * @param pageListener
+   *          receives the results of each page once the page is fetched, on the thread that fetched
+   *          it, or <code>null</code>. Used for running the load listeners once per page.
+   * @param prefetchExecutor
+   *          executor for fetching the next page in the background, <code>null</code> to fetch
+   *          pages on the calling thread
+   */
+  PaginatingQueryResultIterator(Function<Cursor, DefaultQueryResultIterator<?, T>> pageLoader,
+      Consumer<List<T>> pageListener, ExecutorService prefetchExecutor) {
+    this.pageLoader = pageLoader;
+    this.pageListener = pageListener;
+    this.prefetchExecutor = prefetchExecutor;
+    setCurrentPage(fetch(null));
+    this.startCursor = currentPage.startCursor;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+    while (position >= currentPage.results.size()) {
+      if (!currentPage.hasNextPage()) {
+        return false;
+      }
+      if (nextPage != null) {
+        CompletableFuture<Page<T>> future = nextPage;
+        nextPage = null;
+        setCurrentPage(ConcurrencyUtils.join(future));
+      } else {
+        setCurrentPage(fetch(currentPage.endCursor));
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return currentPage.results.get(position++);
+  }
+
+  @Override
+  public DatastoreCursor getStartCursor() {
+    return startCursor;
+  }
+
+  @Override
+  public DatastoreCursor getCursorAfter() {
+    if (position == 0) {
+      return currentPage.startCursor;
+    }
+    return new DefaultDatastoreCursor(currentPage.cursors.get(position - 1).toUrlSafe());
+  }
+
+  @Override
+  public QueryResponseMetadata getQueryResponseMetadata() {
+    return currentPage.metadata;
+  }
+
+  /**
+   * Closes this iterator, and cancels the fetch of the next page, if one is in progress.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (nextPage != null) {
+      nextPage.cancel(false);
+      nextPage = null;
+    }
+  }
+
+  /**
+   * Makes the given page the current page, and starts fetching the page after it, if prefetching
+   * is enabled.
+   * 
+   * @param page
+   *          the page
+   */
+  private void setCurrentPage(Page<T> page) {
+    currentPage = page;
+    position = 0;
+    if (prefetchExecutor != null && page.hasNextPage()) {
+      final Cursor cursor = page.endCursor;
+      nextPage = ConcurrencyUtils.supplyAsync(() -> fetch(cursor), prefetchExecutor);
+    }
+  }
+
+  /**
+   * Fetches the page that starts at the given cursor, and passes its results to the page
+   * listener.
+   * 
+   * @param cursor
+   *          the start cursor, or <code>null</code> for the first page
+   * @return the page
+   */
+  private Page<T> fetch(Cursor cursor) {
+    Page<T> page = Page.fetch(pageLoader.apply(cursor));
+    if (pageListener != null && !page.results.isEmpty()) {
+      pageListener.accept(Collections.unmodifiableList(page.results));
+    }
+    return page;
+  }
+
+  /**
+   * The results of a single query execution.
+   *
+   * @param <T>
+   *          the expected type of results
+   */
+  private static class Page<T> {
+
+    /**
+     * The results
+     */
+    private final List<T> results = new ArrayList<>();
+
+    /**
+     * The native cursor after each result, encoded only when asked for
+     */
+    private final List<Cursor> cursors = new ArrayList<>();
+
+    /**
+     * The start cursor
+     */
+    private DatastoreCursor startCursor;
+
+    /**
+     * The native end cursor
+     */
+    private Cursor endCursor;
+
+    /**
+     * The metadata on the query execution
+     */
+    private QueryResponseMetadata metadata;
+
+    /**
+     * Reads all results from the given iterator into a new page.
+     * 
+     * @param iterator
+     *          the iterator
+     * @return the page
+     */
+    private static <T> Page<T> fetch(DefaultQueryResultIterator<?, T> iterator) {
+      Page<T> page = new Page<>();
+      page.startCursor = iterator.getStartCursor();
+      while (iterator.hasNext()) {
+        page.results.add(iterator.next());
+        page.cursors.add(iterator.getNativeCursorAfter());
+      }
+      page.endCursor = iterator.getNativeCursorAfter();
+      page.metadata = iterator.getQueryResponseMetadata();
+      return page;
+    }
+
+    /**
+     * Tells whether or not there may be more results after this page.
+     * 
+     * @return <code>true</code>, if there may be more results after this page; <code>false</code>,
+     *         otherwise.
+     */
+    private boolean hasNextPage() {
+      return !results.isEmpty() && metadata.getQueryState() != QueryState.NO_MORE_RESULTS;
+    }
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.BlobValue;
+import com.google.cloud.datastore.EntityValue;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyValue;
+import com.google.cloud.datastore.ListValue;
+import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.RawValue;
+import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.Value;
+
+/**
+ * Estimates the storage size of native entities, using the rules Cloud Datastore publishes for
+ * computing the size of entities and of their index entries. Strings are counted as their UTF-8
+ * length plus one byte, keys as the size of their path plus 16 bytes, and entities as the size of
+ * their key, property names and values plus 32 bytes. Incomplete keys are counted as if they had a
+ * numeric ID. Each indexed value gets an ascending and a descending entry in the built-in indexes,
+ * and each entity gets an entry in the kind index; composite indexes are not counted.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class PayloadSizeEstimator {
+
+  /**
+   * Fixed size added to every entity and index entry
+   */
+  private static final int ENTRY_OVERHEAD = 32;
+
+  /**
+   * Fixed size added to every key
+   */
+  private static final int KEY_OVERHEAD = 16;
+
+  /**
+   * Size of numeric IDs, integers, doubles and timestamps
+   */
+  private static final int FIXED_VALUE_SIZE = 8;
+
+  /**
+   * Size of geographic locations
+   */
+  private static final int LAT_LNG_SIZE = 16;
+
+  /**
+   * Size of booleans and nulls
+   */
+  private static final int SMALL_VALUE_SIZE = 1;
+
+  /**
+   * Number of built-in index entries per indexed value, one ascending and one descending
+   */
+  private static final int ENTRIES_PER_INDEXED_VALUE = 2;
+
+  /**
+   * Hide the implicit constructor
+   */
+  private PayloadSizeEstimator() {
+    // Do nothing.
+  }
+
+  /**
+   * Returns the estimated storage size of the given native entity, which is the size the Datastore
+   * limits.
+   * 
+   * @param nativeEntity
+   *          the native entity, may be <code>null</code>
+   * @return the estimated size, in bytes
+   */
+  static long estimate(BaseEntity<?> nativeEntity) {
+    if (nativeEntity == null) {
+      return 0;
+    }
+    return estimate(nativeEntity.getKey()) + estimateProperties(nativeEntity) + ENTRY_OVERHEAD;
+  }
+
+  /**
+   * Returns the estimated size of the given key.
+   * 
+   * @param key
+   *          the key, may be <code>null</code>
+   * @return the estimated size, in bytes
+   */
+  static long estimate(IncompleteKey key) {
+    if (key == null) {
+      return 0;
+    }
+    long size = KEY_OVERHEAD + stringSize(key.getKind());
+    if (key instanceof Key && ((Key) key).hasName()) {
+      size += stringSize(((Key) key).getName());
+    } else {
+      size += FIXED_VALUE_SIZE;
+    }
+    for (PathElement ancestor : key.getAncestors()) {
+      size += stringSize(ancestor.getKind());
+      size += ancestor.hasName() ? stringSize(ancestor.getName()) : FIXED_VALUE_SIZE;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the estimated size of the built-in index entries of the given native entity. The
+   * entries are not part of the entity size, but are stored and billed along with it.
+   * 
+   * @param nativeEntity
+   *          the native entity, may be <code>null</code>
+   * @return the estimated size, in bytes
+   */
+  static long estimateIndexes(BaseEntity<?> nativeEntity) {
+    if (nativeEntity == null || nativeEntity.getKey() == null) {
+      return 0;
+    }
+    long keySize = estimate(nativeEntity.getKey());
+    long kindSize = stringSize(nativeEntity.getKey().getKind());
+    long entryOverhead = kindSize + keySize + ENTRY_OVERHEAD;
+    return entryOverhead + estimateIndexes(nativeEntity, null, entryOverhead);
+  }
+
+  /**
+   * Returns the estimated size of the built-in index entries of the indexed properties of the
+   * given entity. The properties of indexed embedded entities are indexed with their path.
+   * 
+   * @param entity
+   *          the entity
+   * @param prefix
+   *          the path of the embedded entity, or <code>null</code>, for the top level entity
+   * @param entryOverhead
+   *          the size common to all index entries of the top level entity
+   * @return the estimated size, in bytes
+   */
+  private static long estimateIndexes(BaseEntity<?> entity, String prefix, long entryOverhead) {
+    long size = 0;
+    for (String name : entity.getNames()) {
+      String path = prefix == null ? name : prefix + "." + name;
+      size += estimateIndexes(path, entity.getValue(name), entryOverhead);
+    }
+    return size;
+  }
+
+  /**
+   * Returns the estimated size of the built-in index entries of the given value.
+   * 
+   * @param path
+   *          the path of the property
+   * @param value
+   *          the value
+   * @param entryOverhead
+   *          the size common to all index entries of the top level entity
+   * @return the estimated size, in bytes
+   */
+  private static long estimateIndexes(String path, Value<?> value, long entryOverhead) {
+    if (value.excludeFromIndexes()) {
+      return 0;
+    }
+    switch (value.getType()) {
+      case ENTITY:
+        return estimateIndexes(((EntityValue) value).get(), path, entryOverhead);
+      case LIST:
+        long size = 0;
+        for (Value<?> element : ((ListValue) value).get()) {
+          size += estimateIndexes(path, element, entryOverhead);
+        }
+        return size;
+      default:
+        return ENTRIES_PER_INDEXED_VALUE
+            * (entryOverhead + stringSize(path) + estimateValue(value));
+    }
+  }
+
+  /**
+   * Returns the estimated size of the property names and values of the given entity.
+   * 
+   * @param entity
+   *          the entity
+   * @return the estimated size, in bytes
+   */
+  private static long estimateProperties(BaseEntity<?> entity) {
+    long size = 0;
+    for (String name : entity.getNames()) {
+      size += stringSize(name) + estimateValue(entity.getValue(name));
+    }
+    return size;
+  }
+
+  /**
+   * Returns the estimated size of the given value.
+   * 
+   * @param value
+   *          the value
+   * @return the estimated size, in bytes
+   */
+  private static long estimateValue(Value<?> value) {
+    switch (value.getType()) {
+      case STRING:
+        return stringSize(((StringValue) value).get());
+      case BLOB:
+        return ((BlobValue) value).get().getLength();
+      case KEY:
+        return estimate(((KeyValue) value).get());
+      case ENTITY:
+        FullEntity<?> embeddedEntity = ((EntityValue) value).get();
+        return estimate(embeddedEntity.getKey()) + estimateProperties(embeddedEntity);
+      case LIST:
+        long size = 0;
+        for (Value<?> element : ((ListValue) value).get()) {
+          size += estimateValue(element);
+        }
+        return size;
+      case RAW_VALUE:
+        return ((RawValue) value).get().getSerializedSize();
+      case LAT_LNG:
+        return LAT_LNG_SIZE;
+      case BOOLEAN:
+      case NULL:
+        return SMALL_VALUE_SIZE;
+      default:
+        return FIXED_VALUE_SIZE;
+    }
+  }
+
+  /**
+   * Returns the size of the given string, which is the length of its UTF-8 encoding plus one.
+   * 
+   * @param string
+   *          the string
+   * @return the size, in bytes
+   */
+  static long stringSize(String string) {
+    long size = 1;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      if (ch < 0x80) {
+        size++;
+      } else if (ch < 0x800) {
+        size += 2;
+      } else if (Character.isHighSurrogate(ch) && i + 1 < string.length()
+          && Character.isLowSurrogate(string.charAt(i + 1))) {
+        size += 4;
+        i++;
+      } else {
+        size += 3;
+      }
+    }
+    return size;
+  }
+
+}
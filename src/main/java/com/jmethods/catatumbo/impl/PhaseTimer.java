@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import com.jmethods.catatumbo.PhaseMetrics;
+import com.jmethods.catatumbo.ProcessingPhase;
+
+/**
+ * Measures consecutive phases of the processing of an entity and reports them to the
+ * {@link PhaseMetrics} of the entity manager. When no metrics are registered, a shared timer is
+ * used whose methods do nothing, so that the cost of a disabled timer is a single field check.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class PhaseTimer {
+
+  /**
+   * Timer used when phases are not measured
+   */
+  private static final PhaseTimer DISABLED = new PhaseTimer(null, null);
+
+  /**
+   * The receiver of the measurements, or <code>null</code>, if this timer is disabled
+   */
+  private final PhaseMetrics metrics;
+
+  /**
+   * The entity class
+   */
+  private final Class<?> entityClass;
+
+  /**
+   * Start time of the current phase, in nanoseconds
+   */
+  private long phaseStartTime;
+
+  /**
+   * Creates a new instance of <code>PhaseTimer</code>.
+   * 
+   * @param metrics
+   *          the receiver of the measurements
+   * @param entityClass
+   *          the entity class
+   */
+  private PhaseTimer(PhaseMetrics metrics, Class<?> entityClass) {
+    this.metrics = metrics;
+    this.entityClass = entityClass;
+    this.phaseStartTime = metrics == null ? 0L : System.nanoTime();
+  }
+
+  /**
+   * Starts measuring the phases of the processing of an entity.
+   * 
+   * @param entityManager
+   *          the entity manager, may be <code>null</code>
+   * @param entityClass
+   *          the entity class
+   * @return the timer
+   */
+  static PhaseTimer start(DefaultEntityManager entityManager, Class<?> entityClass) {
+    PhaseMetrics metrics = entityManager == null ? null : entityManager.getPhaseMetrics();
+    return metrics == null ? DISABLED : new PhaseTimer(metrics, entityClass);
+  }
+
+  /**
+   * Reports the time elapsed since the start of the timer, or since the previous phase ended, as
+   * the time spent in the given phase, and starts the next phase.
+   * 
+   * @param phase
+   *          the phase that ended
+   */
+  void end(ProcessingPhase phase) {
+    if (metrics == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    try {
+      metrics.record(entityClass, phase, now - phaseStartTime);
+    } catch (RuntimeException exp) {
+      // Ignore
+    }
+    phaseStartTime = now;
+  }
+
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import com.google.cloud.datastore.NullValue;
+import com.google.cloud.datastore.Value;
+import com.google.cloud.datastore.ValueBuilder;
+import com.jmethods.catatumbo.Mapper;
+import com.jmethods.catatumbo.PrimitiveMapper;
+
+/**
+ * Reads and writes a primitive field through generated accessors with primitive signatures, and
+ * maps the value using a {@link PrimitiveMapper}, so that the value is never boxed on its way
+ * to/from the Cloud Datastore. Fields of type <code>long</code>, <code>int</code> and
+ * <code>short</code> are read and written as <code>long</code>, fields of type <code>double</code>
+ * and <code>float</code> as <code>double</code>.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+abstract class PrimitiveAccessor {
+
+  /**
+   * Creates and returns the primitive accessor for the given field, if the field is of a primitive
+   * type and the given mapper supports it.
+   * 
+   * @param fieldMetadata
+   *          the field metadata
+   * @param mapper
+   *          the mapper for the field
+   * @return the primitive accessor for the given field. Returns <code>null</code>, if the field
+   *         must be read and written using the generic accessors.
+   */
+  static PrimitiveAccessor create(FieldMetadata fieldMetadata, Mapper mapper) {
+    Class<?> type = fieldMetadata.getDeclaredType();
+    MethodHandle readMethod = fieldMetadata.getReadMethod();
+    MethodHandle writeMethod = fieldMetadata.getWriteMethod();
+    PrimitiveAccessor accessor = null;
+    if ((type == long.class || type == int.class || type == short.class)
+        && mapper instanceof PrimitiveMapper.OfLong) {
+      accessor = new OfLong((PrimitiveMapper.OfLong) mapper, createLongReader(readMethod),
+          createLongWriter(writeMethod));
+    } else if ((type == double.class || type == float.class)
+        && mapper instanceof PrimitiveMapper.OfDouble) {
+      accessor = new OfDouble((PrimitiveMapper.OfDouble) mapper, createDoubleReader(readMethod),
+          createDoubleWriter(writeMethod));
+    } else if (type == boolean.class && mapper instanceof PrimitiveMapper.OfBoolean) {
+      accessor = new OfBoolean((PrimitiveMapper.OfBoolean) mapper,
+          createBooleanReader(readMethod), createBooleanWriter(writeMethod));
+    }
+    return accessor;
+  }
+
+  /**
+   * Reads the field from the given target and maps it to a native value.
+   * 
+   * @param target
+   *          the object that contains the field
+   * @return the native value. Returns <code>null</code>, if the field could not be read without
+   *         boxing, in which case the caller must fall back to the generic path.
+   */
+  abstract ValueBuilder<?, ?, ?> toDatastore(Object target);
+
+  /**
+   * Maps the given native value and writes it to the field of the given target.
+   * 
+   * @param target
+   *          the object that contains the field (or its Builder)
+   * @param value
+   *          the native value
+   * @return <code>true</code>, if the value was written; <code>false</code>, if the value could not
+   *         be written without boxing (e.g. a {@link NullValue}), in which case the caller must
+   *         fall back to the generic path.
+   */
+  abstract boolean toModel(Object target, Value<?> value);
+
+  /**
+   * Creates a reader that returns the value of a <code>long</code>, <code>int</code> or
+   * <code>short</code> field as a <code>long</code>.
+   * 
+   * @param readMethod
+   *          the read method
+   * @return the reader, or <code>null</code>, if one could not be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static ToLongFunction<Object> createLongReader(MethodHandle readMethod) {
+    return IntrospectionUtils.generateAccessor(ToLongFunction.class, "applyAsLong",
+        MethodType.methodType(long.class, Object.class), readMethod, readMethod.type());
+  }
+
+  /**
+   * Creates a writer that sets a <code>long</code>, <code>int</code> or <code>short</code> field
+   * from a <code>long</code>. Narrowing is done by the caller (and validated by the mapper).
+   * 
+   * @param writeMethod
+   *          the write method
+   * @return the writer, or <code>null</code>, if one could not be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static ObjLongConsumer<Object> createLongWriter(MethodHandle writeMethod) {
+    MethodType type = writeMethod.type().changeReturnType(void.class);
+    Class<?> parameterType = type.parameterType(1);
+    if (parameterType == long.class) {
+      return IntrospectionUtils.generateAccessor(ObjLongConsumer.class, "accept",
+          MethodType.methodType(void.class, Object.class, long.class), writeMethod, type);
+    }
+    if (parameterType == int.class) {
+      ObjIntConsumer<Object> writer = IntrospectionUtils.generateAccessor(ObjIntConsumer.class,
+          "accept", MethodType.methodType(void.class, Object.class, int.class), writeMethod, type);
+      return writer == null ? null : (target, value) -> writer.accept(target, (int) value);
+    }
+    ObjShortConsumer writer = IntrospectionUtils.generateAccessor(ObjShortConsumer.class,
+        "accept", MethodType.methodType(void.class, Object.class, short.class), writeMethod, type);
+    return writer == null ? null : (target, value) -> writer.accept(target, (short) value);
+  }
+
+  /**
+   * Creates a reader that returns the value of a <code>double</code> or <code>float</code> field
+   * as a <code>double</code>.
+   * 
+   * @param readMethod
+   *          the read method
+   * @return the reader, or <code>null</code>, if one could not be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static ToDoubleFunction<Object> createDoubleReader(MethodHandle readMethod) {
+    return IntrospectionUtils.generateAccessor(ToDoubleFunction.class, "applyAsDouble",
+        MethodType.methodType(double.class, Object.class), readMethod, readMethod.type());
+  }
+
+  /**
+   * Creates a writer that sets a <code>double</code> or <code>float</code> field from a
+   * <code>double</code>.
+   * 
+   * @param writeMethod
+   *          the write method
+   * @return the writer, or <code>null</code>, if one could not be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static ObjDoubleConsumer<Object> createDoubleWriter(MethodHandle writeMethod) {
+    MethodType type = writeMethod.type().changeReturnType(void.class);
+    if (type.parameterType(1) == double.class) {
+      return IntrospectionUtils.generateAccessor(ObjDoubleConsumer.class, "accept",
+          MethodType.methodType(void.class, Object.class, double.class), writeMethod, type);
+    }
+    ObjFloatConsumer writer = IntrospectionUtils.generateAccessor(ObjFloatConsumer.class,
+        "accept", MethodType.methodType(void.class, Object.class, float.class), writeMethod, type);
+    return writer == null ? null : (target, value) -> writer.accept(target, (float) value);
+  }
+
+  /**
+   * Creates a reader for a <code>boolean</code> field.
+   * 
+   * @param readMethod
+   *          the read method
+   * @return the reader, or <code>null</code>, if one could not be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static Predicate<Object> createBooleanReader(MethodHandle readMethod) {
+    return IntrospectionUtils.generateAccessor(Predicate.class, "test",
+        MethodType.methodType(boolean.class, Object.class), readMethod, readMethod.type());
+  }
+
+  /**
+   * Creates a writer for a <code>boolean</code> field.
+   * 
+   * @param writeMethod
+   *          the write method
+   * @return the writer, or <code>null</code>, if one could not be generated.
+   */
+  private static ObjBooleanConsumer createBooleanWriter(MethodHandle writeMethod) {
+    return IntrospectionUtils.generateAccessor(ObjBooleanConsumer.class, "accept",
+        MethodType.methodType(void.class, Object.class, boolean.class), writeMethod,
+        writeMethod.type().changeReturnType(void.class));
+  }
+
+  /**
+   * Accessor for fields that are stored as a Datastore <code>long</code>.
+   */
+  static final class OfLong extends PrimitiveAccessor {
+
+    /**
+     * The mapper
+     */
+    private final PrimitiveMapper.OfLong mapper;
+
+    /**
+     * The reader, may be <code>null</code>
+     */
+    private final ToLongFunction<Object> reader;
+
+    /**
+     * The writer, may be <code>null</code>
+     */
+    private final ObjLongConsumer<Object> writer;
+
+    /**
+     * Creates a new instance of <code>OfLong</code>.
+     * 
+     * @param mapper
+     *          the mapper
+     * @param reader
+     *          the reader
+     * @param writer
+     *          the writer
+     */
+    OfLong(PrimitiveMapper.OfLong mapper, ToLongFunction<Object> reader,
+        ObjLongConsumer<Object> writer) {
+      this.mapper = mapper;
+      this.reader = reader;
+      this.writer = writer;
+    }
+
+    @Override
+    ValueBuilder<?, ?, ?> toDatastore(Object target) {
+      return reader == null ? null : mapper.toDatastoreLong(reader.applyAsLong(target));
+    }
+
+    @Override
+    boolean toModel(Object target, Value<?> value) {
+      if (writer == null || value instanceof NullValue) {
+        return false;
+      }
+      writer.accept(target, mapper.toModelLong(value));
+      return true;
+    }
+  }
+
+  /**
+   * Accessor for fields that are stored as a Datastore <code>double</code>.
+   */
+  static final class OfDouble extends PrimitiveAccessor {
+
+    /**
+     * The mapper
+     */
+    private final PrimitiveMapper.OfDouble mapper;
+
+    /**
+     * The reader, may be <code>null</code>
+     */
+    private final ToDoubleFunction<Object> reader;
+
+    /**
+     * The writer, may be <code>null</code>
+     */
+    private final ObjDoubleConsumer<Object> writer;
+
+    /**
+     * Creates a new instance of <code>OfDouble</code>.
+     * 
+     * @param mapper
+     *          the mapper
+     * @param reader
+     *          the reader
+     * @param writer
+     *          the writer
+     */
+    OfDouble(PrimitiveMapper.OfDouble mapper, ToDoubleFunction<Object> reader,
+        ObjDoubleConsumer<Object> writer) {
+      this.mapper = mapper;
+      this.reader = reader;
+      this.writer = writer;
+    }
+
+    @Override
+    ValueBuilder<?, ?, ?> toDatastore(Object target) {
+      return reader == null ? null : mapper.toDatastoreDouble(reader.applyAsDouble(target));
+    }
+
+    @Override
+    boolean toModel(Object target, Value<?> value) {
+      if (writer == null || value instanceof NullValue) {
+        return false;
+      }
+      writer.accept(target, mapper.toModelDouble(value));
+      return true;
+    }
+  }
+
+  /**
+   * Accessor for fields that are stored as a Datastore <code>boolean</code>.
+   */
+  static final class OfBoolean extends PrimitiveAccessor {
+
+    /**
+     * The mapper
+     */
+    private final PrimitiveMapper.OfBoolean mapper;
+
+    /**
+     * The reader, may be <code>null</code>
+     */
+    private final Predicate<Object> reader;
+
+    /**
+     * The writer, may be <code>null</code>
+     */
+    private final ObjBooleanConsumer writer;
+
+    /**
+     * Creates a new instance of <code>OfBoolean</code>.
+     * 
+     * @param mapper
+     *          the mapper
+     * @param reader
+     *          the reader
+     * @param writer
+     *          the writer
+     */
+    OfBoolean(PrimitiveMapper.OfBoolean mapper, Predicate<Object> reader,
+        ObjBooleanConsumer writer) {
+      this.mapper = mapper;
+      this.reader = reader;
+      this.writer = writer;
+    }
+
+    @Override
+    ValueBuilder<?, ?, ?> toDatastore(Object target) {
+      return reader == null ? null : mapper.toDatastoreBoolean(reader.test(target));
+    }
+
+    @Override
+    boolean toModel(Object target, Value<?> value) {
+      if (writer == null || value instanceof NullValue) {
+        return false;
+      }
+      writer.accept(target, mapper.toModelBoolean(value));
+      return true;
+    }
+  }
+
+  /**
+   * Setter of a <code>boolean</code> field.
+   */
+  @FunctionalInterface
+  interface ObjBooleanConsumer {
+
+    /**
+     * Sets the given value on the given target.
+     * 
+     * @param target
+     *          the target
+     * @param value
+     *          the value
+     */
+    void accept(Object target, boolean value);
+  }
+
+  /**
+   * Setter of a <code>short</code> field.
+   */
+  @FunctionalInterface
+  interface ObjShortConsumer {
+
+    /**
+     * Sets the given value on the given target.
+     * 
+     * @param target
+     *          the target
+     * @param value
+     *          the value
+     */
+    void accept(Object target, short value);
+  }
+
+  /**
+   * Setter of a <code>float</code> field.
+   */
+  @FunctionalInterface
+  interface ObjFloatConsumer {
+
+    /**
+     * Sets the given value on the given target.
+     * 
+     * @param target
+     *          the target
+     * @param value
+     *          the value
+     */
+    void accept(Object target, float value);
+  }
+
+}
@@ -73,6 +73,12 @@ public class PropertyMetadata extends FieldMetadata {
    */
   protected final Mapper mapper;
 
+  /**
+   * Accessor for reading/writing this property without boxing, if the field is of a primitive type
+   * and the mapper supports it
+   */
+  private final PrimitiveAccessor primitiveAccessor;
+
   /**
    * Creates an instance of <code>PropertyMetadata</code>.
    *
@@ -98,6 +104,7 @@ public class PropertyMetadata extends FieldMetadata {
     setOptional(optional);
     initializeSecondaryIndexer();
     this.mapper = initializeMapper();
+    this.primitiveAccessor = PrimitiveAccessor.create(this, mapper);
   }
 
   /**
@@ -119,6 +126,7 @@ public class PropertyMetadata extends FieldMetadata {
     setOptional(optional);
     initializeSecondaryIndexer();
     this.mapper = initializeMapper();
+    this.primitiveAccessor = PrimitiveAccessor.create(this, mapper);
   }
 
   /**
@@ -237,6 +245,17 @@ public class PropertyMetadata extends FieldMetadata {
     return mapper;
   }
 
+  /**
+   * Returns the accessor for reading/writing this property without boxing.
+   * 
+   * @return the accessor for reading/writing this property without boxing. Returns
+   *         <code>null</code>, if the field is not of a primitive type or its mapper does not
+   *         support primitive values.
+   */
+  PrimitiveAccessor getPrimitiveAccessor() {
+    return primitiveAccessor;
+  }
+
   /**
    * Initializes the {@link Mapper} for this field.
    * 
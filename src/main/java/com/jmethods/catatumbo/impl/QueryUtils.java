@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.datastore.Blob;
@@ -45,6 +46,18 @@ import com.jmethods.catatumbo.mappers.LocalTimeMapper;
  */
 public class QueryUtils {
 
+  /**
+   * Pattern for the quoted tokens of a GQL query: string literals and backquoted names
+   */
+  private static final Pattern QUOTED_TOKEN_PATTERN = Pattern.compile(
+      "'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\"|`(?:[^`\\\\]|\\\\.|``)*`");
+
+  /**
+   * Pattern for the LIMIT clause of a GQL query, with a binding, an integer or FIRST(...)
+   */
+  private static final Pattern LIMIT_CLAUSE_PATTERN = Pattern.compile(
+      "(?<![@\\w$])LIMIT\\s+(?:@[\\w$]+|\\d+|FIRST\\s*\\()", Pattern.CASE_INSENSITIVE);
+
   /**
    * Hide the default constructor.
    */
@@ -197,6 +210,21 @@ public class QueryUtils {
     }
   }
 
+  /**
+   * Tells whether or not the given GQL query has a LIMIT clause. The word LIMIT only counts as a
+   * clause when it is followed by a binding, an integer or <code>FIRST(</code>, and it is not part
+   * of a string literal or a backquoted name. Properties or kinds named <code>limit</code> are
+   * therefore not taken for a LIMIT clause.
+   * 
+   * @param gql
+   *          the GQL query
+   * @return <code>true</code>, if the query has a LIMIT clause; <code>false</code>, otherwise.
+   */
+  static boolean hasLimit(String gql) {
+    String unquoted = QUOTED_TOKEN_PATTERN.matcher(gql).replaceAll(" ");
+    return LIMIT_CLAUSE_PATTERN.matcher(unquoted).find();
+  }
+
   /**
    * Converts the given Calendar to a Timestamp.
    * 
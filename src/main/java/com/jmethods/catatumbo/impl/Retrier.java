@@ -0,0 +1,280 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.jmethods.catatumbo.RetryMetrics;
+import com.jmethods.catatumbo.RetryPolicy;
+
+/**
+ * Retries operations that fail with a retryable {@link DatastoreException}, according to a
+ * {@link RetryPolicy}, and counts the retries.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class Retrier implements RetryMetrics {
+
+  /**
+   * Settings that never retry
+   */
+  private static final Settings NO_RETRY = new Settings(null);
+
+  /**
+   * Settings of the current policy
+   */
+  private volatile Settings settings = NO_RETRY;
+
+  /**
+   * Number of retries
+   */
+  private final LongAdder retryCount = new LongAdder();
+
+  /**
+   * Number of give-ups
+   */
+  private final LongAdder giveUpCount = new LongAdder();
+
+  /**
+   * Sets the retry policy. The settings of the policy are copied.
+   * 
+   * @param retryPolicy
+   *          the retry policy, or <code>null</code>, to disable retries
+   */
+  void setPolicy(RetryPolicy retryPolicy) {
+    settings = retryPolicy == null ? NO_RETRY : new Settings(retryPolicy);
+  }
+
+  @Override
+  public long getRetryCount() {
+    return retryCount.sum();
+  }
+
+  @Override
+  public long getGiveUpCount() {
+    return giveUpCount.sum();
+  }
+
+  /**
+   * Runs the given operation, retrying it while it fails with a retryable error and attempts are
+   * left.
+   * 
+   * @param operation
+   *          the operation
+   * @return the result of the operation
+   * @throws DatastoreException
+   *           the last failure, if the operation did not succeed
+   */
+  <T> T call(Supplier<T> operation) {
+    Settings current = settings;
+    for (int attempt = 1;; attempt++) {
+      try {
+        return operation.get();
+      } catch (DatastoreException exp) {
+        if (!shouldRetry(current, exp, attempt)) {
+          throw exp;
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the given operation, retrying it while it fails with a retryable error and attempts are
+   * left.
+   * 
+   * @param operation
+   *          the operation
+   * @throws DatastoreException
+   *           the last failure, if the operation did not succeed
+   */
+  void run(Runnable operation) {
+    call(() -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  /**
+   * Tells whether or not an operation that failed with the given exception should be tried again,
+   * and waits for the backoff delay if so. Counts the retry or give-up.
+   * 
+   * @param exp
+   *          the failure, or any exception whose cause chain may contain a
+   *          {@link DatastoreException}
+   * @param attempt
+   *          the number of the attempt that failed, starting from 1
+   * @return <code>true</code>, if the operation should be tried again; <code>false</code>,
+   *         otherwise.
+   */
+  boolean shouldRetry(Throwable exp, int attempt) {
+    return shouldRetry(settings, exp, attempt);
+  }
+
+  /**
+   * Tells whether or not a transaction that failed with the given exception should be run again,
+   * and waits for the backoff delay if so. Only a transaction that was aborted, with the code
+   * {@link RetryPolicy#CODE_ABORTED}, is run again; any other failure, such as an unavailable
+   * service during commit, may have left the transaction committed.
+   * 
+   * @param exp
+   *          the failure, or any exception whose cause chain may contain a
+   *          {@link DatastoreException}
+   * @param attempt
+   *          the number of the attempt that failed, starting from 1
+   * @return <code>true</code>, if the transaction should be run again; <code>false</code>,
+   *         otherwise.
+   */
+  boolean shouldRetryTransaction(Throwable exp, int attempt) {
+    DatastoreException datastoreException = findDatastoreException(exp);
+    return datastoreException != null
+        && datastoreException.getCode() == RetryPolicy.CODE_ABORTED
+        && shouldRetry(settings, exp, attempt);
+  }
+
+  /**
+   * Tells whether or not an operation that failed with the given exception should be tried again
+   * under the given settings, and waits for the backoff delay if so.
+   * 
+   * @param current
+   *          the settings
+   * @param exp
+   *          the failure
+   * @param attempt
+   *          the number of the attempt that failed, starting from 1
+   * @return <code>true</code>, if the operation should be tried again; <code>false</code>,
+   *         otherwise.
+   */
+  private boolean shouldRetry(Settings current, Throwable exp, int attempt) {
+    DatastoreException datastoreException = findDatastoreException(exp);
+    if (datastoreException == null
+        || !current.retryableCodes.contains(datastoreException.getCode())) {
+      return false;
+    }
+    if (attempt >= current.maxAttempts) {
+      if (current.maxAttempts > 1) {
+        giveUpCount.increment();
+      }
+      return false;
+    }
+    try {
+      TimeUnit.MILLISECONDS.sleep(current.backoff(attempt));
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    retryCount.increment();
+    return true;
+  }
+
+  /**
+   * Returns the first {@link DatastoreException} in the cause chain of the given exception.
+   * 
+   * @param exp
+   *          the exception
+   * @return the {@link DatastoreException}, or <code>null</code>, if there is none
+   */
+  private static DatastoreException findDatastoreException(Throwable exp) {
+    for (Throwable cause = exp; cause != null; cause = cause.getCause()) {
+      if (cause instanceof DatastoreException) {
+        return (DatastoreException) cause;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Immutable copy of the settings of a {@link RetryPolicy}.
+   */
+  private static class Settings {
+
+    /**
+     * Maximum number of attempts
+     */
+    private final int maxAttempts;
+
+    /**
+     * Delay before the first retry, in milliseconds
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * Maximum delay before a retry, in milliseconds
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * Factor by which the delay grows after each retry
+     */
+    private final double backoffMultiplier;
+
+    /**
+     * Fraction of the delay that is randomized
+     */
+    private final double jitter;
+
+    /**
+     * Error codes that are retried
+     */
+    private final Set<Integer> retryableCodes;
+
+    /**
+     * Creates a new instance of <code>Settings</code>.
+     * 
+     * @param retryPolicy
+     *          the policy to copy, or <code>null</code>, for settings that never retry
+     */
+    Settings(RetryPolicy retryPolicy) {
+      if (retryPolicy == null) {
+        maxAttempts = 1;
+        initialBackoffMillis = 0L;
+        maxBackoffMillis = 0L;
+        backoffMultiplier = 1.0;
+        jitter = 0.0;
+        retryableCodes = Collections.emptySet();
+      } else {
+        maxAttempts = retryPolicy.getMaxAttempts();
+        initialBackoffMillis = retryPolicy.getInitialBackoffMillis();
+        maxBackoffMillis = retryPolicy.getMaxBackoffMillis();
+        backoffMultiplier = retryPolicy.getBackoffMultiplier();
+        jitter = retryPolicy.getJitter();
+        retryableCodes = retryPolicy.getRetryableCodes();
+      }
+    }
+
+    /**
+     * Returns the delay before retrying the given attempt.
+     * 
+     * @param attempt
+     *          the number of the attempt that failed, starting from 1
+     * @return the delay, in milliseconds
+     */
+    long backoff(int attempt) {
+      double delay = Math.min(maxBackoffMillis,
+          initialBackoffMillis * Math.pow(backoffMultiplier, attempt - 1));
+      delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+      return (long) delay;
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.Cacheable;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityCache;
+import com.jmethods.catatumbo.EntityCacheProvider;
+
+/**
+ * The second-level cache of an entity manager. Holds the {@link EntityCache} of each
+ * {@link Cacheable} entity class, which is created on first use.
+ * 
+ * <p>
+ * Each cache has an eviction generation, which is incremented whenever entities are evicted from
+ * it. Readers capture the generation before fetching an entity from the Datastore, and add the
+ * entity to the cache with {@link #put(Class, DatastoreKey, Entity, long)}, which drops it if an
+ * eviction happened in the meantime. Otherwise, an entity fetched before a concurrent write and
+ * put after the write's eviction would stay in the cache until it expires.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+class SecondLevelCache {
+
+  /**
+   * Creates the caches
+   */
+  private final EntityCacheProvider provider;
+
+  /**
+   * Region of each entity class that was looked up, including the ones that are not cacheable
+   */
+  private final ConcurrentHashMap<Class<?>, Region> regions = new ConcurrentHashMap<>();
+
+  /**
+   * Whether or not a cache was created for any entity class
+   */
+  private volatile boolean active;
+
+  /**
+   * Creates a new instance of <code>SecondLevelCache</code>.
+   * 
+   * @param provider
+   *          the provider that creates the caches
+   */
+  SecondLevelCache(EntityCacheProvider provider) {
+    this.provider = provider;
+  }
+
+  /**
+   * Returns the cache for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @return the cache for the given entity class, or <code>null</code>, if the entity class is not
+   *         {@link Cacheable}.
+   */
+  EntityCache getCache(Class<?> entityClass) {
+    Region region = regions.get(entityClass);
+    if (region == null) {
+      region = regions.computeIfAbsent(entityClass, this::createRegion);
+    }
+    return region.cache;
+  }
+
+  /**
+   * Returns the eviction generation of the cache for the given entity class. The generation must
+   * be captured before fetching the entities to be passed to
+   * {@link #put(Class, DatastoreKey, Entity, long)}.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @return the eviction generation, or 0, if the entity class is not {@link Cacheable}.
+   */
+  long getGeneration(Class<?> entityClass) {
+    Region region = regions.get(entityClass);
+    return region == null || region.cache == null ? 0L : region.generation.get();
+  }
+
+  /**
+   * Adds the given entity to the cache for the given entity class, unless entities were evicted
+   * from the cache since the given generation was captured. If an eviction runs while the entity is
+   * being added, the entity is removed again.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @param key
+   *          the key of the entity
+   * @param nativeEntity
+   *          the native entity, as fetched from the Datastore
+   * @param generation
+   *          the eviction generation captured before the entity was fetched
+   */
+  void put(Class<?> entityClass, DatastoreKey key, Entity nativeEntity, long generation) {
+    Region region = regions.get(entityClass);
+    if (region == null || region.cache == null || region.generation.get() != generation) {
+      return;
+    }
+    region.cache.put(key, nativeEntity);
+    if (region.generation.get() != generation) {
+      region.cache.remove(key);
+    }
+  }
+
+  /**
+   * Evicts the entities with the given keys from the caches of their kind.
+   * 
+   * @param nativeKeys
+   *          the keys of the entities to evict
+   */
+  void evict(Iterable<Key> nativeKeys) {
+    if (!active) {
+      return;
+    }
+    for (Key nativeKey : nativeKeys) {
+      DefaultDatastoreKey key = null;
+      for (Region region : regions.values()) {
+        if (region.cache != null && region.kind.equals(nativeKey.getKind())) {
+          if (key == null) {
+            key = new DefaultDatastoreKey(nativeKey);
+          }
+          region.generation.incrementAndGet();
+          region.cache.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Evicts all entities of the given kind.
+   * 
+   * @param kind
+   *          the entity kind
+   */
+  void evictAll(String kind) {
+    if (!active) {
+      return;
+    }
+    for (Region region : regions.values()) {
+      if (region.cache != null && region.kind.equals(kind)) {
+        region.generation.incrementAndGet();
+        region.cache.clear();
+      }
+    }
+  }
+
+  /**
+   * Evicts all entities from all caches.
+   */
+  void clear() {
+    for (Region region : regions.values()) {
+      if (region.cache != null) {
+        region.generation.incrementAndGet();
+        region.cache.clear();
+      }
+    }
+  }
+
+  /**
+   * Creates the region for the given entity class.
+   * 
+   * @param entityClass
+   *          the entity class
+   * @return the region for the given entity class
+   */
+  private Region createRegion(Class<?> entityClass) {
+    Cacheable settings = entityClass.getAnnotation(Cacheable.class);
+    if (settings == null) {
+      return new Region(null, null);
+    }
+    EntityMetadata entityMetadata = EntityIntrospector.introspect(entityClass);
+    Region region = new Region(entityMetadata.getKind(),
+        provider.createCache(entityClass, settings));
+    active = true;
+    return region;
+  }
+
+  /**
+   * The cache of an entity class.
+   */
+  private static class Region {
+
+    /**
+     * The entity kind
+     */
+    private final String kind;
+
+    /**
+     * The cache, or <code>null</code>, if the entity class is not cacheable
+     */
+    private final EntityCache cache;
+
+    /**
+     * Number of evictions from the cache
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>Region</code>.
+     * 
+     * @param kind
+     *          the entity kind
+     * @param cache
+     *          the cache, or <code>null</code>, if the entity class is not cacheable
+     */
+    Region(String kind, EntityCache cache) {
+      this.kind = kind;
+      this.cache = cache;
+    }
+  }
+
+}
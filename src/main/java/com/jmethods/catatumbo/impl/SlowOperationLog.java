@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.jmethods.catatumbo.SlowOperation;
+import com.jmethods.catatumbo.SlowOperationHandler;
+import com.jmethods.catatumbo.SlowOperationLogOptions;
+
+/**
+ * Selects the slow operations to log and sends them to the handler of the options, or to the
+ * default logger. The options are copied when the log is created, so later changes to them have no
+ * effect.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class SlowOperationLog {
+
+  /**
+   * Logger used when the options do not have a handler
+   */
+  private static final Logger DEFAULT_LOGGER = Logger
+      .getLogger(SlowOperationLogOptions.DEFAULT_LOGGER_NAME);
+
+  /**
+   * Threshold, in nanoseconds
+   */
+  private final long thresholdNanos;
+
+  /**
+   * Fraction of the slow operations that are logged
+   */
+  private final double sampleRate;
+
+  /**
+   * Whether or not the values of query bindings are hidden
+   */
+  private final boolean redactBindings;
+
+  /**
+   * Handler of slow operations, or <code>null</code>, to use the default logger
+   */
+  private final SlowOperationHandler handler;
+
+  /**
+   * Creates a new instance of <code>SlowOperationLog</code>.
+   * 
+   * @param options
+   *          the options
+   */
+  SlowOperationLog(SlowOperationLogOptions options) {
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(options.getThresholdMillis());
+    this.sampleRate = options.getSampleRate();
+    this.redactBindings = options.isRedactBindings();
+    this.handler = options.getHandler();
+  }
+
+  /**
+   * Tells whether or not an operation that took the given time should be logged. Operations below
+   * the threshold are never logged; the others are sampled.
+   * 
+   * @param elapsedNanos
+   *          the time taken by the operation, in nanoseconds
+   * @return <code>true</code>, if the operation should be logged; <code>false</code>, otherwise.
+   */
+  boolean shouldLog(long elapsedNanos) {
+    return elapsedNanos >= thresholdNanos
+        && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+  }
+
+  /**
+   * Tells whether or not the values of query bindings are hidden.
+   * 
+   * @return <code>true</code>, if the values of query bindings are hidden; <code>false</code>,
+   *         otherwise.
+   */
+  boolean isRedactBindings() {
+    return redactBindings;
+  }
+
+  /**
+   * Logs the given slow operation.
+   * 
+   * @param operation
+   *          the slow operation
+   */
+  void log(SlowOperation operation) {
+    try {
+      if (handler == null) {
+        DEFAULT_LOGGER.log(Level.WARNING, operation.toString());
+      } else {
+        handler.handle(operation);
+      }
+    } catch (RuntimeException exp) {
+      // Ignore
+    }
+  }
+
+}
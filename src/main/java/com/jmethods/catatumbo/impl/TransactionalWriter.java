@@ -16,6 +16,7 @@
 
 package com.jmethods.catatumbo.impl;
 
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.cloud.datastore.DatastoreException;
@@ -52,7 +53,6 @@ public class TransactionalWriter extends DefaultDatastoreWriter {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   protected <E> E updateWithOptimisticLockingInternal(E entity, PropertyMetadata versionMetadata) {
     try {
       entityManager.executeEntityListeners(CallbackType.PRE_UPDATE, entity);
@@ -70,7 +70,8 @@ public class TransactionalWriter extends DefaultDatastoreWriter {
             String.format("Expecting version %d, but found %d", version, storedVersion));
       }
       nativeTransaction.update(nativeEntity);
-      E updatedEntity = (E) Unmarshaller.unmarshal(nativeEntity, entity.getClass());
+      evict(nativeEntity.getKey());
+      E updatedEntity = toWrittenEntity(entity, nativeEntity);
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntity);
       return updatedEntity;
     } catch (DatastoreException exp) {
@@ -79,7 +80,6 @@ public class TransactionalWriter extends DefaultDatastoreWriter {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <E> List<E> updateWithOptimisticLockInternal(List<E> entities,
       PropertyMetadata versionMetadata) {
     try {
@@ -109,8 +109,9 @@ public class TransactionalWriter extends DefaultDatastoreWriter {
         }
       }
       nativeTransaction.update(nativeEntities);
-      List<E> updatedEntities = (List<E>) DatastoreUtils.toEntities(entities.get(0).getClass(),
-          nativeEntities);
+      evict(nativeKeys);
+      List<E> updatedEntities = toWrittenEntities(entities,
+          Arrays.asList(nativeEntities));
       entityManager.executeEntityListeners(CallbackType.POST_UPDATE, updatedEntities);
       return updatedEntities;
 
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.EntityValue;
+import com.google.cloud.datastore.NullValue;
+import com.google.cloud.datastore.Value;
+import com.jmethods.catatumbo.EntityManagerException;
+
+/**
+ * A precompiled plan for unmarshalling the properties of a native entity into a model object. The
+ * plan flattens the property metadata of an entity, including the properties of its exploded
+ * embedded fields, into a single map of slots keyed by the mapped property name. Unmarshalling an
+ * entity is then a single pass over the properties of the native entity, instead of probing the
+ * native entity for every property in the metadata.
+ * 
+ * <p>
+ * Exploded embedded objects are assigned an owner index. The owner at index 0 is the object being
+ * unmarshalled, and the owner at index <code>i + 1</code> is the embedded object described by
+ * <code>explodedNodes[i]</code>. Nodes are ordered such that a parent always precedes its
+ * children. Imploded embedded fields occupy a single slot, which has its own plan for unmarshalling
+ * the nested entity.
+ * </p>
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+final class UnmarshalPlan {
+
+  /**
+   * Slots keyed by the mapped property name
+   */
+  private final Map<String, Slot> slots;
+
+  /**
+   * Exploded embedded fields, parents before children
+   */
+  private final ExplodedNode[] explodedNodes;
+
+  /**
+   * Creates a new instance of <code>UnmarshalPlan</code>.
+   * 
+   * @param slots
+   *          the slots keyed by the mapped property name
+   * @param explodedNodes
+   *          the exploded embedded fields
+   */
+  private UnmarshalPlan(Map<String, Slot> slots, List<ExplodedNode> explodedNodes) {
+    this.slots = slots;
+    this.explodedNodes = explodedNodes.toArray(new ExplodedNode[explodedNodes.size()]);
+  }
+
+  /**
+   * Creates the unmarshal plan for the entity with the given metadata.
+   * 
+   * @param entityMetadata
+   *          the entity metadata
+   * @return the unmarshal plan
+   */
+  static UnmarshalPlan create(EntityMetadata entityMetadata) {
+    Map<String, Slot> slots = new HashMap<>();
+    List<ExplodedNode> explodedNodes = new ArrayList<>();
+    addPropertySlots(slots, entityMetadata, 0);
+    for (EmbeddedMetadata embeddedMetadata : entityMetadata.getEmbeddedMetadataCollection()) {
+      if (embeddedMetadata.getStorageStrategy() == StorageStrategy.EXPLODED) {
+        addExplodedNode(slots, explodedNodes, embeddedMetadata, 0);
+      } else {
+        slots.put(embeddedMetadata.getMappedName(), new ImplodedSlot(embeddedMetadata, 0));
+      }
+    }
+    return new UnmarshalPlan(slots, explodedNodes);
+  }
+
+  /**
+   * Creates the unmarshal plan for the imploded embedded field with the given metadata. Everything
+   * nested within an imploded embedded field is also imploded.
+   * 
+   * @param embeddedMetadata
+   *          the embedded metadata
+   * @return the unmarshal plan
+   */
+  private static UnmarshalPlan createImploded(EmbeddedMetadata embeddedMetadata) {
+    Map<String, Slot> slots = new HashMap<>();
+    addPropertySlots(slots, embeddedMetadata, 0);
+    for (EmbeddedMetadata embeddedMetadata2 : embeddedMetadata.getEmbeddedMetadataCollection()) {
+      slots.put(embeddedMetadata2.getMappedName(), new ImplodedSlot(embeddedMetadata2, 0));
+    }
+    return new UnmarshalPlan(slots, new ArrayList<>(0));
+  }
+
+  /**
+   * Adds a slot for each property of the given metadata.
+   * 
+   * @param slots
+   *          the slots
+   * @param metadata
+   *          the metadata of the entity or embedded object
+   * @param ownerIndex
+   *          the index of the object that owns the properties
+   */
+  private static void addPropertySlots(Map<String, Slot> slots, MetadataBase metadata,
+      int ownerIndex) {
+    for (PropertyMetadata propertyMetadata : metadata.getPropertyMetadataCollection()) {
+      slots.put(propertyMetadata.getMappedName(), new PropertySlot(propertyMetadata, ownerIndex));
+    }
+  }
+
+  /**
+   * Adds the given exploded embedded field and everything nested within it to the plan. Everything
+   * nested within an exploded embedded field is also exploded.
+   * 
+   * @param slots
+   *          the slots
+   * @param explodedNodes
+   *          the exploded embedded fields
+   * @param embeddedMetadata
+   *          the metadata of the exploded embedded field
+   * @param parentIndex
+   *          the owner index of the object that declares the embedded field
+   */
+  private static void addExplodedNode(Map<String, Slot> slots, List<ExplodedNode> explodedNodes,
+      EmbeddedMetadata embeddedMetadata, int parentIndex) {
+    explodedNodes.add(new ExplodedNode(embeddedMetadata, parentIndex));
+    int ownerIndex = explodedNodes.size();
+    addPropertySlots(slots, embeddedMetadata, ownerIndex);
+    for (EmbeddedMetadata embeddedMetadata2 : embeddedMetadata.getEmbeddedMetadataCollection()) {
+      addExplodedNode(slots, explodedNodes, embeddedMetadata2, ownerIndex);
+    }
+  }
+
+  /**
+   * Executes this plan, copying the properties of the given native entity to the given target.
+   * Properties that do not exist in the native entity are left untouched (e.g. projection queries
+   * or fields added to the model after the data was written).
+   * 
+   * @param nativeEntity
+   *          the native entity
+   * @param target
+   *          the target object (or its Builder)
+   * @throws Throwable
+   *           propagated
+   */
+  void execute(BaseEntity<?> nativeEntity, Object target) throws Throwable {
+    Object[] owners = new Object[explodedNodes.length + 1];
+    owners[0] = target;
+    for (int i = 0; i < explodedNodes.length; i++) {
+      ExplodedNode node = explodedNodes[i];
+      owners[i + 1] = node.initialize(owners[node.parentIndex]);
+    }
+    for (String name : nativeEntity.getNames()) {
+      Slot slot = slots.get(name);
+      if (slot != null) {
+        slot.apply(owners[slot.ownerIndex], nativeEntity.getValue(name));
+      }
+    }
+    // Children first, so each embedded object is complete before it is set on its parent
+    for (int i = explodedNodes.length - 1; i >= 0; i--) {
+      ExplodedNode node = explodedNodes[i];
+      node.complete(owners[i + 1], owners[node.parentIndex]);
+    }
+  }
+
+  /**
+   * A slot to which a single property of the native entity is unmarshalled.
+   */
+  private abstract static class Slot {
+
+    /**
+     * Index of the object to update
+     */
+    final int ownerIndex;
+
+    /**
+     * Creates a new instance of <code>Slot</code>.
+     * 
+     * @param ownerIndex
+     *          index of the object to update
+     */
+    Slot(int ownerIndex) {
+      this.ownerIndex = ownerIndex;
+    }
+
+    /**
+     * Unmarshals the given value and sets it on the given owner.
+     * 
+     * @param owner
+     *          the object to update
+     * @param value
+     *          the native value
+     * @throws Throwable
+     *           propagated
+     */
+    abstract void apply(Object owner, Value<?> value) throws Throwable;
+  }
+
+  /**
+   * A slot for a simple property.
+   */
+  private static final class PropertySlot extends Slot {
+
+    /**
+     * Property metadata
+     */
+    private final PropertyMetadata propertyMetadata;
+
+    /**
+     * Accessor for writing the property without boxing, may be <code>null</code>
+     */
+    private final PrimitiveAccessor primitiveAccessor;
+
+    /**
+     * Creates a new instance of <code>PropertySlot</code>.
+     * 
+     * @param propertyMetadata
+     *          the property metadata
+     * @param ownerIndex
+     *          index of the object to update
+     */
+    PropertySlot(PropertyMetadata propertyMetadata, int ownerIndex) {
+      super(ownerIndex);
+      this.propertyMetadata = propertyMetadata;
+      this.primitiveAccessor = propertyMetadata.getPrimitiveAccessor();
+    }
+
+    @Override
+    void apply(Object owner, Value<?> value) {
+      if (primitiveAccessor != null && primitiveAccessor.toModel(owner, value)) {
+        return;
+      }
+      Object entityValue = propertyMetadata.getMapper().toModel(value);
+      propertyMetadata.getWriter().accept(owner, entityValue);
+    }
+  }
+
+  /**
+   * A slot for an embedded field that is stored as a nested entity.
+   */
+  private static final class ImplodedSlot extends Slot {
+
+    /**
+     * Metadata of the embedded field
+     */
+    private final EmbeddedMetadata embeddedMetadata;
+
+    /**
+     * Plan for unmarshalling the nested entity
+     */
+    private final UnmarshalPlan plan;
+
+    /**
+     * Creates a new instance of <code>ImplodedSlot</code>.
+     * 
+     * @param embeddedMetadata
+     *          the metadata of the embedded field
+     * @param ownerIndex
+     *          index of the object to update
+     */
+    ImplodedSlot(EmbeddedMetadata embeddedMetadata, int ownerIndex) {
+      super(ownerIndex);
+      this.embeddedMetadata = embeddedMetadata;
+      this.plan = createImploded(embeddedMetadata);
+    }
+
+    @Override
+    void apply(Object owner, Value<?> value) throws Throwable {
+      if (value instanceof NullValue) {
+        embeddedMetadata.getWriter().accept(owner, null);
+        return;
+      }
+      ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
+      Object embeddedObject = constructorMetadata.getConstructorMethodHandle().invoke();
+      plan.execute(((EntityValue) value).get(), embeddedObject);
+      if (constructorMetadata.isBuilderConstructionStrategy()) {
+        embeddedObject = constructorMetadata.getBuildMethodHandle().invoke(embeddedObject);
+      }
+      embeddedMetadata.getWriter().accept(owner, embeddedObject);
+    }
+  }
+
+  /**
+   * An embedded field whose properties are stored as properties of the entity.
+   */
+  private static final class ExplodedNode {
+
+    /**
+     * Metadata of the embedded field
+     */
+    private final EmbeddedMetadata embeddedMetadata;
+
+    /**
+     * Owner index of the object that declares the embedded field
+     */
+    private final int parentIndex;
+
+    /**
+     * Creates a new instance of <code>ExplodedNode</code>.
+     * 
+     * @param embeddedMetadata
+     *          the metadata of the embedded field
+     * @param parentIndex
+     *          owner index of the object that declares the embedded field
+     */
+    ExplodedNode(EmbeddedMetadata embeddedMetadata, int parentIndex) {
+      this.embeddedMetadata = embeddedMetadata;
+      this.parentIndex = parentIndex;
+    }
+
+    /**
+     * Returns the embedded object to unmarshal into. The existing value of the field is reused, if
+     * the embedded class uses the classic construction strategy and the value is not
+     * <code>null</code>.
+     * 
+     * @param parent
+     *          the object that declares the embedded field
+     * @return the embedded object (or its Builder)
+     * @throws EntityManagerException
+     *           if any error occurs during initialization of the embedded object
+     */
+    Object initialize(Object parent) {
+      try {
+        ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
+        Object embeddedObject = null;
+        if (constructorMetadata.isClassicConstructionStrategy()) {
+          embeddedObject = embeddedMetadata.getReader().apply(parent);
+        }
+        if (embeddedObject == null) {
+          embeddedObject = constructorMetadata.getConstructorMethodHandle().invoke();
+        }
+        return embeddedObject;
+      } catch (Throwable t) {
+        throw new EntityManagerException(t);
+      }
+    }
+
+    /**
+     * Builds the embedded object, if needed, and sets it on the parent.
+     * 
+     * @param embeddedObject
+     *          the embedded object (or its Builder)
+     * @param parent
+     *          the object that declares the embedded field
+     * @throws Throwable
+     *           propagated
+     */
+    void complete(Object embeddedObject, Object parent) throws Throwable {
+      ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
+      if (constructorMetadata.isBuilderConstructionStrategy()) {
+        embeddedObject = constructorMetadata.getBuildMethodHandle().invoke(embeddedObject);
+      }
+      embeddedMetadata.getWriter().accept(parent, embeddedObject);
+    }
+  }
+
+}
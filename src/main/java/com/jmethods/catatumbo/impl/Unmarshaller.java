@@ -16,19 +16,14 @@
 
 package com.jmethods.catatumbo.impl;
 
-import java.lang.invoke.MethodHandle;
-import java.util.Collection;
-
 import com.google.cloud.datastore.BaseEntity;
 import com.google.cloud.datastore.Entity;
-import com.google.cloud.datastore.EntityValue;
-import com.google.cloud.datastore.FullEntity;
 import com.google.cloud.datastore.Key;
-import com.google.cloud.datastore.NullValue;
 import com.google.cloud.datastore.ProjectionEntity;
 import com.google.cloud.datastore.Value;
 import com.jmethods.catatumbo.DefaultDatastoreKey;
 import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.ProcessingPhase;
 
 /**
  * Converts Entities retrieved from the Cloud Datastore into Entity POJOs.
@@ -52,18 +47,27 @@ public class Unmarshaller {
    */
   private final EntityMetadata entityMetadata;
 
+  /**
+   * Timer of the unmarshalling phases
+   */
+  private final PhaseTimer phaseTimer;
+
   /**
    * Creates a new instance of <code>Unmarshaller</code>.
    * 
+   * @param entityManager
+   *          the entity manager whose phase metrics receive the unmarshalling times, may be
+   *          <code>null</code>
    * @param nativeEntity
    *          the native entity to unmarshal
    * @param entityClass
    *          the expected model type
    */
-  private Unmarshaller(BaseEntity<?> nativeEntity, Class<?> entityClass) {
+  private Unmarshaller(DefaultEntityManager entityManager, BaseEntity<?> nativeEntity,
+      Class<?> entityClass) {
     this.nativeEntity = nativeEntity;
     entityMetadata = EntityIntrospector.introspect(entityClass);
-
+    phaseTimer = PhaseTimer.start(entityManager, entityClass);
   }
 
   /**
@@ -79,7 +83,27 @@ public class Unmarshaller {
    *         <code>datastoreEntity</code> is <code>null</code>, returns <code>null</code>.
    */
   public static <T> T unmarshal(Entity nativeEntity, Class<T> entityClass) {
-    return unmarshalBaseEntity(nativeEntity, entityClass);
+    return unmarshalBaseEntity(null, nativeEntity, entityClass);
+  }
+
+  /**
+   * Unmarshals the given native Entity into an object of given type, entityClass, reporting the
+   * time spent to the phase metrics of the given entity manager.
+   * 
+   * @param <T>
+   *          target object type
+   * @param entityManager
+   *          the entity manager
+   * @param nativeEntity
+   *          the native Entity
+   * @param entityClass
+   *          the target type
+   * @return Object that is equivalent to the given native entity. If the given
+   *         <code>datastoreEntity</code> is <code>null</code>, returns <code>null</code>.
+   */
+  public static <T> T unmarshal(DefaultEntityManager entityManager, Entity nativeEntity,
+      Class<T> entityClass) {
+    return unmarshalBaseEntity(entityManager, nativeEntity, entityClass);
   }
 
   /**
@@ -95,7 +119,73 @@ public class Unmarshaller {
    *         <code>datastoreEntity</code> is <code>null</code>, returns <code>null</code>.
    */
   public static <T> T unmarshal(ProjectionEntity nativeEntity, Class<T> entityClass) {
-    return unmarshalBaseEntity(nativeEntity, entityClass);
+    return unmarshalBaseEntity(null, nativeEntity, entityClass);
+  }
+
+  /**
+   * Unmarshals the given native ProjectionEntity into an object of given type, entityClass,
+   * reporting the time spent to the phase metrics of the given entity manager.
+   * 
+   * @param <T>
+   *          target object type
+   * @param entityManager
+   *          the entity manager
+   * @param nativeEntity
+   *          the native Entity
+   * @param entityClass
+   *          the target type
+   * @return Object that is equivalent to the given native entity. If the given
+   *         <code>datastoreEntity</code> is <code>null</code>, returns <code>null</code>.
+   */
+  public static <T> T unmarshal(DefaultEntityManager entityManager,
+      ProjectionEntity nativeEntity, Class<T> entityClass) {
+    return unmarshalBaseEntity(entityManager, nativeEntity, entityClass);
+  }
+
+  /**
+   * Updates the given entity in place with the state that the Datastore, or the marshalling
+   * process, generated for it: the identifier, key, parent key, version and automatic timestamps
+   * of the given native entity. Other fields are left as they are. Entities that are built using a
+   * Builder cannot be updated, so a new instance is unmarshalled from the native entity instead.
+   * 
+   * @param <T>
+   *          target object type
+   * @param nativeEntity
+   *          the native entity that was written for the given entity
+   * @param entity
+   *          the entity to update
+   * @return the given entity, or a new instance, if the entity uses a Builder.
+   */
+  public static <T> T unmarshalInPlace(Entity nativeEntity, T entity) {
+    return unmarshalInPlace(null, nativeEntity, entity);
+  }
+
+  /**
+   * Updates the given entity in place with the state that the Datastore generated for it, as
+   * described in {@link #unmarshalInPlace(Entity, Object)}, reporting the time spent to the phase
+   * metrics of the given entity manager.
+   * 
+   * @param <T>
+   *          target object type
+   * @param entityManager
+   *          the entity manager
+   * @param nativeEntity
+   *          the native entity that was written for the given entity
+   * @param entity
+   *          the entity to update
+   * @return the given entity, or a new instance, if the entity uses a Builder.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T unmarshalInPlace(DefaultEntityManager entityManager, Entity nativeEntity,
+      T entity) {
+    Unmarshaller unmarshaller = new Unmarshaller(entityManager, nativeEntity, entity.getClass());
+    ConstructorMetadata constructorMetadata = unmarshaller.entityMetadata.getConstructorMetadata();
+    if (constructorMetadata.isBuilderConstructionStrategy()) {
+      return (T) unmarshaller.unmarshal();
+    }
+    unmarshaller.entity = entity;
+    unmarshaller.unmarshalGeneratedFields();
+    return entity;
   }
 
   /**
@@ -110,16 +200,18 @@ public class Unmarshaller {
 
     try {
       instantiateEntity();
+      phaseTimer.end(ProcessingPhase.UNMARSHAL_INSTANTIATE);
       unmarshalIdentifier();
       unmarshalKeyAndParentKey();
-      unmarshalProperties();
-      unmarshalEmbeddedFields();
+      phaseTimer.end(ProcessingPhase.UNMARSHAL_KEY);
+      entityMetadata.getUnmarshalPlan().execute(nativeEntity, entity);
       // If using Builder pattern, invoke build method on the Builder to
       // get the final entity.
       ConstructorMetadata constructorMetadata = entityMetadata.getConstructorMetadata();
       if (constructorMetadata.isBuilderConstructionStrategy()) {
         entity = constructorMetadata.getBuildMethodHandle().invoke(entity);
       }
+      phaseTimer.end(ProcessingPhase.UNMARSHAL_FIELDS);
       return (T) entity;
     } catch (EntityManagerException exp) {
       throw exp;
@@ -131,17 +223,20 @@ public class Unmarshaller {
   /**
    * Unmarshals the given BaseEntity and returns the equivalent model object.
    * 
+   * @param entityManager
+   *          the entity manager, may be <code>null</code>
    * @param nativeEntity
    *          the native entity to unmarshal
    * @param entityClass
    *          the target type of the model class
    * @return the model object
    */
-  private static <T> T unmarshalBaseEntity(BaseEntity<?> nativeEntity, Class<T> entityClass) {
+  private static <T> T unmarshalBaseEntity(DefaultEntityManager entityManager,
+      BaseEntity<?> nativeEntity, Class<T> entityClass) {
     if (nativeEntity == null) {
       return null;
     }
-    Unmarshaller unmarshaller = new Unmarshaller(nativeEntity, entityClass);
+    Unmarshaller unmarshaller = new Unmarshaller(entityManager, nativeEntity, entityClass);
     return unmarshaller.unmarshal();
   }
 
@@ -152,6 +247,44 @@ public class Unmarshaller {
     entity = IntrospectionUtils.instantiate(entityMetadata);
   }
 
+  /**
+   * Unmarshals the identifier, key, parent key, version and automatic timestamps into the entity.
+   */
+  private void unmarshalGeneratedFields() {
+    try {
+      unmarshalIdentifier();
+      unmarshalKeyAndParentKey();
+      phaseTimer.end(ProcessingPhase.UNMARSHAL_KEY);
+      unmarshalProperty(entityMetadata.getVersionMetadata());
+      unmarshalProperty(entityMetadata.getCreatedTimestampMetadata());
+      unmarshalProperty(entityMetadata.getUpdatedTimestampMetadata());
+      phaseTimer.end(ProcessingPhase.UNMARSHAL_FIELDS);
+    } catch (EntityManagerException exp) {
+      throw exp;
+    } catch (Throwable t) {
+      throw new EntityManagerException(t.getMessage(), t);
+    }
+  }
+
+  /**
+   * Unmarshals the property represented by the given metadata into the entity, if the native
+   * entity has a value for it.
+   * 
+   * @param propertyMetadata
+   *          the property metadata, may be <code>null</code>
+   */
+  private void unmarshalProperty(PropertyMetadata propertyMetadata) {
+    if (propertyMetadata == null || !nativeEntity.contains(propertyMetadata.getMappedName())) {
+      return;
+    }
+    Value<?> value = nativeEntity.getValue(propertyMetadata.getMappedName());
+    PrimitiveAccessor primitiveAccessor = propertyMetadata.getPrimitiveAccessor();
+    if (primitiveAccessor != null && primitiveAccessor.toModel(entity, value)) {
+      return;
+    }
+    propertyMetadata.getWriter().accept(entity, propertyMetadata.getMapper().toModel(value));
+  }
+
   /**
    * Unamrshals the identifier.
    * 
@@ -168,8 +301,7 @@ public class Unmarshaller {
       id = wrappedId;
     }
     // Now set the ID (either simple or complex) on the Entity
-    MethodHandle writeMethod = identifierMetadata.getWriteMethod();
-    writeMethod.invoke(entity, id);
+    identifierMetadata.getWriter().accept(entity, id);
   }
 
   /**
@@ -182,188 +314,17 @@ public class Unmarshaller {
   private void unmarshalKeyAndParentKey() throws Throwable {
     KeyMetadata keyMetadata = entityMetadata.getKeyMetadata();
     if (keyMetadata != null) {
-      MethodHandle writeMethod = keyMetadata.getWriteMethod();
       Key entityKey = (Key) nativeEntity.getKey();
-      writeMethod.invoke(entity, new DefaultDatastoreKey(entityKey));
+      keyMetadata.getWriter().accept(entity, new DefaultDatastoreKey(entityKey));
     }
 
     ParentKeyMetadata parentKeyMetadata = entityMetadata.getParentKeyMetadata();
     if (parentKeyMetadata != null) {
-      MethodHandle writeMethod = parentKeyMetadata.getWriteMethod();
       Key parentKey = nativeEntity.getKey().getParent();
       if (parentKey != null) {
-        writeMethod.invoke(entity, new DefaultDatastoreKey(parentKey));
+        parentKeyMetadata.getWriter().accept(entity, new DefaultDatastoreKey(parentKey));
       }
     }
   }
 
-  /**
-   * Unmarshal all the properties.
-   * 
-   * @throws Throwable
-   *           propagated
-   */
-  private void unmarshalProperties() throws Throwable {
-    Collection<PropertyMetadata> propertyMetadataCollection = entityMetadata
-        .getPropertyMetadataCollection();
-    for (PropertyMetadata propertyMetadata : propertyMetadataCollection) {
-      unmarshalProperty(propertyMetadata, entity);
-    }
-  }
-
-  /**
-   * Unmarshals the embedded fields of this entity.
-   * 
-   * @throws Throwable
-   *           propagated
-   */
-  private void unmarshalEmbeddedFields() throws Throwable {
-    for (EmbeddedMetadata embeddedMetadata : entityMetadata.getEmbeddedMetadataCollection()) {
-      if (embeddedMetadata.getStorageStrategy() == StorageStrategy.EXPLODED) {
-        unmarshalWithExplodedStrategy(embeddedMetadata, entity);
-      } else {
-        unmarshalWithImplodedStrategy(embeddedMetadata, entity, nativeEntity);
-      }
-    }
-  }
-
-  /**
-   * Unmarshals the embedded field represented by the given embedded metadata.
-   * 
-   * @param embeddedMetadata
-   *          the embedded metadata
-   * @param target
-   *          the target object that needs to be updated
-   * @throws Throwable
-   *           propagated
-   */
-  private void unmarshalWithExplodedStrategy(EmbeddedMetadata embeddedMetadata, Object target)
-      throws Throwable {
-    Object embeddedObject = initializeEmbedded(embeddedMetadata, target);
-    for (PropertyMetadata propertyMetadata : embeddedMetadata.getPropertyMetadataCollection()) {
-      unmarshalProperty(propertyMetadata, embeddedObject);
-    }
-    for (EmbeddedMetadata embeddedMetadata2 : embeddedMetadata.getEmbeddedMetadataCollection()) {
-      unmarshalWithExplodedStrategy(embeddedMetadata2, embeddedObject);
-    }
-    ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
-    if (constructorMetadata.isBuilderConstructionStrategy()) {
-      embeddedObject = constructorMetadata.getBuildMethodHandle().invoke(embeddedObject);
-    }
-    embeddedMetadata.getWriteMethod().invoke(target, embeddedObject);
-  }
-
-  /**
-   * Unmarshals the embedded field represented by the given metadata.
-   * 
-   * @param embeddedMetadata
-   *          the metadata of the field to unmarshal
-   * @param target
-   *          the object in which the embedded field is declared/accessible from
-   * @param nativeEntity
-   *          the native entity from which the embedded entity is to be extracted
-   * @throws Throwable
-   *           propagated
-   */
-  private static void unmarshalWithImplodedStrategy(EmbeddedMetadata embeddedMetadata,
-      Object target, BaseEntity<?> nativeEntity) throws Throwable {
-    Object embeddedObject = null;
-    ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
-    FullEntity<?> nativeEmbeddedEntity = null;
-    String propertyName = embeddedMetadata.getMappedName();
-    if (nativeEntity.contains(propertyName)) {
-      Value<?> nativeValue = nativeEntity.getValue(propertyName);
-      if (nativeValue instanceof NullValue) {
-        embeddedMetadata.getWriteMethod().invoke(target, embeddedObject);
-      } else {
-        nativeEmbeddedEntity = ((EntityValue) nativeValue).get();
-        embeddedObject = constructorMetadata.getConstructorMethodHandle().invoke();
-      }
-    }
-    if (embeddedObject == null) {
-      return;
-    }
-    for (PropertyMetadata propertyMetadata : embeddedMetadata.getPropertyMetadataCollection()) {
-      unmarshalProperty(propertyMetadata, embeddedObject, nativeEmbeddedEntity);
-    }
-    for (EmbeddedMetadata embeddedMetadata2 : embeddedMetadata.getEmbeddedMetadataCollection()) {
-      unmarshalWithImplodedStrategy(embeddedMetadata2, embeddedObject, nativeEmbeddedEntity);
-    }
-    if (constructorMetadata.isBuilderConstructionStrategy()) {
-      embeddedObject = constructorMetadata.getBuildMethodHandle().invoke(embeddedObject);
-    }
-    embeddedMetadata.getWriteMethod().invoke(target, embeddedObject);
-  }
-
-  /**
-   * Unmarshals the property represented by the given property metadata and updates the target
-   * object with the property value.
-   * 
-   * @param propertyMetadata
-   *          the property metadata
-   * @param target
-   *          the target object to update
-   * @throws Throwable
-   *           propagated
-   */
-  private void unmarshalProperty(PropertyMetadata propertyMetadata, Object target)
-      throws Throwable {
-    unmarshalProperty(propertyMetadata, target, nativeEntity);
-  }
-
-  /**
-   * Unmarshals the property with the given metadata and sets the unmarshalled value on the given
-   * <code>target</code> object.
-   * 
-   * @param propertyMetadata
-   *          the metadata of the property
-   * @param target
-   *          the target object to set the unmarshalled value on
-   * @param nativeEntity
-   *          the native entity containing the source property
-   * @throws Throwable
-   *           propagated
-   */
-  private static void unmarshalProperty(PropertyMetadata propertyMetadata, Object target,
-      BaseEntity<?> nativeEntity) throws Throwable {
-    // The datastore may not have every property that the entity class has
-    // defined. For example, if we are running a projection query or if the
-    // entity class added a new field without updating existing data...So
-    // make sure there is a property or else, we get an exception from the
-    // datastore.
-    if (nativeEntity.contains(propertyMetadata.getMappedName())) {
-      Value<?> datastoreValue = nativeEntity.getValue(propertyMetadata.getMappedName());
-      Object entityValue = propertyMetadata.getMapper().toModel(datastoreValue);
-      MethodHandle writeMethod = propertyMetadata.getWriteMethod();
-      writeMethod.invoke(target, entityValue);
-    }
-  }
-
-  /**
-   * Initializes the Embedded object represented by the given metadata.
-   * 
-   * @param embeddedMetadata
-   *          the metadata of the embedded field
-   * @param target
-   *          the object in which the embedded field is declared/accessible from
-   * @return the initialized object
-   * @throws EntityManagerException
-   *           if any error occurs during initialization of the embedded object
-   */
-  private static Object initializeEmbedded(EmbeddedMetadata embeddedMetadata, Object target) {
-    try {
-      ConstructorMetadata constructorMetadata = embeddedMetadata.getConstructorMetadata();
-      Object embeddedObject = null;
-      if (constructorMetadata.isClassicConstructionStrategy()) {
-        embeddedObject = embeddedMetadata.getReadMethod().invoke(target);
-      }
-      if (embeddedObject == null) {
-        embeddedObject = constructorMetadata.getConstructorMethodHandle().invoke();
-      }
-      return embeddedObject;
-    } catch (Throwable t) {
-      throw new EntityManagerException(t);
-    }
-  }
-
 }
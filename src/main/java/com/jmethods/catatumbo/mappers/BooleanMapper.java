@@ -21,6 +21,7 @@ import com.google.cloud.datastore.NullValue;
 import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper boolean types to/from Cloud
@@ -29,7 +30,7 @@ import com.jmethods.catatumbo.Mapper;
  * @author Sai Pullabhotla
  *
  */
-public class BooleanMapper implements Mapper {
+public class BooleanMapper implements PrimitiveMapper.OfBoolean {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -47,4 +48,14 @@ public class BooleanMapper implements Mapper {
     return ((BooleanValue) input).get();
   }
 
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreBoolean(boolean input) {
+    return BooleanValue.newBuilder(input);
+  }
+
+  @Override
+  public boolean toModelBoolean(Value<?> input) {
+    return ((BooleanValue) input).get();
+  }
+
 }
@@ -21,6 +21,7 @@ import com.google.cloud.datastore.NullValue;
 import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper double types to/from Cloud
@@ -29,7 +30,7 @@ import com.jmethods.catatumbo.Mapper;
  * @author Sai Pullabhotla
  *
  */
-public class DoubleMapper implements Mapper {
+public class DoubleMapper implements PrimitiveMapper.OfDouble {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -47,4 +48,14 @@ public class DoubleMapper implements Mapper {
     return ((DoubleValue) input).get();
   }
 
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreDouble(double input) {
+    return DoubleValue.newBuilder(input);
+  }
+
+  @Override
+  public double toModelDouble(Value<?> input) {
+    return ((DoubleValue) input).get();
+  }
+
 }
@@ -68,7 +68,7 @@ public class EmbeddedObjectMapper implements Mapper {
     try {
       FullEntity.Builder<IncompleteKey> entityBuilder = FullEntity.newBuilder();
       for (PropertyMetadata propertyMetadata : metadata.getPropertyMetadataCollection()) {
-        Object propertyValue = propertyMetadata.getReadMethod().invoke(input);
+        Object propertyValue = propertyMetadata.getReader().apply(input);
         if (propertyValue == null && propertyMetadata.isOptional()) {
           continue;
         }
@@ -106,7 +106,7 @@ public class EmbeddedObjectMapper implements Mapper {
         if (entity.contains(mappedName)) {
           Value<?> propertyValue = entity.getValue(mappedName);
           Object fieldValue = propertyMetadata.getMapper().toModel(propertyValue);
-          propertyMetadata.getWriteMethod().invoke(embeddedObject, fieldValue);
+          propertyMetadata.getWriter().accept(embeddedObject, fieldValue);
         }
       }
       if (constructorMetadata.isBuilderConstructionStrategy()) {
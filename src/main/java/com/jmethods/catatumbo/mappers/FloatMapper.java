@@ -22,6 +22,7 @@ import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
 import com.jmethods.catatumbo.MappingException;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper Float types to/from Cloud
@@ -30,7 +31,7 @@ import com.jmethods.catatumbo.MappingException;
  * @author Sai Pullabhotla
  *
  */
-public class FloatMapper implements Mapper {
+public class FloatMapper implements PrimitiveMapper.OfDouble {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -45,12 +46,21 @@ public class FloatMapper implements Mapper {
     if (input instanceof NullValue) {
       return null;
     }
-    DoubleValue value = (DoubleValue) input;
-    Double d = value.get();
+    return (float) toModelDouble(input);
+  }
+
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreDouble(double input) {
+    return DoubleValue.newBuilder(input);
+  }
+
+  @Override
+  public double toModelDouble(Value<?> input) {
+    double d = ((DoubleValue) input).get();
     if (d < -Float.MAX_VALUE || d > Float.MAX_VALUE) {
       throw new MappingException(String.format("Value %s is out of range for float type", d));
     }
-    return d.floatValue();
+    return d;
   }
 
 }
@@ -22,6 +22,7 @@ import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
 import com.jmethods.catatumbo.MappingException;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper integer types to/from Cloud
@@ -30,7 +31,7 @@ import com.jmethods.catatumbo.MappingException;
  * @author Sai Pullabhotla
  *
  */
-public class IntegerMapper implements Mapper {
+public class IntegerMapper implements PrimitiveMapper.OfLong {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -45,11 +46,21 @@ public class IntegerMapper implements Mapper {
     if (input instanceof NullValue) {
       return null;
     }
-    Long l = ((LongValue) input).get();
+    return (int) toModelLong(input);
+  }
+
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreLong(long input) {
+    return LongValue.newBuilder(input);
+  }
+
+  @Override
+  public long toModelLong(Value<?> input) {
+    long l = ((LongValue) input).get();
     if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
       throw new MappingException(String.format("Value %d is out of range for integer type", l));
     }
-    return l.intValue();
+    return l;
   }
 
 }
@@ -21,6 +21,7 @@ import com.google.cloud.datastore.NullValue;
 import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper and Long types to/from the
@@ -29,7 +30,7 @@ import com.jmethods.catatumbo.Mapper;
  * @author Sai Pullabhotla
  *
  */
-public class LongMapper implements Mapper {
+public class LongMapper implements PrimitiveMapper.OfLong {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -47,4 +48,14 @@ public class LongMapper implements Mapper {
     return ((LongValue) input).get();
   }
 
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreLong(long input) {
+    return LongValue.newBuilder(input);
+  }
+
+  @Override
+  public long toModelLong(Value<?> input) {
+    return ((LongValue) input).get();
+  }
+
 }
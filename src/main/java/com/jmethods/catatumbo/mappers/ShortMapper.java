@@ -22,6 +22,7 @@ import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueBuilder;
 import com.jmethods.catatumbo.Mapper;
 import com.jmethods.catatumbo.MappingException;
+import com.jmethods.catatumbo.PrimitiveMapper;
 
 /**
  * An implementation of {@link Mapper} for mapping primitive and wrapper Short types to/from the
@@ -30,7 +31,7 @@ import com.jmethods.catatumbo.MappingException;
  * @author Sai Pullabhotla
  *
  */
-public class ShortMapper implements Mapper {
+public class ShortMapper implements PrimitiveMapper.OfLong {
 
   @Override
   public ValueBuilder<?, ?, ?> toDatastore(Object input) {
@@ -45,11 +46,21 @@ public class ShortMapper implements Mapper {
     if (input instanceof NullValue) {
       return null;
     }
-    Long l = ((LongValue) input).get();
+    return (short) toModelLong(input);
+  }
+
+  @Override
+  public ValueBuilder<?, ?, ?> toDatastoreLong(long input) {
+    return LongValue.newBuilder(input);
+  }
+
+  @Override
+  public long toModelLong(Value<?> input) {
+    long l = ((LongValue) input).get();
     if (l < Short.MIN_VALUE || l > Short.MAX_VALUE) {
       throw new MappingException(String.format("Value %d is out of range for short type", l));
     }
-    return l.shortValue();
+    return l;
   }
 
 }
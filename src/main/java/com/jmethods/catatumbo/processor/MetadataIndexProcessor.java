@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.jmethods.catatumbo.Embeddable;
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.EntityListener;
+import com.jmethods.catatumbo.ProjectedEntity;
+import com.jmethods.catatumbo.impl.MetadataIndex;
+
+/**
+ * An annotation processor that records the persistence classes (Entities, Projected Entities,
+ * Embeddables and Entity Listeners) of an application at compile time. The processor writes the
+ * binary names of these classes to the resource {@value MetadataIndex#RESOURCE_NAME}. When this
+ * resource is present on the class path, the metadata of the listed classes is built when the first
+ * {@link com.jmethods.catatumbo.EntityManager} is created, rather than when each class is first
+ * used.
+ * 
+ * <p>
+ * This processor is not registered as a service, so it does not run unless enabled explicitly. To
+ * enable it, add <code>com.jmethods.catatumbo.processor.MetadataIndexProcessor</code> to the list
+ * of annotation processors of the compiler (e.g. <code>-processor</code> option of
+ * <code>javac</code> or <code>annotationProcessors</code> of the Maven Compiler Plugin).
+ * </p>
+ *
+ * @author Sai Pullabhotla
+ *
+ */
+public class MetadataIndexProcessor extends AbstractProcessor {
+
+  /**
+   * Binary names of the persistence classes found so far
+   */
+  private final Set<String> classNames = new TreeSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    Set<String> annotationTypes = new TreeSet<>();
+    annotationTypes.add(Entity.class.getName());
+    annotationTypes.add(ProjectedEntity.class.getName());
+    annotationTypes.add(Embeddable.class.getName());
+    annotationTypes.add(EntityListener.class.getName());
+    return annotationTypes;
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.CLASS) {
+          TypeElement typeElement = (TypeElement) element;
+          classNames.add(processingEnv.getElementUtils().getBinaryName(typeElement).toString());
+        }
+      }
+    }
+    if (roundEnv.processingOver() && !classNames.isEmpty()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  /**
+   * Writes the names of the persistence classes to the index resource.
+   */
+  private void writeIndex() {
+    try {
+      FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT,
+          "", MetadataIndex.RESOURCE_NAME);
+      try (Writer writer = resource.openWriter()) {
+        for (String className : classNames) {
+          writer.write(className);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException exp) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          String.format("Unable to write %s: %s", MetadataIndex.RESOURCE_NAME, exp.getMessage()));
+    }
+  }
+
+}
@@ -33,8 +33,9 @@ import com.jmethods.catatumbo.entities.Task;
  */
 @RunWith(Suite.class)
 @SuiteClasses({ CustomTypeTest.class, DatastoreBatchTest.class, DatastoreMetadataTest.class,
-    DatastoreStatsTest.class, DatastoreTransactionTest.class, DecimalFieldsTest.class,
-    DefaultAndExternalListenersTest.class, DefaultListenerTest.class, EmbeddedCollectionTest.class,
+    DatastoreSessionTest.class, DatastoreStatsTest.class, DatastoreTransactionTest.class,
+    DecimalFieldsTest.class, DefaultAndExternalListenersTest.class, DefaultListenerTest.class,
+    EmbeddedCollectionTest.class,
     EntityManagerFactoryTest.class, EntityManagerTest.class, ExcludeDefaultListenerTest.class,
     ExternalListenerTest.class, IndexerFactoryTest.class, InternalListenerTest.class,
     ListenerInheritanceTest.class, MapperFactoryTest.class, OptionalFieldsTest.class,
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jmethods.catatumbo.entities.StringField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DatastoreSessionTest {
+
+  private static EntityManager em = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    em = TestUtils.getEntityManager();
+  }
+
+  @Test
+  public void testLoad() {
+    StringField entity = new StringField();
+    entity.setName("Session Test");
+    entity = em.insert(entity);
+    DatastoreSession session = em.newSession();
+    StringField loaded = session.load(StringField.class, entity.getId());
+    assertEquals("Session Test", loaded.getName());
+    assertSame(loaded, session.load(StringField.class, entity.getId()));
+    assertNotSame(loaded, em.newSession().load(StringField.class, entity.getId()));
+  }
+
+  @Test
+  public void testLoad_NotFound() {
+    DatastoreSession session = em.newSession();
+    assertNull(session.load(StringField.class, Long.MAX_VALUE - 1));
+    assertNull(session.load(StringField.class, Long.MAX_VALUE - 1));
+  }
+
+  @Test
+  public void testLoadById() {
+    StringField entity1 = new StringField();
+    entity1.setName("Session Test 1");
+    entity1 = em.insert(entity1);
+    StringField entity2 = new StringField();
+    entity2.setName("Session Test 2");
+    entity2 = em.insert(entity2);
+    DatastoreSession session = em.newSession();
+    StringField loaded1 = session.load(StringField.class, entity1.getId());
+    List<StringField> entities = session.loadById(StringField.class,
+        Arrays.asList(entity1.getId(), entity2.getId(), entity1.getId()));
+    assertSame(loaded1, entities.get(0));
+    assertEquals("Session Test 2", entities.get(1).getName());
+    assertSame(loaded1, entities.get(2));
+    assertSame(entities.get(1), session.load(StringField.class, entity2.getId()));
+  }
+
+  @Test
+  public void testUpdate() {
+    StringField entity = new StringField();
+    entity.setName("Session Test");
+    entity = em.insert(entity);
+    DatastoreSession session = em.newSession();
+    StringField loaded = session.load(StringField.class, entity.getId());
+    loaded.setName("Session Test Updated");
+    session.update(loaded);
+    StringField reloaded = session.load(StringField.class, entity.getId());
+    assertNotSame(loaded, reloaded);
+    assertEquals("Session Test Updated", reloaded.getName());
+  }
+
+  @Test
+  public void testUpdate_TrackChanges() {
+    StringField entity = new StringField();
+    entity.setName("Session Test");
+    entity = em.insert(entity);
+    DatastoreSession session = em.newSession(true);
+    StringField loaded = session.load(StringField.class, entity.getId());
+    session.update(loaded);
+    session.upsert(Arrays.asList(loaded));
+    // Unchanged entities are not written, so the session still holds the loaded entity
+    assertSame(loaded, session.load(StringField.class, entity.getId()));
+    loaded.setName("Session Test Updated");
+    session.update(loaded);
+    StringField reloaded = session.load(StringField.class, entity.getId());
+    assertNotSame(loaded, reloaded);
+    assertEquals("Session Test Updated", reloaded.getName());
+  }
+
+  @Test
+  public void testDelete() {
+    StringField entity = new StringField();
+    entity.setName("Session Test");
+    entity = em.insert(entity);
+    DatastoreSession session = em.newSession();
+    session.load(StringField.class, entity.getId());
+    session.delete(StringField.class, entity.getId());
+    assertNull(session.load(StringField.class, entity.getId()));
+  }
+
+  @Test
+  public void testClear() {
+    StringField entity = new StringField();
+    entity.setName("Session Test");
+    entity = em.insert(entity);
+    DatastoreSession session = em.newSession();
+    StringField loaded = session.load(StringField.class, entity.getId());
+    session.clear();
+    assertNotSame(loaded, session.load(StringField.class, entity.getId()));
+  }
+
+}
@@ -17,9 +17,11 @@
 package com.jmethods.catatumbo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -344,4 +346,24 @@ public class DatastoreTransactionTest {
     }
   }
 
+  @Test
+  public void testLoad_IdentityMap() {
+    StringField entity = new StringField();
+    entity.setName("Identity Map Test");
+    entity = em.insert(entity);
+    DatastoreTransaction transaction = em.newTransaction();
+    try {
+      StringField loaded = transaction.load(StringField.class, entity.getId());
+      assertSame(loaded, transaction.load(StringField.class, entity.getId()));
+      List<StringField> entities = transaction.loadById(StringField.class,
+          Arrays.asList(entity.getId()));
+      assertSame(loaded, entities.get(0));
+      transaction.commit();
+    } finally {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
 }
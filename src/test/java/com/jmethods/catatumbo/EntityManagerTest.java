@@ -21,6 +21,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -47,6 +48,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -54,6 +56,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.cloud.datastore.DatastoreException;
+
 import com.jmethods.catatumbo.custommappers.DeviceTypeMapper;
 import com.jmethods.catatumbo.entities.AccessorTestEntity;
 import com.jmethods.catatumbo.entities.ArrayIndex;
@@ -62,10 +66,12 @@ import com.jmethods.catatumbo.entities.AutoTimestampDate;
 import com.jmethods.catatumbo.entities.AutoTimestampLong;
 import com.jmethods.catatumbo.entities.AutoTimestampOffsetDateTime;
 import com.jmethods.catatumbo.entities.AutoTimestampZonedDateTime;
+import com.jmethods.catatumbo.entities.BatchListenerEntity;
 import com.jmethods.catatumbo.entities.BigDecimalField;
 import com.jmethods.catatumbo.entities.BooleanField;
 import com.jmethods.catatumbo.entities.BooleanObject;
 import com.jmethods.catatumbo.entities.ByteArrayField;
+import com.jmethods.catatumbo.entities.CacheableCountry;
 import com.jmethods.catatumbo.entities.CalendarField;
 import com.jmethods.catatumbo.entities.CharArrayField;
 import com.jmethods.catatumbo.entities.CharField;
@@ -129,6 +135,9 @@ import com.jmethods.catatumbo.entities.WrappedLongIdEntity;
 import com.jmethods.catatumbo.entities.WrappedLongObjectIdEntity;
 import com.jmethods.catatumbo.entities.ZonedDateTimeField;
 import com.jmethods.catatumbo.impl.DefaultEntityManager;
+import com.jmethods.catatumbo.impl.InMemoryOperationMetrics;
+import com.jmethods.catatumbo.impl.ListenerFactory;
+import com.jmethods.catatumbo.listeners.BatchListener;
 
 /**
  * @author Sai Pullabhotla
@@ -168,6 +177,11 @@ public class EntityManagerTest {
     em.deleteAll("   ");
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeleteAll_NullOptions() {
+    em.deleteAll("DeleteAll", null);
+  }
+
   @Test
   public void testInsertLongId_AutoGenerated() {
     LongId entity = new LongId();
@@ -3540,6 +3554,240 @@ public class EntityManagerTest {
     }, null);
   }
 
+  @Test
+  public void testExecuteInTransaction_UnavailableNotRetried() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.setInitialBackoffMillis(0);
+    em.setRetryPolicy(policy);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      em.executeInTransaction((transaction) -> {
+        attempts.incrementAndGet();
+        throw new DatastoreException(RetryPolicy.CODE_UNAVAILABLE, "Unavailable", "UNAVAILABLE");
+      });
+      fail("Expected EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getCause() instanceof DatastoreException);
+    } finally {
+      em.setRetryPolicy(null);
+    }
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void testExecuteInTransaction_AbortedRetried() {
+    RetryPolicy policy = new RetryPolicy();
+    policy.setInitialBackoffMillis(0);
+    em.setRetryPolicy(policy);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      String result = em.executeInTransaction((transaction) -> {
+        if (attempts.incrementAndGet() < 2) {
+          throw new DatastoreException(RetryPolicy.CODE_ABORTED, "Aborted", "ABORTED");
+        }
+        return "ok";
+      });
+      assertEquals("ok", result);
+    } finally {
+      em.setRetryPolicy(null);
+    }
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void testLoad_Cacheable() {
+    CacheableCountry country = new CacheableCountry();
+    country.setCode("US");
+    country.setName("United States");
+    em.upsert(country);
+    CacheableCountry loaded = em.load(CacheableCountry.class, "US");
+    assertEquals("United States", loaded.getName());
+    loaded.setName("United States of America");
+    em.update(loaded);
+    CacheableCountry reloaded = em.load(CacheableCountry.class, "US");
+    assertEquals("United States of America", reloaded.getName());
+    em.delete(CacheableCountry.class, "US");
+    assertNull(em.load(CacheableCountry.class, "US"));
+  }
+
+  @Test
+  public void testLoadByName_Cacheable() {
+    CacheableCountry country = new CacheableCountry();
+    country.setCode("IN");
+    country.setName("India");
+    em.upsert(country);
+    assertNotNull(em.load(CacheableCountry.class, "IN"));
+    List<CacheableCountry> countries = em.loadByName(CacheableCountry.class,
+        Arrays.asList("IN", "XX"));
+    assertEquals("India", countries.get(0).getName());
+    assertNull(countries.get(1));
+    em.deleteAll(CacheableCountry.class);
+    assertNull(em.load(CacheableCountry.class, "IN"));
+  }
+
+  @Test
+  public void testAsync_InsertLoadDelete() {
+    AsyncEntityManager asyncEm = em.newAsyncEntityManager();
+    StringField entity = new StringField();
+    entity.setName("Async");
+    StringField inserted = asyncEm.insert(entity).join();
+    StringField loaded = asyncEm.load(StringField.class, inserted.getId()).join();
+    assertEquals("Async", loaded.getName());
+    asyncEm.delete(loaded).join();
+    assertNull(asyncEm.load(StringField.class, inserted.getId()).join());
+  }
+
+  @Test
+  public void testInsert_InPlace() {
+    em.setWriteResultMode(WriteResultMode.IN_PLACE);
+    try {
+      StringField entity = new StringField();
+      entity.setName("InPlace");
+      StringField inserted = em.insert(entity);
+      assertSame(entity, inserted);
+      assertTrue(entity.getId() != 0);
+      assertEquals("InPlace", em.load(StringField.class, entity.getId()).getName());
+      em.delete(entity);
+    } finally {
+      em.setWriteResultMode(WriteResultMode.NEW_INSTANCE);
+    }
+  }
+
+  @Test
+  public void testInsert_IdPool() {
+    em.setIdPoolOptions(new IdPoolOptions());
+    try {
+      List<StringField> entities = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        StringField entity = new StringField();
+        entity.setName("IdPool " + i);
+        entities.add(entity);
+      }
+      List<StringField> inserted = em.insert(entities);
+      for (int i = 0; i < 3; i++) {
+        assertTrue(inserted.get(i).getId() != 0);
+        assertEquals("IdPool " + i, em.load(StringField.class, inserted.get(i).getId()).getName());
+      }
+      em.delete(inserted);
+    } finally {
+      em.setIdPoolOptions(null);
+    }
+  }
+
+  @Test
+  public void testInsert_BatchListener() {
+    BatchListener listener = (BatchListener) ListenerFactory.getInstance()
+        .getListener(BatchListener.class);
+    listener.getEvents().clear();
+    List<BatchListenerEntity> entities = Arrays.asList(new BatchListenerEntity("Batch 1"),
+        new BatchListenerEntity("Batch 2"));
+    List<BatchListenerEntity> inserted = em.insert(entities);
+    assertEquals(Arrays.asList("PostInsert:Batch 1", "PostInsert:Batch 2", "PostInsertBatch:2"),
+        listener.getEvents());
+    em.delete(inserted);
+  }
+
+  @Test
+  public void testOperationMetrics() {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    em.setOperationMetrics(metrics);
+    try {
+      StringField entity = new StringField();
+      entity.setName("Metrics");
+      entity = em.insert(entity);
+      em.load(StringField.class, entity.getId());
+      em.delete(entity);
+    } finally {
+      em.setOperationMetrics(null);
+    }
+    Map<String, Long> export = metrics.export();
+    assertEquals(Long.valueOf(1), export.get("StringField.insert.count"));
+    assertEquals(Long.valueOf(0), export.get("StringField.insert.errorCount"));
+    assertTrue(export.get("StringField.insert.payloadBytes") > 0);
+    assertTrue(export.get("StringField.insert.maxEntityBytes") > 0);
+    assertTrue(export.get("StringField.insert.indexBytes") > 0);
+    assertEquals(Long.valueOf(1), export.get("StringField.load.entityCount"));
+    assertEquals(Long.valueOf(1), export.get("StringField.delete.count"));
+  }
+
+  @Test
+  public void testSlowOperationLog() {
+    List<SlowOperation> operations = new ArrayList<>();
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setThresholdMillis(0);
+    options.setRedactBindings(true);
+    options.setHandler(operations::add);
+    em.setSlowOperationLogOptions(options);
+    try {
+      EntityQueryRequest request = em
+          .createEntityQueryRequest("SELECT * FROM Task WHERE priority = @1 order by __key__");
+      request.addPositionalBinding(0);
+      QueryResponse<Task> response = em.executeEntityQueryRequest(Task.class, request);
+      assertEquals(1, operations.size());
+      SlowOperation operation = operations.get(0);
+      assertEquals(OperationType.QUERY, operation.getOperationType());
+      assertEquals("Task", operation.getKind());
+      assertEquals(request.getQuery(), operation.getQuery());
+      assertEquals(Arrays.asList("?"), operation.getPositionalBindings());
+      assertEquals(response.getResults().size(), operation.getEntityCount());
+      assertEquals(response.getEndCursor().getEncoded(), operation.getEndCursor().getEncoded());
+      assertTrue(operation.getRpcNanos() >= 0);
+      assertTrue(operation.getRpcNanos() + operation.getUnmarshalNanos() <= operation
+          .getElapsedNanos());
+    } finally {
+      em.setSlowOperationLogOptions(null);
+    }
+  }
+
+  @Test
+  public void testSlowOperationLog_Paginate() {
+    List<SlowOperation> operations = new ArrayList<>();
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setThresholdMillis(0);
+    options.setHandler(operations::add);
+    em.setSlowOperationLogOptions(options);
+    try {
+      EntityQueryRequest request = em
+          .createEntityQueryRequest("SELECT * FROM Task ORDER BY __key__ LIMIT 10 OFFSET @Offset");
+      request.setNamedBinding("Offset", 0);
+      QueryResultIterator<Task> iterator = em.paginateEntityQueryRequest(Task.class, request,
+          "Offset", false);
+      int count = 0;
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+      assertFalse(operations.isEmpty());
+      int loggedCount = 0;
+      for (SlowOperation operation : operations) {
+        assertEquals(OperationType.QUERY, operation.getOperationType());
+        assertEquals("Task", operation.getKind());
+        assertEquals(request.getQuery(), operation.getQuery());
+        assertNotNull(operation.getEndCursor());
+        assertNotNull(operation.getQueryState());
+        loggedCount += operation.getEntityCount();
+      }
+      assertEquals(count, loggedCount);
+    } finally {
+      em.setSlowOperationLogOptions(null);
+    }
+  }
+
+  @Test(expected = EntityTooLargeException.class)
+  public void testEntitySizeGuard() {
+    EntitySizeGuardOptions options = new EntitySizeGuardOptions();
+    options.setThresholdBytes(100);
+    options.setFailOnExceed(true);
+    em.setEntitySizeGuardOptions(options);
+    try {
+      StringField entity = new StringField();
+      entity.setName(new String(new char[100]).replace('\0', 'x'));
+      em.insert(entity);
+    } finally {
+      em.setEntitySizeGuardOptions(null);
+    }
+  }
+
   private static Calendar getToday() {
     Calendar today = Calendar.getInstance();
     today.set(Calendar.HOUR_OF_DAY, 0);
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.entities;
+
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.EntityListeners;
+import com.jmethods.catatumbo.Identifier;
+import com.jmethods.catatumbo.listeners.BatchListener;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+@Entity
+@EntityListeners(BatchListener.class)
+public class BatchListenerEntity {
+
+  @Identifier
+  private long id;
+
+  private String name;
+
+  public BatchListenerEntity() {
+    // Default constructor
+  }
+
+  public BatchListenerEntity(String name) {
+    this.name = name;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.entities;
+
+import com.jmethods.catatumbo.Cacheable;
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.Identifier;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+@Entity
+@Cacheable(ttl = 60, maxSize = 100)
+public class CacheableCountry {
+
+  @Identifier
+  private String code;
+
+  private String name;
+
+  /**
+   * @return the code
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * @param code
+   *          the code to set
+   */
+  public void setCode(String code) {
+    this.code = code;
+  }
+
+  /**
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param name
+   *          the name to set
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+}
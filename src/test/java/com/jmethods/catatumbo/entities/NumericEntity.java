@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.entities;
+
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.Identifier;
+
+/**
+ * An entity with only primitive fields.
+ * 
+ * @author Sai Pullabhotla
+ *
+ */
+@Entity
+public class NumericEntity {
+
+  @Identifier
+  private long id;
+
+  private long views;
+
+  private long bytesSent;
+
+  private int rank;
+
+  private int retries;
+
+  private short level;
+
+  private double score;
+
+  private double latitude;
+
+  private float ratio;
+
+  private boolean active;
+
+  private boolean verified;
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getViews() {
+    return views;
+  }
+
+  public void setViews(long views) {
+    this.views = views;
+  }
+
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  public void setBytesSent(long bytesSent) {
+    this.bytesSent = bytesSent;
+  }
+
+  public int getRank() {
+    return rank;
+  }
+
+  public void setRank(int rank) {
+    this.rank = rank;
+  }
+
+  public int getRetries() {
+    return retries;
+  }
+
+  public void setRetries(int retries) {
+    this.retries = retries;
+  }
+
+  public short getLevel() {
+    return level;
+  }
+
+  public void setLevel(short level) {
+    this.level = level;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  public void setScore(double score) {
+    this.score = score;
+  }
+
+  public double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(double latitude) {
+    this.latitude = latitude;
+  }
+
+  public float getRatio() {
+    return ratio;
+  }
+
+  public void setRatio(float ratio) {
+    this.ratio = ratio;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  public void setActive(boolean active) {
+    this.active = active;
+  }
+
+  public boolean isVerified() {
+    return verified;
+  }
+
+  public void setVerified(boolean verified) {
+    this.verified = verified;
+  }
+
+  public static NumericEntity getSample1() {
+    NumericEntity entity = new NumericEntity();
+    entity.setId(1L);
+    entity.setViews(1_234_567_890L);
+    entity.setBytesSent(9_876_543_210L);
+    entity.setRank(4711);
+    entity.setRetries(3);
+    entity.setLevel((short) 512);
+    entity.setScore(98.6);
+    entity.setLatitude(37.7749);
+    entity.setRatio(0.75f);
+    entity.setActive(true);
+    entity.setVerified(false);
+    return entity;
+  }
+
+}
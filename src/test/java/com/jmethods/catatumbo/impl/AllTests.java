@@ -25,9 +25,18 @@ import org.junit.runners.Suite.SuiteClasses;
  *
  */
 @RunWith(Suite.class)
-@SuiteClasses({ EntityIntrospectorTest.class, ExternalListenerIntrospectorTest.class,
-    InternalListenerIntrospectorTest.class, IntrospectionUtilsTest.class, LRUCacheTest.class,
-    MarshallerTest.class, UnmarshallerTest.class })
+@SuiteClasses({ AsyncListenerExecutorTest.class, BoundedExecutorTest.class,
+    DatastoreUtilsTest.class, DefaultAsyncEntityManagerTest.class, DefaultBatchingLoaderTest.class,
+    DefaultBulkWriterTest.class, DefaultQueryResultIteratorTest.class,
+    DefaultWriteBehindEntityManagerTest.class, DeleteAllPipelineTest.class,
+    EntityIntrospectorTest.class, EntitySizeGuardTest.class, ExternalListenerIntrospectorTest.class,
+    IdPoolTest.class, IdentityMapTest.class, InMemoryOperationMetricsTest.class,
+    InMemoryPhaseMetricsTest.class, InternalListenerIntrospectorTest.class,
+    IntrospectionUtilsTest.class, LRUCacheTest.class, LatencyHistogramTest.class,
+    ListenerChainTest.class, MarshallerTest.class, MetadataIndexTest.class,
+    PaginatingQueryResultIteratorTest.class, PayloadSizeEstimatorTest.class,
+    PrimitiveAccessorTest.class, QueryUtilsTest.class, RetrierTest.class,
+    SecondLevelCacheTest.class, SlowOperationLogTest.class, UnmarshallerTest.class })
 public class AllTests {
 
 }
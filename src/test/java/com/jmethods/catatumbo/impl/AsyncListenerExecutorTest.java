@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jmethods.catatumbo.AsyncListenerOptions;
+import com.jmethods.catatumbo.AsyncListenerOptions.RejectionPolicy;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.Tenant;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class AsyncListenerExecutorTest {
+
+  private Recorder recorder;
+
+  private List<Throwable> outcomes;
+
+  private CountDownLatch completions;
+
+  private AsyncListenerExecutor executor;
+
+  @Before
+  public void setUp() {
+    recorder = new Recorder();
+    outcomes = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    recorder.release.countDown();
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    recorder.release.countDown();
+    newExecutor(RejectionPolicy.ABORT, 2);
+    Tenant.setNamespace("junit");
+    try {
+      executor.execute(callbacks("record", "record"), "a");
+    } finally {
+      Tenant.setNamespace(null);
+    }
+    assertTrue(completions.await(10, TimeUnit.SECONDS));
+    assertEquals(2, recorder.events.size());
+    String[] event = recorder.events.get(0).split("\\|");
+    assertEquals("a", event[0]);
+    assertTrue(event[1].startsWith("catatumbo-listener-"));
+    assertEquals("junit", event[2]);
+    assertNull(outcomes.get(0));
+    assertNull(outcomes.get(1));
+  }
+
+  @Test
+  public void testExecute_CallbackFails() throws Exception {
+    newExecutor(RejectionPolicy.ABORT, 2);
+    executor.execute(callbacks("fail", "record"), "a");
+    recorder.release.countDown();
+    assertTrue(completions.await(10, TimeUnit.SECONDS));
+    assertTrue(outcomes.get(0) instanceof EntityManagerException);
+    assertNull(outcomes.get(1));
+    assertEquals(1, recorder.events.size());
+  }
+
+  @Test
+  public void testExecute_Discard() throws Exception {
+    newExecutor(RejectionPolicy.DISCARD, 3);
+    fillQueue();
+    executor.execute(callbacks("record"), "c");
+    assertEquals(1, outcomes.size());
+    assertTrue(outcomes.get(0) instanceof RejectedExecutionException);
+    recorder.release.countDown();
+    assertTrue(completions.await(10, TimeUnit.SECONDS));
+    assertEquals(2, recorder.events.size());
+  }
+
+  @Test
+  public void testExecute_Abort() {
+    newExecutor(RejectionPolicy.ABORT, 2);
+    fillQueue();
+    try {
+      executor.execute(callbacks("record"), "c");
+      fail("Expected an EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void testExecute_CallerRuns() throws Exception {
+    newExecutor(RejectionPolicy.CALLER_RUNS, 3);
+    fillQueue();
+    // The queue stays full until the release, so the callback must run on the caller
+    executor.execute(callbacks("recordNow"), "c");
+    assertTrue(recorder.events.contains("c|" + Thread.currentThread().getName() + "|null"));
+    recorder.release.countDown();
+    assertTrue(completions.await(10, TimeUnit.SECONDS));
+  }
+
+  private void newExecutor(RejectionPolicy rejectionPolicy, int expectedCompletions) {
+    completions = new CountDownLatch(expectedCompletions);
+    AsyncListenerOptions options = new AsyncListenerOptions();
+    options.setThreads(1);
+    options.setQueueSize(1);
+    options.setRejectionPolicy(rejectionPolicy);
+    options.setCompletionHandler((method, event, failure) -> {
+      outcomes.add(failure);
+      completions.countDown();
+    });
+    executor = new AsyncListenerExecutor(options);
+  }
+
+  /**
+   * Occupies the only thread with a callback that waits for the release latch, and fills the queue
+   * with another.
+   */
+  private void fillQueue() {
+    executor.execute(callbacks("record"), "a");
+    executor.execute(callbacks("record"), "b");
+  }
+
+  private ListenerChain.Callback[] callbacks(String... methodNames) {
+    ListenerChain.Callback[] callbacks = new ListenerChain.Callback[methodNames.length];
+    for (int i = 0; i < methodNames.length; i++) {
+      try {
+        Method method = Recorder.class.getMethod(methodNames[i], Object.class);
+        callbacks[i] = new ListenerChain.Callback(method, recorder);
+      } catch (NoSuchMethodException exp) {
+        throw new AssertionError(exp);
+      }
+    }
+    return callbacks;
+  }
+
+  public static class Recorder {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    public void record(Object event) throws InterruptedException {
+      release.await(10, TimeUnit.SECONDS);
+      events.add(event + "|" + Thread.currentThread().getName() + "|" + Tenant.getNamespace());
+    }
+
+    public void recordNow(Object event) {
+      events.add(event + "|" + Thread.currentThread().getName() + "|" + Tenant.getNamespace());
+    }
+
+    public void fail(Object event) throws InterruptedException {
+      release.await(10, TimeUnit.SECONDS);
+      throw new IllegalStateException("Listener failed");
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class BoundedExecutorTest {
+
+  @Test
+  public void testSubmit_Limit() throws Exception {
+    BoundedExecutor executor = new BoundedExecutor(ConcurrencyUtils.getDefaultExecutor(), 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(6);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    for (int i = 0; i < 6; i++) {
+      executor.submit(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exp) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        done.countDown();
+        return null;
+      });
+    }
+    Thread.sleep(50);
+    assertEquals(2, running.get());
+    release.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  public void testSubmit_Order() throws Exception {
+    BoundedExecutor executor = new BoundedExecutor(ConcurrencyUtils.getDefaultExecutor(), 1);
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(5);
+    for (int i = 0; i < 5; i++) {
+      final int n = i;
+      executor.submit(() -> {
+        order.add(n);
+        done.countDown();
+        return null;
+      });
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+  }
+
+  @Test
+  public void testSubmit_Failure() throws Exception {
+    BoundedExecutor executor = new BoundedExecutor(ConcurrencyUtils.getDefaultExecutor(), 1);
+    CountDownLatch done = new CountDownLatch(1);
+    CompletableFuture<Object> failed = executor.submit(() -> {
+      throw new IllegalStateException();
+    });
+    executor.submit(() -> {
+      done.countDown();
+      return null;
+    });
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue(failed.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testSubmit_Rejected() throws Exception {
+    BoundedExecutor executor = new BoundedExecutor(task -> {
+      throw new RejectedExecutionException();
+    }, 1);
+    CompletableFuture<String> future = executor.submit(() -> "result");
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("ExecutionException expected");
+    } catch (ExecutionException exp) {
+      assertTrue(exp.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void testSubmit_RejectedWhileQueued() throws Exception {
+    // Accepts the first task only, and rejects the queued one when it is handed off by the worker
+    AtomicInteger accepted = new AtomicInteger();
+    Executor rejecting = task -> {
+      if (accepted.getAndIncrement() > 0) {
+        throw new RejectedExecutionException();
+      }
+      ConcurrencyUtils.getDefaultExecutor().execute(task);
+    };
+    BoundedExecutor executor = new BoundedExecutor(rejecting, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = executor.submit(() -> {
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException exp) {
+        Thread.currentThread().interrupt();
+      }
+      return "first";
+    });
+    CompletableFuture<String> second = executor.submit(() -> "second");
+    assertFalse(second.isDone());
+    release.countDown();
+    assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    try {
+      second.get(5, TimeUnit.SECONDS);
+      fail("ExecutionException expected");
+    } catch (ExecutionException exp) {
+      assertTrue(exp.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNew_InvalidMaxConcurrency() {
+    new BoundedExecutor(ConcurrencyUtils.getDefaultExecutor(), 0);
+  }
+
+}
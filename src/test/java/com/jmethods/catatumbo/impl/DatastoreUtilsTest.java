@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.DatastoreReader;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.Transaction;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DatastoreUtilsTest {
+
+  private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+
+  private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+  private static Key[] newKeys(int count) {
+    Key[] keys = new Key[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = Key.newBuilder("test-project", "StringField", i + 1).build();
+    }
+    return keys;
+  }
+
+  /**
+   * Creates a reader of the given type, which finds the entities with odd IDs, and fails on the ID
+   * 2000.
+   */
+  private <T extends DatastoreReader> T newReader(Class<T> readerType) {
+    return readerType.cast(Proxy.newProxyInstance(readerType.getClassLoader(),
+        new Class<?>[] { readerType }, (proxy, method, args) -> {
+          Key[] keys = (Key[]) args[0];
+          chunkSizes.add(keys.length);
+          threads.add(Thread.currentThread().getName());
+          List<Entity> entities = new ArrayList<>(keys.length);
+          for (Key key : keys) {
+            if (key.getId() == 2000) {
+              throw new DatastoreException(14, "Unavailable", "UNAVAILABLE");
+            }
+            entities.add(key.getId() % 2 == 0 ? null : Entity.newBuilder(key).build());
+          }
+          return entities;
+        }));
+  }
+
+  @Test
+  public void testFetch_SingleLookup() {
+    Key[] keys = newKeys(DatastoreUtils.MAX_LOOKUP_SIZE);
+    List<Entity> entities = DatastoreUtils.fetch(newReader(DatastoreReader.class), keys);
+    assertEquals(keys.length, entities.size());
+    assertEquals(Collections.singletonList(keys.length), chunkSizes);
+    assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+  }
+
+  @Test
+  public void testFetch_Chunked() {
+    Key[] keys = newKeys(1999 + DatastoreUtils.MAX_LOOKUP_SIZE);
+    keys[1999] = keys[0];
+    List<Entity> entities = DatastoreUtils.fetch(newReader(DatastoreReader.class), keys);
+    assertEquals(keys.length, entities.size());
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i].getId() % 2 == 0) {
+        assertNull(entities.get(i));
+      } else {
+        assertEquals(keys[i], entities.get(i).getKey());
+      }
+    }
+    Collections.sort(chunkSizes);
+    assertEquals(Arrays.asList(999, 1000, 1000), chunkSizes);
+    assertFalse(threads.contains(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void testFetch_Transaction() {
+    Key[] keys = newKeys(1999);
+    List<Entity> entities = DatastoreUtils.fetch(newReader(Transaction.class), keys);
+    assertEquals(keys.length, entities.size());
+    assertEquals(Arrays.asList(1000, 999), chunkSizes);
+    assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+  }
+
+  @Test
+  public void testCompareKeys() {
+    Key parent = Key.newBuilder("test-project", "Parent", 5L).build();
+    List<Key> keys = Arrays.asList(Key.newBuilder("test-project", "Test", "b").build(),
+        Key.newBuilder(parent, "Test", 1L).build(), parent,
+        Key.newBuilder("test-project", "Test", 10L).build(),
+        Key.newBuilder("test-project", "Test", "a").build(),
+        Key.newBuilder("test-project", "Test", 2L).build());
+    List<Key> sorted = new ArrayList<>(keys);
+    sorted.sort(DatastoreUtils::compareKeys);
+    assertEquals(Arrays.asList(keys.get(2), keys.get(1), keys.get(5), keys.get(3), keys.get(4),
+        keys.get(0)), sorted);
+    assertEquals(0, DatastoreUtils.compareKeys(keys.get(0),
+        Key.newBuilder("test-project", "Test", "b").build()));
+  }
+
+  @Test
+  public void testCompareKeys_SupplementaryNames() {
+    // UTF-8 puts U+E000 and U+FFFD before U+1F600, unlike the UTF-16 order of String.compareTo
+    Key privateUse = Key.newBuilder("test-project", "Test", "\uE000").build();
+    Key replacement = Key.newBuilder("test-project", "Test", "a\uFFFD").build();
+    Key emoji = Key.newBuilder("test-project", "Test", "a\uD83D\uDE00").build();
+    Key emojiPrefix = Key.newBuilder("test-project", "Test", "a\uD83D\uDE00b").build();
+    List<Key> sorted = new ArrayList<>(Arrays.asList(emojiPrefix, emoji, privateUse, replacement));
+    sorted.sort(DatastoreUtils::compareKeys);
+    assertEquals(Arrays.asList(replacement, emoji, emojiPrefix, privateUse), sorted);
+    assertTrue(DatastoreUtils.compareKeys(replacement, emoji) < 0);
+    assertTrue(DatastoreUtils.compareKeys(privateUse, emoji) > 0);
+  }
+
+  @Test
+  public void testCompareUtf8() {
+    String[] strings = { "", "a", "ab", "b", "\u00E9", "\uE000", "\uFFFD", "\uD83D\uDE00",
+        "\uD83D\uDE00a" };
+    for (int i = 0; i < strings.length; i++) {
+      for (int j = 0; j < strings.length; j++) {
+        byte[] bytes1 = strings[i].getBytes(StandardCharsets.UTF_8);
+        byte[] bytes2 = strings[j].getBytes(StandardCharsets.UTF_8);
+        assertEquals(Integer.signum(compareUnsigned(bytes1, bytes2)),
+            Integer.signum(DatastoreUtils.compareUtf8(strings[i], strings[j])));
+      }
+    }
+  }
+
+  private static int compareUnsigned(byte[] bytes1, byte[] bytes2) {
+    int length = Math.min(bytes1.length, bytes2.length);
+    for (int i = 0; i < length; i++) {
+      int result = Integer.compare(bytes1[i] & 0xFF, bytes2[i] & 0xFF);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(bytes1.length, bytes2.length);
+  }
+
+  @Test(expected = DatastoreException.class)
+  public void testFetch_Failure() {
+    DatastoreUtils.fetch(newReader(DatastoreReader.class), newKeys(2500));
+  }
+
+}
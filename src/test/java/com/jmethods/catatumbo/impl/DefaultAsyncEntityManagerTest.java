@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.jmethods.catatumbo.AsyncEntityManager;
+import com.jmethods.catatumbo.EntityManager;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.Tenant;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultAsyncEntityManagerTest {
+
+  @After
+  public void tearDown() {
+    Tenant.setNamespace(null);
+  }
+
+  /**
+   * Creates an entity manager whose load methods return the namespace of the executing thread, and
+   * whose delete methods fail.
+   */
+  private static EntityManager newEntityManager() {
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (method.getName().equals("load")) {
+        return Tenant.getNamespace();
+      }
+      throw new EntityManagerException(method.getName());
+    };
+    return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+        new Class<?>[] { EntityManager.class }, handler);
+  }
+
+  @Test
+  public void testLoad_Tenant() throws Exception {
+    AsyncEntityManager asyncEm = new DefaultAsyncEntityManager(newEntityManager(),
+        ConcurrencyUtils.getDefaultExecutor(), 2);
+    Tenant.setNamespace("tenant1");
+    CompletableFuture<String> first = asyncEm.load(String.class, 1L);
+    Tenant.setNamespace("tenant2");
+    CompletableFuture<String> second = asyncEm.load(String.class, 2L);
+    Tenant.setNamespace(null);
+    CompletableFuture<String> third = asyncEm.load(String.class, 3L);
+    assertEquals("tenant1", first.get(5, TimeUnit.SECONDS));
+    assertEquals("tenant2", second.get(5, TimeUnit.SECONDS));
+    assertNull(third.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testDelete_Failure() {
+    AsyncEntityManager asyncEm = new DefaultAsyncEntityManager(newEntityManager(),
+        ConcurrencyUtils.getDefaultExecutor(), 2);
+    try {
+      ConcurrencyUtils.join(asyncEm.delete(new Object()));
+      fail("Expected an EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getMessage().contains("delete"));
+    }
+  }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.EntityManagerFactory;
+import com.jmethods.catatumbo.entities.CacheableCountry;
+import com.jmethods.catatumbo.entities.StringField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultBatchingLoaderTest {
+
+  private static DefaultEntityManager em;
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    em = (DefaultEntityManager) EntityManagerFactory.getInstance()
+        .createLocalEntityManager("http://localhost:1", "test-project");
+  }
+
+  @Test
+  public void testLoad_Coalesce() throws Exception {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, fetcher);
+    CompletableFuture<StringField> first = loader.load(StringField.class, 1L);
+    CompletableFuture<StringField> second = loader.load(StringField.class, 2L);
+    CompletableFuture<StringField> missing = loader.load(StringField.class, 3L);
+    assertFalse(first.isDone());
+    loader.flush();
+    assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+    assertEquals("Name 2", second.get(5, TimeUnit.SECONDS).getName());
+    assertNull(missing.get(5, TimeUnit.SECONDS));
+    assertEquals(1, fetcher.batches.size());
+    assertEquals(3, fetcher.batches.get(0).size());
+  }
+
+  @Test
+  public void testLoad_Window() throws Exception {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 10, TimeUnit.MILLISECONDS, 100,
+        fetcher);
+    CompletableFuture<StringField> first = loader.load(StringField.class, 1L);
+    CompletableFuture<StringField> second = loader.load(StringField.class, 2L);
+    assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(2L, second.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(1, fetcher.batches.size());
+  }
+
+  @Test
+  public void testLoad_MaxBatchSize() throws Exception {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 2, fetcher);
+    CompletableFuture<StringField> first = loader.load(StringField.class, 1L);
+    CompletableFuture<StringField> second = loader.load(StringField.class, 2L);
+    CompletableFuture<StringField> third = loader.load(StringField.class, 4L);
+    assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(2L, second.get(5, TimeUnit.SECONDS).getId());
+    assertFalse(third.isDone());
+    loader.flush();
+    assertEquals(4L, third.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(2, fetcher.batches.size());
+  }
+
+  @Test
+  public void testLoad_Duplicate() throws Exception {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, fetcher);
+    CompletableFuture<StringField> first = loader.load(StringField.class, 1L);
+    CompletableFuture<StringField> second = loader.load(StringField.class, 1L);
+    loader.flush();
+    StringField firstEntity = first.get(5, TimeUnit.SECONDS);
+    StringField secondEntity = second.get(5, TimeUnit.SECONDS);
+    assertNotSame(firstEntity, secondEntity);
+    assertEquals(firstEntity.getId(), secondEntity.getId());
+    assertEquals(Collections.singletonList(1L), fetcher.batches.get(0));
+  }
+
+  @Test
+  public void testLoad_InFlight() throws Exception {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    fetcher.gate = new CountDownLatch(1);
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, fetcher);
+    CompletableFuture<StringField> first = loader.load(StringField.class, 1L);
+    loader.flush();
+    CompletableFuture<StringField> second = loader.load(StringField.class, 1L);
+    loader.flush();
+    fetcher.gate.countDown();
+    assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(1L, second.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(1, fetcher.batches.size());
+  }
+
+  @Test
+  public void testLoad_Cached() throws Exception {
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100,
+        new CountryFetcher(null));
+    CompletableFuture<CacheableCountry> future = loader.load(CacheableCountry.class, "CA");
+    loader.flush();
+    assertEquals("Country CA", future.get(5, TimeUnit.SECONDS).getName());
+    assertNotNull(em.getSecondLevelCache().getCache(CacheableCountry.class)
+        .get(new DefaultDatastoreKey(countryKey("CA"))));
+  }
+
+  @Test
+  public void testLoad_EvictedDuringFetch() throws Exception {
+    CountDownLatch gate = new CountDownLatch(1);
+    CountryFetcher fetcher = new CountryFetcher(gate);
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, fetcher);
+    CompletableFuture<CacheableCountry> first = loader.load(CacheableCountry.class, "FR");
+    loader.flush();
+    assertTrue(fetcher.entered.await(5, TimeUnit.SECONDS));
+    // An update evicts the key while the lookup is in flight, and a new caller joins the lookup
+    em.getSecondLevelCache().evict(Collections.singletonList(countryKey("FR")));
+    CompletableFuture<CacheableCountry> second = loader.load(CacheableCountry.class, "FR");
+    gate.countDown();
+    assertEquals("Country FR", first.get(5, TimeUnit.SECONDS).getName());
+    assertEquals("Country FR", second.get(5, TimeUnit.SECONDS).getName());
+    assertNull(em.getSecondLevelCache().getCache(CacheableCountry.class)
+        .get(new DefaultDatastoreKey(countryKey("FR"))));
+  }
+
+  @Test
+  public void testLoad_Failure() throws Exception {
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, keys -> {
+      throw new DatastoreException(14, "Unavailable", "UNAVAILABLE");
+    });
+    CompletableFuture<StringField> future = loader.load(StringField.class, 1L);
+    loader.flush();
+    try {
+      ConcurrencyUtils.join(future);
+      fail("Expected an EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getCause() instanceof DatastoreException);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNewBatchingLoader_InvalidMaxBatchSize() {
+    em.newBatchingLoader(10, TimeUnit.MILLISECONDS, DatastoreUtils.MAX_LOOKUP_SIZE + 1);
+  }
+
+  @Test
+  public void testFlush_Empty() {
+    RecordingFetcher fetcher = new RecordingFetcher();
+    DefaultBatchingLoader loader = new DefaultBatchingLoader(em, 1, TimeUnit.HOURS, 100, fetcher);
+    loader.flush();
+    assertEquals(0, fetcher.batches.size());
+  }
+
+  private static Key countryKey(String code) {
+    return Key.newBuilder("test-project", "CacheableCountry", code).build();
+  }
+
+  /**
+   * Fetcher that finds every country, optionally waiting for the given gate before returning.
+   * Signals when a lookup has started.
+   */
+  private static class CountryFetcher implements Function<Key[], List<Entity>> {
+
+    private final CountDownLatch gate;
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    CountryFetcher(CountDownLatch gate) {
+      this.gate = gate;
+    }
+
+    @Override
+    public List<Entity> apply(Key[] keys) {
+      entered.countDown();
+      List<Entity> entities = new ArrayList<>(keys.length);
+      for (Key key : keys) {
+        entities.add(Entity.newBuilder(key).set("name", "Country " + key.getName()).build());
+      }
+      if (gate != null) {
+        try {
+          gate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exp) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return entities;
+    }
+  }
+
+  /**
+   * Fetcher that records the IDs of each batch, and finds the entities with IDs 1, 2 and 4 only.
+   */
+  private static class RecordingFetcher implements Function<Key[], List<Entity>> {
+
+    private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile CountDownLatch gate;
+
+    @Override
+    public List<Entity> apply(Key[] keys) {
+      Long[] ids = new Long[keys.length];
+      List<Entity> entities = new ArrayList<>(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        ids[i] = keys[i].getId();
+        entities.add(ids[i] > 2 && ids[i] != 4 ? null
+            : Entity.newBuilder(keys[i]).set("name", "Name " + ids[i]).build());
+      }
+      batches.add(Arrays.asList(ids));
+      if (gate != null) {
+        try {
+          gate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exp) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return entities;
+    }
+  }
+
+}
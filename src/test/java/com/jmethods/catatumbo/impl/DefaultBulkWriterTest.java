@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.BulkWriteException;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityNotFoundException;
+import com.jmethods.catatumbo.impl.DefaultBulkWriter.ChunkWriter;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultBulkWriterTest {
+
+  private final List<List<?>> chunks = Collections.synchronizedList(new ArrayList<>());
+
+  private static DatastoreKey toKey(Object name) {
+    return new DefaultDatastoreKey(Key.newBuilder("test-project", "Test", (String) name).build());
+  }
+
+  private static List<String> newNames(int count) {
+    List<String> names = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      names.add("name" + i);
+    }
+    return names;
+  }
+
+  /**
+   * Creates a writer whose chunk writer records each chunk, returns the chunk in upper case,
+   * and fails on chunks containing "fail".
+   */
+  private DefaultBulkWriter newWriter(int chunkSize) {
+    ChunkWriter chunkWriter = (ChunkWriter) Proxy.newProxyInstance(
+        ChunkWriter.class.getClassLoader(), new Class<?>[] { ChunkWriter.class },
+        (proxy, method, args) -> {
+          List<?> chunk = (List<?>) args[0];
+          chunks.add(new ArrayList<>(chunk));
+          if (chunk.contains("fail")) {
+            throw new EntityNotFoundException("not found");
+          }
+          if (method.getName().startsWith("delete")) {
+            return null;
+          }
+          List<String> written = new ArrayList<>();
+          for (Object item : chunk) {
+            written.add(((String) item).toUpperCase());
+          }
+          return written;
+        });
+    return new DefaultBulkWriter(chunkWriter, DefaultBulkWriterTest::toKey, chunkSize);
+  }
+
+  @Test
+  public void testUpsert_Chunked() {
+    List<String> names = newNames(25);
+    List<String> upserted = newWriter(10).upsert(names);
+    assertEquals(25, upserted.size());
+    for (int i = 0; i < names.size(); i++) {
+      assertEquals(names.get(i).toUpperCase(), upserted.get(i));
+    }
+    assertEquals(3, chunks.size());
+  }
+
+  @Test
+  public void testInsert_Empty() {
+    assertTrue(newWriter(10).insert(new ArrayList<>()).isEmpty());
+    assertTrue(chunks.isEmpty());
+  }
+
+  @Test
+  public void testInsert_PartialFailure() {
+    List<String> names = newNames(25);
+    names.set(12, "fail");
+    try {
+      newWriter(10).insert(names);
+      fail("Expected a BulkWriteException");
+    } catch (BulkWriteException exp) {
+      assertEquals(1, exp.getFailures().size());
+      assertTrue(exp.getCause() instanceof EntityNotFoundException);
+      assertEquals(15, exp.getWrittenKeys().size());
+      assertEquals(toKey("NAME0"), exp.getWrittenKeys().get(0));
+      assertEquals(toKey("NAME20"), exp.getWrittenKeys().get(10));
+    }
+  }
+
+  @Test
+  public void testDeleteByKey_Failures() {
+    List<DatastoreKey> keys = Arrays.asList(toKey("a"), toKey("b"), toKey("c"));
+    ChunkWriter chunkWriter = (ChunkWriter) Proxy.newProxyInstance(
+        ChunkWriter.class.getClassLoader(), new Class<?>[] { ChunkWriter.class },
+        (proxy, method, args) -> {
+          if (((List<?>) args[0]).contains(keys.get(1))) {
+            return null;
+          }
+          throw new IllegalStateException();
+        });
+    try {
+      new DefaultBulkWriter(chunkWriter, DefaultBulkWriterTest::toKey, 1).deleteByKey(keys);
+      fail("Expected a BulkWriteException");
+    } catch (BulkWriteException exp) {
+      assertEquals(2, exp.getFailures().size());
+      assertEquals(1, exp.getSuppressed().length);
+      assertEquals(Collections.singletonList(keys.get(1)), exp.getWrittenKeys());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNew_InvalidChunkSize() {
+    newWriter(DatastoreUtils.MAX_MUTATIONS + 1);
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.QueryResults;
+import com.google.datastore.v1.QueryResultBatch.MoreResultsType;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.EntityManagerFactory;
+import com.jmethods.catatumbo.KeyQueryRequest;
+import com.jmethods.catatumbo.OperationType;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+import com.jmethods.catatumbo.SlowOperation;
+import com.jmethods.catatumbo.SlowOperationLogOptions;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultQueryResultIteratorTest {
+
+  private static String cursorAt(int position) {
+    return Cursor.copyFrom(new byte[] { (byte) position }).toUrlSafe();
+  }
+
+  @Test
+  public void testLazyConversion() {
+    AtomicInteger conversions = new AtomicInteger();
+    DefaultQueryResultIterator<Integer, String> iterator = new DefaultQueryResultIterator<>(
+        new StubQueryResults<>(Arrays.asList(1, 2, 3)), n -> {
+          conversions.incrementAndGet();
+          return String.valueOf(n);
+        });
+    assertEquals(0, conversions.get());
+    assertTrue(iterator.hasNext());
+    assertEquals("1", iterator.next());
+    assertEquals(1, conversions.get());
+    assertEquals(cursorAt(1), iterator.getCursorAfter().getEncoded());
+    assertEquals(Arrays.asList("2", "3"), iterator.stream().collect(Collectors.toList()));
+    assertEquals(3, conversions.get());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testCursorsAndMetadata() {
+    DefaultQueryResultIterator<Integer, Integer> iterator = new DefaultQueryResultIterator<>(
+        new StubQueryResults<>(Arrays.asList(10, 20)), n -> n);
+    assertEquals(cursorAt(0), iterator.getStartCursor().getEncoded());
+    while (iterator.hasNext()) {
+      iterator.next();
+    }
+    assertEquals(cursorAt(0), iterator.getStartCursor().getEncoded());
+    assertEquals(cursorAt(2), iterator.getCursorAfter().getEncoded());
+    assertEquals(QueryState.NO_MORE_RESULTS,
+        iterator.getQueryResponseMetadata().getQueryState());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testNext_Exhausted() {
+    DefaultQueryResultIterator<Integer, Integer> iterator = new DefaultQueryResultIterator<>(
+        new StubQueryResults<>(Arrays.<Integer> asList()), n -> n);
+    iterator.next();
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testHasNext_DatastoreException() {
+    StubQueryResults<Integer> results = new StubQueryResults<>(Arrays.asList(1));
+    results.failure = new DatastoreException(14, "unavailable", "UNAVAILABLE");
+    new DefaultQueryResultIterator<>(results, n -> n).hasNext();
+  }
+
+  @Test
+  public void testTimer() {
+    List<SlowOperation> operations = new ArrayList<>();
+    DefaultEntityManager em = newEntityManager(operations);
+    KeyQueryRequest request = em.createKeyQueryRequest("SELECT __key__ FROM Task LIMIT 3");
+    OperationTimer timer = OperationTimer.start(em, OperationType.QUERY).query(request);
+    DefaultQueryResultIterator<Integer, Integer> iterator = new DefaultQueryResultIterator<>(
+        new StubQueryResults<>(Arrays.asList(1, 2, 3)), n -> n, timer);
+    assertEquals(Arrays.asList(1, 2, 3), iterator.stream().collect(Collectors.toList()));
+    assertFalse(iterator.hasNext());
+    assertEquals(1, operations.size());
+    SlowOperation operation = operations.get(0);
+    assertEquals(OperationType.QUERY, operation.getOperationType());
+    assertEquals(request.getQuery(), operation.getQuery());
+    assertEquals(3, operation.getEntityCount());
+    assertEquals(cursorAt(3), operation.getEndCursor().getEncoded());
+    assertEquals(QueryState.NO_MORE_RESULTS, operation.getQueryState());
+    assertFalse(operation.isFailed());
+  }
+
+  @Test
+  public void testTimer_Failure() {
+    List<SlowOperation> operations = new ArrayList<>();
+    DefaultEntityManager em = newEntityManager(operations);
+    OperationTimer timer = OperationTimer.start(em, OperationType.QUERY);
+    StubQueryResults<Integer> results = new StubQueryResults<>(Arrays.asList(1));
+    results.failure = new DatastoreException(14, "unavailable", "UNAVAILABLE");
+    try {
+      new DefaultQueryResultIterator<>(results, n -> n, timer).hasNext();
+      fail("Expected EntityManagerException");
+    } catch (EntityManagerException exp) {
+      // Expected
+    }
+    assertEquals(1, operations.size());
+    assertTrue(operations.get(0).isFailed());
+  }
+
+  private static DefaultEntityManager newEntityManager(List<SlowOperation> operations) {
+    DefaultEntityManager em = (DefaultEntityManager) EntityManagerFactory.getInstance()
+        .createLocalEntityManager("http://localhost:1", "test-project");
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setThresholdMillis(0);
+    options.setHandler(operations::add);
+    em.setSlowOperationLogOptions(options);
+    return em;
+  }
+
+  /**
+   * Stub of the native QueryResults, whose cursor is the number of results consumed.
+   */
+  private static class StubQueryResults<V> implements QueryResults<V> {
+
+    private final Iterator<V> iterator;
+    private int position;
+    private DatastoreException failure;
+
+    StubQueryResults(List<V> results) {
+      this.iterator = results.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (failure != null) {
+        throw failure;
+      }
+      return iterator.hasNext();
+    }
+
+    @Override
+    public V next() {
+      position++;
+      return iterator.next();
+    }
+
+    @Override
+    public Class<?> getResultClass() {
+      return Object.class;
+    }
+
+    @Override
+    public Cursor getCursorAfter() {
+      return Cursor.copyFrom(new byte[] { (byte) position });
+    }
+
+    @Override
+    public int getSkippedResults() {
+      return 0;
+    }
+
+    @Override
+    public MoreResultsType getMoreResults() {
+      return iterator.hasNext() ? MoreResultsType.NOT_FINISHED : MoreResultsType.NO_MORE_RESULTS;
+    }
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.EntityManagerFactory;
+import com.jmethods.catatumbo.entities.StringField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DefaultWriteBehindEntityManagerTest {
+
+  private static DefaultEntityManager em;
+
+  private final List<List<Entity>> upsertBatches = Collections.synchronizedList(new ArrayList<>());
+
+  private final List<List<Key>> deleteBatches = Collections.synchronizedList(new ArrayList<>());
+
+  private volatile CountDownLatch gate;
+
+  private final BiConsumer<List<Entity>, List<Key>> batchWriter = (entities, keys) -> {
+    if (gate != null) {
+      try {
+        gate.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException exp) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    upsertBatches.add(new ArrayList<>(entities));
+    deleteBatches.add(new ArrayList<>(keys));
+  };
+
+  @BeforeClass
+  public static void setUpBeforeClass() {
+    em = (DefaultEntityManager) EntityManagerFactory.getInstance()
+        .createLocalEntityManager("http://localhost:1", "test-project");
+  }
+
+  private static StringField newEntity(long id, String name) {
+    StringField entity = new StringField();
+    entity.setId(id);
+    entity.setName(name);
+    return entity;
+  }
+
+  private DefaultWriteBehindEntityManager newWriter(int maxBatchSize, long flushInterval,
+      int maxQueueSize) {
+    return new DefaultWriteBehindEntityManager(em, maxBatchSize, flushInterval,
+        TimeUnit.MILLISECONDS, maxQueueSize, batchWriter);
+  }
+
+  private void awaitBatches(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (upsertBatches.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(upsertBatches.size() >= count);
+  }
+
+  @Test
+  public void testUpsert_Coalesce() {
+    DefaultWriteBehindEntityManager writer = newWriter(10, 60000, 100);
+    writer.upsert(newEntity(1, "first"));
+    writer.upsert(newEntity(2, "other"));
+    writer.upsert(newEntity(1, "last"));
+    writer.flush();
+    writer.close();
+    assertEquals(1, upsertBatches.size());
+    List<Entity> entities = upsertBatches.get(0);
+    assertEquals(2, entities.size());
+    assertEquals("last", entities.get(0).getString("name"));
+    assertEquals("other", entities.get(1).getString("name"));
+  }
+
+  @Test
+  public void testDelete_ReplacesUpsert() {
+    DefaultWriteBehindEntityManager writer = newWriter(10, 60000, 100);
+    StringField entity = newEntity(1, "deleted");
+    writer.upsert(entity);
+    writer.delete(entity);
+    writer.close();
+    assertTrue(upsertBatches.get(0).isEmpty());
+    assertEquals(1, deleteBatches.get(0).size());
+    assertEquals(1L, (long) deleteBatches.get(0).get(0).getId());
+  }
+
+  @Test
+  public void testUpsert_BatchSize() throws Exception {
+    DefaultWriteBehindEntityManager writer = newWriter(2, 60000, 100);
+    writer.upsert(newEntity(1, "one"));
+    writer.upsert(newEntity(2, "two"));
+    awaitBatches(1);
+    writer.upsert(newEntity(3, "three"));
+    writer.close();
+    assertEquals(2, upsertBatches.size());
+    assertEquals(2, upsertBatches.get(0).size());
+  }
+
+  @Test
+  public void testUpsert_FlushInterval() throws Exception {
+    DefaultWriteBehindEntityManager writer = newWriter(10, 10, 100);
+    writer.upsert(newEntity(1, "one"));
+    awaitBatches(1);
+    writer.close();
+  }
+
+  @Test
+  public void testUpsert_Backpressure() throws Exception {
+    gate = new CountDownLatch(1);
+    DefaultWriteBehindEntityManager writer = newWriter(1, 60000, 1);
+    writer.upsert(newEntity(1, "one"));
+    CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+      writer.upsert(newEntity(2, "two"));
+      writer.upsert(newEntity(3, "three"));
+    });
+    Thread.sleep(50);
+    assertFalse(blocked.isDone());
+    gate.countDown();
+    blocked.get(5, TimeUnit.SECONDS);
+    writer.close();
+    assertEquals(3, upsertBatches.size());
+  }
+
+  @Test
+  public void testFlush_Failure() {
+    DefaultWriteBehindEntityManager writer = new DefaultWriteBehindEntityManager(em, 10, 60000,
+        TimeUnit.MILLISECONDS, 100, (entities, keys) -> {
+          throw new DatastoreException(14, "Unavailable", "UNAVAILABLE");
+        });
+    writer.upsert(newEntity(1, "one"));
+    try {
+      writer.flush();
+      fail("Expected an EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getCause() instanceof DatastoreException);
+    }
+    writer.close();
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testUpsert_NoIdentifier() {
+    try (DefaultWriteBehindEntityManager writer = newWriter(10, 60000, 100)) {
+      writer.upsert(new StringField());
+    }
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testUpsert_Closed() {
+    DefaultWriteBehindEntityManager writer = newWriter(10, 60000, 100);
+    writer.close();
+    writer.upsert(newEntity(1, "one"));
+  }
+
+}
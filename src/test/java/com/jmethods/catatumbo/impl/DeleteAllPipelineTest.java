@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.DeleteAllMonitor;
+import com.jmethods.catatumbo.DeleteAllOptions;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class DeleteAllPipelineTest {
+
+  private final Set<Key> deletedKeys = ConcurrentHashMap.newKeySet();
+
+  private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+  private static Supplier<Iterator<Key>> newScanner(long firstId, int count) {
+    return () -> {
+      List<Key> keys = new ArrayList<>(count);
+      for (long id = firstId; id < firstId + count; id++) {
+        keys.add(Key.newBuilder("test-project", "Test", id).build());
+      }
+      return keys.iterator();
+    };
+  }
+
+  private void delete(Key[] keys) {
+    batchSizes.add(keys.length);
+    deletedKeys.addAll(Arrays.asList(keys));
+  }
+
+  @Test
+  public void testRun() {
+    DeleteAllOptions options = new DeleteAllOptions();
+    options.setBatchSize(100);
+    long count = new DeleteAllPipeline("Test", Collections.singletonList(newScanner(1, 1050)),
+        this::delete, options).run();
+    assertEquals(1050, count);
+    assertEquals(1050, deletedKeys.size());
+    assertEquals(11, batchSizes.size());
+  }
+
+  @Test
+  public void testRun_MultipleScanners() {
+    DeleteAllOptions options = new DeleteAllOptions();
+    options.setScanners(3);
+    options.setDeleteWorkers(2);
+    List<Supplier<Iterator<Key>>> scanners = Arrays.asList(newScanner(1, 700),
+        newScanner(701, 0), newScanner(1001, 900));
+    long count = new DeleteAllPipeline("Test", scanners, this::delete, options).run();
+    assertEquals(1600, count);
+    assertEquals(1600, deletedKeys.size());
+  }
+
+  @Test
+  public void testRun_Progress() {
+    DeleteAllOptions options = new DeleteAllOptions();
+    options.setBatchSize(10);
+    options.setDeleteWorkers(1);
+    AtomicLong lastCount = new AtomicLong();
+    options.setMonitor((kind, deleteCount) -> {
+      assertEquals("Test", kind);
+      lastCount.set(deleteCount);
+    });
+    new DeleteAllPipeline("Test", Collections.singletonList(newScanner(1, 95)), this::delete,
+        options).run();
+    assertEquals(95, lastCount.get());
+  }
+
+  @Test
+  public void testRun_Cancelled() {
+    DeleteAllOptions options = new DeleteAllOptions();
+    options.setBatchSize(10);
+    options.setDeleteWorkers(1);
+    options.setMonitor(new DeleteAllMonitor() {
+
+      private volatile long count;
+
+      @Override
+      public void onProgress(String kind, long deleteCount) {
+        count = deleteCount;
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return count >= 30;
+      }
+    });
+    long count = new DeleteAllPipeline("Test", Collections.singletonList(newScanner(1, 1000)),
+        this::delete, options).run();
+    assertEquals(30, count);
+    assertEquals(30, deletedKeys.size());
+  }
+
+  @Test
+  public void testRun_Failure() {
+    DeleteAllOptions options = new DeleteAllOptions();
+    options.setBatchSize(10);
+    options.setDeleteWorkers(1);
+    try {
+      new DeleteAllPipeline("Test", Collections.singletonList(newScanner(1, 1000)), keys -> {
+        delete(keys);
+        if (keys[0].getId() == 51) {
+          throw new DatastoreException(14, "Unavailable", "UNAVAILABLE");
+        }
+      }, options).run();
+      fail("Expected a DatastoreException");
+    } catch (DatastoreException exp) {
+      assertEquals(60, deletedKeys.size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBatchSize_Invalid() {
+    new DeleteAllOptions().setBatchSize(DeleteAllOptions.DEFAULT_BATCH_SIZE + 1);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.EntitySizeGuardOptions;
+import com.jmethods.catatumbo.EntityTooLargeException;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class EntitySizeGuardTest {
+
+  private static final Entity ENTITY = Entity
+      .newBuilder(Key.newBuilder("test", "Person", "john").build()).set("name", "John").build();
+
+  @Test
+  public void testCheck_BelowThreshold() {
+    EntitySizeGuardOptions options = new EntitySizeGuardOptions();
+    options.setThresholdBytes(PayloadSizeEstimator.estimate(ENTITY));
+    options.setFailOnExceed(true);
+    new EntitySizeGuard(options).check(ENTITY, Object.class);
+  }
+
+  @Test
+  public void testCheck_Fail() {
+    long entityBytes = PayloadSizeEstimator.estimate(ENTITY);
+    EntitySizeGuardOptions options = new EntitySizeGuardOptions();
+    options.setThresholdBytes(entityBytes - 1);
+    options.setFailOnExceed(true);
+    try {
+      new EntitySizeGuard(options).check(ENTITY, Object.class);
+      fail("EntityTooLargeException expected");
+    } catch (EntityTooLargeException exp) {
+      assertEquals(entityBytes, exp.getEntityBytes());
+      assertEquals(entityBytes - 1, exp.getThresholdBytes());
+      assertTrue(exp.getMessage().contains("java.lang.Object"));
+    }
+  }
+
+  @Test
+  public void testCheck_Warn() {
+    List<LogRecord> records = new ArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+        // Do nothing.
+      }
+
+      @Override
+      public void close() {
+        // Do nothing.
+      }
+    };
+    Logger logger = Logger.getLogger(EntitySizeGuardOptions.DEFAULT_LOGGER_NAME);
+    logger.addHandler(handler);
+    try {
+      EntitySizeGuardOptions options = new EntitySizeGuardOptions();
+      options.setThresholdBytes(1);
+      new EntitySizeGuard(options).check(ENTITY, Object.class);
+      assertEquals(1, records.size());
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  @Test
+  public void testDefaults() {
+    EntitySizeGuardOptions options = new EntitySizeGuardOptions();
+    assertEquals(EntitySizeGuardOptions.DEFAULT_THRESHOLD_BYTES, options.getThresholdBytes());
+    assertFalse(options.isFailOnExceed());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetThresholdBytes_Zero() {
+    new EntitySizeGuardOptions().setThresholdBytes(0);
+  }
+
+}
@@ -27,6 +27,8 @@ import com.jmethods.catatumbo.EntityManagerException;
 import com.jmethods.catatumbo.listeners.BadExternalListener1;
 import com.jmethods.catatumbo.listeners.BadExternalListener2;
 import com.jmethods.catatumbo.listeners.BadExternalListener3;
+import com.jmethods.catatumbo.listeners.BadExternalListener4;
+import com.jmethods.catatumbo.listeners.BatchListener;
 import com.jmethods.catatumbo.listeners.GoodExternalListener1;
 
 /**
@@ -65,6 +67,27 @@ public class ExternalListenerIntrospectorTest {
     }
   }
 
+  @Test(expected = EntityManagerException.class)
+  public void testIntrospect_InvalidBatchMethod() {
+    try {
+      ExternalListenerIntrospector.introspect(BadExternalListener4.class);
+    } catch (EntityManagerException exp) {
+      System.out.println(exp.getMessage());
+      throw exp;
+    }
+  }
+
+  @Test
+  public void testIntrospect_Batch() {
+    ExternalListenerMetadata metadata = ExternalListenerIntrospector
+        .introspect(BatchListener.class);
+    Map<CallbackType, Method> callbacks = metadata.getCallbacks();
+    assertTrue(callbacks.size() == 3);
+    assertTrue(callbacks.containsKey(CallbackType.POST_INSERT));
+    assertTrue(callbacks.containsKey(CallbackType.POST_INSERT_BATCH));
+    assertTrue(callbacks.containsKey(CallbackType.POST_LOAD_BATCH));
+  }
+
   @Test
   public void testIntroSpect1() {
     ExternalListenerMetadata metadata = ExternalListenerIntrospector
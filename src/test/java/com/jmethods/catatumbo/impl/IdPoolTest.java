@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class IdPoolTest {
+
+  private static final IncompleteKey FOO = IncompleteKey.newBuilder("test-project", "Foo").build();
+
+  private static final IncompleteKey BAR = IncompleteKey.newBuilder("test-project", "Bar").build();
+
+  private final AtomicInteger allocations = new AtomicInteger();
+
+  private final AtomicLong nextId = new AtomicLong(1);
+
+  private Function<IncompleteKey[], List<Key>> allocator() {
+    return incompleteKeys -> {
+      allocations.incrementAndGet();
+      List<Key> keys = new ArrayList<>();
+      for (IncompleteKey incompleteKey : incompleteKeys) {
+        keys.add(Key.newBuilder(incompleteKey, nextId.getAndIncrement()).build());
+      }
+      return keys;
+    };
+  }
+
+  private void awaitAllocations(int count) throws InterruptedException {
+    for (int i = 0; i < 500 && allocations.get() < count; i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testNext() throws Exception {
+    IdPool idPool = new IdPool(allocator(), 10, 3);
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 6; i++) {
+      Key key = idPool.next(FOO);
+      assertEquals("Foo", key.getKind());
+      ids.add(key.getId());
+    }
+    assertEquals(6, ids.size());
+    assertEquals(1, allocations.get());
+    // Taking the 7th key leaves 3, which triggers a refill in the background
+    idPool.next(FOO);
+    awaitAllocations(2);
+    assertEquals(2, allocations.get());
+    for (int i = 0; i < 13; i++) {
+      assertTrue(ids.add(idPool.next(FOO).getId()));
+    }
+  }
+
+  @Test
+  public void testNext_SeparateKinds() {
+    IdPool idPool = new IdPool(allocator(), 5, 0);
+    Key foo = idPool.next(FOO);
+    Key bar = idPool.next(BAR);
+    assertEquals("Foo", foo.getKind());
+    assertEquals("Bar", bar.getKind());
+    assertNotEquals(foo.getId(), bar.getId());
+    assertEquals(2, allocations.get());
+  }
+
+  @Test
+  public void testNext_RefillFailure() throws Exception {
+    Thread caller = Thread.currentThread();
+    AtomicInteger failures = new AtomicInteger();
+    Function<IncompleteKey[], List<Key>> allocator = allocator();
+    IdPool idPool = new IdPool(incompleteKeys -> {
+      if (Thread.currentThread() != caller) {
+        failures.incrementAndGet();
+        throw new IllegalStateException("Refill failed");
+      }
+      return allocator.apply(incompleteKeys);
+    }, 3, 1);
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      ids.add(idPool.next(FOO).getId());
+      for (int j = 0; j < 500 && failures.get() < i; j++) {
+        Thread.sleep(10);
+      }
+    }
+    // The background refills failed, so the caller allocates a block itself
+    ids.add(idPool.next(FOO).getId());
+    assertEquals(4, ids.size());
+    assertEquals(2, allocations.get());
+  }
+
+  @Test
+  public void testNext_SingleFlight() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Function<IncompleteKey[], List<Key>> allocator = allocator();
+    IdPool idPool = new IdPool(incompleteKeys -> {
+      entered.countDown();
+      await(release);
+      return allocator.apply(incompleteKeys);
+    }, 20, 0);
+    Set<Long> ids = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      threads.add(new Thread(() -> ids.add(idPool.next(FOO).getId())));
+    }
+    threads.get(0).start();
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    for (Thread thread : threads.subList(1, threads.size())) {
+      thread.start();
+      awaitWaiting(thread);
+    }
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join(5000);
+    }
+    assertEquals(8, ids.size());
+    assertEquals(1, allocations.get());
+  }
+
+  @Test
+  public void testNext_SharedFailure() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    IdPool idPool = new IdPool(incompleteKeys -> {
+      allocations.incrementAndGet();
+      entered.countDown();
+      await(release);
+      throw new IllegalStateException("Allocation failed");
+    }, 10, 0);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread owner = new Thread(() -> idPool.next(FOO));
+    owner.start();
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    Thread waiter = new Thread(() -> {
+      try {
+        idPool.next(FOO);
+      } catch (RuntimeException exp) {
+        failure.set(exp);
+      }
+    });
+    waiter.start();
+    awaitWaiting(waiter);
+    release.countDown();
+    owner.join(5000);
+    waiter.join(5000);
+    assertTrue(failure.get() instanceof IllegalStateException);
+    assertEquals(1, allocations.get());
+  }
+
+  @Test
+  public void testNext_ChunkExecutor() throws Exception {
+    // Refills are queued behind the callers on the chunk executor, and must not be waited for
+    Function<IncompleteKey[], List<Key>> allocator = allocator();
+    IdPool idPool = new IdPool(incompleteKeys -> {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException exp) {
+        Thread.currentThread().interrupt();
+      }
+      return allocator.apply(incompleteKeys);
+    }, 100, 25);
+    int taskCount = ConcurrencyUtils.DEFAULT_POOL_SIZE * 2;
+    Set<Long> ids = ConcurrentHashMap.newKeySet();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < taskCount; i++) {
+      futures.add(ConcurrencyUtils.getChunkExecutor().submit(() -> {
+        for (int j = 0; j < 500; j++) {
+          ids.add(idPool.next(FOO).getId());
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(20, TimeUnit.SECONDS);
+    }
+    assertEquals(taskCount * 500, ids.size());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitWaiting(Thread thread) throws InterruptedException {
+    for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNew_InvalidLowWatermark() {
+    new IdPool(allocator(), 10, 10);
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.EntityManagerFactory;
+import com.jmethods.catatumbo.entities.LongField;
+import com.jmethods.catatumbo.entities.OptimisticLock1;
+import com.jmethods.catatumbo.entities.StringField;
+import com.jmethods.catatumbo.impl.Marshaller.Intent;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class IdentityMapTest {
+
+  private static final Key KEY = Key.newBuilder("test-project", "StringField", 1L).build();
+
+  @Test
+  public void testPut() {
+    IdentityMap identityMap = new IdentityMap();
+    StringField entity = new StringField();
+    assertFalse(identityMap.contains(StringField.class, KEY));
+    identityMap.put(StringField.class, KEY, entity);
+    assertTrue(identityMap.contains(StringField.class, KEY));
+    assertSame(entity, identityMap.get(StringField.class, KEY));
+    assertFalse(identityMap.contains(LongField.class, KEY));
+    assertNull(identityMap.get(LongField.class, KEY));
+  }
+
+  @Test
+  public void testPut_NotFound() {
+    IdentityMap identityMap = new IdentityMap();
+    identityMap.put(StringField.class, KEY, null);
+    assertTrue(identityMap.contains(StringField.class, KEY));
+    assertNull(identityMap.get(StringField.class, KEY));
+  }
+
+  @Test
+  public void testRemove() {
+    IdentityMap identityMap = new IdentityMap();
+    identityMap.put(StringField.class, KEY, new StringField());
+    identityMap.put(LongField.class, KEY, new LongField());
+    identityMap.remove(Collections.singletonList(KEY));
+    assertFalse(identityMap.contains(StringField.class, KEY));
+    assertFalse(identityMap.contains(LongField.class, KEY));
+  }
+
+  @Test
+  public void testClear() {
+    IdentityMap identityMap = new IdentityMap();
+    identityMap.put(StringField.class, KEY, new StringField());
+    identityMap.clear();
+    assertFalse(identityMap.contains(StringField.class, KEY));
+  }
+
+  @Test
+  public void testGetUnchangedSnapshot() {
+    DefaultEntityManager em = (DefaultEntityManager) EntityManagerFactory.getInstance()
+        .createLocalEntityManager("http://localhost:1", "test-project");
+    OptimisticLock1 entity = new OptimisticLock1();
+    entity.setId(1L);
+    entity.setName("Original");
+    Entity loaded = (Entity) Marshaller.marshal(em, entity, Intent.INSERT);
+    IdentityMap identityMap = new IdentityMap(true);
+    assertTrue(identityMap.isTrackingChanges());
+    identityMap.put(OptimisticLock1.class, loaded.getKey(), entity);
+    identityMap.putSnapshot(loaded);
+
+    // The version is incremented by the marshalling process, but is not a change
+    Entity nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    assertSame(loaded, identityMap.getUnchangedSnapshot(entity, nativeEntity));
+    assertNull(identityMap.getUnchangedSnapshot(new OptimisticLock1(), nativeEntity));
+
+    entity.setName("Changed");
+    nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    assertNull(identityMap.getUnchangedSnapshot(entity, nativeEntity));
+
+    identityMap.remove(Collections.singletonList(loaded.getKey()));
+    entity.setName("Original");
+    nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    assertNull(identityMap.getUnchangedSnapshot(entity, nativeEntity));
+  }
+
+  @Test
+  public void testGetUnchangedSnapshot_NotTracking() {
+    IdentityMap identityMap = new IdentityMap();
+    assertFalse(identityMap.isTrackingChanges());
+    StringField entity = new StringField();
+    Entity nativeEntity = Entity.newBuilder(KEY).set("name", "Hello").build();
+    identityMap.put(StringField.class, KEY, entity);
+    identityMap.putSnapshot(nativeEntity);
+    assertNull(identityMap.getUnchangedSnapshot(entity, nativeEntity));
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.jmethods.catatumbo.OperationStats;
+import com.jmethods.catatumbo.OperationType;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class InMemoryOperationMetricsTest {
+
+  @Test
+  public void testSnapshot() {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    metrics.record(OperationType.INSERT, "Person", 2, 100, 1_000, false);
+    metrics.record(OperationType.INSERT, "Person", 3, 50, 3_000, true);
+    metrics.record(OperationType.LOAD, "Person", 1, 20, 500, false);
+    metrics.record(OperationType.DELETE, "Address", 1, 0, 200, false);
+    List<OperationStats> snapshot = metrics.snapshot();
+    assertEquals(3, snapshot.size());
+    assertEquals("Address", snapshot.get(0).getKind());
+    assertEquals(OperationType.LOAD, snapshot.get(1).getOperationType());
+    OperationStats stats = snapshot.get(2);
+    assertEquals("Person", stats.getKind());
+    assertEquals(OperationType.INSERT, stats.getOperationType());
+    assertEquals(2, stats.getCount());
+    assertEquals(1, stats.getErrorCount());
+    assertEquals(5, stats.getEntityCount());
+    assertEquals(150, stats.getPayloadBytes());
+    assertEquals(4_000, stats.getTotalLatencyNanos());
+    assertEquals(3_000, stats.getMaxLatencyNanos());
+    assertEquals(2_000, stats.getMeanLatencyNanos());
+    long median = stats.getLatencyPercentileNanos(50);
+    assertTrue(median >= 1_000 && median <= 1_125);
+    assertEquals(3_000, stats.getLatencyPercentileNanos(100));
+  }
+
+  @Test
+  public void testExport() {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    metrics.record(OperationType.UPSERT, "Person", 1, 10, 100, false);
+    metrics.record(OperationType.COMMIT, null, 0, 0, 7, false);
+    Map<String, Long> export = metrics.export();
+    assertEquals(Long.valueOf(1), export.get("_.commit.count"));
+    assertEquals(Long.valueOf(7), export.get("_.commit.maxLatencyNanos"));
+    assertEquals(Long.valueOf(1), export.get("Person.upsert.count"));
+    assertEquals(Long.valueOf(0), export.get("Person.upsert.errorCount"));
+    assertEquals(Long.valueOf(10), export.get("Person.upsert.payloadBytes"));
+    assertEquals(Long.valueOf(100), export.get("Person.upsert.p99LatencyNanos"));
+    assertTrue(export.containsKey("Person.upsert.p50LatencyNanos"));
+  }
+
+  @Test
+  public void testRecordEntitySize() {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    metrics.recordEntitySize(OperationType.INSERT, "Person", 300, 1_000);
+    metrics.recordEntitySize(OperationType.INSERT, "Person", 500, 2_000);
+    metrics.record(OperationType.INSERT, "Person", 2, 800, 100, false);
+    OperationStats stats = metrics.snapshot().get(0);
+    assertEquals(1, stats.getCount());
+    assertEquals(500, stats.getMaxEntityBytes());
+    assertEquals(3_000, stats.getIndexBytes());
+    Map<String, Long> export = metrics.export();
+    assertEquals(Long.valueOf(500), export.get("Person.insert.maxEntityBytes"));
+    assertEquals(Long.valueOf(3_000), export.get("Person.insert.indexBytes"));
+  }
+
+  @Test
+  public void testReset() {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    metrics.record(OperationType.QUERY, "Person", 10, 1_000, 100, false);
+    metrics.reset();
+    assertTrue(metrics.snapshot().isEmpty());
+    metrics.record(OperationType.QUERY, "Person", 10, 1_000, 100, false);
+    assertEquals(1, metrics.snapshot().get(0).getCount());
+  }
+
+  @Test
+  public void testRecord_Concurrent() throws Exception {
+    InMemoryOperationMetrics metrics = new InMemoryOperationMetrics();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 1_000; j++) {
+          metrics.record(OperationType.UPDATE, "Person", 1, 1, j, false);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    OperationStats stats = metrics.snapshot().get(0);
+    assertEquals(4_000, stats.getCount());
+    assertEquals(4_000, stats.getEntityCount());
+    assertEquals(999, stats.getMaxLatencyNanos());
+  }
+
+}
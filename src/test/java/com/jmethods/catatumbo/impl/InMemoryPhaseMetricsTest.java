@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.jmethods.catatumbo.ProcessingPhase;
+import com.jmethods.catatumbo.entities.Customer;
+import com.jmethods.catatumbo.entities.StringId;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class InMemoryPhaseMetricsTest {
+
+  @Test
+  public void testRecord() {
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    metrics.record(Customer.class, ProcessingPhase.MARSHAL_FIELDS, 100);
+    metrics.record(Customer.class, ProcessingPhase.MARSHAL_FIELDS, 50);
+    metrics.record(Customer.class, ProcessingPhase.POST_LISTENERS, 10);
+    assertEquals(2, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_FIELDS));
+    assertEquals(150, metrics.getTotalNanos(Customer.class, ProcessingPhase.MARSHAL_FIELDS));
+    assertEquals(10, metrics.getTotalNanos(Customer.class, ProcessingPhase.POST_LISTENERS));
+    assertEquals(0, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_KEY));
+    assertEquals(0, metrics.getTotalNanos(StringId.class, ProcessingPhase.MARSHAL_KEY));
+  }
+
+  @Test
+  public void testExport() {
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    metrics.record(StringId.class, ProcessingPhase.UNMARSHAL_FIELDS, 7);
+    metrics.record(Customer.class, ProcessingPhase.POST_LISTENERS, 5);
+    metrics.record(Customer.class, ProcessingPhase.PRE_LISTENERS, 3);
+    Map<String, Long> export = metrics.export();
+    String customer = Customer.class.getName();
+    String stringId = StringId.class.getName();
+    assertEquals(Arrays.asList(customer + ".pre_listeners.count",
+        customer + ".pre_listeners.totalNanos", customer + ".post_listeners.count",
+        customer + ".post_listeners.totalNanos", stringId + ".unmarshal_fields.count",
+        stringId + ".unmarshal_fields.totalNanos"), Arrays.asList(export.keySet().toArray()));
+    assertEquals(Long.valueOf(3), export.get(customer + ".pre_listeners.totalNanos"));
+    assertEquals(Long.valueOf(1), export.get(stringId + ".unmarshal_fields.count"));
+  }
+
+  @Test
+  public void testReset() {
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    metrics.record(Customer.class, ProcessingPhase.MARSHAL_KEY, 100);
+    metrics.reset();
+    assertEquals(0, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_KEY));
+    assertTrue(metrics.export().isEmpty());
+  }
+
+}
@@ -31,6 +31,7 @@ import com.jmethods.catatumbo.listeners.BadInternalListener1;
 import com.jmethods.catatumbo.listeners.BadInternalListener2;
 import com.jmethods.catatumbo.listeners.BadInternalListener3;
 import com.jmethods.catatumbo.listeners.BadInternalListener4;
+import com.jmethods.catatumbo.listeners.BadInternalListener5;
 
 /**
  * @author Sai Pullabhotla
@@ -108,4 +109,14 @@ public class InternalListenerIntrospectorTest {
     }
   }
 
+  @Test(expected = EntityManagerException.class)
+  public void testIntrospect_BatchCallback() {
+    try {
+      InternalListenerIntrospector.introspect(BadInternalListener5.class);
+    } catch (EntityManagerException exp) {
+      System.out.println(exp);
+      throw exp;
+    }
+  }
+
 }
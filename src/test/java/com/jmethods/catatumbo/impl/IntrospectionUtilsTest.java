@@ -17,14 +17,21 @@
 package com.jmethods.catatumbo.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import org.junit.Test;
 
+import com.jmethods.catatumbo.entities.BooleanField;
 import com.jmethods.catatumbo.entities.ImmutablePhone;
+import com.jmethods.catatumbo.entities.LongField;
 
 /**
  * @author Sai Pullabhotla
@@ -215,4 +222,59 @@ public class IntrospectionUtilsTest {
     assertNotNull(mh);
   }
 
+  @Test
+  public void testCreateReader_Primitive() throws Exception {
+    MethodHandle mh = IntrospectionUtils
+        .findReadMethodHandle(LongField.class.getDeclaredField("distanceFromEarth"));
+    Function<Object, Object> reader = IntrospectionUtils.createReader(mh);
+    LongField entity = new LongField();
+    entity.setDistanceFromEarth(93_000_000L);
+    assertEquals(93_000_000L, reader.apply(entity));
+  }
+
+  @Test
+  public void testCreateWriter_Primitive() throws Exception {
+    MethodHandle mh = IntrospectionUtils
+        .findWriteMethodHandle(BooleanField.class.getDeclaredField("awesome"));
+    BiConsumer<Object, Object> writer = IntrospectionUtils.createWriter(mh);
+    BooleanField entity = new BooleanField();
+    writer.accept(entity, Boolean.TRUE);
+    assertTrue(entity.isAwesome());
+    writer.accept(entity, Boolean.FALSE);
+    assertFalse(entity.isAwesome());
+  }
+
+  @Test
+  public void testCreateWriter_Builder() throws Exception {
+    MethodHandle mh = IntrospectionUtils
+        .findWriteMethodHandle(ImmutablePhone.class.getDeclaredField("countryCode"));
+    BiConsumer<Object, Object> writer = IntrospectionUtils.createWriter(mh);
+    ImmutablePhone.Builder builder = ImmutablePhone.newBuilder();
+    writer.accept(builder, "91");
+    assertEquals("91", builder.build().getCountryCode());
+  }
+
+  @Test
+  public void testCreateReader_Fallback() throws Exception {
+    // An adapted method handle is not a direct method handle, so no class can be generated for it
+    MethodHandle mh = IntrospectionUtils
+        .findReadMethodHandle(LongField.class.getDeclaredField("distanceFromEarth"))
+        .asType(MethodType.methodType(Object.class, LongField.class));
+    Function<Object, Object> reader = IntrospectionUtils.createReader(mh);
+    LongField entity = new LongField();
+    entity.setDistanceFromEarth(25L);
+    assertEquals(25L, reader.apply(entity));
+  }
+
+  @Test
+  public void testCreateWriter_Fallback() throws Exception {
+    MethodHandle mh = IntrospectionUtils
+        .findWriteMethodHandle(LongField.class.getDeclaredField("distanceFromEarth"))
+        .asType(MethodType.methodType(void.class, LongField.class, Long.class));
+    BiConsumer<Object, Object> writer = IntrospectionUtils.createWriter(mh);
+    LongField entity = new LongField();
+    writer.accept(entity, 25L);
+    assertEquals(25L, entity.getDistanceFromEarth());
+  }
+
 }
@@ -17,8 +17,12 @@
 package com.jmethods.catatumbo.impl;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.Test;
 
 /**
@@ -142,4 +146,51 @@ public class LRUCacheTest {
     assertFalse(squaresCache.containsKey(5));
   }
 
+  @Test
+  public void testPut_Replace() {
+    LRUCache<Integer, Integer> squaresCache = new LRUCache<>(5, 10);
+    assertNull(squaresCache.put(6, 6));
+    assertTrue(squaresCache.put(6, 36) == 6);
+    assertTrue(squaresCache.size() == 1 && squaresCache.get(6) == 36);
+  }
+
+  @Test
+  public void testRemove() {
+    LRUCache<Integer, Integer> squaresCache = new LRUCache<>(5, 10);
+    for (int i = 1; i <= 10; i++) {
+      squaresCache.put(i, i * i);
+    }
+    assertTrue(squaresCache.remove(1) == 1);
+    assertNull(squaresCache.remove(1));
+    squaresCache.put(11, 11 * 11);
+    assertTrue(squaresCache.size() == 10 && squaresCache.get(2) == 4);
+  }
+
+  @Test
+  public void testClear() {
+    LRUCache<Integer, Integer> squaresCache = new LRUCache<>(5, 10);
+    for (int i = 1; i <= 5; i++) {
+      squaresCache.put(i, i * i);
+    }
+    squaresCache.clear();
+    assertTrue(squaresCache.size() == 0 && squaresCache.get(1) == null);
+    squaresCache.put(6, 36);
+    assertTrue(squaresCache.size() == 1 && squaresCache.get(6) == 36);
+  }
+
+  @Test
+  public void testExpiry() {
+    AtomicLong time = new AtomicLong();
+    LRUCache<Integer, Integer> squaresCache = new LRUCache<>(5, 10, 10, TimeUnit.SECONDS,
+        time::get);
+    squaresCache.put(1, 1);
+    time.set(TimeUnit.SECONDS.toNanos(5));
+    squaresCache.put(2, 4);
+    assertTrue(squaresCache.containsKey(1) && squaresCache.get(1) == 1);
+    time.set(TimeUnit.SECONDS.toNanos(10));
+    assertFalse(squaresCache.containsKey(1));
+    assertNull(squaresCache.get(1));
+    assertTrue(squaresCache.size() == 1 && squaresCache.get(2) == 4);
+  }
+
 }
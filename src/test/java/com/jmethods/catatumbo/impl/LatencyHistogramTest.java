@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketOf_SmallValues() {
+    for (int i = 0; i < 8; i++) {
+      assertEquals(i, LatencyHistogram.bucketOf(i));
+      assertEquals(i, LatencyHistogram.upperBoundOf(i));
+    }
+  }
+
+  @Test
+  public void testBucketOf_Bounds() {
+    long[] values = { 8, 9, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE };
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(bucket < LatencyHistogram.BUCKETS);
+      long upperBound = LatencyHistogram.upperBoundOf(bucket);
+      assertTrue(upperBound >= value);
+      assertTrue(upperBound - value <= value / 8);
+      if (upperBound < Long.MAX_VALUE) {
+        assertEquals(bucket + 1, LatencyHistogram.bucketOf(upperBound + 1));
+      }
+    }
+  }
+
+  @Test
+  public void testPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    long[] counts = histogram.snapshot();
+    assertEquals(1, LatencyHistogram.percentile(counts, 0));
+    long median = LatencyHistogram.percentile(counts, 50);
+    assertTrue(median >= 50 && median <= 50 + 50 / 8);
+    long p99 = LatencyHistogram.percentile(counts, 99);
+    assertTrue(p99 >= 99 && p99 <= 99 + 99 / 8);
+    assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(100)),
+        LatencyHistogram.percentile(counts, 100));
+  }
+
+  @Test
+  public void testPercentile_Empty() {
+    assertEquals(0, LatencyHistogram.percentile(new LatencyHistogram().snapshot(), 50));
+  }
+
+  @Test
+  public void testRecord_Negative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    assertEquals(1, histogram.snapshot()[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPercentile_Invalid() {
+    LatencyHistogram.percentile(new LatencyHistogram().snapshot(), 101);
+  }
+
+}
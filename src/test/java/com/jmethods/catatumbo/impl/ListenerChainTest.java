@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.jmethods.catatumbo.AsyncListenerOptions;
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.EntityListeners;
+import com.jmethods.catatumbo.EntityManagerFactory;
+import com.jmethods.catatumbo.Identifier;
+import com.jmethods.catatumbo.PostInsert;
+import com.jmethods.catatumbo.PreInsert;
+import com.jmethods.catatumbo.ProcessingPhase;
+import com.jmethods.catatumbo.entities.BatchListenerEntity;
+import com.jmethods.catatumbo.entities.Cat;
+import com.jmethods.catatumbo.entities.Cow;
+import com.jmethods.catatumbo.entities.InternalCalculatorEntity;
+import com.jmethods.catatumbo.entities.StringField;
+import com.jmethods.catatumbo.listeners.AnimalListener;
+import com.jmethods.catatumbo.listeners.BatchListener;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class ListenerChainTest {
+
+  @Test
+  public void testCreate_NoListeners() {
+    ListenerChain[] chains = ListenerChain.create(null,
+        EntityListenersIntrospector.introspect(StringField.class));
+    assertEquals(CallbackType.values().length, chains.length);
+    for (ListenerChain chain : chains) {
+      assertSame(ListenerChain.EMPTY, chain);
+    }
+  }
+
+  @Test
+  public void testExecute_Internal() {
+    ListenerChain[] chains = ListenerChain.create(null,
+        EntityListenersIntrospector.introspect(InternalCalculatorEntity.class));
+    assertTrue(chains[CallbackType.POST_LOAD.ordinal()].isEmpty());
+    InternalCalculatorEntity entity = new InternalCalculatorEntity(5, 3);
+    chains[CallbackType.PRE_INSERT.ordinal()].execute(entity, null);
+    assertEquals(8, entity.getSum());
+    assertEquals(15, entity.getProduct());
+    assertEquals(2, entity.getDifference());
+  }
+
+  @Test
+  public void testExecuteEntityListeners_DefaultListeners() {
+    DefaultEntityManager em = newEntityManager();
+    em.setDefaultListeners(AnimalListener.class);
+    Cow cow = new Cow();
+    em.executeEntityListeners(CallbackType.PRE_INSERT, cow);
+    assertTrue(cow.getValue().startsWith("AnimalListener.PreInsert->"));
+    assertTrue(cow.getValue().endsWith("->Cow.PreInsert"));
+  }
+
+  @Test
+  public void testExecuteEntityListeners_ExcludeDefaultListeners() {
+    DefaultEntityManager em = newEntityManager();
+    em.setDefaultListeners(AnimalListener.class);
+    Cat cat = new Cat();
+    em.executeEntityListeners(CallbackType.PRE_INSERT, cat);
+    assertEquals("Animal.PreInsert->Pet.PreInsert->Cat.PreInsert", cat.getValue());
+  }
+
+  @Test
+  public void testExecuteEntityListeners_DefaultListenersChanged() {
+    DefaultEntityManager em = newEntityManager();
+    Cow cow = new Cow();
+    em.executeEntityListeners(CallbackType.PRE_INSERT, cow);
+    assertTrue(cow.getValue().startsWith("FarmAnimalListener.PreInsert->"));
+    em.setDefaultListeners(AnimalListener.class);
+    cow = new Cow();
+    em.executeEntityListeners(CallbackType.PRE_INSERT, cow);
+    assertTrue(cow.getValue().startsWith("AnimalListener.PreInsert->"));
+  }
+
+  @Test
+  public void testExecute_CallbackFails() {
+    ListenerChain[] chains = ListenerChain.create(null,
+        EntityListenersIntrospector.introspect(FailingEntity.class));
+    try {
+      chains[CallbackType.PRE_INSERT.ordinal()].execute(new FailingEntity(), null);
+      fail("Expected an EntityManagerException");
+    } catch (EntityManagerException exp) {
+      assertTrue(exp.getCause() instanceof UnsupportedOperationException);
+    }
+  }
+
+  @Test
+  public void testExecuteEntityListeners_Batch() {
+    DefaultEntityManager em = newEntityManager();
+    BatchListener listener = (BatchListener) ListenerFactory.getInstance()
+        .getListener(BatchListener.class);
+    listener.getEvents().clear();
+    em.executeEntityListeners(CallbackType.POST_INSERT, Arrays.asList(
+        new BatchListenerEntity("a"), null, new BatchListenerEntity("b")));
+    assertEquals(Arrays.asList("PostInsert:a", "PostInsert:b", "PostInsertBatch:2"),
+        listener.getEvents());
+  }
+
+  @Test
+  public void testExecuteEntityListeners_BatchSingleEntity() {
+    DefaultEntityManager em = newEntityManager();
+    BatchListener listener = (BatchListener) ListenerFactory.getInstance()
+        .getListener(BatchListener.class);
+    listener.getEvents().clear();
+    em.executeEntityListeners(CallbackType.POST_LOAD, new BatchListenerEntity("a"));
+    em.executeEntityListeners(CallbackType.PRE_INSERT, new BatchListenerEntity("b"));
+    assertEquals(Arrays.asList("PostLoadBatch:1"), listener.getEvents());
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testCreate_BatchListenerTypeMismatch() {
+    ListenerChain.create(null,
+        EntityListenersIntrospector.introspect(MismatchedBatchListenerEntity.class));
+  }
+
+  @Test
+  public void testExecuteEntityListeners_Async() throws Exception {
+    DefaultEntityManager em = newEntityManager();
+    CountDownLatch completed = new CountDownLatch(1);
+    AsyncListenerOptions options = new AsyncListenerOptions();
+    options.setCompletionHandler((method, event, failure) -> completed.countDown());
+    em.setAsyncListenerOptions(options);
+    AsyncEntity entity = new AsyncEntity();
+    em.executeEntityListeners(CallbackType.POST_INSERT, entity);
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+    assertTrue(entity.thread.startsWith("catatumbo-listener-"));
+    ListenerChain[] chains = ListenerChain.create(null,
+        EntityListenersIntrospector.introspect(AsyncEntity.class));
+    assertTrue(chains[CallbackType.POST_INSERT.ordinal()].hasAsyncCallbacks());
+    assertFalse(chains[CallbackType.POST_UPDATE.ordinal()].hasAsyncCallbacks());
+  }
+
+  private static DefaultEntityManager newEntityManager() {
+    return (DefaultEntityManager) EntityManagerFactory.getInstance()
+        .createLocalEntityManager("http://localhost:1", "test-project");
+  }
+
+  @Entity
+  public static class FailingEntity {
+
+    @Identifier
+    private long id;
+
+    public long getId() {
+      return id;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    @PreInsert
+    public void beforeInsert() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  @Entity
+  @EntityListeners(BatchListener.class)
+  public static class MismatchedBatchListenerEntity {
+
+    @Identifier
+    private long id;
+
+    public long getId() {
+      return id;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+  }
+
+  @Entity
+  public static class AsyncEntity {
+
+    @Identifier
+    private long id;
+
+    private volatile String thread;
+
+    public long getId() {
+      return id;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    @PostInsert(async = true)
+    public void afterInsert() {
+      thread = Thread.currentThread().getName();
+    }
+
+  }
+
+  @Test
+  public void testExecuteEntityListeners_PhaseMetrics() {
+    DefaultEntityManager em = newEntityManager();
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    em.setPhaseMetrics(metrics);
+    em.executeEntityListeners(CallbackType.PRE_INSERT, new Cow());
+    em.executeEntityListeners(CallbackType.POST_INSERT,
+        Arrays.asList(new BatchListenerEntity("a"), new BatchListenerEntity("b")));
+    em.executeEntityListeners(CallbackType.PRE_INSERT, new StringField());
+    assertEquals(1, metrics.getCount(Cow.class, ProcessingPhase.PRE_LISTENERS));
+    assertEquals(0, metrics.getCount(Cow.class, ProcessingPhase.POST_LISTENERS));
+    assertEquals(3, metrics.getCount(BatchListenerEntity.class, ProcessingPhase.POST_LISTENERS));
+    assertEquals(0, metrics.getCount(StringField.class, ProcessingPhase.PRE_LISTENERS));
+  }
+
+}
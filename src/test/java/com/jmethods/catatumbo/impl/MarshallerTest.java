@@ -28,6 +28,7 @@ import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.FullEntity;
 import com.google.cloud.datastore.IncompleteKey;
 import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.ProcessingPhase;
 import com.jmethods.catatumbo.TestUtils;
 import com.jmethods.catatumbo.entities.Contact;
 import com.jmethods.catatumbo.entities.Customer;
@@ -171,4 +172,23 @@ public class MarshallerTest {
     assertEquals(entity.getId().getValue(), key.getName());
   }
 
+  @Test
+  public void testMarshal_PhaseMetrics() {
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    em.setPhaseMetrics(metrics);
+    try {
+      Marshaller.marshal(em, Customer.createSampleCustomer2(), Intent.INSERT);
+    } finally {
+      em.setPhaseMetrics(null);
+    }
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_KEY));
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_FIELDS));
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_AUTO_TIMESTAMPS));
+    assertEquals(0, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_VERSION));
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_EMBEDDED));
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_BUILD));
+    Marshaller.marshal(em, Customer.createSampleCustomer2(), Intent.INSERT);
+    assertEquals(1, metrics.getCount(Customer.class, ProcessingPhase.MARSHAL_KEY));
+  }
+
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.entities.LongField;
+import com.jmethods.catatumbo.entities.OptimisticLockBad1;
+import com.jmethods.catatumbo.entities.StringField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class MetadataIndexTest {
+
+  @Test
+  public void testPreload() throws IOException {
+    Path dir = writeIndex(LongField.class.getName(), "# comment", "",
+        StringField.class.getName());
+    try (URLClassLoader classLoader = newClassLoader(dir)) {
+      assertEquals(2, MetadataIndex.preload(classLoader));
+      // Second call is a no-op
+      assertEquals(0, MetadataIndex.preload(classLoader));
+    }
+  }
+
+  @Test
+  public void testPreload_ClassNotFound() throws IOException {
+    Path dir = writeIndex("com.jmethods.catatumbo.entities.NoSuchEntity",
+        LongField.class.getName());
+    try (URLClassLoader classLoader = newClassLoader(dir)) {
+      assertEquals(1, MetadataIndex.preload(classLoader));
+    }
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testPreload_IntrospectionFailure() throws IOException {
+    Path dir = writeIndex(OptimisticLockBad1.class.getName());
+    try (URLClassLoader classLoader = newClassLoader(dir)) {
+      MetadataIndex.preload(classLoader);
+    }
+  }
+
+  @Test
+  public void testProcessor() throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Path sourceDir = Files.createTempDirectory("catatumbo-src");
+    Path outputDir = Files.createTempDirectory("catatumbo-out");
+    Path source = sourceDir.resolve("Task.java");
+    List<String> lines = Arrays.asList("import com.jmethods.catatumbo.*;",
+        "@Entity public class Task {", "  @Identifier private long id;",
+        "  @Embeddable public static class Detail { }", "}",
+        "@EntityListener class TaskListener { }");
+    Files.write(source, lines, StandardCharsets.UTF_8);
+    int status = compiler.run(null, null, null, "-proc:only", "-processor",
+        "com.jmethods.catatumbo.processor.MetadataIndexProcessor", "-cp",
+        System.getProperty("java.class.path"), "-d", outputDir.toString(), source.toString());
+    assertEquals(0, status);
+    List<String> classNames = Files.readAllLines(outputDir.resolve(MetadataIndex.RESOURCE_NAME),
+        StandardCharsets.UTF_8);
+    assertEquals(Arrays.asList("Task", "Task$Detail", "TaskListener"), classNames);
+  }
+
+  private static Path writeIndex(String... lines) throws IOException {
+    Path dir = Files.createTempDirectory("catatumbo");
+    Path index = dir.resolve(MetadataIndex.RESOURCE_NAME);
+    Files.createDirectories(index.getParent());
+    Files.write(index, Arrays.asList(lines), StandardCharsets.UTF_8);
+    assertTrue(Files.exists(index));
+    return dir;
+  }
+
+  private static URLClassLoader newClassLoader(Path dir) throws IOException {
+    File file = dir.toFile();
+    return new URLClassLoader(new URL[] { file.toURI().toURL() },
+        MetadataIndexTest.class.getClassLoader());
+  }
+
+}
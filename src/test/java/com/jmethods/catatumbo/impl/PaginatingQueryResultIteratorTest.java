@@ -0,0 +1,278 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.QueryResults;
+import com.google.datastore.v1.QueryResultBatch.MoreResultsType;
+import com.jmethods.catatumbo.EntityManager;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+import com.jmethods.catatumbo.QueryResultIterator;
+import com.jmethods.catatumbo.Tenant;
+import com.jmethods.catatumbo.TestUtils;
+import com.jmethods.catatumbo.entities.Task;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class PaginatingQueryResultIteratorTest {
+
+  @After
+  public void tearDown() {
+    Tenant.setNamespace(null);
+  }
+
+  @Test
+  public void testAllPages() {
+    PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader, null);
+    assertEquals(Arrays.asList(1, 2, 3, 4, 5), iterator.stream().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(null, 2, 4), loader.requestedCursors);
+    assertEquals(encoded(0), iterator.getStartCursor().getEncoded());
+    assertEquals(encoded(5), iterator.getCursorAfter().getEncoded());
+    assertEquals(QueryState.NO_MORE_RESULTS, iterator.getQueryResponseMetadata().getQueryState());
+  }
+
+  @Test
+  public void testEmptyLastPage() {
+    PageLoader loader = new PageLoader(QueryState.MORE_RESULTS_AFTER_LIMIT,
+        Arrays.asList(Arrays.asList(1, 2), Collections.emptyList()));
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader, null);
+    assertEquals(Arrays.asList(1, 2), iterator.stream().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(null, 2), loader.requestedCursors);
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testPageListener() {
+    PageLoader loader = new PageLoader(QueryState.MORE_RESULTS_AFTER_LIMIT,
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3), Collections.emptyList()));
+    List<List<Integer>> pages = new ArrayList<>();
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader,
+        page -> pages.add(new ArrayList<>(page)), null);
+    assertEquals(Arrays.asList(1, 2, 3), iterator.stream().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)), pages);
+  }
+
+  @Test
+  public void testCursorAfter() {
+    PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader, null);
+    assertEquals(encoded(0), iterator.getCursorAfter().getEncoded());
+    iterator.next();
+    assertEquals(encoded(1), iterator.getCursorAfter().getEncoded());
+    iterator.next();
+    assertEquals(encoded(2), iterator.getCursorAfter().getEncoded());
+    iterator.next();
+    assertEquals(encoded(3), iterator.getCursorAfter().getEncoded());
+  }
+
+  @Test
+  public void testPrefetch() {
+    Tenant.setNamespace("tenant1");
+    PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader,
+        ConcurrencyUtils.getDefaultExecutor());
+    List<Integer> results = new ArrayList<>();
+    iterator.forEachRemaining(results::add);
+    assertEquals(Arrays.asList(1, 2, 3, 4, 5), results);
+    assertEquals(Arrays.asList(null, 2, 4), loader.requestedCursors);
+    assertEquals(Arrays.asList("tenant1", "tenant1", "tenant1"), loader.namespaces);
+  }
+
+  @Test(expected = EntityManagerException.class)
+  public void testPrefetch_Failure() {
+    PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+        Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+    loader.failAt = 1;
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader,
+        ConcurrencyUtils.getDefaultExecutor());
+    while (iterator.hasNext()) {
+      iterator.next();
+    }
+  }
+
+  @Test
+  public void testSinglePage_NoPrefetch() {
+    PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+        Collections.singletonList(Arrays.asList(1)));
+    QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader,
+        ConcurrencyUtils.getDefaultExecutor());
+    assertEquals(Arrays.asList(1), iterator.stream().collect(Collectors.toList()));
+    assertEquals(Collections.singletonList(null), loader.requestedCursors);
+    assertNull(loader.namespaces.get(0));
+  }
+
+  @Test
+  public void testClose_CancelsPrefetch() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      // Keeps the executor busy, so that the prefetch stays queued
+      executor.execute(() -> {
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exp) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      PageLoader loader = new PageLoader(QueryState.NO_MORE_RESULTS,
+          Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+      QueryResultIterator<Integer> iterator = new PaginatingQueryResultIterator<>(loader,
+          executor);
+      assertEquals(Integer.valueOf(1), iterator.next());
+      iterator.close();
+      assertFalse(iterator.hasNext());
+      release.countDown();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+      assertEquals(Collections.singletonList(null), loader.requestedCursors);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPaginate_NoLimit() throws Exception {
+    EntityManager em = TestUtils.getEntityManager();
+    em.paginateEntityQueryRequest(Task.class,
+        em.createEntityQueryRequest("SELECT * FROM Task ORDER BY __key__ OFFSET @Offset"),
+        "Offset", false);
+  }
+
+  /**
+   * Returns the native cursor after the given number of results.
+   */
+  private static Cursor cursor(int count) {
+    return Cursor.copyFrom(new byte[] { (byte) count });
+  }
+
+  private static String encoded(int count) {
+    return cursor(count).toUrlSafe();
+  }
+
+  /**
+   * Serves the given pages. The cursor after each result is the number of results before it,
+   * including itself, across all pages.
+   */
+  private static class PageLoader
+      implements Function<Cursor, DefaultQueryResultIterator<?, Integer>> {
+
+    private final List<List<Integer>> pages;
+    private final QueryState lastPageState;
+    private final List<Integer> requestedCursors = new CopyOnWriteArrayList<>();
+    private final List<String> namespaces = new CopyOnWriteArrayList<>();
+    private int failAt = -1;
+
+    PageLoader(QueryState lastPageState, List<List<Integer>> pages) {
+      this.lastPageState = lastPageState;
+      this.pages = pages;
+    }
+
+    @Override
+    public DefaultQueryResultIterator<?, Integer> apply(Cursor cursor) {
+      int start = 0;
+      while (cursor != null && !cursor(start).equals(cursor)) {
+        start++;
+      }
+      requestedCursors.add(cursor == null ? null : start);
+      namespaces.add(Tenant.getNamespace());
+      int pageIndex = 0;
+      for (int count = 0; count < start; pageIndex++) {
+        count += pages.get(pageIndex).size();
+      }
+      if (pageIndex == failAt) {
+        throw new EntityManagerException("Page " + pageIndex + " failed");
+      }
+      boolean last = pageIndex == pages.size() - 1;
+      return new DefaultQueryResultIterator<>(new ListResults(pages.get(pageIndex), start,
+          last ? lastPageState : QueryState.MORE_RESULTS_AFTER_LIMIT), Function.identity());
+    }
+  }
+
+  private static class ListResults implements QueryResults<Integer> {
+
+    private final List<Integer> results;
+    private final int start;
+    private final QueryState state;
+    private int position;
+
+    ListResults(List<Integer> results, int start, QueryState state) {
+      this.results = results;
+      this.start = start;
+      this.state = state;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < results.size();
+    }
+
+    @Override
+    public Integer next() {
+      return results.get(position++);
+    }
+
+    @Override
+    public Class<?> getResultClass() {
+      return Integer.class;
+    }
+
+    @Override
+    public Cursor getCursorAfter() {
+      return cursor(start + position);
+    }
+
+    @Override
+    public int getSkippedResults() {
+      return 0;
+    }
+
+    @Override
+    public MoreResultsType getMoreResults() {
+      return state == QueryState.NO_MORE_RESULTS ? MoreResultsType.NO_MORE_RESULTS
+          : MoreResultsType.MORE_RESULTS_AFTER_LIMIT;
+    }
+  }
+
+}
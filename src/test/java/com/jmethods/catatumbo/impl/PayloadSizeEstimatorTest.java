@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.ListValue;
+import com.google.cloud.datastore.StringValue;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class PayloadSizeEstimatorTest {
+
+  private static final Key KEY = Key.newBuilder("test", "Person", "john").build();
+
+  @Test
+  public void testStringSize() {
+    assertEquals(1, PayloadSizeEstimator.stringSize(""));
+    assertEquals(5, PayloadSizeEstimator.stringSize("john"));
+    assertEquals(3, PayloadSizeEstimator.stringSize("\u00e9"));
+    assertEquals(4, PayloadSizeEstimator.stringSize("\u20ac"));
+    assertEquals(5, PayloadSizeEstimator.stringSize("\ud83d\ude00"));
+  }
+
+  @Test
+  public void testEstimate_Key() {
+    assertEquals(16 + 7 + 5, PayloadSizeEstimator.estimate(KEY));
+    Key child = Key.newBuilder(KEY, "Task", 1L).build();
+    assertEquals(16 + 5 + 8 + 7 + 5, PayloadSizeEstimator.estimate(child));
+  }
+
+  @Test
+  public void testEstimate_IncompleteKey() {
+    IncompleteKey key = IncompleteKey.newBuilder("test", "Person").build();
+    assertEquals(16 + 7 + 8, PayloadSizeEstimator.estimate(key));
+  }
+
+  @Test
+  public void testEstimate_Entity() {
+    Entity entity = Entity.newBuilder(KEY).set("name", "John").set("age", 30L)
+        .set("bio", StringValue.newBuilder("x").setExcludeFromIndexes(true).build()).build();
+    // key + name + age + bio + entity overhead
+    assertEquals(28 + 10 + 12 + 6 + 32, PayloadSizeEstimator.estimate(entity));
+  }
+
+  @Test
+  public void testEstimateIndexes() {
+    Entity entity = Entity.newBuilder(KEY).set("name", "John").set("age", 30L)
+        .set("bio", StringValue.newBuilder("x").setExcludeFromIndexes(true).build()).build();
+    // Each index entry has the kind, the key and 32 bytes of overhead
+    long entryOverhead = 7 + 28 + 32;
+    long expected = entryOverhead + 2 * (entryOverhead + 5 + 5) + 2 * (entryOverhead + 4 + 8);
+    assertEquals(expected, PayloadSizeEstimator.estimateIndexes(entity));
+  }
+
+  @Test
+  public void testEstimateIndexes_ListAndEmbedded() {
+    FullEntity<?> address = FullEntity.newBuilder().set("city", "X").build();
+    Entity entity = Entity.newBuilder(KEY).set("tags", ListValue.of("a", "bc"))
+        .set("address", address).build();
+    assertEquals(28 + (5 + 2 + 3) + (8 + 5 + 2) + 32, PayloadSizeEstimator.estimate(entity));
+    long entryOverhead = 7 + 28 + 32;
+    long expected = entryOverhead + 2 * (entryOverhead + 5 + 2) + 2 * (entryOverhead + 5 + 3)
+        + 2 * (entryOverhead + 13 + 2);
+    assertEquals(expected, PayloadSizeEstimator.estimateIndexes(entity));
+  }
+
+  @Test
+  public void testEstimate_Null() {
+    assertEquals(0, PayloadSizeEstimator.estimate((Entity) null));
+    assertEquals(0, PayloadSizeEstimator.estimateIndexes(null));
+  }
+
+}
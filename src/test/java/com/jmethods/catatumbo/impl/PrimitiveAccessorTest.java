@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.BooleanValue;
+import com.google.cloud.datastore.DoubleValue;
+import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.NullValue;
+import com.jmethods.catatumbo.MappingException;
+import com.jmethods.catatumbo.entities.BooleanField;
+import com.jmethods.catatumbo.entities.DoubleField;
+import com.jmethods.catatumbo.entities.FloatField;
+import com.jmethods.catatumbo.entities.IntegerField;
+import com.jmethods.catatumbo.entities.IntegerObject;
+import com.jmethods.catatumbo.entities.LongField;
+import com.jmethods.catatumbo.entities.ShortField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class PrimitiveAccessorTest {
+
+  private static PrimitiveAccessor getAccessor(Class<?> entityClass, String propertyName) {
+    EntityMetadata metadata = EntityIntrospector.introspect(entityClass);
+    return metadata.getPropertyMetadata(propertyName).getPrimitiveAccessor();
+  }
+
+  @Test
+  public void testLong() {
+    PrimitiveAccessor accessor = getAccessor(LongField.class, "distanceFromEarth");
+    assertTrue(accessor instanceof PrimitiveAccessor.OfLong);
+    LongField entity = new LongField();
+    entity.setDistanceFromEarth(Long.MAX_VALUE);
+    LongValue value = (LongValue) accessor.toDatastore(entity).build();
+    assertEquals(Long.MAX_VALUE, (long) value.get());
+    LongField entity2 = new LongField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertEquals(Long.MAX_VALUE, entity2.getDistanceFromEarth());
+  }
+
+  @Test
+  public void testInteger() {
+    PrimitiveAccessor accessor = getAccessor(IntegerField.class, "count");
+    IntegerField entity = new IntegerField();
+    entity.setCount(Integer.MIN_VALUE);
+    LongValue value = (LongValue) accessor.toDatastore(entity).build();
+    assertEquals(Integer.MIN_VALUE, (long) value.get());
+    IntegerField entity2 = new IntegerField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertEquals(Integer.MIN_VALUE, entity2.getCount());
+  }
+
+  @Test(expected = MappingException.class)
+  public void testInteger_OutOfRange() {
+    PrimitiveAccessor accessor = getAccessor(IntegerField.class, "count");
+    accessor.toModel(new IntegerField(), LongValue.of(Integer.MAX_VALUE + 1L));
+  }
+
+  @Test
+  public void testShort() {
+    PrimitiveAccessor accessor = getAccessor(ShortField.class, "age");
+    ShortField entity = new ShortField();
+    entity.setAge((short) 300);
+    LongValue value = (LongValue) accessor.toDatastore(entity).build();
+    assertEquals(300L, (long) value.get());
+    ShortField entity2 = new ShortField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertEquals((short) 300, entity2.getAge());
+  }
+
+  @Test
+  public void testDouble() {
+    PrimitiveAccessor accessor = getAccessor(DoubleField.class, "area");
+    assertTrue(accessor instanceof PrimitiveAccessor.OfDouble);
+    DoubleField entity = new DoubleField();
+    entity.setArea(12.5);
+    DoubleValue value = (DoubleValue) accessor.toDatastore(entity).build();
+    assertEquals(12.5, value.get(), 0.0);
+    DoubleField entity2 = new DoubleField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertEquals(12.5, entity2.getArea(), 0.0);
+  }
+
+  @Test
+  public void testFloat() {
+    PrimitiveAccessor accessor = getAccessor(FloatField.class, "area");
+    FloatField entity = new FloatField();
+    entity.setArea(2.25f);
+    DoubleValue value = (DoubleValue) accessor.toDatastore(entity).build();
+    assertEquals(2.25, value.get(), 0.0);
+    FloatField entity2 = new FloatField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertEquals(2.25f, entity2.getArea(), 0.0f);
+  }
+
+  @Test(expected = MappingException.class)
+  public void testFloat_OutOfRange() {
+    PrimitiveAccessor accessor = getAccessor(FloatField.class, "area");
+    accessor.toModel(new FloatField(), DoubleValue.of(Double.MAX_VALUE));
+  }
+
+  @Test
+  public void testBoolean() {
+    PrimitiveAccessor accessor = getAccessor(BooleanField.class, "awesome");
+    assertTrue(accessor instanceof PrimitiveAccessor.OfBoolean);
+    BooleanField entity = new BooleanField();
+    entity.setAwesome(true);
+    BooleanValue value = (BooleanValue) accessor.toDatastore(entity).build();
+    assertTrue(value.get());
+    BooleanField entity2 = new BooleanField();
+    assertTrue(accessor.toModel(entity2, value));
+    assertTrue(entity2.isAwesome());
+  }
+
+  @Test
+  public void testNullValue() {
+    PrimitiveAccessor accessor = getAccessor(LongField.class, "distanceFromEarth");
+    assertFalse(accessor.toModel(new LongField(), NullValue.of()));
+  }
+
+  @Test
+  public void testWrapperType() {
+    assertNotNull(EntityIntrospector.introspect(IntegerObject.class).getPropertyMetadata("count"));
+    assertNull(getAccessor(IntegerObject.class, "count"));
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class QueryUtilsTest {
+
+  @Test
+  public void testHasLimit() {
+    assertTrue(QueryUtils.hasLimit("SELECT * FROM Task LIMIT @Limit OFFSET @Offset"));
+    assertTrue(QueryUtils.hasLimit("SELECT * FROM Task LIMIT @1"));
+    assertTrue(QueryUtils.hasLimit("select * from Task order by __key__ limit 50"));
+    assertTrue(QueryUtils.hasLimit("SELECT * FROM Task LIMIT FIRST(@Start, 10)"));
+    assertTrue(QueryUtils.hasLimit("SELECT * FROM `Limit` WHERE name = 'x' LIMIT\n10"));
+  }
+
+  @Test
+  public void testHasLimit_Identifier() {
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE limit = @x OFFSET @Offset"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Limit OFFSET @Offset"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task ORDER BY limit"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM `Limit 10` OFFSET @Offset"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE x = @limit OFFSET @Offset"));
+  }
+
+  @Test
+  public void testHasLimit_Literal() {
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE name = 'LIMIT 10'"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE name = \"limit @x\""));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE name = 'it''s LIMIT 5'"));
+    assertFalse(QueryUtils.hasLimit("SELECT * FROM Task WHERE name = 'a\\' LIMIT 5'"));
+  }
+
+}
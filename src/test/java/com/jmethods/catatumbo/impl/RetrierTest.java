@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.DatastoreException;
+import com.jmethods.catatumbo.EntityManagerException;
+import com.jmethods.catatumbo.RetryPolicy;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class RetrierTest {
+
+  private static Retrier newRetrier(int maxAttempts) {
+    RetryPolicy policy = new RetryPolicy();
+    policy.setMaxAttempts(maxAttempts);
+    policy.setInitialBackoffMillis(0);
+    policy.setJitter(0);
+    Retrier retrier = new Retrier();
+    retrier.setPolicy(policy);
+    return retrier;
+  }
+
+  private static DatastoreException unavailable() {
+    return new DatastoreException(RetryPolicy.CODE_UNAVAILABLE, "Unavailable", "UNAVAILABLE");
+  }
+
+  @Test
+  public void testCall_RetryThenSucceed() {
+    Retrier retrier = newRetrier(3);
+    AtomicInteger attempts = new AtomicInteger();
+    String result = retrier.call(() -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw unavailable();
+      }
+      return "ok";
+    });
+    assertEquals("ok", result);
+    assertEquals(3, attempts.get());
+    assertEquals(2, retrier.getRetryCount());
+    assertEquals(0, retrier.getGiveUpCount());
+  }
+
+  @Test
+  public void testCall_GiveUp() {
+    Retrier retrier = newRetrier(2);
+    AtomicInteger attempts = new AtomicInteger();
+    DatastoreException failure = unavailable();
+    try {
+      retrier.call(() -> {
+        attempts.incrementAndGet();
+        throw failure;
+      });
+      fail("Expected DatastoreException");
+    } catch (DatastoreException exp) {
+      assertSame(failure, exp);
+    }
+    assertEquals(2, attempts.get());
+    assertEquals(1, retrier.getRetryCount());
+    assertEquals(1, retrier.getGiveUpCount());
+  }
+
+  @Test
+  public void testCall_NonRetryableCode() {
+    Retrier retrier = newRetrier(3);
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      retrier.call(() -> {
+        attempts.incrementAndGet();
+        throw new DatastoreException(3, "Invalid argument", "INVALID_ARGUMENT");
+      });
+      fail("Expected DatastoreException");
+    } catch (DatastoreException exp) {
+      assertEquals(3, exp.getCode());
+    }
+    assertEquals(1, attempts.get());
+    assertEquals(0, retrier.getRetryCount());
+    assertEquals(0, retrier.getGiveUpCount());
+  }
+
+  @Test
+  public void testCall_NoPolicy() {
+    Retrier retrier = new Retrier();
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      retrier.run(() -> {
+        attempts.incrementAndGet();
+        throw unavailable();
+      });
+      fail("Expected DatastoreException");
+    } catch (DatastoreException exp) {
+      assertEquals(RetryPolicy.CODE_UNAVAILABLE, exp.getCode());
+    }
+    assertEquals(1, attempts.get());
+    assertEquals(0, retrier.getRetryCount());
+    assertEquals(0, retrier.getGiveUpCount());
+  }
+
+  @Test
+  public void testShouldRetry_CauseChain() {
+    Retrier retrier = newRetrier(2);
+    EntityManagerException exp = new EntityManagerException(unavailable());
+    assertTrue(retrier.shouldRetry(exp, 1));
+    assertFalse(retrier.shouldRetry(exp, 2));
+    assertFalse(retrier.shouldRetry(new EntityManagerException("boom"), 1));
+  }
+
+  @Test
+  public void testShouldRetryTransaction() {
+    Retrier retrier = newRetrier(2);
+    DatastoreException aborted = new DatastoreException(RetryPolicy.CODE_ABORTED, "Aborted",
+        "ABORTED");
+    assertTrue(retrier.shouldRetryTransaction(new EntityManagerException(aborted), 1));
+    assertFalse(retrier.shouldRetryTransaction(aborted, 2));
+    assertFalse(retrier.shouldRetryTransaction(unavailable(), 1));
+    assertEquals(1, retrier.getRetryCount());
+  }
+
+  @Test
+  public void testSetPolicy_Null() {
+    Retrier retrier = newRetrier(3);
+    retrier.setPolicy(null);
+    assertFalse(retrier.shouldRetry(unavailable(), 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetMaxAttempts_Invalid() {
+    new RetryPolicy().setMaxAttempts(0);
+  }
+
+}
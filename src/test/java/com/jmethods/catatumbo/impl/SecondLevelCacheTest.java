@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.Cacheable;
+import com.jmethods.catatumbo.DatastoreKey;
+import com.jmethods.catatumbo.DefaultDatastoreKey;
+import com.jmethods.catatumbo.EntityCache;
+import com.jmethods.catatumbo.EntityCacheProvider;
+import com.jmethods.catatumbo.entities.CacheableCountry;
+import com.jmethods.catatumbo.entities.StringField;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class SecondLevelCacheTest {
+
+  private static Entity newCountry(String code, String name) {
+    Key key = Key.newBuilder("test-project", "CacheableCountry", code).build();
+    return Entity.newBuilder(key).set("name", name).build();
+  }
+
+  @Test
+  public void testGetCache_NotCacheable() {
+    RecordingProvider provider = new RecordingProvider();
+    SecondLevelCache cache = new SecondLevelCache(provider);
+    assertNull(cache.getCache(StringField.class));
+    assertNull(cache.getCache(StringField.class));
+    assertEquals(0, provider.settings.size());
+  }
+
+  @Test
+  public void testGetCache_Cacheable() {
+    RecordingProvider provider = new RecordingProvider();
+    SecondLevelCache cache = new SecondLevelCache(provider);
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    assertNotNull(countryCache);
+    assertSame(countryCache, cache.getCache(CacheableCountry.class));
+    assertEquals(1, provider.settings.size());
+    assertEquals(60, provider.settings.get(0).ttl());
+    assertEquals(100, provider.settings.get(0).maxSize());
+  }
+
+  @Test
+  public void testEvict() {
+    SecondLevelCache cache = new SecondLevelCache(new DefaultEntityCacheProvider());
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    Entity us = newCountry("US", "United States");
+    Entity in = newCountry("IN", "India");
+    countryCache.put(new DefaultDatastoreKey(us.getKey()), us);
+    countryCache.put(new DefaultDatastoreKey(in.getKey()), in);
+    Key otherKind = Key.newBuilder("test-project", "State", "US").build();
+    cache.evict(Collections.singletonList(otherKind));
+    assertSame(us, countryCache.get(new DefaultDatastoreKey(us.getKey())));
+    cache.evict(Collections.singletonList(us.getKey()));
+    assertNull(countryCache.get(new DefaultDatastoreKey(us.getKey())));
+    assertSame(in, countryCache.get(new DefaultDatastoreKey(in.getKey())));
+  }
+
+  @Test
+  public void testEvictAll() {
+    SecondLevelCache cache = new SecondLevelCache(new DefaultEntityCacheProvider());
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    Entity us = newCountry("US", "United States");
+    countryCache.put(new DefaultDatastoreKey(us.getKey()), us);
+    cache.evictAll("State");
+    assertSame(us, countryCache.get(new DefaultDatastoreKey(us.getKey())));
+    cache.evictAll("CacheableCountry");
+    assertNull(countryCache.get(new DefaultDatastoreKey(us.getKey())));
+  }
+
+  @Test
+  public void testPut() {
+    SecondLevelCache cache = new SecondLevelCache(new DefaultEntityCacheProvider());
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    Entity us = newCountry("US", "United States");
+    DefaultDatastoreKey key = new DefaultDatastoreKey(us.getKey());
+    cache.put(CacheableCountry.class, key, us, cache.getGeneration(CacheableCountry.class));
+    assertSame(us, countryCache.get(key));
+  }
+
+  @Test
+  public void testPut_EvictedDuringFetch() {
+    SecondLevelCache cache = new SecondLevelCache(new DefaultEntityCacheProvider());
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    Entity stale = newCountry("US", "United States");
+    DefaultDatastoreKey key = new DefaultDatastoreKey(stale.getKey());
+    // Reader misses the cache and starts fetching
+    long generation = cache.getGeneration(CacheableCountry.class);
+    // Writer updates the entity and evicts it
+    cache.evict(Collections.singletonList(stale.getKey()));
+    // Reader tries to cache what it fetched before the update
+    cache.put(CacheableCountry.class, key, stale, generation);
+    assertNull(countryCache.get(key));
+  }
+
+  @Test
+  public void testPut_EvictedDuringPut() {
+    SecondLevelCache[] holder = new SecondLevelCache[1];
+    Entity stale = newCountry("US", "United States");
+    SecondLevelCache cache = new SecondLevelCache((entityClass, settings) -> {
+      EntityCache delegate = new DefaultEntityCacheProvider().createCache(entityClass, settings);
+      return new EntityCache() {
+        @Override
+        public Entity get(DatastoreKey key) {
+          return delegate.get(key);
+        }
+
+        @Override
+        public void put(DatastoreKey key, Entity entity) {
+          // Writer evicts right before the reader's entry lands
+          holder[0].evict(Collections.singletonList(stale.getKey()));
+          delegate.put(key, entity);
+        }
+
+        @Override
+        public void remove(DatastoreKey key) {
+          delegate.remove(key);
+        }
+
+        @Override
+        public void clear() {
+          delegate.clear();
+        }
+      };
+    });
+    holder[0] = cache;
+    EntityCache countryCache = cache.getCache(CacheableCountry.class);
+    DefaultDatastoreKey key = new DefaultDatastoreKey(stale.getKey());
+    cache.put(CacheableCountry.class, key, stale, cache.getGeneration(CacheableCountry.class));
+    assertNull(countryCache.get(key));
+  }
+
+  @Test
+  public void testGetGeneration_NotCacheable() {
+    SecondLevelCache cache = new SecondLevelCache(new DefaultEntityCacheProvider());
+    cache.getCache(StringField.class);
+    assertEquals(0, cache.getGeneration(StringField.class));
+    cache.evictAll("StringField");
+    assertEquals(0, cache.getGeneration(StringField.class));
+  }
+
+  private static class RecordingProvider implements EntityCacheProvider {
+
+    private final List<Cacheable> settings = new ArrayList<>();
+
+    @Override
+    public EntityCache createCache(Class<?> entityClass, Cacheable cacheSettings) {
+      settings.add(cacheSettings);
+      return new DefaultEntityCacheProvider().createCache(entityClass, cacheSettings);
+    }
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.jmethods.catatumbo.DefaultDatastoreCursor;
+import com.jmethods.catatumbo.EntityQueryRequest;
+import com.jmethods.catatumbo.OperationType;
+import com.jmethods.catatumbo.QueryResponseMetadata.QueryState;
+import com.jmethods.catatumbo.SlowOperation;
+import com.jmethods.catatumbo.SlowOperationLogOptions;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+public class SlowOperationLogTest {
+
+  @Test
+  public void testShouldLog_Threshold() {
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setThresholdMillis(5);
+    SlowOperationLog log = new SlowOperationLog(options);
+    assertFalse(log.shouldLog(4_999_999L));
+    assertTrue(log.shouldLog(5_000_000L));
+  }
+
+  @Test
+  public void testShouldLog_Sampled() {
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setThresholdMillis(0);
+    options.setSampleRate(0.25);
+    SlowOperationLog log = new SlowOperationLog(options);
+    int logged = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (log.shouldLog(0)) {
+        logged++;
+      }
+    }
+    assertTrue(logged > 2_000 && logged < 3_000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetSampleRate_Zero() {
+    new SlowOperationLogOptions().setSampleRate(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetThresholdMillis_Negative() {
+    new SlowOperationLogOptions().setThresholdMillis(-1);
+  }
+
+  @Test
+  public void testLog_Handler() {
+    List<SlowOperation> operations = new ArrayList<>();
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setHandler(operations::add);
+    SlowOperationLog log = new SlowOperationLog(options);
+    SlowOperation operation = newQueryOperation(false);
+    log.log(operation);
+    assertEquals(Arrays.asList(operation), operations);
+  }
+
+  @Test
+  public void testLog_HandlerFails() {
+    SlowOperationLogOptions options = new SlowOperationLogOptions();
+    options.setHandler(operation -> {
+      throw new IllegalStateException("handler failed");
+    });
+    new SlowOperationLog(options).log(newQueryOperation(false));
+  }
+
+  @Test
+  public void testLog_DefaultLogger() {
+    Logger logger = Logger.getLogger(SlowOperationLogOptions.DEFAULT_LOGGER_NAME);
+    List<LogRecord> records = new ArrayList<>();
+    Handler handler = new Handler() {
+
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+        // Do nothing
+      }
+
+      @Override
+      public void close() {
+        // Do nothing
+      }
+    };
+    logger.addHandler(handler);
+    boolean useParentHandlers = logger.getUseParentHandlers();
+    logger.setUseParentHandlers(false);
+    try {
+      new SlowOperationLog(new SlowOperationLogOptions()).log(newQueryOperation(false));
+    } finally {
+      logger.removeHandler(handler);
+      logger.setUseParentHandlers(useParentHandlers);
+    }
+    assertEquals(1, records.size());
+    assertEquals(Level.WARNING, records.get(0).getLevel());
+    assertTrue(records.get(0).getMessage().startsWith("Slow QUERY of Person took 2.500 ms"));
+  }
+
+  @Test
+  public void testSlowOperation_Bindings() {
+    SlowOperation operation = newQueryOperation(false);
+    assertEquals("Bob", operation.getNamedBindings().get("name"));
+    assertEquals(Arrays.asList(30), operation.getPositionalBindings());
+    String message = operation.toString();
+    assertTrue(message, message.contains("(RPC 2.000 ms, unmarshal 0.400 ms)"));
+    assertTrue(message, message.contains("entities=3, namespace=ns1"));
+    assertTrue(message, message.contains("query=\"SELECT * FROM Person WHERE name = @name\""));
+    assertTrue(message, message.contains("namedBindings={name=Bob}"));
+    assertTrue(message, message.contains("queryState=NO_MORE_RESULTS, endCursor=abc"));
+  }
+
+  @Test
+  public void testSlowOperation_RedactedBindings() {
+    SlowOperation operation = newQueryOperation(true);
+    assertEquals("?", operation.getNamedBindings().get("name"));
+    assertEquals(Arrays.asList("?"), operation.getPositionalBindings());
+    assertFalse(operation.toString().contains("Bob"));
+  }
+
+  @Test
+  public void testSlowOperation_Write() {
+    SlowOperation operation = new DefaultSlowOperation(OperationType.DELETE, "Person", null, null,
+        false, 1, null, null, true, 1_000_000L, -1L, 0L);
+    assertNull(operation.getQuery());
+    assertNull(operation.getNamedBindings());
+    assertEquals("Slow DELETE of Person failed after 1.000 ms (RPC not measured, "
+        + "unmarshal 0.000 ms), entities=1, namespace=null", operation.toString());
+  }
+
+  private static SlowOperation newQueryOperation(boolean redactBindings) {
+    EntityQueryRequest request = new EntityQueryRequest(
+        "SELECT * FROM Person WHERE name = @name");
+    request.setNamedBinding("name", "Bob");
+    request.addPositionalBinding(30);
+    return new DefaultSlowOperation(OperationType.QUERY, "Person", "ns1", request, redactBindings,
+        3, new DefaultDatastoreCursor("abc"), QueryState.NO_MORE_RESULTS, false, 2_500_000L,
+        2_000_000L, 400_000L);
+  }
+
+}
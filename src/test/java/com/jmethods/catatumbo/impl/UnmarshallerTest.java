@@ -16,15 +16,28 @@
 
 package com.jmethods.catatumbo.impl;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import com.jmethods.catatumbo.ProcessingPhase;
 import com.jmethods.catatumbo.TestUtils;
+import com.jmethods.catatumbo.entities.Address;
+import com.jmethods.catatumbo.entities.AutoTimestampDate;
+import com.jmethods.catatumbo.entities.Contact;
+import com.jmethods.catatumbo.entities.ImmutablePerson;
 import com.jmethods.catatumbo.entities.LongId;
 import com.jmethods.catatumbo.entities.LongObjectId;
+import com.jmethods.catatumbo.entities.OptimisticLock1;
+import com.jmethods.catatumbo.entities.PhoneNumber;
 import com.jmethods.catatumbo.entities.StringId;
 import com.jmethods.catatumbo.entities.WrappedLongIdEntity;
 import com.jmethods.catatumbo.entities.WrappedLongObjectIdEntity;
@@ -99,4 +112,98 @@ public class UnmarshallerTest {
     assertTrue(entity.equals(entity2));
   }
 
+  @Test
+  public void testUnmarshal_ExplodedAndImplodedEmbedded() {
+    Contact entity = new Contact();
+    entity.setId(90002L);
+    entity.setFirstName("John");
+    entity.setLastName("Doe");
+    entity.setMobileNumber(PhoneNumber.getSample1());
+    entity.setHomeAddress(Address.getSample1());
+    entity.setWorkAddress(Address.getSample2());
+    Entity nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    Contact entity2 = Unmarshaller.unmarshal(nativeEntity, Contact.class);
+    assertTrue(entity.equalsExceptId(entity2));
+  }
+
+  @Test
+  public void testUnmarshal_NullEmbedded() {
+    Contact entity = new Contact();
+    entity.setId(90003L);
+    entity.setFirstName("Jane");
+    Entity nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    Contact entity2 = Unmarshaller.unmarshal(nativeEntity, Contact.class);
+    assertTrue(entity.equalsExceptId(entity2));
+  }
+
+  @Test
+  public void testUnmarshal_BuilderWithEmbedded() {
+    ImmutablePerson entity = ImmutablePerson.getSample1();
+    FullEntity<?> fullEntity = (FullEntity<?>) Marshaller.marshal(em, entity, Intent.INSERT);
+    Key key = Key.newBuilder("test", "ImmutablePerson", 90004L).build();
+    Entity nativeEntity = Entity.newBuilder(key, fullEntity).build();
+    ImmutablePerson entity2 = Unmarshaller.unmarshal(nativeEntity, ImmutablePerson.class);
+    assertTrue(entity.equalsExceptAutoGeneratedFields(entity2));
+  }
+
+  @Test
+  public void testUnmarshalInPlace_GeneratedId() {
+    LongId entity = new LongId();
+    entity.setField1("Hello");
+    FullEntity<?> fullEntity = (FullEntity<?>) Marshaller.marshal(em, entity, Intent.INSERT);
+    Key key = Key.newBuilder("test", "LongId", 90005L).build();
+    Entity nativeEntity = Entity.newBuilder(key, fullEntity).build();
+    LongId entity2 = Unmarshaller.unmarshalInPlace(nativeEntity, entity);
+    assertSame(entity, entity2);
+    assertEquals(90005L, entity.getId());
+    assertEquals("Hello", entity.getField1());
+  }
+
+  @Test
+  public void testUnmarshalInPlace_VersionAndTimestamps() {
+    OptimisticLock1 entity = new OptimisticLock1();
+    entity.setId(90006L);
+    Entity nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.UPDATE);
+    assertSame(entity, Unmarshaller.unmarshalInPlace(nativeEntity, entity));
+    assertEquals(2L, entity.getVersion());
+
+    AutoTimestampDate entity2 = new AutoTimestampDate();
+    entity2.setId(90007L);
+    nativeEntity = (Entity) Marshaller.marshal(em, entity2, Intent.INSERT);
+    assertSame(entity2, Unmarshaller.unmarshalInPlace(nativeEntity, entity2));
+    assertNotNull(entity2.getCreatedDate());
+    assertEquals(entity2.getCreatedDate(), entity2.getModifiedDate());
+  }
+
+  @Test
+  public void testUnmarshalInPlace_Builder() {
+    ImmutablePerson entity = ImmutablePerson.getSample1();
+    FullEntity<?> fullEntity = (FullEntity<?>) Marshaller.marshal(em, entity, Intent.INSERT);
+    Key key = Key.newBuilder("test", "ImmutablePerson", 90008L).build();
+    Entity nativeEntity = Entity.newBuilder(key, fullEntity).build();
+    ImmutablePerson entity2 = Unmarshaller.unmarshalInPlace(nativeEntity, entity);
+    assertNotSame(entity, entity2);
+    assertTrue(entity.equalsExceptAutoGeneratedFields(entity2));
+  }
+
+  @Test
+  public void testUnmarshal_PhaseMetrics() {
+    StringId entity = new StringId();
+    entity.setGreetings("Hello");
+    entity.setId("phases");
+    Entity nativeEntity = (Entity) Marshaller.marshal(em, entity, Intent.INSERT);
+    InMemoryPhaseMetrics metrics = new InMemoryPhaseMetrics();
+    em.setPhaseMetrics(metrics);
+    try {
+      Unmarshaller.unmarshal(em, nativeEntity, StringId.class);
+      Unmarshaller.unmarshal(nativeEntity, StringId.class);
+    } finally {
+      em.setPhaseMetrics(null);
+    }
+    assertEquals(1, metrics.getCount(StringId.class, ProcessingPhase.UNMARSHAL_INSTANTIATE));
+    assertEquals(1, metrics.getCount(StringId.class, ProcessingPhase.UNMARSHAL_KEY));
+    assertEquals(1, metrics.getCount(StringId.class, ProcessingPhase.UNMARSHAL_FIELDS));
+    assertEquals(0, metrics.getCount(StringId.class, ProcessingPhase.MARSHAL_KEY));
+  }
+
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.listeners;
+
+import java.util.List;
+
+import com.jmethods.catatumbo.Entity;
+import com.jmethods.catatumbo.PostLoadBatch;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+@Entity
+public class BadInternalListener5 {
+
+  @PostLoadBatch
+  public void afterLoad(List<BadInternalListener5> entities) {
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Sai Pullabhotla.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jmethods.catatumbo.listeners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jmethods.catatumbo.EntityListener;
+import com.jmethods.catatumbo.PostInsert;
+import com.jmethods.catatumbo.PostInsertBatch;
+import com.jmethods.catatumbo.PostLoadBatch;
+import com.jmethods.catatumbo.entities.BatchListenerEntity;
+
+/**
+ * @author Sai Pullabhotla
+ *
+ */
+@EntityListener
+public class BatchListener {
+
+  private final List<String> events = new ArrayList<>();
+
+  @PostInsert
+  public void afterInsert(BatchListenerEntity entity) {
+    events.add("PostInsert:" + entity.getName());
+  }
+
+  @PostInsertBatch
+  public void afterInsertBatch(List<BatchListenerEntity> entities) {
+    events.add("PostInsertBatch:" + entities.size());
+  }
+
+  @PostLoadBatch
+  public void afterLoadBatch(List<? extends BatchListenerEntity> entities) {
+    events.add("PostLoadBatch:" + entities.size());
+  }
+
+  public List<String> getEvents() {
+    return events;
+  }
+
+}